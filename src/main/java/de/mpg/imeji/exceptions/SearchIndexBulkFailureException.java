@@ -47,6 +47,15 @@ public class SearchIndexBulkFailureException extends ImejiException {
     this.failures.put(idOfDocument, failure);
   }
 
+  /**
+   * True if at least one document failed
+   *
+   * @return
+   */
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+
   @Override
   public String getMessage() {
 
@@ -15,6 +15,7 @@ import de.mpg.imeji.j2j.annotations.j2jId;
 import de.mpg.imeji.j2j.helper.J2JHelper;
 import de.mpg.imeji.j2j.persistence.Java2Jena;
 import de.mpg.imeji.j2j.persistence.Jena2Java;
+import de.mpg.imeji.j2j.persistence.PrefetchedGraph;
 import de.mpg.imeji.logic.model.aspects.CloneURI;
 import de.mpg.imeji.logic.model.aspects.ResourceLastModified;
 
@@ -38,12 +39,24 @@ public class ResourceController {
    * @param lazy
    */
   public ResourceController(Model model, boolean lazy) {
+    this(model, model, lazy);
+  }
+
+  /**
+   * Use to read from a part of a model (for instance a model of a {@link PrefetchedGraph}): the
+   * referenced resources are read in the complete model
+   *
+   * @param model
+   * @param referenceModel
+   * @param lazy
+   */
+  public ResourceController(Model model, Model referenceModel, boolean lazy) {
     if (model == null) {
       throw new NullPointerException("Fatal error: Model is null");
     }
     this.model = model;
     this.java2rdf = new Java2Jena(model, lazy);
-    this.rdf2Java = new Jena2Java(model, lazy);
+    this.rdf2Java = new Jena2Java(model, referenceModel, lazy);
   }
 
   /**
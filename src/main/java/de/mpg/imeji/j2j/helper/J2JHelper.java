@@ -43,18 +43,7 @@ public class J2JHelper {
     if (o == null) {
       return null;
     }
-    final j2jId ano = o.getClass().getAnnotation(j2jId.class);
-    if (ano != null) {
-      try {
-        final Object id = o.getClass().getMethod(ano.getMethod(), null).invoke(o, null);
-        if (id != null) {
-          return new URI(id.toString());
-        }
-      } catch (final Exception e) {
-        throw new RuntimeException("Error reading ID of " + o, e);
-      }
-    }
-    return null;
+    return J2JMappingPlan.of(o).getId(o);
   }
 
   /**
@@ -64,15 +53,7 @@ public class J2JHelper {
    * @param id
    */
   public static Object setId(Object o, URI id) {
-    final j2jId ano = o.getClass().getAnnotation(j2jId.class);
-    final Object[] args = {id};
-    if (ano != null) {
-      try {
-        o.getClass().getMethod(ano.setMethod(), URI.class).invoke(o, args);
-      } catch (final Exception e) {
-        throw new RuntimeException("Error setting ID of " + o, e);
-      }
-    }
+    J2JMappingPlan.of(o).setId(o, id);
     return o;
   }
 
@@ -93,10 +74,7 @@ public class J2JHelper {
    * @return
    */
   public static String getType(Object o) {
-    if (hasDataType(o)) {
-      return o.getClass().getAnnotation(j2jDataType.class).value();
-    }
-    return null;
+    return J2JMappingPlan.of(o).getDataType();
   }
 
   /**
@@ -106,7 +84,7 @@ public class J2JHelper {
    * @return
    */
   public static String getModel(Object o) {
-    return o.getClass().getAnnotation(j2jModel.class).value();
+    return J2JMappingPlan.of(o).getModel();
   }
 
   /**
@@ -160,11 +138,7 @@ public class J2JHelper {
    * @return
    */
   public static String getResourceNamespace(Object o) {
-    if (isResource(o)) {
-      return o.getClass().getAnnotation(j2jResource.class).value();
-    } else {
-      return null;
-    }
+    return o != null ? J2JMappingPlan.of(o).getResourceNamespace() : null;
   }
 
   /**
@@ -244,7 +218,7 @@ public class J2JHelper {
    * @return
    */
   public static boolean isResource(Object o) {
-    return o != null && o.getClass().getAnnotation(j2jResource.class) != null;
+    return o != null && J2JMappingPlan.of(o).isResource();
   }
 
   /**
@@ -358,7 +332,7 @@ public class J2JHelper {
    * @return
    */
   public static boolean hasDataType(Object o) {
-    return o.getClass().getAnnotation(j2jDataType.class) != null;
+    return J2JMappingPlan.of(o).getDataType() != null;
   }
 
   /**
@@ -407,14 +381,11 @@ public class J2JHelper {
    * @return
    */
   public static List<Field> getAllObjectFields(Class<?> clazz) {
-    if (clazz.getAnnotation(j2jResource.class) != null) {
-      final List<Field> l = new ArrayList<Field>(Arrays.asList(clazz.getDeclaredFields()));
-      if (clazz.getSuperclass() != null && clazz.getSuperclass().getAnnotation(j2jResource.class) != null) {
-        l.addAll(getAllObjectFields(clazz.getSuperclass()));
-      }
-      return getOnlyAnnotatedFields(l);
+    final List<Field> l = new ArrayList<Field>();
+    for (final J2JMappingPlan.FieldPlan f : J2JMappingPlan.of(clazz).getFields()) {
+      l.add(f.getField());
     }
-    return new ArrayList<Field>();
+    return l;
   }
 
   /**
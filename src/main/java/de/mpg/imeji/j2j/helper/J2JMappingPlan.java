@@ -0,0 +1,567 @@
+package de.mpg.imeji.j2j.helper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.j2j.annotations.j2jDataType;
+import de.mpg.imeji.j2j.annotations.j2jId;
+import de.mpg.imeji.j2j.annotations.j2jLazyList;
+import de.mpg.imeji.j2j.annotations.j2jLazyLiteral;
+import de.mpg.imeji.j2j.annotations.j2jLazyURIResource;
+import de.mpg.imeji.j2j.annotations.j2jList;
+import de.mpg.imeji.j2j.annotations.j2jLiteral;
+import de.mpg.imeji.j2j.annotations.j2jModel;
+import de.mpg.imeji.j2j.annotations.j2jReferencedResource;
+import de.mpg.imeji.j2j.annotations.j2jResource;
+
+/**
+ * The mapping of a java class to rdf, read once from its j2j annotations: the annotated fields with
+ * their kind, namespace, predicate and accessors, and the accessors of the id. The plan of a class
+ * is created at its first use, and then shared by all reads and writes
+ *
+ * @author saquet
+ *
+ */
+public class J2JMappingPlan {
+  private static final Logger LOGGER = LogManager.getLogger(J2JMappingPlan.class);
+  private static final ClassValue<J2JMappingPlan> PLANS = new ClassValue<J2JMappingPlan>() {
+    @Override
+    protected J2JMappingPlan computeValue(Class<?> type) {
+      return new J2JMappingPlan(type);
+    }
+  };
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private final Class<?> clazz;
+  private final String resourceNamespace;
+  private final Property resourceProperty;
+  private final String dataType;
+  private final String model;
+  private final MethodHandle idGetter;
+  private final MethodHandle idSetter;
+  private final List<FieldPlan> fields;
+
+  private J2JMappingPlan(Class<?> clazz) {
+    this.clazz = clazz;
+    final j2jResource resource = clazz.getAnnotation(j2jResource.class);
+    this.resourceNamespace = resource != null ? resource.value() : null;
+    this.resourceProperty = resource != null ? ResourceFactory.createProperty(resourceNamespace) : null;
+    final j2jDataType type = clazz.getAnnotation(j2jDataType.class);
+    this.dataType = type != null ? type.value() : null;
+    final j2jModel m = clazz.getAnnotation(j2jModel.class);
+    this.model = m != null ? m.value() : null;
+    final j2jId id = clazz.getAnnotation(j2jId.class);
+    this.idGetter = id != null ? findMethod(clazz, MethodType.methodType(Object.class, Object.class), id.getMethod()) : null;
+    this.idSetter =
+        id != null ? findMethod(clazz, MethodType.methodType(void.class, Object.class, URI.class), id.setMethod(), URI.class) : null;
+    final List<FieldPlan> l = new ArrayList<>();
+    for (final Field f : getAllObjectFields(clazz)) {
+      l.add(new FieldPlan(f, clazz));
+    }
+    this.fields = Collections.unmodifiableList(l);
+  }
+
+  /**
+   * The plan of the class
+   *
+   * @param clazz
+   * @return
+   */
+  public static J2JMappingPlan of(Class<?> clazz) {
+    return PLANS.get(clazz);
+  }
+
+  /**
+   * The plan of the class of the object
+   *
+   * @param o
+   * @return
+   */
+  public static J2JMappingPlan of(Object o) {
+    return PLANS.get(o.getClass());
+  }
+
+  /**
+   * The annotated fields of the class and of its {@link j2jResource} superclasses
+   *
+   * @param c
+   * @return
+   */
+  private static List<Field> getAllObjectFields(Class<?> c) {
+    final List<Field> l = new ArrayList<>();
+    if (c.getAnnotation(j2jResource.class) != null) {
+      for (final Field f : c.getDeclaredFields()) {
+        if (isAnnotated(f)) {
+          l.add(f);
+        }
+      }
+      if (c.getSuperclass() != null && c.getSuperclass().getAnnotation(j2jResource.class) != null) {
+        l.addAll(getAllObjectFields(c.getSuperclass()));
+      }
+    }
+    return l;
+  }
+
+  private static boolean isAnnotated(Field f) {
+    return f.getAnnotation(j2jLazyList.class) != null || f.getAnnotation(j2jList.class) != null
+        || f.getAnnotation(j2jLiteral.class) != null || f.getAnnotation(j2jResource.class) != null
+        || f.getAnnotation(j2jLazyLiteral.class) != null || f.getAnnotation(j2jLazyURIResource.class) != null
+        || f.getAnnotation(j2jReferencedResource.class) != null;
+  }
+
+  /**
+   * The handle of a public method, adapted to the type used to invoke it
+   *
+   * @param c
+   * @param type
+   * @param name
+   * @param parameterTypes
+   * @return
+   */
+  private static MethodHandle findMethod(Class<?> c, MethodType type, String name, Class<?>... parameterTypes) {
+    try {
+      final Method m = c.getMethod(name, parameterTypes);
+      m.setAccessible(true);
+      return LOOKUP.unreflect(m).asType(type);
+    } catch (final Exception e) {
+      LOGGER.error("No method " + name + " in " + c.getName(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Read the id of the object
+   *
+   * @param o
+   * @return
+   */
+  public URI getId(Object o) {
+    if (idGetter == null) {
+      return null;
+    }
+    try {
+      final Object id = (Object) idGetter.invokeExact(o);
+      return id != null ? new URI(id.toString()) : null;
+    } catch (final Throwable e) {
+      throw new RuntimeException("Error reading ID of " + o, e);
+    }
+  }
+
+  /**
+   * Set the id of the object
+   *
+   * @param o
+   * @param id
+   */
+  public void setId(Object o, URI id) {
+    if (idSetter != null) {
+      try {
+        idSetter.invokeExact(o, id);
+      } catch (final Throwable e) {
+        throw new RuntimeException("Error setting ID of " + o, e);
+      }
+    }
+  }
+
+  public boolean isResource() {
+    return resourceNamespace != null;
+  }
+
+  public String getResourceNamespace() {
+    return resourceNamespace;
+  }
+
+  /**
+   * The predicate of the resource, when it is embedded in another resource
+   *
+   * @return
+   */
+  public Property getResourceProperty() {
+    return resourceProperty;
+  }
+
+  public String getDataType() {
+    return dataType;
+  }
+
+  public String getModel() {
+    return model;
+  }
+
+  /**
+   * The fields written as rdf properties
+   *
+   * @return
+   */
+  public List<FieldPlan> getFields() {
+    return fields;
+  }
+
+  /**
+   * The mapping of one annotated field
+   *
+   * @author saquet
+   *
+   */
+  public static class FieldPlan {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private final Field field;
+    private final Class<?> owner;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final boolean literal;
+    private final boolean lazyLiteral;
+    private final boolean list;
+    private final boolean lazyList;
+    private final boolean resource;
+    private final boolean lazyURIResource;
+    private final boolean uri;
+    private final boolean listOfResources;
+    private final String literalNamespace;
+    private final String listNamespace;
+    private final String lazyListNamespace;
+    private final String uriResourceNamespace;
+    private final String namespace;
+    private final Property literalProperty;
+    private final Property uriResourceProperty;
+    private final Property listProperty;
+    private final Property lazyListProperty;
+    private final Supplier<Object> instanceFactory;
+    private final Supplier<Object> elementFactory;
+    private final j2jReferencedResource reference;
+    private volatile MethodHandle referenceUriGetter;
+    private volatile FieldPlan referencedField;
+
+    private FieldPlan(Field field, Class<?> owner) {
+      this.field = field;
+      this.owner = owner;
+      field.setAccessible(true);
+      try {
+        this.getter = LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+        this.setter = LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+      } catch (final IllegalAccessException e) {
+        throw new RuntimeException("Field " + field + " can not be accessed", e);
+      }
+      final j2jLiteral literalAnnotation = field.getAnnotation(j2jLiteral.class);
+      final j2jLazyLiteral lazyLiteralAnnotation = field.getAnnotation(j2jLazyLiteral.class);
+      final j2jList listAnnotation = field.getAnnotation(j2jList.class);
+      final j2jLazyList lazyListAnnotation = field.getAnnotation(j2jLazyList.class);
+      final j2jResource resourceAnnotation = field.getAnnotation(j2jResource.class);
+      final j2jLazyURIResource lazyURIAnnotation = field.getAnnotation(j2jLazyURIResource.class);
+      this.reference = field.getAnnotation(j2jReferencedResource.class);
+      this.literal = literalAnnotation != null;
+      this.lazyLiteral = lazyLiteralAnnotation != null;
+      this.list = listAnnotation != null;
+      this.lazyList = lazyListAnnotation != null;
+      this.resource = resourceAnnotation != null;
+      this.lazyURIResource = lazyURIAnnotation != null;
+      this.uri = field.getType().equals(URI.class);
+      this.listNamespace = list ? listAnnotation.value() : null;
+      this.lazyListNamespace = lazyList ? lazyListAnnotation.value() : null;
+      if (literal) {
+        this.literalNamespace = literalAnnotation.value();
+      } else if (lazyLiteral) {
+        this.literalNamespace = lazyLiteralAnnotation.value();
+      } else {
+        this.literalNamespace = list ? listNamespace : lazyListNamespace;
+      }
+      if (resource) {
+        this.uriResourceNamespace = resourceAnnotation.value();
+      } else if (lazyURIResource) {
+        this.uriResourceNamespace = lazyURIAnnotation.value();
+      } else {
+        this.uriResourceNamespace = list ? listNamespace : lazyListNamespace;
+      }
+      if (resource) {
+        this.namespace = resourceAnnotation.value();
+      } else if (literal) {
+        this.namespace = literalNamespace;
+      } else {
+        this.namespace = listNamespace;
+      }
+      this.literalProperty = literalNamespace != null ? ResourceFactory.createProperty(literalNamespace) : null;
+      this.uriResourceProperty = uriResourceNamespace != null ? ResourceFactory.createProperty(uriResourceNamespace) : null;
+      this.listProperty = list ? ResourceFactory.createProperty(listNamespace) : null;
+      this.lazyListProperty = lazyList ? ResourceFactory.createProperty(lazyListNamespace) : null;
+      this.instanceFactory = createFactory(field.getType());
+      final Class<?> elementClass = getListElementClass(field);
+      this.elementFactory = elementClass == URI.class ? () -> URI.create("") : createFactory(elementClass);
+      this.listOfResources = elementClass != null && elementClass.getAnnotation(j2jResource.class) != null;
+    }
+
+    private static Class<?> getListElementClass(Field f) {
+      final Type genericFieldType = f.getGenericType();
+      if (genericFieldType instanceof ParameterizedType) {
+        final Type[] fieldArgTypes = ((ParameterizedType) genericFieldType).getActualTypeArguments();
+        if (fieldArgTypes.length > 0 && fieldArgTypes[0] instanceof Class) {
+          return (Class<?>) fieldArgTypes[0];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * A factory calling the constructor without parameters of the class, or null if there is none
+     *
+     * @param c
+     * @return
+     */
+    private static Supplier<Object> createFactory(Class<?> c) {
+      if (c == null) {
+        return null;
+      }
+      try {
+        final Constructor<?> constructor = c.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        final MethodHandle handle = LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        return () -> {
+          try {
+            return (Object) handle.invokeExact();
+          } catch (final Throwable e) {
+            throw new RuntimeException("Error initializing " + c, e);
+          }
+        };
+      } catch (final Exception e) {
+        return () -> {
+          throw new RuntimeException("Error initializing " + c);
+        };
+      }
+    }
+
+    /**
+     * The value of the field, or null if it can't be read
+     *
+     * @param o
+     * @return
+     */
+    public Object get(Object o) {
+      try {
+        return (Object) getter.invokeExact(o);
+      } catch (final Throwable e) {
+        return null;
+      }
+    }
+
+    /**
+     * The value of the field, or a new instance of its type if the field is null
+     *
+     * @param o
+     * @return
+     */
+    public Object getNonNull(Object o) {
+      final Object value = get(o);
+      if (value != null) {
+        return value;
+      }
+      try {
+        return instanceFactory.get();
+      } catch (final Exception e) {
+        return null;
+      }
+    }
+
+    /**
+     * Set the value of the field
+     *
+     * @param o
+     * @param value
+     */
+    public void set(Object o, Object value) {
+      try {
+        setter.invokeExact(o, value);
+      } catch (final Throwable e) {
+        throw new RuntimeException("Error writing " + value + " to " + o + " for field " + field, e);
+      }
+    }
+
+    /**
+     * A new element of the list of this field, or null if the field is not a parameterized list
+     *
+     * @return
+     */
+    public Object newListElement() {
+      return elementFactory != null ? elementFactory.get() : null;
+    }
+
+    /**
+     * Same as {@link J2JHelper#isURIResource(Object, Field)}
+     *
+     * @param o
+     * @return
+     */
+    public boolean isURIResource(Object o) {
+      return uri && resource || ((list || lazyList) && o instanceof URI);
+    }
+
+    /**
+     * Same as {@link J2JHelper#isLazyURIResource(Object, Field)}
+     *
+     * @param o
+     * @return
+     */
+    public boolean isLazyURIResource(Object o) {
+      return uri && lazyURIResource || (lazyList && o instanceof URI);
+    }
+
+    /**
+     * Same as {@link J2JHelper#getNamespace(Object, Field)}
+     *
+     * @param o
+     * @return
+     */
+    public String getNamespace(Object o) {
+      if (J2JHelper.isResource(o)) {
+        return J2JHelper.getResourceNamespace(o);
+      } else if (literal || lazyLiteral) {
+        return literalNamespace;
+      } else if (isURIResource(o) || isLazyURIResource(o)) {
+        return uriResourceNamespace;
+      } else if (list) {
+        return listNamespace;
+      } else if (lazyList) {
+        return lazyListNamespace;
+      }
+      return null;
+    }
+
+    /**
+     * The uri of the referenced resource, read in the field of the object defined by
+     * {@link j2jReferencedResource#referencedResourceUri()}
+     *
+     * @param o
+     * @return
+     * @throws ReflectiveOperationException
+     */
+    public String getReferencedResourceUri(Object o) throws ReflectiveOperationException {
+      if (referenceUriGetter == null) {
+        final Field uriField = owner.getDeclaredField(reference.referencedResourceUri());
+        uriField.setAccessible(true);
+        referenceUriGetter = LOOKUP.unreflectGetter(uriField).asType(GETTER_TYPE);
+      }
+      try {
+        return (String) referenceUriGetter.invokeExact(o);
+      } catch (final ReflectiveOperationException | RuntimeException e) {
+        throw e;
+      } catch (final Throwable e) {
+        throw new RuntimeException("Error reading the referenced resource of " + o, e);
+      }
+    }
+
+    /**
+     * The field read in the referenced resource
+     *
+     * @return
+     * @throws ReflectiveOperationException
+     */
+    public FieldPlan getReferencedField() throws ReflectiveOperationException {
+      if (referencedField == null) {
+        final Class<?> target = Class.forName(reference.referencedClass());
+        referencedField = new FieldPlan(target.getDeclaredField(reference.referencedField()), target);
+      }
+      return referencedField;
+    }
+
+    public Field getField() {
+      return field;
+    }
+
+    public boolean isLiteral() {
+      return literal;
+    }
+
+    public boolean isLazyLiteral() {
+      return lazyLiteral;
+    }
+
+    public boolean isList() {
+      return list;
+    }
+
+    public boolean isLazyList() {
+      return lazyList;
+    }
+
+    public boolean isReferencedResource() {
+      return reference != null;
+    }
+
+    /**
+     * True if the field is a list of {@link j2jResource}
+     *
+     * @return
+     */
+    public boolean isListOfResources() {
+      return listOfResources;
+    }
+
+    /**
+     * Same as {@link J2JHelper#getLiteralNamespace(Field)}
+     *
+     * @return
+     */
+    public String getLiteralNamespace() {
+      return literalNamespace;
+    }
+
+    public Property getLiteralProperty() {
+      return literalProperty;
+    }
+
+    public String getListNamespace() {
+      return listNamespace;
+    }
+
+    public String getLazyListNamespace() {
+      return lazyListNamespace;
+    }
+
+    public Property getListProperty() {
+      return listProperty;
+    }
+
+    public Property getLazyListProperty() {
+      return lazyListProperty;
+    }
+
+    /**
+     * Same as {@link J2JHelper#getURIResourceNamespace(Object, Field)}, for an object which is an
+     * uri resource
+     *
+     * @return
+     */
+    public Property getURIResourceProperty() {
+      return uriResourceProperty;
+    }
+
+    /**
+     * Same as {@link J2JHelper#getNamespace(Field)}
+     *
+     * @return
+     */
+    public String getNamespace() {
+      return namespace;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "J2JMappingPlan " + clazz.getName() + " " + Arrays.toString(fields.stream().map(f -> f.getField().getName()).toArray());
+  }
+}
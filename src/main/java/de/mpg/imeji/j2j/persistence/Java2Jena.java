@@ -1,8 +1,5 @@
 package de.mpg.imeji.j2j.persistence;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -24,6 +21,8 @@ import org.apache.jena.vocabulary.RDFS;
 
 import de.mpg.imeji.exceptions.AlreadyExistsException;
 import de.mpg.imeji.j2j.helper.J2JHelper;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan.FieldPlan;
 import de.mpg.imeji.j2j.helper.LiteralHelper;
 import de.mpg.imeji.util.LocalizedString;
 
@@ -154,9 +153,9 @@ public class Java2Jena {
    */
   private void removeLazy(Object o) {
     final Resource r = createResource(o);
-    for (final Field f : J2JHelper.getAllObjectFields(o.getClass())) {
-      if (!J2JHelper.isLazyList(f)) {
-        final String ns = J2JHelper.getNamespace(f);
+    for (final FieldPlan f : J2JMappingPlan.of(o).getFields()) {
+      if (!f.isLazyList()) {
+        final String ns = f.getNamespace();
         if (ns != null) {
           final Property p = model.createProperty(ns);
           model.removeAll(r, p, null);
@@ -222,9 +221,9 @@ public class Java2Jena {
    * @param o
    */
   private void addProperties2Resource(Resource s, Object o) {
-    for (final Field f : J2JHelper.getAllObjectFields(o.getClass())) {
+    for (final FieldPlan f : J2JMappingPlan.of(o).getFields()) {
       try {
-        final Object r = J2JHelper.getFieldAsJavaObject(f, o);
+        final Object r = f.get(o);
         if (r != null) {
           if (r instanceof List<?>) {
             addList2Resource(s, ((List<?>) r), f);
@@ -233,7 +232,7 @@ public class Java2Jena {
           }
         }
       } catch (final Exception e) {
-        throw new RuntimeException("Error adding property for field " + f + " to object " + o.getClass(), e);
+        throw new RuntimeException("Error adding property for field " + f.getField() + " to object " + o.getClass(), e);
       }
     }
   }
@@ -244,8 +243,8 @@ public class Java2Jena {
    * @param s
    * @param list
    */
-  private void addList2Resource(Resource s, List<?> list, Field f) {
-    if (!(lazy && J2JHelper.isLazyList(f))) {
+  private void addList2Resource(Resource s, List<?> list, FieldPlan f) {
+    if (!(lazy && f.isLazyList())) {
       for (int i = 0; i < list.size(); i++) {
         Object listElement = list.get(i);
         if (J2JHelper.isResource(listElement) && J2JHelper.getId(listElement) == null) {
@@ -283,22 +282,22 @@ public class Java2Jena {
    * @param s
    * @param obj
    */
-  private void addProperty(Resource s, Object obj, Field f) {
+  private void addProperty(Resource s, Object obj, FieldPlan f) {
     try {
       if (obj == null) {
         return;
       } else if (J2JHelper.isResource(obj) && J2JHelper.getId(obj) != null) {
         writeResource(s, obj);
-      } else if (J2JHelper.isLiteral(f) || J2JHelper.isLazyLitereal(f)) {
+      } else if (f.isLiteral() || f.isLazyLiteral()) {
         addLiteral(s, obj, f);
-      } else if ((J2JHelper.isURIResource(obj, f) || J2JHelper.isLazyURIResource(obj, f)) && obj != null) {
+      } else if (f.isURIResource(obj) || f.isLazyURIResource(obj)) {
         addURIResource(s, obj, f);
       } else if (obj instanceof LocalizedString) {
         addLabel(s, (LocalizedString) obj);
-      } else if (J2JHelper.isList(f) || J2JHelper.isLazyList(f)) {
+      } else if (f.isList() || f.isLazyList()) {
         addLiteral(s, obj, f);
       } else {
-        LOGGER.error("Not adding field " + f);
+        LOGGER.error("Not adding field " + f.getField());
       }
     } catch (final Exception e) {
       throw new RuntimeException("Error adding property", e);
@@ -313,7 +312,7 @@ public class Java2Jena {
    */
   private void writeResource(Resource s, Object resourceObject) {
     if (J2JHelper.getId(resourceObject) != null) {
-      final Property p = model.createProperty(J2JHelper.getResourceNamespace(resourceObject));
+      final Property p = J2JMappingPlan.of(resourceObject).getResourceProperty();
       final Resource o = createResource(resourceObject);// model.createResource(J2JHelper.getId(resourceObject).toString());
       model.add(s, p, o);
       addProperties2Resource(o, resourceObject);
@@ -329,9 +328,9 @@ public class Java2Jena {
    * @param literalObject
    * @param f
    */
-  private void addLiteral(Resource s, Object literalObject, Field f) {
+  private void addLiteral(Resource s, Object literalObject, FieldPlan f) {
     if (!literalHelper.isEmpty(literalObject)) {
-      final Property p = model.createProperty(J2JHelper.getLiteralNamespace(f));
+      final Property p = f.getLiteralProperty();
       final Literal o = literalHelper.java2Literal(literalObject);
       if (o != null) {
         model.add(s, p, o);
@@ -360,8 +359,8 @@ public class Java2Jena {
    * @param obj
    * @param f
    */
-  private void addURIResource(Resource s, Object resourceURI, Field f) {
-    final Property p = model.createProperty(J2JHelper.getURIResourceNamespace(resourceURI, f));
+  private void addURIResource(Resource s, Object resourceURI, FieldPlan f) {
+    final Property p = f.getURIResourceProperty();
     final Resource o = model.createResource(resourceURI.toString());
     if (o != null) {
       model.add(s, p, o);
@@ -378,21 +377,17 @@ public class Java2Jena {
    */
   private List<Resource> getEmbeddedResources(Object r) {
     final List<Resource> l = new ArrayList<Resource>();
-    for (final Field f : J2JHelper.getAllObjectFields(r.getClass())) {
-      if (!(lazy && J2JHelper.isLazyList(f))) {
+    for (final FieldPlan f : J2JMappingPlan.of(r).getFields()) {
+      if (!(lazy && f.isLazyList())) {
         try {
-          final Object r2 = J2JHelper.getFieldAsJavaObjectNonNull(f, r);
+          final Object r2 = f.getNonNull(r);
           if (J2JHelper.isResource(r2) && exists(r2)) {
             final Resource o = model.getResource(J2JHelper.getId(r2).toString());
             l.add(o);
             l.addAll(getEmbeddedResources(r2));
-          } else if (J2JHelper.isLazyList(f) || J2JHelper.isList(f)) {
-            final String predicate = J2JHelper.getNamespace(r2, f);
-            // Get the class of the object in the list
-            final ParameterizedType paramType = (ParameterizedType) f.getGenericType();
-            final Type type = paramType.getActualTypeArguments()[0];
-            final boolean isListOfResources = J2JHelper.isResource((Class<?>) type);
-            if (isListOfResources) {
+          } else if (f.isLazyList() || f.isList()) {
+            final String predicate = f.getNamespace(r2);
+            if (f.isListOfResources()) {
               final Resource parent = model.getResource(J2JHelper.getId(r).toString());
               // Find all child resources for this predicate: <parent> <predicate> <childs>
               for (final StmtIterator iterator = parent.listProperties(model.createProperty(predicate)); iterator.hasNext();) {
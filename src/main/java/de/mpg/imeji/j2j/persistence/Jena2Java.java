@@ -1,8 +1,6 @@
 package de.mpg.imeji.j2j.persistence;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
@@ -22,6 +21,8 @@ import de.mpg.imeji.j2j.annotations.j2jId;
 import de.mpg.imeji.j2j.annotations.j2jReferencedResource;
 import de.mpg.imeji.j2j.annotations.j2jResource;
 import de.mpg.imeji.j2j.helper.J2JHelper;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan.FieldPlan;
 import de.mpg.imeji.j2j.helper.LiteralHelper;
 import de.mpg.imeji.util.LocalizedString;
 
@@ -35,11 +36,25 @@ import de.mpg.imeji.util.LocalizedString;
  */
 public class Jena2Java {
   private final Model model;
+  private final Model referenceModel;
   private boolean lazy = false;
   private static final Logger LOGGER = LogManager.getLogger(Jena2Java.class);
 
   public Jena2Java(Model model, boolean lazy) {
+    this(model, model, lazy);
+  }
+
+  /**
+   * Read the resources in a model, and the referenced resources (see {@link j2jReferencedResource})
+   * in another model
+   *
+   * @param model
+   * @param referenceModel
+   * @param lazy
+   */
+  public Jena2Java(Model model, Model referenceModel, boolean lazy) {
     this.model = model;
+    this.referenceModel = referenceModel;
     this.lazy = lazy;
   }
 
@@ -71,13 +86,12 @@ public class Jena2Java {
     if (J2JHelper.hasDataType(javaObject) && isTypedResource(subject)) {
       javaObject = createJavaObjectFromDataType(subject);
     }
-    List<Field> resourceFields = J2JHelper.getAllObjectFields(javaObject.getClass());
-    for (final Field field : resourceFields) {
+    for (final FieldPlan field : J2JMappingPlan.of(javaObject).getFields()) {
       Object object = null;
-      if (J2JHelper.isReferencedResource(field)) {
+      if (field.isReferencedResource()) {
         object = loadReferenceObject(javaObject, field);
       } else {
-        object = J2JHelper.getFieldAsJavaObjectNonNull(field, javaObject);
+        object = field.getNonNull(javaObject);
         object = loadObject(subject, field, object, 0, null);
       }
       setField(javaObject, field, object);
@@ -92,33 +106,19 @@ public class Jena2Java {
    * @param field
    * @return
    */
-  private Object loadReferenceObject(Object javaObject, Field field) {
+  private Object loadReferenceObject(Object javaObject, FieldPlan field) {
 
     Object referenceObject = null;
 
-    if (javaObject != null) {
-      j2jReferencedResource referencedResourceAnnotation = field.getAnnotation(j2jReferencedResource.class);
-      if (referencedResourceAnnotation != null) {
-        String uriFieldName = referencedResourceAnnotation.referencedResourceUri();
-        String targetClassName = referencedResourceAnnotation.referencedClass();
-        String targetFieldName = referencedResourceAnnotation.referencedField();
-        if (uriFieldName != null) {
-          try {
-            // (1) get URI of resource whose field we want to read
-            Field uriField = javaObject.getClass().getDeclaredField(uriFieldName);
-            uriField.setAccessible(true);
-            String resourceUriString = (String) uriField.get(javaObject);
-            final Resource subject = model.getResource(resourceUriString);
-            // (2) get field that we want to read
-            Class<?> myClass = Class.forName(targetClassName);
-            Field targetField = myClass.getDeclaredField(targetFieldName);
-            targetField.setAccessible(true);
-            referenceObject = loadObject(subject, targetField, null, 0, null);
-          } catch (Exception e) {
-            // NoSuchFieldException, SecurityException
-            e.printStackTrace();
-          }
-        }
+    if (javaObject != null && field.isReferencedResource()) {
+      try {
+        // (1) get URI of resource whose field we want to read
+        final Resource subject = referenceModel.getResource(field.getReferencedResourceUri(javaObject));
+        // (2) get field that we want to read
+        referenceObject = loadObject(subject, field.getReferencedField(), null, 0, null);
+      } catch (Exception e) {
+        // NoSuchFieldException, SecurityException
+        e.printStackTrace();
       }
     }
     return referenceObject;
@@ -135,18 +135,18 @@ public class Jena2Java {
    * @param position
    * @return
    */
-  private Object loadObject(Resource subject, Field f, Object object, int position, Statement st) {
+  private Object loadObject(Resource subject, FieldPlan f, Object object, int position, Statement st) {
     if (J2JHelper.isResource(object)) {
       object = loadResourceObject(subject, object, position);
-    } else if (J2JHelper.isLiteral(f) || (J2JHelper.isLazyLitereal(f) && !lazy)) {
+    } else if (f.isLiteral() || (f.isLazyLiteral() && !lazy)) {
       object = loadObjectLiteral(f, subject, object, position, st);
-    } else if (J2JHelper.isURIResource(object, f) || (J2JHelper.isLazyURIResource(object, f) && !lazy)) {
+    } else if (f.isURIResource(object) || (f.isLazyURIResource(object) && !lazy)) {
       object = readURIResource(f, subject, object, position);
     } else if (object instanceof List<?>) {
       object = readList(f, subject);
     } else if (object instanceof LocalizedString) {
       object = readLocalizedString(f, subject, object, position, st);
-    } else if (J2JHelper.isList(f) && J2JHelper.getLiteralNamespace(f) != null) {
+    } else if (f.isList() && f.getLiteralNamespace() != null) {
       // field of a list which has not been handle so for (i.e not an URI or not a
       // localized String)
       object = loadObjectLiteral(f, subject, object, position, st);
@@ -162,17 +162,12 @@ public class Jena2Java {
    * @param object
    * @return
    */
-  private Object setField(Object subject, Field f, Object object) {
-    try {
-      f.setAccessible(true);
-      object = LiteralHelper.jenaTypeToJ2jType(object);
-      if (object != null) {
-        f.set(subject, object);
-      }
-      return subject;
-    } catch (final Exception e) {
-      throw new RuntimeException("Error writing " + object + " to " + subject + " for field " + f, e);
+  private Object setField(Object subject, FieldPlan f, Object object) {
+    object = LiteralHelper.jenaTypeToJ2jType(object);
+    if (object != null) {
+      f.set(subject, object);
     }
+    return subject;
   }
 
   /**
@@ -186,8 +181,7 @@ public class Jena2Java {
    * @return
    */
   private Object loadResourceObject(Resource subject, Object object, int position) {
-    final String predicate = J2JHelper.getResourceNamespace(object);
-    final Statement st = getStatement(subject, predicate, position);
+    final Statement st = getStatement(subject, J2JMappingPlan.of(object).getResourceProperty(), position);
     if (st != null) {
       final URI uri = URI.create(st.getObject().toString());
       J2JHelper.setId(object, uri);
@@ -207,9 +201,8 @@ public class Jena2Java {
    * @param position
    * @return
    */
-  private Object loadObjectLiteral(Field f, Resource subject, Object object, int position, Statement statement) {
-    final String predicate = J2JHelper.getLiteralNamespace(f);
-    final Statement st = statement == null ? getStatement(subject, predicate, position) : statement;
+  private Object loadObjectLiteral(FieldPlan f, Resource subject, Object object, int position, Statement statement) {
+    final Statement st = statement == null ? getStatement(subject, f.getLiteralProperty(), position) : statement;
     if (st != null) {
       object = LiteralHelper.jenaTypeToJ2jType(st.getLiteral().getValue());
     }
@@ -227,9 +220,8 @@ public class Jena2Java {
    * @param position
    * @return
    */
-  private Object readURIResource(Field f, Resource subject, Object object, int position) {
-    final String predicate = J2JHelper.getURIResourceNamespace(object, f);
-    final Statement st = getStatement(subject, predicate, position);
+  private Object readURIResource(FieldPlan f, Resource subject, Object object, int position) {
+    final Statement st = getStatement(subject, f.getURIResourceProperty(), position);
     if (st != null) {
       object = URI.create(st.getObject().toString());
     }
@@ -247,8 +239,8 @@ public class Jena2Java {
    * @param position
    * @return
    */
-  private Object readLocalizedString(Field f, Resource subject, Object object, int position, Statement statement) {
-    final Statement st = statement == null ? getStatement(subject, RDFS.label.getURI(), position) : statement;
+  private Object readLocalizedString(FieldPlan f, Resource subject, Object object, int position, Statement statement) {
+    final Statement st = statement == null ? getStatement(subject, RDFS.label, position) : statement;
     final LocalizedString ls = new LocalizedString(st.getObject().asLiteral().getValue().toString(), st.getLanguage());
     return ls;
   }
@@ -262,23 +254,23 @@ public class Jena2Java {
    * @param subject
    * @return
    */
-  private Object readList(Field f, Resource subject) {
+  private Object readList(FieldPlan f, Resource subject) {
     final List<Object> object = new ArrayList<Object>();
-    String predicate = J2JHelper.getListNamespace(f);
+    Property predicate = f.getListProperty();
     if (predicate == null && !lazy) {
-      predicate = J2JHelper.getLazyListNamespace(f);
+      predicate = f.getLazyListProperty();
     }
     if (predicate == null) {
       return object;
     }
     int count = 0;
-    for (final StmtIterator iterator = subject.listProperties(model.createProperty(predicate)); iterator.hasNext();) {
+    for (final StmtIterator iterator = subject.listProperties(predicate); iterator.hasNext();) {
       final Statement st = iterator.nextStatement();
       Object listObject = null;
       if (st.getObject().isResource() && isTypedResource(st.getResource())) {
         listObject = createJavaObjectFromDataType(st.getResource());
       } else {
-        listObject = createJavaObjectForListElements(f);
+        listObject = f.newListElement();
       }
       if (listObject != null) {
         if (J2JHelper.isResource(listObject)) {
@@ -332,13 +324,13 @@ public class Jena2Java {
    * many statements with same subject and predicate)
    *
    * @param subject
-   * @param predicateUri
+   * @param predicate
    * @param position
    * @return
    */
-  private Statement getStatement(Resource subject, String predicateUri, int position) {
+  private Statement getStatement(Resource subject, Property predicate, int position) {
     int count = 0;
-    for (final StmtIterator iterator = subject.listProperties(model.createProperty(predicateUri)); iterator.hasNext();) {
+    for (final StmtIterator iterator = subject.listProperties(predicate); iterator.hasNext();) {
       final Statement st = iterator.next();
       if (position == count) {
         return st;
@@ -347,30 +339,4 @@ public class Jena2Java {
     }
     return null;
   }
-
-  /**
-   * Return an object instance contained in a List
-   *
-   * @param f
-   * @return
-   */
-  private Object createJavaObjectForListElements(Field f) {
-    final Type genericFieldType = f.getGenericType();
-    if (genericFieldType instanceof ParameterizedType) {
-      final ParameterizedType aType = (ParameterizedType) genericFieldType;
-      final Type[] fieldArgTypes = aType.getActualTypeArguments();
-      for (final Type fieldArgType : fieldArgTypes) {
-        final Class<?> fieldArgClass = (Class<?>) fieldArgType;
-        try {
-          if (fieldArgClass == URI.class) {
-            return URI.create("");
-          }
-          return fieldArgClass.newInstance();
-        } catch (final Exception e) {
-          throw new RuntimeException("Error initializing " + fieldArgClass);
-        }
-      }
-    }
-    return null;
-  }
 }
@@ -0,0 +1,80 @@
+package de.mpg.imeji.j2j.persistence;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+/**
+ * A read-only {@link Graph} with all triples of some subjects, and of all resources reachable from
+ * them, read from another {@link Graph}. Each subject is read from the source with one scan, so
+ * that the many reads of {@link Jena2Java} for each field of each object are done in memory.<br/>
+ * The triples of a subject are kept in the order of the source, so that the lists are read in the
+ * same order as from the source
+ *
+ * @author saquet
+ *
+ */
+public class PrefetchedGraph extends GraphBase {
+  private final Map<Node, List<Triple>> triples = new LinkedHashMap<>();
+
+  private PrefetchedGraph() {
+    // use load
+  }
+
+  /**
+   * Read the triples of the subjects and of the resources reachable from them
+   *
+   * @param source the graph to read
+   * @param subjects
+   * @param notFollowed the predicates whose objects are not read
+   * @return
+   */
+  public static PrefetchedGraph load(Graph source, Collection<Node> subjects, Set<Node> notFollowed) {
+    final PrefetchedGraph graph = new PrefetchedGraph();
+    final Set<Node> visited = new HashSet<>(subjects);
+    final Deque<Node> queue = new ArrayDeque<>(subjects);
+    while (!queue.isEmpty()) {
+      final Node subject = queue.poll();
+      final List<Triple> l = source.find(subject, Node.ANY, Node.ANY).toList();
+      if (l.isEmpty()) {
+        continue;
+      }
+      graph.triples.put(subject, l);
+      for (final Triple t : l) {
+        final Node o = t.getObject();
+        if ((o.isURI() || o.isBlank()) && !notFollowed.contains(t.getPredicate()) && visited.add(o)) {
+          queue.add(o);
+        }
+      }
+    }
+    return graph;
+  }
+
+  @Override
+  protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+    final Node subject = pattern.getMatchSubject();
+    if (subject != null) {
+      final List<Triple> l = triples.getOrDefault(subject, Collections.emptyList());
+      return WrappedIterator.create(l.iterator()).filterKeep(pattern::matches);
+    }
+    final List<Triple> all = new ArrayList<>();
+    for (final List<Triple> l : triples.values()) {
+      all.addAll(l);
+    }
+    return WrappedIterator.create(all.iterator()).filterKeep(pattern::matches);
+  }
+}
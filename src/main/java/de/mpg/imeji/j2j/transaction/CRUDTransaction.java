@@ -1,13 +1,24 @@
 package de.mpg.imeji.j2j.transaction;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.j2j.controler.ResourceController;
+import de.mpg.imeji.j2j.helper.J2JHelper;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan.FieldPlan;
+import de.mpg.imeji.j2j.persistence.PrefetchedGraph;
 import de.mpg.imeji.logic.model.User;
 
 
@@ -44,13 +55,42 @@ public class CRUDTransaction extends SecureTransaction {
 
   @Override
   protected void execute(Dataset ds) throws ImejiException {
-    final ResourceController rc = new ResourceController(getModel(ds), lazy);
+    final Model model = getModel(ds);
+    final ResourceController rc = type == OperationType.READ && objects.size() > 1 && model != null
+        ? new ResourceController(prefetch(model), model, lazy) : new ResourceController(model, lazy);
     for (final Object o : objects) {
       checkObjectStatus(rc, o, this.type);
       invokeResourceController(rc, o);
     }
   }
 
+  /**
+   * Read at once the triples of all objects to read, and of their embedded resources. The objects
+   * of the lazy lists are not read by a lazy read
+   *
+   * @param model
+   * @return a model with the triples of the objects
+   */
+  private Model prefetch(Model model) {
+    final List<Node> subjects = new ArrayList<>(objects.size());
+    final Set<Node> notFollowed = new HashSet<>();
+    final Set<Class<?>> classes = new HashSet<>();
+    for (final Object o : objects) {
+      final URI id = J2JHelper.getId(o);
+      if (id != null) {
+        subjects.add(NodeFactory.createURI(id.toString()));
+      }
+      if (lazy && classes.add(o.getClass())) {
+        for (final FieldPlan f : J2JMappingPlan.of(o).getFields()) {
+          if (f.isLazyList()) {
+            notFollowed.add(f.getLazyListProperty().asNode());
+          }
+        }
+      }
+    }
+    return ModelFactory.createModelForGraph(PrefetchedGraph.load(model.getGraph(), subjects, notFollowed));
+  }
+
   public List<Object> getResults() {
     return this.results;
   }
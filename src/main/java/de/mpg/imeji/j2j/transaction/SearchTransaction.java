@@ -1,6 +1,7 @@
 package de.mpg.imeji.j2j.transaction;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.Query;
@@ -27,6 +28,7 @@ import de.mpg.imeji.exceptions.ImejiException;
 public class SearchTransaction extends Transaction {
   private final String searchQuery;
   private final List<String> results;
+  private final Consumer<String> consumer;
   private String modelName = null;
   private boolean count = false;
   public final static String SORT_VALUE_REGEX = "XXX_SORT_VALUE_PATTERN_XXX";
@@ -43,10 +45,27 @@ public class SearchTransaction extends Transaction {
     super(null);
     this.searchQuery = searchQuery;
     this.results = results;
+    this.consumer = null;
     this.count = count;
     this.modelName = modelName;
   }
 
+  /**
+   * Construct a new {@link SearchTransaction} passing each result to the consumer as soon as it is
+   * read, instead of collecting all results in a list
+   *
+   * @param modelName
+   * @param searchQuery
+   * @param consumer
+   */
+  public SearchTransaction(String modelName, String searchQuery, Consumer<String> consumer) {
+    super(null);
+    this.searchQuery = searchQuery;
+    this.results = null;
+    this.consumer = consumer;
+    this.modelName = modelName;
+  }
+
   @Override
   protected void execute(Dataset ds) throws ImejiException {
     final Query q = QueryFactory.create(searchQuery, Syntax.syntaxARQ);
@@ -110,6 +129,12 @@ public class SearchTransaction extends Transaction {
    * @param rs
    */
   private void setExecResults(ResultSet rs) {
+    if (consumer != null) {
+      while (rs.hasNext()) {
+        consumer.accept(readResult(rs));
+      }
+      return;
+    }
     for (; rs.hasNext();) {
       results.add(0, readResult(rs));
     }
@@ -1,27 +1,53 @@
 package de.mpg.imeji.logic.batch;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import de.mpg.imeji.exceptions.ImejiException;
-import de.mpg.imeji.logic.config.util.PropertyReader;
+import de.mpg.imeji.exceptions.NotFoundException;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.core.collection.CollectionService;
 import de.mpg.imeji.logic.core.content.ContentService;
 import de.mpg.imeji.logic.core.item.ItemService;
-import de.mpg.imeji.logic.model.CollectionImeji;
-import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
+import de.mpg.imeji.logic.generic.SearchServiceAbstract;
 import de.mpg.imeji.logic.search.elasticsearch.ElasticIndexer;
 import de.mpg.imeji.logic.search.elasticsearch.ElasticInitializer;
 import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
-import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticAnalysers;
 import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.factory.SearchFactory;
+import de.mpg.imeji.logic.search.jenasearch.ImejiSPARQL;
+import de.mpg.imeji.logic.search.jenasearch.JenaCustomQueries;
+import de.mpg.imeji.logic.search.model.SearchResult;
 import de.mpg.imeji.logic.security.user.UserService;
 import de.mpg.imeji.logic.security.usergroup.UserGroupService;
 
 /**
- * REindex data from the database into elastic search
+ * Reindex data from the database into elastic search.<br/>
+ * The data are indexed in new indexes, while the search still uses the current ones: at the end,
+ * the aliases are atomically moved to the new indexes and the old indexes are deleted. Changes done
+ * during the reindex are written in both indexes, and the objects deleted during the reindex are
+ * recorded in the checkpoint store and deleted again from the new indexes before the switch. If a type can't be reindexed, the error is
+ * logged, the current index of this type is kept and the other types are switched.<br/>
+ * The objects of each type are split in partitions by uri, which are read from the database and
+ * indexed in parallel. Indexed partitions are recorded, so that a reindex interrupted by a crash
+ * resumes with the same new indexes, the partitions not indexed yet and the objects deleted before
+ * the interruption.
  *
  * @author bastiens
  *
@@ -29,122 +55,438 @@ import de.mpg.imeji.logic.security.usergroup.UserGroupService;
 public class ElasticReIndexJob implements Callable<Integer> {
 
   private static final Logger LOGGER = LogManager.getLogger(ElasticReIndexJob.class);
+  private static final String CHECKPOINT_STORE = "reindexCheckpoint";
+  private static final String INDEX_KEY = "index:";
+  private static final String DONE_KEY = "done:";
+  /**
+   * Number of partitions of the types with many objects
+   */
+  private static final int PARTITIONS = 64;
+  private static KeyValueStoreService defaultCheckpoint;
+  private final KeyValueStoreService checkpoint;
+  private final Indexes indexes;
+  private List<Source> sources;
+
+  /**
+   * Objects of one type to reindex
+   *
+   * @author saquet
+   *
+   */
+  public abstract static class Source {
+    private final String name;
+    private final ElasticIndices index;
+    private final int partitions;
+    private final int pageSize;
+
+    /**
+     * @param name unique name of the source, used by the checkpoints
+     * @param index the alias of the index of the objects
+     * @param partitions number of partitions of the objects
+     * @param pageSize number of objects read and indexed at once
+     */
+    public Source(String name, ElasticIndices index, int partitions, int pageSize) {
+      this.name = name;
+      this.index = index;
+      this.partitions = partitions;
+      this.pageSize = pageSize;
+    }
+
+    /**
+     * The uris of all objects in the database
+     *
+     * @return
+     */
+    public abstract List<String> uris();
+
+    /**
+     * Read the objects from the database
+     *
+     * @param uris
+     * @return
+     * @throws ImejiException
+     */
+    public abstract List<?> retrieve(List<String> uris) throws ImejiException;
+  }
+
+  /**
+   * The indexes written by the reindex
+   *
+   * @author saquet
+   *
+   */
+  public interface Indexes {
+    /**
+     * Create a new index for the alias, ready to be filled
+     *
+     * @param alias
+     * @return the name of the new index, or null if it couldn't be created
+     * @throws Exception
+     */
+    String create(ElasticIndices alias) throws Exception;
+
+    boolean exists(String index);
+
+    void index(String index, ElasticIndices alias, List<?> objects) throws Exception;
+
+    /**
+     * Delete documents from the index
+     *
+     * @param index
+     * @param alias
+     * @param documents key: the id of the document, value: its parent, or null
+     * @throws Exception
+     */
+    void delete(String index, ElasticIndices alias, Map<String, String> documents) throws Exception;
+
+    /**
+     * Make the new index searchable and move the alias to it
+     *
+     * @param alias
+     * @param index
+     * @throws Exception
+     */
+    void switchAlias(ElasticIndices alias, String index) throws Exception;
+
+    void deleteIndex(String index);
+  }
+
+  /**
+   * The indexes of Elasticsearch
+   */
+  private static class ElasticIndexes implements Indexes {
+    @Override
+    public String create(ElasticIndices alias) throws Exception {
+      final String index = ElasticInitializer.createIndex(alias.name());
+      if (index != null) {
+        new ElasticIndexer(index, alias).addMapping();
+        ElasticInitializer.setRefreshInterval(index, "-1");
+      }
+      return index;
+    }
+
+    @Override
+    public boolean exists(String index) {
+      return ElasticInitializer.exists(index);
+    }
+
+    @Override
+    public void index(String index, ElasticIndices alias, List<?> objects) throws Exception {
+      new ElasticIndexer(index, alias).indexBatch(objects);
+    }
+
+    @Override
+    public void delete(String index, ElasticIndices alias, Map<String, String> documents) throws Exception {
+      new ElasticIndexer(index, alias).deleteById(documents);
+    }
+
+    @Override
+    public void switchAlias(ElasticIndices alias, String index) throws Exception {
+      ElasticInitializer.setRefreshInterval(index, "1s");
+      new ElasticIndexer(index, alias).commit();
+      ElasticInitializer.switchAlias(alias, index);
+    }
+
+    @Override
+    public void deleteIndex(String index) {
+      ElasticInitializer.deleteIndex(index);
+    }
+  }
+
+  /**
+   * Reindex the objects of a {@link SearchServiceAbstract}
+   *
+   * @author saquet
+   *
+   */
+  private static class ServiceSource extends Source {
+    private final SearchServiceAbstract<?> service;
+
+    private ServiceSource(String name, ElasticIndices index, int pageSize, SearchServiceAbstract<?> service) {
+      super(name, index, PARTITIONS, pageSize);
+      this.service = service;
+    }
+
+    @Override
+    public List<String> uris() {
+      return service.searchAll();
+    }
+
+    @Override
+    public List<?> retrieve(List<String> uris) throws ImejiException {
+      return service.retrieve(uris, Imeji.adminUser);
+    }
+  }
+
+  /**
+   * Reindex all objects of the database in Elasticsearch
+   */
+  public ElasticReIndexJob() {
+    this(null, new ElasticIndexes(), getDefaultCheckpoint());
+  }
+
+  /**
+   * Reindex the objects of the sources
+   *
+   * @param sources the sources, in the order they are reindexed
+   * @param indexes
+   * @param checkpoint the store of the checkpoints
+   */
+  public ElasticReIndexJob(List<Source> sources, Indexes indexes, KeyValueStoreService checkpoint) {
+    this.sources = sources;
+    this.indexes = indexes;
+    this.checkpoint = checkpoint;
+  }
 
   @Override
   public Integer call() {
     try {
       LOGGER.info("Reindex started!");
-      // ElasticService.ANALYSER =
-      // ElasticAnalysers.valueOf(PropertyReader.getProperty("elastic.analyser"));
-      // Check if the alias is used by only 1 index. If not, reset completely the
-      // indexes
-      // ElasticInitializer.getIndexNameFromAliasName(ElasticService.DATA_ALIAS);
-      // final String index = ElasticInitializer.createIndex();
-      // addAllMappings(index);
+      ElasticService.setReindexCheckpoint(checkpoint);
       for (final ElasticIndices index : ElasticIndices.values()) {
-        ElasticInitializer.initializeIndex(index);
-        new ElasticIndexer(index.name()).addMapping();
-      }
-
-      try {
-        reindexUsers(ElasticIndices.users.name());
-      } catch (Exception e) {
-        LOGGER.error("Error while reindexing users", e);
+        ElasticService.setReindexTarget(index, getOrCreateNewIndex(index));
       }
-
-      try {
-        reindexUserGroups(ElasticIndices.usergroups.name());
-      } catch (Exception e) {
-        LOGGER.error("Error while reindexing usergroups", e);
+      // Order matters: items get the fields of their folder, contents need their item
+      final Set<ElasticIndices> failed = EnumSet.noneOf(ElasticIndices.class);
+      for (final Source source : getSources()) {
+        try {
+          reindex(source, ElasticService.getReindexTarget(source.index.name()));
+        } catch (final Exception e) {
+          LOGGER.error("Error while reindexing " + source.name, e);
+          failed.add(source.index);
+        }
       }
-
-      try {
-        reindexItems(ElasticIndices.items.name());
-      } catch (Exception e) {
-        LOGGER.error("Error while reindexing items", e);
-      }
-
-      try {
-        reindexContents(ElasticIndices.items.name());
-      } catch (Exception e) {
-        LOGGER.error("Error while reindexing contents", e);
+      for (final ElasticIndices index : ElasticIndices.values()) {
+        final String newIndex = ElasticService.getReindexTarget(index.name());
+        if (failed.contains(index)) {
+          LOGGER.error("Reindex of " + index.name() + " failed, the current index is kept");
+          ElasticService.removeReindexTarget(index);
+          indexes.deleteIndex(newIndex);
+          continue;
+        }
+        // Objects deleted during the reindex might have been read before they were deleted
+        deleteRecordedDeletes(index, newIndex);
+        indexes.switchAlias(index, newIndex);
+        ElasticService.removeReindexTarget(index);
       }
-
-      try {
-        reindexFolders(ElasticIndices.folders.name());
-      } catch (Exception e) {
-        LOGGER.error("Error while reindexing folders", e);
+      if (failed.isEmpty()) {
+        // All items and folders have been indexed with their ancestors
+        ElasticService.setAncestorsIndexed(true);
       }
-      // ElasticInitializer.setNewIndexAndRemoveOldIndex(index);
+      clearCheckpoint();
       LOGGER.info("Reindex done!");
-
     } catch (final Exception e) {
-      LOGGER.error("Error while initializing indexes, stopping reindex", e);
+      LOGGER.error("Error while reindexing, the reindex will be resumed at the next start", e);
+    } finally {
+      ElasticService.clearReindexTargets();
     }
-
     return null;
   }
 
   /**
-   * Add the Mapping first, to avoid conflicts in mappings
+   * True if a reindex has been interrupted and should be resumed
    *
-   * @param index
-   */
-  /*
-   * private void addAllMappings(String index) { for (final ElasticIndices type :
-   * ElasticIndices.values()) { new ElasticIndexer(index, type,
-   * ElasticService.ANALYSER).addMapping(); } }
+   * @return
    */
+  public static boolean isInterrupted() {
+    try {
+      return !getDefaultCheckpoint().getList(INDEX_KEY + ".*", String.class).isEmpty();
+    } catch (final ImejiException e) {
+      LOGGER.error("Error reading reindex checkpoint", e);
+      return false;
+    }
+  }
+
+  private synchronized List<Source> getSources() {
+    if (sources == null) {
+      sources = getDatabaseSources();
+    }
+    return sources;
+  }
+
+  private List<Source> getDatabaseSources() {
+    final List<Source> sources = new ArrayList<>();
+    sources.add(new Source("users", ElasticIndices.users, 1, 500) {
+      @Override
+      public List<String> uris() {
+        return ImejiSPARQL.exec(JenaCustomQueries.selectUserAll(), Imeji.userModel);
+      }
+
+      @Override
+      public List<?> retrieve(List<String> uris) throws ImejiException {
+        final UserService service = new UserService();
+        final List<Object> users = new ArrayList<>(uris.size());
+        for (final String uri : uris) {
+          users.add(service.retrieve(URI.create(uri), Imeji.adminUser));
+        }
+        return users;
+      }
+    });
+    sources.add(new Source("usergroups", ElasticIndices.usergroups, 1, 500) {
+      @Override
+      public List<String> uris() {
+        final SearchResult result = SearchFactory.create().searchString(JenaCustomQueries.selectUserGroupAll(), null, null, 0, -1);
+        return result.getResults();
+      }
+
+      @Override
+      public List<?> retrieve(List<String> uris) throws ImejiException {
+        return new UserGroupService().retrieveBatch(uris, Imeji.adminUser);
+      }
+    });
+    sources.add(new ServiceSource("folders", ElasticIndices.folders, 500, new CollectionService()));
+    sources.add(new ServiceSource("items", ElasticIndices.items, 500, new ItemService()));
+    sources.add(new ServiceSource("contents", ElasticIndices.items, 50, new ContentService()));
+    return sources;
+  }
 
   /**
-   * Reindex all the {@link CollectionImeji} stored in the database
+   * Index all objects of the source in the new index, one partition per task. Partitions already
+   * indexed before an interruption are skipped
    *
-   * @throws ImejiException
+   * @param source
+   * @param newIndex
+   * @throws Exception
    */
-  private void reindexFolders(String index) throws Exception {
-    final CollectionService c = new CollectionService();
-    c.reindex(index);
+  private void reindex(Source source, String newIndex) throws Exception {
+    LOGGER.info("Reindexing " + source.name + " in " + newIndex + "...");
+    final List<List<String>> partitions = new ArrayList<>(source.partitions);
+    for (int i = 0; i < source.partitions; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    final List<String> uris = source.uris();
+    for (final String uri : uris) {
+      partitions.get(Math.floorMod(uri.hashCode(), source.partitions)).add(uri);
+    }
+    final Set<String> done = new HashSet<>(checkpoint.getList(DONE_KEY + source.name + ":.*", String.class));
+    final AtomicInteger count = new AtomicInteger();
+    final List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < source.partitions; i++) {
+      final String partition = source.name + ":" + i;
+      if (done.contains(partition)) {
+        continue;
+      }
+      final List<String> partitionUris = partitions.get(i);
+      futures.add(ExecutorRegistry.get(ExecutorRegistry.REINDEX).submit(() -> {
+        for (int from = 0; from < partitionUris.size(); from += source.pageSize) {
+          final List<String> page = partitionUris.subList(from, Math.min(from + source.pageSize, partitionUris.size()));
+          indexes.index(newIndex, source.index, source.retrieve(page));
+          LOGGER.info(source.name + ": " + count.addAndGet(page.size()) + "/" + uris.size());
+        }
+        checkpoint.put(DONE_KEY + partition, partition);
+        return partitionUris.size();
+      }));
+    }
+    for (final Future<Integer> future : futures) {
+      try {
+        future.get();
+      } catch (final ExecutionException e) {
+        throw new ImejiException("Error reindexing " + source.name, e.getCause());
+      }
+    }
+    LOGGER.info(source.name + " reindexed!");
   }
 
   /**
-   * Reindex all {@link Item} stored in the database
-   *
-   * @throws ImejiException
+   * Return the new index of an interrupted reindex if it still exists, else create a new index
    *
+   * @param alias
+   * @return
+   * @throws Exception
    */
-  private void reindexItems(String index) throws Exception {
-    final ItemService controller = new ItemService();
-    controller.reindex(index);
+  private String getOrCreateNewIndex(ElasticIndices alias) throws Exception {
+    try {
+      final String index = (String) checkpoint.get(INDEX_KEY + alias.name());
+      if (indexes.exists(index)) {
+        LOGGER.info("Resuming reindex of " + alias.name() + " in " + index);
+        return index;
+      }
+    } catch (final NotFoundException e) {
+      // No interrupted reindex
+    }
+    for (final String partition : checkpoint.getList(DONE_KEY + ".*", String.class)) {
+      if (isSourceOf(partition, alias)) {
+        checkpoint.delete(DONE_KEY + partition);
+      }
+    }
+    // Deleted from an index which doesn't exist anymore
+    checkpoint.deleteAll(getRecordedDeletes(alias).keySet());
+    final String index = indexes.create(alias);
+    if (index == null) {
+      throw new ImejiException("Index for " + alias.name() + " couldn't be created");
+    }
+    checkpoint.put(INDEX_KEY + alias.name(), index);
+    return index;
   }
 
   /**
-   * Reindex all ContentVO stored in the database
-   *
-   * @throws ImejiException
+   * Delete from the new index the objects deleted during the reindex, and remove them from the
+   * checkpoint store
    *
+   * @param alias
+   * @param newIndex
+   * @throws Exception
    */
-  private void reindexContents(String index) throws Exception {
-    new ContentService().reindex(index);
+  private void deleteRecordedDeletes(ElasticIndices alias, String newIndex) throws Exception {
+    final Map<String, String> keys = getRecordedDeletes(alias);
+    if (keys.isEmpty()) {
+      return;
+    }
+    final String prefix = ElasticService.REINDEX_DELETE_KEY + alias.name() + ":";
+    final Map<String, String> documents = new LinkedHashMap<>(keys.size());
+    keys.forEach((key, parent) -> documents.put(key.substring(prefix.length()), parent.isEmpty() ? null : parent));
+    indexes.delete(newIndex, alias, documents);
+    checkpoint.deleteAll(keys.keySet());
   }
 
   /**
-   * Reindex all users
+   * The objects deleted during the reindex of this alias
    *
-   * @param index
+   * @param alias
+   * @return key: the key in the checkpoint store, value: the parent of the document, or an empty
+   *         string
    * @throws ImejiException
    */
-  private void reindexUsers(String index) throws Exception {
-    new UserService().reindex(index);
+  private Map<String, String> getRecordedDeletes(ElasticIndices alias) {
+    final String prefix = ElasticService.REINDEX_DELETE_KEY + alias.name() + ":";
+    final Map<String, String> deletes = new LinkedHashMap<>();
+    for (final String key : checkpoint.getKeys()) {
+      if (key.startsWith(prefix)) {
+        try {
+          deletes.put(key, (String) checkpoint.get(key));
+        } catch (final NotFoundException e) {
+          // Removed in the meantime
+        }
+      }
+    }
+    return deletes;
   }
 
   /**
-   * Reindex all usergroups
+   * True if the partition belongs to a source indexed in this alias
    *
-   * @param index
-   * @throws ImejiException
+   * @param partition
+   * @param alias
+   * @return
    */
-  private void reindexUserGroups(String index) throws Exception {
-    new UserGroupService().reindex(index);
+  private boolean isSourceOf(String partition, ElasticIndices alias) {
+    return getSources().stream().anyMatch(s -> s.index == alias && partition.startsWith(s.name + ":"));
   }
 
+  private void clearCheckpoint() throws ImejiException {
+    for (final String partition : checkpoint.getList(DONE_KEY + ".*", String.class)) {
+      checkpoint.delete(DONE_KEY + partition);
+    }
+    for (final ElasticIndices index : ElasticIndices.values()) {
+      checkpoint.delete(INDEX_KEY + index.name());
+      checkpoint.deleteAll(getRecordedDeletes(index).keySet());
+    }
+  }
+
+  private static synchronized KeyValueStoreService getDefaultCheckpoint() {
+    if (defaultCheckpoint == null) {
+      defaultCheckpoint = new KeyValueStoreService(new HTreeMapStore(CHECKPOINT_STORE));
+    }
+    return defaultCheckpoint;
+  }
 }
@@ -0,0 +1,517 @@
+package de.mpg.imeji.logic.batch;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.NotFoundException;
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.config.util.PropertyReader;
+import de.mpg.imeji.logic.core.collection.CollectionService;
+import de.mpg.imeji.logic.core.item.ItemService;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
+import de.mpg.imeji.logic.model.CollectionImeji;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.License;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.search.model.SearchQuery;
+import de.mpg.imeji.logic.search.model.SearchResult;
+import de.mpg.imeji.logic.security.user.UserService;
+
+/**
+ * Apply an operation (release, withdraw, delete, license, move) to all items of a search, in the
+ * background.<br/>
+ * The search is read with a cursor, chunk by chunk (property imeji.batch.chunk_size), and each
+ * chunk is retrieved and written in its own transactions, so that neither all items nor one
+ * transaction for all items are needed. The progress is recorded after each chunk: a job stopped
+ * by an error can be resumed by the user, and a job stopped by a shutdown is resumed at the next
+ * start. Items already processed don't match the operation anymore (i.e. wrong status, already in
+ * the collection), so that a resumed job searches again from the start and skips them.
+ *
+ * @author saquet
+ *
+ */
+public class ItemBatchJob implements Callable<Integer>, Serializable {
+  private static final long serialVersionUID = -2837460125791304562L;
+  private static final Logger LOGGER = LogManager.getLogger(ItemBatchJob.class);
+  private static final String STORE_NAME = "itemBatchJobs";
+  private static final Map<String, ItemBatchJob> JOBS = new ConcurrentHashMap<>();
+  private static final int CHUNK_SIZE = PropertyReader.getIntProperty("imeji.batch.chunk_size", 100);
+  private static KeyValueStoreService store;
+
+  /**
+   * The operations of a {@link ItemBatchJob}
+   *
+   * @author saquet
+   *
+   */
+  public enum Operation {
+    RELEASE("release"), WITHDRAW("withdraw"), DELETE("delete"), LICENSE("edit_license"), MOVE("move");
+
+    private final String label;
+
+    private Operation(String label) {
+      this.label = label;
+    }
+
+    /**
+     * The label of the operation
+     *
+     * @return
+     */
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  /**
+   * The states of a {@link ItemBatchJob}
+   *
+   * @author saquet
+   *
+   */
+  public enum State {
+    RUNNING, DONE, FAILED;
+  }
+
+  private final String id = UUID.randomUUID().toString();
+  private final Operation operation;
+  private final URI containerUri;
+  private final SearchQuery query;
+  private final URI userUri;
+  private final long started = System.currentTimeMillis();
+  private String comment;
+  private License license;
+  private boolean overwriteLicenses = false;
+  private URI targetCollectionUri;
+  private volatile State state = State.RUNNING;
+  /**
+   * The number of items processed since the job has been created
+   */
+  private volatile int processed = 0;
+  /**
+   * The number of items found, read and skipped by the current run of the job
+   */
+  private volatile int total = 0;
+  private volatile int read = 0;
+  private volatile int skipped = 0;
+  private volatile String error;
+  private transient User user;
+
+  /**
+   * Create a job for all items of the search
+   *
+   * @param operation
+   * @param containerUri the collection of the items, or null for all items
+   * @param query
+   * @param user
+   */
+  public ItemBatchJob(Operation operation, URI containerUri, SearchQuery query, User user) {
+    this.operation = operation;
+    this.containerUri = containerUri;
+    this.query = query;
+    this.user = user;
+    this.userUri = user.getId();
+  }
+
+  /**
+   * The comment of a withdraw
+   *
+   * @param comment
+   * @return
+   */
+  public ItemBatchJob comment(String comment) {
+    this.comment = comment;
+    return this;
+  }
+
+  /**
+   * The license of a release, a move or a license edition
+   *
+   * @param license
+   * @param overwriteLicenses for a license edition: if false, only the pending items without a
+   *        license get the license
+   * @return
+   */
+  public ItemBatchJob license(License license, boolean overwriteLicenses) {
+    this.license = license;
+    this.overwriteLicenses = overwriteLicenses;
+    return this;
+  }
+
+  /**
+   * The collection where the items are moved
+   *
+   * @param targetCollectionUri
+   * @return
+   */
+  public ItemBatchJob target(URI targetCollectionUri) {
+    this.targetCollectionUri = targetCollectionUri;
+    return this;
+  }
+
+  /**
+   * Start the job in the background
+   *
+   * @param job
+   * @return the job
+   */
+  public static ItemBatchJob submit(ItemBatchJob job) {
+    job.state = State.RUNNING;
+    job.error = null;
+    JOBS.put(job.id, job);
+    try {
+      Imeji.getEXECUTOR().submit(job);
+    } catch (final RejectedExecutionException e) {
+      LOGGER.error("Could not start " + job + ", the job can be resumed", e);
+      job.error = e.getMessage();
+      job.state = State.FAILED;
+    }
+    job.save();
+    return job;
+  }
+
+  /**
+   * Resume a job which has failed
+   *
+   * @param id
+   * @return the job, or null if there is no such job
+   */
+  public static ItemBatchJob resume(String id) {
+    final ItemBatchJob job = JOBS.get(id);
+    if (job == null || job.state != State.FAILED) {
+      return job;
+    }
+    return submit(job);
+  }
+
+  /**
+   * Resume the jobs which were running at the last shutdown
+   */
+  public static void resumeInterrupted() {
+    try {
+      for (final ItemBatchJob job : getStore().getList(".*", ItemBatchJob.class)) {
+        JOBS.put(job.id, job);
+        if (job.state == State.RUNNING) {
+          LOGGER.info("Resuming " + job);
+          Imeji.getEXECUTOR().submit(job);
+        }
+      }
+    } catch (final ImejiException e) {
+      LOGGER.error("Error reading the interrupted item batch jobs", e);
+    }
+  }
+
+  /**
+   * Forget a job which is not running
+   *
+   * @param id
+   */
+  public static void remove(String id) {
+    final ItemBatchJob job = JOBS.get(id);
+    if (job != null && job.state != State.RUNNING) {
+      JOBS.remove(id);
+      try {
+        getStore().delete(id);
+      } catch (final ImejiException e) {
+        LOGGER.error("Error removing item batch job " + id, e);
+      }
+    }
+  }
+
+  /**
+   * The jobs of the user, the most recent first
+   *
+   * @param user
+   * @return
+   */
+  public static List<ItemBatchJob> getJobs(User user) {
+    if (user == null) {
+      return new ArrayList<>();
+    }
+    return JOBS.values().stream().filter(job -> job.userUri.equals(user.getId()))
+        .sorted(Comparator.comparingLong(ItemBatchJob::getStarted).reversed()).collect(Collectors.toList());
+  }
+
+  @Override
+  public Integer call() {
+    try {
+      LOGGER.info("Starting " + this);
+      run();
+      state = State.DONE;
+      LOGGER.info(this + " done");
+    } catch (final Exception e) {
+      LOGGER.error("Error running " + this + ", the job can be resumed", e);
+      error = e.getMessage();
+      state = State.FAILED;
+    }
+    save();
+    return processed;
+  }
+
+  /**
+   * Read the search chunk by chunk and process each chunk. The progress is saved after each chunk
+   *
+   * @throws ImejiException if the search failed, or if items were found but none could be read
+   */
+  private void run() throws ImejiException {
+    String cursor = null;
+    read = 0;
+    skipped = 0;
+    do {
+      final SearchResult result = search(cursor);
+      if (cursor == null) {
+        total = (int) result.getNumberOfRecords();
+      }
+      final List<String> uris = result.getResults();
+      if (!uris.isEmpty()) {
+        final int processedInChunk = processChunk(uris);
+        processed += processedInChunk;
+        skipped += uris.size() - processedInChunk;
+        read += uris.size();
+      }
+      cursor = result.getCursor();
+      save();
+    } while (cursor != null);
+    if (total > 0 && read == 0) {
+      throw new ImejiException(total + " items found, but none could be read");
+    }
+  }
+
+  /**
+   * Search a chunk of items
+   *
+   * @param cursor the cursor of the previous chunk, null for the first chunk
+   * @return
+   * @throws ImejiException
+   */
+  protected SearchResult search(String cursor) throws ImejiException {
+    return new ItemService().searchWithCursor(containerUri, query, new ArrayList<>(), getUser(), 0, cursor, CHUNK_SIZE, false);
+  }
+
+  /**
+   * Apply the operation to a chunk of items
+   *
+   * @param uris
+   * @return the number of items processed, the other ones are skipped
+   * @throws ImejiException
+   */
+  protected int processChunk(List<String> uris) throws ImejiException {
+    final User u = getUser();
+    final ItemService itemService = new ItemService();
+    final List<Item> items = retrieve(itemService, uris, u);
+    final List<Item> toProcess = items.stream().filter(this::isToProcess).collect(Collectors.toList());
+    if (!toProcess.isEmpty()) {
+      switch (operation) {
+        case RELEASE:
+          if (license != null) {
+            itemService.release(toProcess, u, license);
+          } else {
+            itemService.releaseWithDefaultLicense(toProcess, u);
+          }
+          break;
+        case WITHDRAW:
+          itemService.withdraw(toProcess, comment, u);
+          break;
+        case DELETE:
+          itemService.delete(toProcess, u);
+          break;
+        case LICENSE:
+          toProcess.forEach(this::addLicense);
+          itemService.updateBatch(toProcess, u);
+          break;
+        case MOVE:
+          final CollectionImeji target = new CollectionService().retrieveLazy(targetCollectionUri, u);
+          itemService.moveItems(toProcess, target, u, license);
+          break;
+      }
+    }
+    return toProcess.size();
+  }
+
+  /**
+   * Retrieve the items. If some items don't exist anymore (for instance deleted before a resume),
+   * retrieve the others one by one
+   *
+   * @param itemService
+   * @param uris
+   * @param u
+   * @return
+   * @throws ImejiException
+   */
+  private List<Item> retrieve(ItemService itemService, List<String> uris, User u) throws ImejiException {
+    try {
+      return new ArrayList<>(itemService.retrieveBatch(uris, u));
+    } catch (final NotFoundException e) {
+      final List<Item> items = new ArrayList<>();
+      for (final String uri : uris) {
+        try {
+          items.add(itemService.retrieve(uri, u));
+        } catch (final NotFoundException e1) {
+          LOGGER.info("Item " + uri + " not found, skipped");
+        }
+      }
+      return items;
+    }
+  }
+
+  /**
+   * True if the operation must be applied to the item, false if the operation can't be applied or
+   * has already been applied
+   *
+   * @param item
+   * @return
+   */
+  public boolean isToProcess(Item item) {
+    switch (operation) {
+      case RELEASE:
+      case DELETE:
+        return item.getStatus().equals(Status.PENDING);
+      case WITHDRAW:
+        return item.getStatus().equals(Status.RELEASED);
+      case LICENSE:
+        if (item.getStatus().equals(Status.PENDING)) {
+          return overwriteLicenses ? !hasOnlyLicense(item) : !hasLicense(item);
+        }
+        return !hasLicense(item) || !isSameLicense(item.getLicenses().get(item.getLicenses().size() - 1));
+      case MOVE:
+        return !targetCollectionUri.equals(item.getCollection());
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Add the license to the item: a pending item gets only this license, a released item gets the
+   * license in addition to its previous ones
+   *
+   * @param item
+   */
+  public void addLicense(Item item) {
+    if (item.getStatus().equals(Status.PENDING)) {
+      item.setLicenses(new ArrayList<>(Arrays.asList(license.clone())));
+    } else {
+      if (item.getLicenses() == null) {
+        item.setLicenses(new ArrayList<>());
+      }
+      item.getLicenses().add(license.clone());
+    }
+  }
+
+  private boolean hasLicense(Item item) {
+    return item.getLicenses() != null && !item.getLicenses().isEmpty();
+  }
+
+  private boolean hasOnlyLicense(Item item) {
+    return hasLicense(item) && item.getLicenses().size() == 1 && isSameLicense(item.getLicenses().get(0));
+  }
+
+  private boolean isSameLicense(License l) {
+    return Objects.equals(l.getName(), license.getName()) && Objects.equals(l.getUrl(), license.getUrl());
+  }
+
+  /**
+   * The user of the job, read again after a restart
+   *
+   * @return
+   * @throws ImejiException
+   */
+  private User getUser() throws ImejiException {
+    if (user == null) {
+      user = new UserService().retrieve(userUri, Imeji.adminUser);
+    }
+    return user;
+  }
+
+  /**
+   * Record the progress of the job
+   */
+  protected synchronized void save() {
+    try {
+      getStore().put(id, this);
+    } catch (final ImejiException e) {
+      LOGGER.error("Error saving the progress of " + this, e);
+    }
+  }
+
+  private static synchronized KeyValueStoreService getStore() {
+    if (store == null) {
+      store = new KeyValueStoreService(new HTreeMapStore(STORE_NAME));
+    }
+    return store;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public boolean isRunning() {
+    return state == State.RUNNING;
+  }
+
+  public boolean isFailed() {
+    return state == State.FAILED;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public int getProcessed() {
+    return processed;
+  }
+
+  public int getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * The progress of the job in percent
+   *
+   * @return
+   */
+  public int getProgress() {
+    if (state == State.DONE) {
+      return 100;
+    }
+    return total > 0 ? Math.min(100, read * 100 / total) : 0;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public long getStarted() {
+    return started;
+  }
+
+  @Override
+  public String toString() {
+    return "item batch job " + id + " (" + operation + " " + (containerUri != null ? containerUri : "all items") + ", " + processed
+        + " processed, " + skipped + " skipped)";
+  }
+}
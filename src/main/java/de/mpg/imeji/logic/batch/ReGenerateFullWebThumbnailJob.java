@@ -9,7 +9,9 @@ import org.apache.logging.log4j.Logger;
 import de.mpg.imeji.logic.core.content.ContentService;
 import de.mpg.imeji.logic.generic.SearchServiceAbstract;
 import de.mpg.imeji.logic.model.ContentVO;
-import de.mpg.imeji.logic.storage.StorageController;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.Lane;
+import de.mpg.imeji.logic.storage.internal.DerivativeTask;
 
 public class ReGenerateFullWebThumbnailJob implements Callable<Integer> {
 
@@ -17,28 +19,22 @@ public class ReGenerateFullWebThumbnailJob implements Callable<Integer> {
 
   @Override
   public Integer call() throws Exception {
-
-    LOGGER.info("Generating full web and thumbnail images for all items");
+    LOGGER.info("Scheduling the generation of full web and thumbnail images for all items");
     ContentService service = new ContentService();
     SearchServiceAbstract<ContentVO>.RetrieveIterator iterator = service.iterateAll(10);
-    int count = 1;
+    DerivativeScheduler scheduler = DerivativeScheduler.getInstance();
+    int count = 0;
     long start = System.currentTimeMillis();
     while (iterator.hasNext()) {
       List<ContentVO> result = (List<ContentVO>) iterator.next();
       for (ContentVO content : result) {
-        StorageController controller = new StorageController();
-        LOGGER.info("Generating full web and thumbnail images for item " + content.getItemId() + " " + count + "/" + iterator.getSize());
-        try {
-          controller.reGenerateFullWebThumbnailImages(content.getOriginal());
-        } catch (Exception e) {
-          LOGGER.error("Error full web and thumbnail images for item file @ " + content.getOriginal(), e);
-        }
+        // The maintenance lane is bounded: wait until the workers have processed enough files
+        scheduler.awaitCapacity(Lane.MAINTENANCE);
+        scheduler.schedule(DerivativeTask.regenerate(content.getOriginal()), Lane.MAINTENANCE);
         count++;
       }
     }
-
-    LOGGER.info("Full web and thumbnail images generated for all files in " + (System.currentTimeMillis() - start) + " ms!");
+    LOGGER.info("Generation of full web and thumbnail images scheduled for " + count + " files in " + (System.currentTimeMillis() - start) + " ms!");
     return 1;
   }
-
 }
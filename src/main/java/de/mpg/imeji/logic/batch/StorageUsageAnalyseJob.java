@@ -15,11 +15,13 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import de.mpg.imeji.logic.config.util.PropertyReader;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters;
 import de.mpg.imeji.logic.storage.Storage;
 import de.mpg.imeji.logic.storage.StorageController;
 
 /**
- * Analyze the File system of the {@link Storage} and save the results in a property file
+ * Analyze the File system of the {@link Storage} and save the results in a property file. Rebuild
+ * the {@link StorageUsageCounters}
  *
  * @author saquet
  *
@@ -64,6 +66,8 @@ public class StorageUsageAnalyseJob implements Callable<Integer> {
     storageProperties.setProperty(StorageUsage.FREE_SPACE.name(), Long.toString(sc.getAdministrator().getFreeSpace()));
     storageProperties.setProperty(StorageUsage.LAST_UPDATE_DATE.name(), getCurrentDate());
     storageProperties.storeToXML(new FileOutputStream(STORAGE_USAGE_STATS_FILE_NAME), null, "UTF-8");
+    // Correct any drift of the counters updated by the write operations
+    StorageUsageCounters.build();
     LOGGER.info("...done");
     return 1;
   }
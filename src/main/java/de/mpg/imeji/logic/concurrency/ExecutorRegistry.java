@@ -0,0 +1,297 @@
+package de.mpg.imeji.logic.concurrency;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.logic.config.util.PropertyReader;
+
+/**
+ * Registry of all thread pools of imeji. Every pool has a name, a bounded number of threads, a
+ * bounded queue and a policy for the tasks which can't be queued. Pools are created when first
+ * used. After {@link #shutdown()}, no task can be submitted until the registry is started again
+ * with {@link #start()}.<br/>
+ * If the property imeji.executor.virtualthreads is true and the JVM supports it (Java 21), the
+ * pools waiting mostly on io run on virtual threads.
+ *
+ * @author saquet
+ *
+ */
+public class ExecutorRegistry {
+  private static final Logger LOGGER = LogManager.getLogger(ExecutorRegistry.class);
+  /**
+   * Jobs and asynchronous tasks of imeji
+   */
+  public static final String IMEJI = "imeji";
+  /**
+   * Writing in the database and in the search index
+   */
+  public static final String WRITER = "writer";
+  /**
+   * Jena transactions, each one running in its own thread
+   */
+  public static final String TRANSACTION = "transaction";
+  /**
+   * Retrieving search results
+   */
+  public static final String SEARCH = "search";
+  /**
+   * Bulk requests to Elasticsearch
+   */
+  public static final String BULK = "elastic-bulk";
+  /**
+   * Reading and indexing the partitions of a reindex
+   */
+  public static final String REINDEX = "reindex";
+  /**
+   * Extraction of the content of the files
+   */
+  public static final String CONTENT_EXTRACTION = "content-extraction";
+  /**
+   * Reading in advance the files of an export
+   */
+  public static final String EXPORT = "export";
+  /**
+   * Workers of the derivative scheduler, generating the thumbnails and previews of the files
+   */
+  public static final String DERIVATIVE = "derivative";
+  /**
+   * How long a task waits for a free thread or queue place before being rejected
+   */
+  private static final long BLOCKING_TIMEOUT_SECONDS = 60;
+  private static final Map<String, PoolDefinition> DEFINITIONS = new LinkedHashMap<>();
+  private static final Map<String, MonitoredThreadPoolExecutor> EXECUTORS = new LinkedHashMap<>();
+  private static Boolean virtualThreads;
+  private static boolean shutdown = false;
+
+  static {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    // Long jobs must not run in the caller thread (i.e. a request thread) and can wait for other tasks
+    define(IMEJI, 64, 10000, Policy.ABORT, true);
+    define(WRITER, Math.max(8, 4 * processors), 1000, Policy.CALLER_RUNS, true);
+    // Transactions can't run in the caller thread, which might already be in a transaction
+    define(TRANSACTION, 256, 0, Policy.BLOCK, true);
+    define(SEARCH, Math.max(8, 4 * processors), 1000, Policy.CALLER_RUNS, true);
+    define(BULK, Math.max(4, 2 * processors), 1000, Policy.CALLER_RUNS, true);
+    define(REINDEX, Math.max(2, processors), 10000, Policy.CALLER_RUNS, true);
+    // Parsing the files is cpu bound
+    define(CONTENT_EXTRACTION, Math.max(1, processors), 10000, Policy.CALLER_RUNS, false);
+    // The caller waits for the files anyway
+    define(EXPORT, Math.max(4, 2 * processors), 1000, Policy.CALLER_RUNS, true);
+    // One long running worker per thread, leaving one processor for the requests. After a restart
+    // of the scheduler, the new workers wait in the queue until the previous ones have stopped
+    define(DERIVATIVE, Math.max(1, processors - 1), Math.max(1, processors - 1), Policy.ABORT, false);
+  }
+
+  /**
+   * What to do with a task when all threads are busy and the queue is full
+   *
+   * @author saquet
+   *
+   */
+  public enum Policy {
+    /**
+     * Run the task in the thread which submitted it
+     */
+    CALLER_RUNS,
+    /**
+     * Wait until the task can be queued, and reject it after a timeout
+     */
+    BLOCK,
+    /**
+     * Reject the task with a {@link RejectedExecutionException}
+     */
+    ABORT;
+  }
+
+  private ExecutorRegistry() {
+    // private constructor
+  }
+
+  /**
+   * Definition of a pool
+   *
+   * @author saquet
+   *
+   */
+  private static class PoolDefinition {
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    private final Policy policy;
+    private final boolean io;
+
+    private PoolDefinition(String name, int threads, int queueCapacity, Policy policy, boolean io) {
+      this.name = name;
+      this.threads = threads;
+      this.queueCapacity = queueCapacity;
+      this.policy = policy;
+      this.io = io;
+    }
+  }
+
+  /**
+   * Define a pool
+   *
+   * @param name
+   * @param threads maximum number of threads
+   * @param queueCapacity maximum number of waiting tasks. If 0, the tasks are directly handed over
+   *        to the threads
+   * @param policy
+   * @param io true if the tasks mostly wait on io (database, search index, network)
+   */
+  private static void define(String name, int threads, int queueCapacity, Policy policy, boolean io) {
+    DEFINITIONS.put(name, new PoolDefinition(name, threads, queueCapacity, policy, io));
+  }
+
+  /**
+   * Return the pool with this name
+   *
+   * @param name
+   * @return
+   * @throws RejectedExecutionException if the registry or the pool has been shut down
+   */
+  public static synchronized MonitoredThreadPoolExecutor get(String name) {
+    MonitoredThreadPoolExecutor executor = EXECUTORS.get(name);
+    if (shutdown || (executor != null && executor.isShutdown())) {
+      throw new RejectedExecutionException("Thread pool " + name + " is shut down");
+    }
+    if (executor == null) {
+      final PoolDefinition definition = DEFINITIONS.get(name);
+      if (definition == null) {
+        throw new IllegalArgumentException("No thread pool defined with name " + name);
+      }
+      executor = create(definition);
+      EXECUTORS.put(name, executor);
+    }
+    return executor;
+  }
+
+  /**
+   * Allow to use the pools again after a {@link #shutdown()}: the pools which have been shut down
+   * are created again when next used
+   */
+  public static synchronized void start() {
+    EXECUTORS.values().removeIf(MonitoredThreadPoolExecutor::isShutdown);
+    shutdown = false;
+  }
+
+  /**
+   * Shutdown all pools. Running and queued tasks are still executed
+   */
+  public static synchronized void shutdown() {
+    shutdown = true;
+    for (final MonitoredThreadPoolExecutor executor : EXECUTORS.values()) {
+      LOGGER.info("Shutting down thread pool: " + executor.getName());
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * All pools which have been created
+   *
+   * @return
+   */
+  public static synchronized List<MonitoredThreadPoolExecutor> getExecutors() {
+    return new ArrayList<>(EXECUTORS.values());
+  }
+
+  private static MonitoredThreadPoolExecutor create(PoolDefinition definition) {
+    final BlockingQueue<Runnable> queue =
+        definition.queueCapacity > 0 ? new LinkedBlockingQueue<>(definition.queueCapacity) : new SynchronousQueue<>();
+    final ThreadFactory threadFactory = definition.io && isVirtualThreads() ? createVirtualThreadFactory(definition.name)
+        : createPlatformThreadFactory(definition.name);
+    final RejectedExecutionHandler handler = getHandler(definition.policy);
+    return new MonitoredThreadPoolExecutor(definition.name, definition.threads, queue, definition.queueCapacity, threadFactory, handler);
+  }
+
+  private static RejectedExecutionHandler getHandler(Policy policy) {
+    switch (policy) {
+      case BLOCK:
+        return ExecutorRegistry::blockOrReject;
+      case ABORT:
+        return ExecutorRegistry::reject;
+      default:
+        return ExecutorRegistry::runInCaller;
+    }
+  }
+
+  private static void reject(Runnable task, ThreadPoolExecutor executor) {
+    ((MonitoredThreadPoolExecutor) executor).rejected();
+    throw new RejectedExecutionException("No thread available in pool " + ((MonitoredThreadPoolExecutor) executor).getName());
+  }
+
+  private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+    ((MonitoredThreadPoolExecutor) executor).rejected();
+    if (!executor.isShutdown()) {
+      task.run();
+    } else {
+      throw new RejectedExecutionException("Thread pool " + ((MonitoredThreadPoolExecutor) executor).getName() + " is shut down");
+    }
+  }
+
+  private static void blockOrReject(Runnable task, ThreadPoolExecutor executor) {
+    ((MonitoredThreadPoolExecutor) executor).rejected();
+    try {
+      if (executor.isShutdown() || !executor.getQueue().offer(task, BLOCKING_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        throw new RejectedExecutionException("No thread available in pool " + ((MonitoredThreadPoolExecutor) executor).getName());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for pool " + ((MonitoredThreadPoolExecutor) executor).getName(), e);
+    }
+  }
+
+  private static ThreadFactory createPlatformThreadFactory(String name) {
+    final AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      final Thread thread = new Thread(runnable, "imeji-" + name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Create a factory of virtual threads. Uses reflection, since imeji is compiled for Java versions
+   * without virtual threads
+   *
+   * @param name
+   * @return
+   */
+  private static ThreadFactory createVirtualThreadFactory(String name) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "imeji-" + name + "-", 1L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (final ReflectiveOperationException e) {
+      LOGGER.warn("Virtual threads not supported, using platform threads for pool " + name);
+      return createPlatformThreadFactory(name);
+    }
+  }
+
+  /**
+   * True if virtual threads are enabled with the property imeji.executor.virtualthreads
+   *
+   * @return
+   */
+  private static boolean isVirtualThreads() {
+    if (virtualThreads == null) {
+      virtualThreads = PropertyReader.getBooleanProperty("imeji.executor.virtualthreads", false);
+    }
+    return virtualThreads;
+  }
+}
@@ -0,0 +1,101 @@
+package de.mpg.imeji.logic.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contention metrics of one lock: number of acquisitions, timeouts and an histogram of the time
+ * waited to acquire the lock
+ *
+ * @author saquet
+ *
+ */
+public class LockMetrics {
+  /**
+   * Upper bounds (in ms) of the buckets of the wait time histogram. The last bucket counts all
+   * waits longer than the last bound
+   */
+  private static final long[] BUCKETS_MS = {1, 10, 100, 1000, 10000};
+  private final String name;
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS_MS.length + 1);
+
+  public LockMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Record a successful acquisition after waiting waitNanos
+   *
+   * @param waitNanos
+   */
+  public void acquired(long waitNanos) {
+    acquisitions.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+  }
+
+  /**
+   * Record an acquisition which failed because of a timeout
+   */
+  public void timeout() {
+    timeouts.incrementAndGet();
+  }
+
+  private int bucket(long waitMs) {
+    for (int i = 0; i < BUCKETS_MS.length; i++) {
+      if (waitMs < BUCKETS_MS[i]) {
+        return i;
+      }
+    }
+    return BUCKETS_MS.length;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  /**
+   * @return the average wait time in ms
+   */
+  public double getAverageWaitMs() {
+    final long count = acquisitions.get();
+    return count > 0 ? (totalWaitNanos.get() / (double) count) / 1000000d : 0;
+  }
+
+  /**
+   * @return the longest wait time in ms
+   */
+  public long getMaxWaitMs() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  /**
+   * The wait time histogram as readable labels, for instance "<10ms: 12"
+   *
+   * @return
+   */
+  public List<String> getHistogram() {
+    final List<String> l = new ArrayList<>();
+    for (int i = 0; i < BUCKETS_MS.length; i++) {
+      l.add("<" + BUCKETS_MS[i] + "ms: " + histogram.get(i));
+    }
+    l.add(">=" + BUCKETS_MS[BUCKETS_MS.length - 1] + "ms: " + histogram.get(BUCKETS_MS.length));
+    return l;
+  }
+}
@@ -1,24 +1,38 @@
 package de.mpg.imeji.logic.concurrency;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 public class Locks {
   // Lock on User Event
-  private static Map<String, Lock> userLocks = new ConcurrentHashMap<String, Lock>();
+  private static volatile Map<String, Lock> userLocks = new ConcurrentHashMap<String, Lock>();
   // Locks on System event
-  private static Map<String, Lock> sysLocks = new ConcurrentHashMap<String, Lock>();
+  private static volatile Map<String, Lock> sysLocks = new ConcurrentHashMap<String, Lock>();
   // Life time for a lock. After that limit, the lock is destroyed.
   private static final long LOCK_MAX_TIME = 900000;// 900s = 15min
   // private static final long LOCK_MAX_TIME = 60000;// 60s = 1min
   private static final Logger LOGGER = LogManager.getLogger(Locks.class);
-  private static boolean writeLock = false;
-  private static boolean counterLock = false;
+  // Max time to wait for the write and the counter lock
+  private static final long LOCK_TIMEOUT = 10000;// 10s
+  private static final TimedLock WRITE_LOCK = new TimedLock("Write");
+  private static final TimedLock COUNTER_LOCK = new TimedLock("Counter");
+  // Stripes guarding the check-then-lock operations on the user and system locks of one uri
+  private static final ReentrantLock[] URI_STRIPES = new ReentrantLock[64];
+  private static final LockMetrics URI_LOCK_METRICS = new LockMetrics("Object");
+
+  static {
+    for (int i = 0; i < URI_STRIPES.length; i++) {
+      URI_STRIPES[i] = new ReentrantLock();
+    }
+  }
 
   public static void reset() {
     userLocks = new ConcurrentHashMap<String, Lock>();
@@ -63,16 +77,25 @@ public class Locks {
    * @param lock
    */
   public static void lock(Lock lock) {
-    if (!isLocked(lock.getUri(), lock.getEmail())) {
-      if (lock.getEmail() == null) {
-        LOGGER.debug(lock.getUri() + " locked by system");
-        getSystemLocks().put(lock.getUri(), lock);
+    final ReentrantLock stripe = stripe(lock.getUri());
+    final long start = System.nanoTime();
+    stripe.lock();
+    try {
+      URI_LOCK_METRICS.acquired(System.nanoTime() - start);
+      if (!isLocked(lock.getUri(), lock.getEmail())) {
+        if (lock.getEmail() == null) {
+          LOGGER.debug(lock.getUri() + " locked by system");
+          getSystemLocks().put(lock.getUri(), lock);
+        } else {
+          LOGGER.debug(lock.getUri() + " locked by " + lock.getEmail());
+          getUserLocks().put(lock.getUri(), lock);
+        }
       } else {
-        LOGGER.debug(lock.getUri() + " locked by " + lock.getEmail());
-        getUserLocks().put(lock.getUri(), lock);
+        URI_LOCK_METRICS.timeout();
+        throw new RuntimeException(lock.getUri() + " already locked by another user " + lock.getEmail());
       }
-    } else {
-      throw new RuntimeException(lock.getUri() + " already locked by another user " + lock.getEmail());
+    } finally {
+      stripe.unlock();
     }
   }
 
@@ -82,15 +105,31 @@ public class Locks {
    * @param lock
    */
   public static void unLock(Lock lock) {
-    if (lock.getEmail() == null && getSystemLocks().get(lock.getUri()) != null) {
-      LOGGER.debug(lock.getUri() + " unlocked by system");
-      getSystemLocks().remove(lock.getUri());
-    } else if (lock.getEmail() != null && getUserLocks().get(lock.getUri()) != null) {
-      LOGGER.debug(lock.getUri() + " unlocked by " + lock.getEmail());
-      getUserLocks().remove(lock.getUri());
+    final ReentrantLock stripe = stripe(lock.getUri());
+    stripe.lock();
+    try {
+      if (lock.getEmail() == null && getSystemLocks().get(lock.getUri()) != null) {
+        LOGGER.debug(lock.getUri() + " unlocked by system");
+        getSystemLocks().remove(lock.getUri());
+      } else if (lock.getEmail() != null && getUserLocks().get(lock.getUri()) != null) {
+        LOGGER.debug(lock.getUri() + " unlocked by " + lock.getEmail());
+        getUserLocks().remove(lock.getUri());
+      }
+    } finally {
+      stripe.unlock();
     }
   }
 
+  /**
+   * Return the stripe guarding the locks of this uri
+   *
+   * @param uri
+   * @return
+   */
+  private static ReentrantLock stripe(String uri) {
+    return URI_STRIPES[(uri.hashCode() & Integer.MAX_VALUE) % URI_STRIPES.length];
+  }
+
   /**
    * Unlock all locks for one User
    *
@@ -140,45 +179,52 @@ public class Locks {
     return list;
   }
 
-  public synchronized static boolean tryLock() {
-    final long startLocked = System.currentTimeMillis();
-    while (writeLock) {
-      // wait for lock to be released
-      if ((System.currentTimeMillis() - startLocked) > 10000) {
-        // if a lock is kept more than 10 s, throw exception
-        throw new RuntimeException("Write lock could not be released in less than 10s. Check if there is no dead locks");
-      }
-    }
-    lockForWrite();
-    return true;
-  }
-
+  /**
+   * Wait (at most 10s) for the write lock and acquire it. Throw a {@link RuntimeException} if it
+   * couldn't be acquired
+   */
   public static void lockForWrite() {
-    writeLock = true;
+    WRITE_LOCK.tryLock(LOCK_TIMEOUT, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Release the write lock. Must be called by the thread which acquired it
+   */
   public static void releaseLockForWrite() {
-    writeLock = false;
+    WRITE_LOCK.unlock();
   }
 
+  /**
+   * Wait (at most 10s) for the counter lock and acquire it. Throw a {@link RuntimeException} if it
+   * couldn't be acquired
+   */
   public static void lockCounter() {
-    counterLock = true;
+    COUNTER_LOCK.tryLock(LOCK_TIMEOUT, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Release the counter lock. Must be called by the thread which acquired it
+   */
   public static void releaseCounter() {
-    counterLock = false;
+    COUNTER_LOCK.unlock();
   }
 
-  public synchronized static boolean tryLockCounter() {
-    final long startLocked = System.currentTimeMillis();
-    while (counterLock) {
-      // wait for lock to be released
-      if ((System.currentTimeMillis() - startLocked) > 10000) {
-        // if a lock is kept more than 10 s, throw exception
-        throw new RuntimeException("Write lock could not be released in less than 10s. Check if there is no dead locks");
-      }
-    }
-    lockCounter();
-    return true;
+  /**
+   * The write and counter locks, with their holder and their metrics
+   *
+   * @return
+   */
+  public static List<TimedLock> getTimedLocks() {
+    return Arrays.asList(WRITE_LOCK, COUNTER_LOCK);
+  }
+
+  /**
+   * Metrics of the locks on objects (user and system locks): a timeout is a lock refused because
+   * the object was already locked
+   *
+   * @return
+   */
+  public static LockMetrics getObjectLockMetrics() {
+    return URI_LOCK_METRICS;
   }
 }
@@ -15,8 +15,8 @@ import org.apache.logging.log4j.LogManager;
  */
 public class LocksSurveyor extends Thread {
   private static final Logger LOGGER = LogManager.getLogger(LocksSurveyor.class);
-  private boolean signal = false;
-  private boolean running = false;
+  private volatile boolean signal = false;
+  private volatile boolean running = false;
 
   @Override
   public void run() {
@@ -58,8 +58,14 @@ public class LocksSurveyor extends Thread {
   public void terminate() {
     LOGGER.warn("Locks surveyor signaled to terminate!");
     signal = true;
-    while (running) {
+    synchronized (LOGGER) {
+      LOGGER.notifyAll();
+    }
+    try {
       LOGGER.debug("Waiting for LocksSurveyor to stop...");
+      join(20000);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 }
@@ -0,0 +1,139 @@
+package de.mpg.imeji.logic.concurrency;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ThreadPoolExecutor} of the {@link ExecutorRegistry} which measures how long the tasks wait
+ * in the queue and how long they run
+ *
+ * @author saquet
+ *
+ */
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+  private final String name;
+  private final int queueCapacity;
+  private final AtomicLong executed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong waitTime = new AtomicLong();
+  private final AtomicLong maxWait = new AtomicLong();
+  private final AtomicLong runTime = new AtomicLong();
+
+  public MonitoredThreadPoolExecutor(String name, int threads, BlockingQueue<Runnable> queue, int queueCapacity,
+      ThreadFactory threadFactory, RejectedExecutionHandler handler) {
+    super(threads, threads, 60L, TimeUnit.SECONDS, queue, threadFactory, handler);
+    // Threads are created up to the maximum before queuing, and released when idle
+    allowCoreThreadTimeOut(true);
+    this.name = name;
+    this.queueCapacity = queueCapacity;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    super.execute(new TimedRunnable(command));
+  }
+
+  /**
+   * Count a task rejected by the {@link RejectedExecutionHandler}
+   */
+  void rejected() {
+    rejected.incrementAndGet();
+  }
+
+  /**
+   * Wrap a task to measure its waiting and running time
+   *
+   * @author saquet
+   *
+   */
+  private class TimedRunnable implements Runnable {
+    private final Runnable task;
+    private final long submitted = System.nanoTime();
+
+    private TimedRunnable(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      final long start = System.nanoTime();
+      final long wait = TimeUnit.NANOSECONDS.toMillis(start - submitted);
+      waitTime.addAndGet(wait);
+      maxWait.accumulateAndGet(wait, Math::max);
+      try {
+        task.run();
+      } finally {
+        runTime.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        executed.incrementAndGet();
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Number of tasks waiting in the queue
+   *
+   * @return
+   */
+  public int getQueueSize() {
+    return getQueue().size();
+  }
+
+  /**
+   * Maximum number of tasks in the queue, 0 if the tasks are directly handed over to the threads
+   *
+   * @return
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * Number of tasks which have been executed, including the ones run by the caller
+   *
+   * @return
+   */
+  public long getExecutedCount() {
+    return executed.get();
+  }
+
+  /**
+   * Number of tasks which couldn't be queued
+   *
+   * @return
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Average time a task waited before it started
+   *
+   * @return
+   */
+  public long getAverageWaitMs() {
+    final long count = executed.get();
+    return count > 0 ? waitTime.get() / count : 0;
+  }
+
+  public long getMaxWaitMs() {
+    return maxWait.get();
+  }
+
+  /**
+   * Average time a task ran
+   *
+   * @return
+   */
+  public long getAverageRunMs() {
+    final long count = executed.get();
+    return count > 0 ? runTime.get() / count : 0;
+  }
+}
@@ -0,0 +1,114 @@
+package de.mpg.imeji.logic.concurrency;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fair, blocking and non reentrant lock with a timed acquisition. Only the thread which acquired
+ * the lock can release it. The current holder is tracked and the contention is recorded in
+ * {@link LockMetrics}
+ *
+ * @author saquet
+ *
+ */
+public class TimedLock {
+  private final String name;
+  private final Semaphore semaphore = new Semaphore(1, true);
+  private final AtomicReference<Holder> holder = new AtomicReference<>();
+  private final LockMetrics metrics;
+
+  /**
+   * The holder of the lock: the thread which acquired it and when
+   *
+   * @author saquet
+   *
+   */
+  public static class Holder {
+    private final Thread owner;
+    private final long since;
+
+    private Holder() {
+      this.owner = Thread.currentThread();
+      this.since = System.currentTimeMillis();
+    }
+
+    public String getThread() {
+      return owner.getName();
+    }
+
+    public long getSince() {
+      return since;
+    }
+  }
+
+  public TimedLock(String name) {
+    this.name = name;
+    this.metrics = new LockMetrics(name);
+  }
+
+  /**
+   * Wait until the lock is acquired. Throw a {@link RuntimeException} if it couldn't be acquired
+   * within the timeout
+   *
+   * @param timeout
+   * @param unit
+   * @return
+   */
+  public boolean tryLock(long timeout, TimeUnit unit) {
+    final long start = System.nanoTime();
+    try {
+      if (!semaphore.tryAcquire(timeout, unit)) {
+        metrics.timeout();
+        throw new RuntimeException(name + " lock could not be acquired in less than " + unit.toSeconds(timeout)
+            + "s. Check if there is no dead locks" + (holder.get() != null ? " (held by " + holder.get().getThread() + ")" : ""));
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for " + name + " lock", e);
+    }
+    holder.set(new Holder());
+    metrics.acquired(System.nanoTime() - start);
+    return true;
+  }
+
+  /**
+   * Release the lock. Do nothing if the lock is not held. Throw an
+   * {@link IllegalMonitorStateException} if the lock is held by another thread
+   */
+  public void unlock() {
+    final Holder current = holder.get();
+    if (current == null) {
+      return;
+    }
+    if (current.owner != Thread.currentThread()) {
+      throw new IllegalMonitorStateException(
+          name + " lock is held by " + current.getThread() + " and can't be released by " + Thread.currentThread().getName());
+    }
+    if (holder.compareAndSet(current, null)) {
+      semaphore.release();
+    }
+  }
+
+  /**
+   * @return the current {@link Holder} of the lock, null if the lock is free
+   */
+  public Holder getHolder() {
+    return holder.get();
+  }
+
+  /**
+   * @return the number of threads waiting for the lock
+   */
+  public int getQueueLength() {
+    return semaphore.getQueueLength();
+  }
+
+  public LockMetrics getMetrics() {
+    return metrics;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -60,6 +60,57 @@ public class PropertyReader {
     return value;
   }
 
+  /**
+   * Gets the value of a property as an int (see {@link #getProperty(String)})
+   *
+   * @param key The key of the property.
+   * @param defaultValue The value returned if the property is not set or not valid.
+   * @return The value of the property.
+   */
+  public static int getIntProperty(String key, int defaultValue) {
+    try {
+      final String value = getProperty(key);
+      return value != null && !value.trim().isEmpty() ? Integer.parseInt(value.trim()) : defaultValue;
+    } catch (final IOException | NumberFormatException e) {
+      LOGGER.error("Invalid property " + key + ", using " + defaultValue, e);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Gets the value of a property as a long (see {@link #getProperty(String)})
+   *
+   * @param key The key of the property.
+   * @param defaultValue The value returned if the property is not set or not valid.
+   * @return The value of the property.
+   */
+  public static long getLongProperty(String key, long defaultValue) {
+    try {
+      final String value = getProperty(key);
+      return value != null && !value.trim().isEmpty() ? Long.parseLong(value.trim()) : defaultValue;
+    } catch (final IOException | NumberFormatException e) {
+      LOGGER.error("Invalid property " + key + ", using " + defaultValue, e);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Gets the value of a property as a boolean (see {@link #getProperty(String)})
+   *
+   * @param key The key of the property.
+   * @param defaultValue The value returned if the property is not set or not readable.
+   * @return The value of the property.
+   */
+  public static boolean getBooleanProperty(String key, boolean defaultValue) {
+    try {
+      final String value = getProperty(key);
+      return value != null && !value.trim().isEmpty() ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    } catch (final IOException e) {
+      LOGGER.error("Invalid property " + key + ", using " + defaultValue, e);
+      return defaultValue;
+    }
+  }
+
   /**
    * Load all properties from the imeji properties files. <br>
    * (For details on access to the imeji.properties file see <code>loadImejiProperties()</code>
@@ -86,7 +86,7 @@ public class CollectionService extends SearchServiceAbstract<CollectionImeji> {
     }
     c = controller.create(c, user);
     messageService.add(new CollectionMessage(MessageType.CREATE_COLLECTION, c));
-    HierarchyService.reloadHierarchy();
+    HierarchyService.setParent(c.getId().toString(), c.getCollection() != null ? c.getCollection().toString() : null);
     return c;
   }
 
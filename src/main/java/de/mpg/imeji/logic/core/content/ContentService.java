@@ -7,6 +7,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
@@ -17,6 +22,7 @@ import com.google.common.collect.ImmutableMap;
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.NotFoundException;
 import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.core.content.extraction.ContentExtractionResult;
 import de.mpg.imeji.logic.core.content.extraction.ContentExtractorFactory;
 import de.mpg.imeji.logic.events.MessageService;
@@ -50,6 +56,18 @@ import de.mpg.imeji.logic.util.StringHelper;
 public class ContentService extends SearchServiceAbstract<ContentVO> implements Serializable {
   private static final long serialVersionUID = 6246549397756271848L;
   private static final Logger LOGGER = LogManager.getLogger(ContentService.class);
+  /**
+   * Number of files read and extracted together by
+   * {@link #extractFulltextAndTechnicalMetadataForAllFiles()}
+   */
+  private static final int EXTRACTION_BATCH_SIZE = 50;
+  /**
+   * Maximum number of extractions which timed out and are still running (Tika doesn't always stop
+   * a parse when interrupted): above it, the extraction of all files stops, to not starve the
+   * content extraction executor
+   */
+  private static final int MAX_RUNNING_AFTER_TIMEOUT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private static final AtomicInteger RUNNING_AFTER_TIMEOUT = new AtomicInteger();
   private final ContentController controller = new ContentController();
   private final MessageService messageService = new MessageService();
 
@@ -402,22 +420,34 @@ public class ContentService extends SearchServiceAbstract<ContentVO> implements
   }
 
   /**
-   * Update the fulltext and the technical metadata of all items
+   * Update the fulltext and the technical metadata of all items. The files of each batch are
+   * extracted in parallel by the content extraction executor. An extraction running longer than
+   * imeji.extraction.timeout_s is cancelled, and its file is skipped. The extraction stops if too
+   * many cancelled extractions are still running
    *
    * @throws ImejiException
    */
   public void extractFulltextAndTechnicalMetadataForAllFiles() throws ImejiException {
-    final SearchServiceAbstract<ContentVO>.RetrieveIterator iterator = iterateAll(10);
-    int count = 1;
-
-    final ContentService contentController = new ContentService();
+    final SearchServiceAbstract<ContentVO>.RetrieveIterator iterator = iterateAll(EXTRACTION_BATCH_SIZE);
+    final long timeout = PropertyReader.getLongProperty("imeji.extraction.timeout_s", 300);
+    int count = 0;
     while (iterator.hasNext()) {
+      if (RUNNING_AFTER_TIMEOUT.get() >= MAX_RUNNING_AFTER_TIMEOUT) {
+        throw new ImejiException("Content extraction stopped after " + count + "/" + iterator.getSize() + " files: "
+            + RUNNING_AFTER_TIMEOUT.get() + " extractions timed out and are still running");
+      }
       List<ContentVO> list = (List<ContentVO>) iterator.next();
-      List<ContentVO> extractedContents = new ArrayList<>();
+      final List<Extraction> extractions = new ArrayList<>(list.size());
       for (final ContentVO contentVO : list) {
-        final boolean extracted = contentController.extractContent(contentVO);
+        final Extraction extraction = new Extraction(contentVO);
+        extraction.future = Imeji.getCONTENT_EXTRACTION_EXECUTOR().submit(extraction);
+        extractions.add(extraction);
+      }
+      List<ContentVO> extractedContents = new ArrayList<>();
+      for (final Extraction extraction : extractions) {
+        final ContentVO contentVO = extraction.contentVO;
         count++;
-        if (extracted) {
+        if (waitForExtraction(extraction, timeout)) {
           extractedContents.add(contentVO);
           LOGGER.info(count + "/" + iterator.getSize() + " extracted (" + contentVO.getId() + ")");
         } else {
@@ -425,11 +455,84 @@ public class ContentService extends SearchServiceAbstract<ContentVO> implements
         }
       }
       LOGGER.info("Updating " + extractedContents.size() + " content with extracted infos...");
-      contentController.updateBatch(extractedContents);
+      updateBatch(extractedContents);
     }
     LOGGER.info("... done!");
   }
 
+  /**
+   * Wait for the extraction of a file, and cancel it after the timeout
+   *
+   * @param extraction
+   * @param timeout in seconds
+   * @return true if the content has been extracted
+   */
+  private boolean waitForExtraction(Extraction extraction, long timeout) {
+    try {
+      return extraction.future.get(timeout, TimeUnit.SECONDS);
+    } catch (final TimeoutException e) {
+      extraction.cancel();
+      LOGGER.warn("Extraction of " + extraction.contentVO.getOriginal() + " cancelled after " + timeout + " s");
+    } catch (final InterruptedException e) {
+      extraction.cancel();
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException e) {
+      LOGGER.error("Error extracting content ", e);
+    }
+    return false;
+  }
+
+  /**
+   * The extraction of a file by the content extraction executor. An extraction cancelled while
+   * running is counted until it really ends
+   *
+   * @author saquet
+   *
+   */
+  private class Extraction implements Callable<Boolean> {
+    private final ContentVO contentVO;
+    private Future<Boolean> future;
+    private boolean running = false;
+    private boolean cancelled = false;
+
+    public Extraction(ContentVO contentVO) {
+      this.contentVO = contentVO;
+    }
+
+    @Override
+    public Boolean call() {
+      synchronized (this) {
+        if (cancelled) {
+          return false;
+        }
+        running = true;
+      }
+      try {
+        return extractContent(contentVO);
+      } finally {
+        synchronized (this) {
+          running = false;
+          if (cancelled) {
+            RUNNING_AFTER_TIMEOUT.decrementAndGet();
+            LOGGER.warn("Cancelled extraction of " + contentVO.getOriginal() + " ended");
+          }
+        }
+      }
+    }
+
+    /**
+     * Cancel the extraction. The parse is interrupted, but might not stop
+     */
+    public synchronized void cancel() {
+      cancelled = true;
+      future.cancel(true);
+      if (running) {
+        LOGGER.warn("Cancelled extraction of " + contentVO.getOriginal() + " still running ("
+            + RUNNING_AFTER_TIMEOUT.incrementAndGet() + " cancelled extractions running)");
+      }
+    }
+  }
+
   /**
    * Create the Message content for uploaded / modified files
    * 
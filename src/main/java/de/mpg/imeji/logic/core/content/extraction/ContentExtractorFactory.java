@@ -10,18 +10,19 @@ import de.mpg.imeji.logic.core.content.extraction.extractor.TikaContentExtractor
  *
  */
 public class ContentExtractorFactory {
+  private static final ContentExtractorInterface TIKA = new TikaContentExtractor();
 
   private ContentExtractorFactory() {
     // avoid construction
   }
 
   /**
-   * Return the default content analyser
+   * Return the default content analyser, shared by all threads
    *
    * @return
    */
   public static ContentExtractorInterface build() {
-    return new TikaContentExtractor();
+    return TIKA;
   }
 
 }
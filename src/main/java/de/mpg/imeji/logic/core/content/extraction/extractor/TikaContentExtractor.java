@@ -4,8 +4,6 @@ import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -13,14 +11,29 @@ import java.util.List;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.tika.Tika;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.exception.WriteLimitReachedException;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 
+import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.core.content.extraction.ContentExtractionResult;
 import de.mpg.imeji.logic.model.TechnicalMetadata;
 
 /**
- * A content analyser based on apache Tika
+ * A content analyser based on apache Tika. The Tika parsers and detectors are loaded once and
+ * shared by all extractions (the {@link Tika} facade is thread-safe). Fulltext and technical
+ * metadata are extracted in a single parse of the file. Files bigger than
+ * imeji.extraction.max_file_size_mb are not parsed, to protect the heap. A parse stops at the next
+ * content it reads once its thread is interrupted.
  *
  * @author saquet
  *
@@ -31,91 +44,93 @@ public class TikaContentExtractor implements ContentExtractorInterface {
   private static final int METADATA_MAX_LENGHT = 250;
   // Limit the sire of the body parsed, too avoid heap space out of memory
   private static final int BODY_MAX_LENGHT = 300000;
+  private static final Tika TIKA = new Tika(TikaConfig.getDefaultConfig());
+  private static final long MAX_FILE_SIZE = PropertyReader.getLongProperty("imeji.extraction.max_file_size_mb", 1024) * 1024 * 1024;
 
   @Override
   public String extractFulltext(File file) {
-    final Tika tika = new Tika();
-    final ContentExtractionResult contentAnalyse = new ContentExtractionResult();
-    final Metadata metadata = new Metadata();
-    try {
-      InputStream stream = null;
-      try {
-        stream = TikaInputStream.get(file.toPath());
-        contentAnalyse.setFulltext(cleanText(tika.parseToString(stream, metadata, BODY_MAX_LENGHT)));
-      } catch (final Exception e) {
-        LOGGER.error("Error extracting fulltext/metadata from file", e);
-      } finally {
-        if (stream != null) {
-          stream.close();
-        }
-      }
-    } catch (final Exception e) {
-      LOGGER.error("Error closing stream", e);
-    }
-    return contentAnalyse.getFulltext();
+    return extractAll(file).getFulltext();
   }
 
   @Override
   public List<TechnicalMetadata> extractTechnicalMetadata(File file) {
-    final Tika tika = new Tika();
-    final ContentExtractionResult contentAnalyse = new ContentExtractionResult();
-    final Metadata metadata = new Metadata();
-    try {
-      InputStream stream = null;
-      Reader reader = null;
-      try {
-        stream = TikaInputStream.get(file.toPath());
-        reader = tika.parse(stream, metadata);
-        for (final String name : metadata.names()) {
-          if (metadata.get(name).length() < METADATA_MAX_LENGHT) {
-            contentAnalyse.getTechnicalMetadata().add(new TechnicalMetadata(name, metadata.get(name)));
-          }
-        }
-      } catch (final Exception e) {
-        LOGGER.error("Error extracting fulltext/metadata from file", e);
-      } finally {
-        if (stream != null) {
-          stream.close();
-        }
-        if (reader != null) {
-          reader.close();
-        }
-
-      }
-    } catch (final Exception e) {
-      LOGGER.error("Error closing stream", e);
-    }
-    return contentAnalyse.getTechnicalMetadata();
+    return extractAll(file).getTechnicalMetadata();
   }
 
   @Override
   public ContentExtractionResult extractAll(File file) {
-    final Tika tika = new Tika();
     final ContentExtractionResult contentAnalyse = new ContentExtractionResult();
+    if (MAX_FILE_SIZE > 0 && file.length() > MAX_FILE_SIZE) {
+      LOGGER.warn("File " + file.getName() + " (" + file.length() + " bytes) too big for the content extraction");
+      return contentAnalyse;
+    }
     final Metadata metadata = new Metadata();
-    try {
-      TikaInputStream stream = null;
-      try {
-        stream = TikaInputStream.get(file.toPath());
-        contentAnalyse.setFulltext(cleanText(tika.parseToString(stream, metadata, BODY_MAX_LENGHT)));
-        for (final String name : metadata.names()) {
-          if (metadata.get(name).length() < METADATA_MAX_LENGHT) {
-            contentAnalyse.getTechnicalMetadata().add(new TechnicalMetadata(name, metadata.get(name)));
-          }
-        }
-      } catch (final Exception e) {
-        LOGGER.error("Error extracting fulltext/metadata from file", e);
-      } finally {
-        if (stream != null) {
-          stream.close();
+    try (TikaInputStream stream = TikaInputStream.get(file.toPath())) {
+      contentAnalyse.setFulltext(cleanText(parse(stream, metadata)));
+      for (final String name : metadata.names()) {
+        if (metadata.get(name).length() < METADATA_MAX_LENGHT) {
+          contentAnalyse.getTechnicalMetadata().add(new TechnicalMetadata(name, metadata.get(name)));
         }
       }
     } catch (final Exception e) {
-      LOGGER.error("Error closing stream", e);
+      LOGGER.error("Error extracting fulltext/metadata from file", e);
     }
     return contentAnalyse;
   }
 
+  /**
+   * Parse the stream like {@link Tika#parseToString(java.io.InputStream, Metadata)}, but stop the
+   * parse if the thread is interrupted
+   *
+   * @param stream
+   * @param metadata
+   * @return the text of the file
+   * @throws Exception
+   */
+  private String parse(TikaInputStream stream, Metadata metadata) throws Exception {
+    final WriteOutContentHandler writer = new WriteOutContentHandler(BODY_MAX_LENGHT);
+    final ParseContext context = new ParseContext();
+    context.set(Parser.class, TIKA.getParser());
+    try {
+      TIKA.getParser().parse(stream, new InterruptibleContentHandler(new BodyContentHandler(writer)), metadata, context);
+    } catch (final SAXException e) {
+      if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+        throw e;
+      }
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Stop the parse when the thread is interrupted: Tika parsers don't check the interruption
+   *
+   * @author saquet
+   *
+   */
+  private static class InterruptibleContentHandler extends ContentHandlerDecorator {
+    public InterruptibleContentHandler(ContentHandler handler) {
+      super(handler);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+      checkInterrupted();
+      super.startElement(uri, localName, name, atts);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+      checkInterrupted();
+      super.characters(ch, start, length);
+    }
+
+    private void checkInterrupted() throws SAXException {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new SAXException("Parse interrupted");
+      }
+    }
+  }
+
   /**
    * Clean the text to make it better for search
    *
@@ -31,6 +31,7 @@ import de.mpg.imeji.logic.model.Properties.Status;
 import de.mpg.imeji.logic.model.User;
 import de.mpg.imeji.logic.model.aspects.ChangeMember;
 import de.mpg.imeji.logic.model.aspects.ChangeMember.ActionType;
+import de.mpg.imeji.logic.search.elasticsearch.script.CollectionMoveScript;
 import de.mpg.imeji.logic.security.authorization.Authorization;
 import de.mpg.imeji.logic.util.ObjectHelper;
 import de.mpg.imeji.logic.workflow.WorkflowValidator;
@@ -134,7 +135,10 @@ public class MoveFacade implements Serializable {
         LOGGER.error("Unexpected result while moving collection");
       }
 
-      HierarchyService.reloadHierarchy();
+      HierarchyService.setParent(collection.getId().toString(), newParent.getId().toString());
+      // The subcollections and items of the collection are indexed with the ancestors of the collection
+      final String collectionUri = collection.getId().toString();
+      CollectionMoveScript.runOrReindex(collectionUri, new HierarchyService().getAncestorPath(collectionUri));
     } catch (NoSuchFieldException | SecurityException e) {
       LOGGER.error("Could not move collection", e);
     }
@@ -490,6 +490,26 @@ public class ItemService extends SearchServiceAbstract<Item> {
     return facetSearchResult;
   }
 
+  /**
+   * Search page by page with a cursor, which makes deep pages as fast as the first ones
+   *
+   * @param containerUri
+   * @param searchQuery
+   * @param sortCriteria
+   * @param user
+   * @param offset start index of the first page, used only if cursor is null
+   * @param cursor the cursor of the previous page, or null for the first page
+   * @param size
+   * @param addFacets
+   * @return
+   * @throws UnprocessableError if the cursor is invalid
+   */
+  public SearchResult searchWithCursor(URI containerUri, SearchQuery searchQuery, List<SortCriterion> sortCriteria, User user, int offset,
+      String cursor, int size, boolean addFacets) throws UnprocessableError {
+    return search.searchWithCursor(searchQuery, sortCriteria, user, containerUri != null ? containerUri.toString() : null, offset, cursor,
+        size, addFacets);
+  }
+
   /**
    * Retrieve all items filtered by query
    *
@@ -0,0 +1,149 @@
+package de.mpg.imeji.logic.core.statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.model.Statement;
+import de.mpg.imeji.logic.model.util.StatementUtil;
+
+/**
+ * Immutable snapshot of all {@link Statement}, shared by the presentation, the validation and the
+ * search. The snapshot is read once from the database, and read again after the next change of a
+ * statement (see {@link #invalidate()}).<br/>
+ * The statements of the snapshot are shared: they must not be changed, use
+ * {@link Statement#clone()} to edit a statement
+ *
+ * @author saquet
+ *
+ */
+public class StatementRegistry {
+  private static final AtomicLong VERSION = new AtomicLong();
+  /**
+   * Guards the change of the version together with the publication of the snapshot
+   */
+  private static final Object PUBLISH_LOCK = new Object();
+  /**
+   * The current snapshot, null if it must be read again
+   */
+  private static volatile StatementRegistry registry = null;
+  private final long version;
+  private final List<Statement> statements;
+  private final Map<String, Statement> statementsByIndex;
+  private final Map<String, Statement> statementsByUri;
+
+  /**
+   * Create a snapshot with these statements
+   *
+   * @param version
+   * @param statements
+   */
+  public StatementRegistry(long version, List<Statement> statements) {
+    final List<Statement> l = new ArrayList<>(statements);
+    l.sort((s1, s2) -> s1.getIndex().compareToIgnoreCase(s2.getIndex()));
+    final Map<String, Statement> byUri = new HashMap<>(l.size());
+    for (final Statement s : l) {
+      byUri.put(s.getUri().toString(), s);
+    }
+    this.version = version;
+    this.statements = Collections.unmodifiableList(l);
+    this.statementsByIndex = Collections.unmodifiableMap(StatementUtil.statementListToMap(l));
+    this.statementsByUri = Collections.unmodifiableMap(byUri);
+  }
+
+  /**
+   * Return the current snapshot, read from the database if a statement has changed since the last
+   * read
+   *
+   * @return
+   * @throws ImejiException
+   */
+  public static StatementRegistry get() throws ImejiException {
+    final StatementRegistry current = registry;
+    return current != null ? current : load();
+  }
+
+  /**
+   * Read the statements from the database, if no other thread has done it in the meantime
+   *
+   * @return
+   * @throws ImejiException
+   */
+  private static synchronized StatementRegistry load() throws ImejiException {
+    if (registry == null) {
+      final long version = VERSION.incrementAndGet();
+      final StatementService service = new StatementService();
+      final StatementRegistry loaded = new StatementRegistry(version, service.retrieveBatch(service.searchAll(), Imeji.adminUser));
+      // A change during the read invalidates the snapshot again
+      synchronized (PUBLISH_LOCK) {
+        if (VERSION.get() == version) {
+          registry = loaded;
+        }
+      }
+      return loaded;
+    }
+    return registry;
+  }
+
+  /**
+   * Discard the current snapshot. Called after each change of a statement
+   */
+  public static void invalidate() {
+    synchronized (PUBLISH_LOCK) {
+      VERSION.incrementAndGet();
+      registry = null;
+    }
+  }
+
+  /**
+   * The version of the snapshot. A new snapshot has a greater version
+   *
+   * @return
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * All statements, sorted by index
+   *
+   * @return
+   */
+  public List<Statement> getStatements() {
+    return statements;
+  }
+
+  /**
+   * All statements as a map [index, Statement]
+   *
+   * @return
+   */
+  public Map<String, Statement> getStatementsByIndex() {
+    return statementsByIndex;
+  }
+
+  /**
+   * Return the statement with this index, or null
+   *
+   * @param index
+   * @return
+   */
+  public Statement getByIndex(String index) {
+    return statementsByIndex.get(index);
+  }
+
+  /**
+   * Return the statement with this uri, or null
+   *
+   * @param uri
+   * @return
+   */
+  public Statement getByUri(String uri) {
+    return statementsByUri.get(uri);
+  }
+}
@@ -2,10 +2,10 @@ package de.mpg.imeji.logic.core.statement;
 
 import static java.util.stream.Collectors.toList;
 
-import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import de.mpg.imeji.exceptions.ImejiException;
@@ -18,7 +18,6 @@ import de.mpg.imeji.logic.generic.SearchServiceAbstract;
 import de.mpg.imeji.logic.model.SearchFields;
 import de.mpg.imeji.logic.model.Statement;
 import de.mpg.imeji.logic.model.User;
-import de.mpg.imeji.logic.model.factory.ImejiFactory;
 import de.mpg.imeji.logic.model.factory.StatementFactory;
 import de.mpg.imeji.logic.model.util.StatementUtil;
 import de.mpg.imeji.logic.search.Search;
@@ -56,7 +55,11 @@ public class StatementService extends SearchServiceAbstract<Statement> {
    * @throws ImejiException
    */
   public Statement create(Statement statement, User user) throws ImejiException {
-    return controller.create(statement, user);
+    try {
+      return controller.create(statement, user);
+    } finally {
+      StatementRegistry.invalidate();
+    }
   }
 
   /**
@@ -68,7 +71,14 @@ public class StatementService extends SearchServiceAbstract<Statement> {
    * @throws ImejiException
    */
   public List<Statement> createBatch(List<Statement> l, User user) throws ImejiException {
-    return controller.createBatch(l, user);
+    if (l.isEmpty()) {
+      return l;
+    }
+    try {
+      return controller.createBatch(l, user);
+    } finally {
+      StatementRegistry.invalidate();
+    }
   }
 
   /**
@@ -91,7 +101,7 @@ public class StatementService extends SearchServiceAbstract<Statement> {
    * @throws ImejiException
    */
   private List<Statement> filterNotExistingStatement(List<Statement> l) throws ImejiException {
-    Map<String, Statement> map = StatementUtil.statementListToMap(retrieveAll());
+    Map<String, Statement> map = StatementRegistry.get().getStatementsByIndex();
     return l.stream().filter(s -> !map.containsKey(s.getIndex())).collect(Collectors.toList());
   }
 
@@ -135,7 +145,8 @@ public class StatementService extends SearchServiceAbstract<Statement> {
   }
 
   /**
-   * Filter the list with only the existing statement and retrieve it as a list of {@link Statement}
+   * Return the existing statements of the list from the {@link StatementRegistry}. The statements
+   * must not be changed
    *
    * @param ids
    * @param user
@@ -143,11 +154,9 @@ public class StatementService extends SearchServiceAbstract<Statement> {
    * @throws ImejiException
    */
   public List<Statement> retrieveBatchOnlyExistingStatemment(List<String> uris, User user) throws ImejiException {
-    List<Statement> statements =
-        filterNotExistingStatement(uris.stream().map(uri -> ImejiFactory.newStatement().setUri(URI.create(uri)).build()).collect(toList()));
-    final List<Statement> l = controller.retrieveBatch(statements.stream().map(s -> s.getUri().toString()).collect(toList()), user);
-    l.sort((s1, s2) -> s1.getIndex().compareToIgnoreCase(s2.getIndex()));
-    return l;
+    final StatementRegistry registry = StatementRegistry.get();
+    return uris.stream().distinct().map(registry::getByUri).filter(Objects::nonNull)
+        .sorted((s1, s2) -> s1.getIndex().compareToIgnoreCase(s2.getIndex())).collect(toList());
   }
 
   /**
@@ -168,6 +177,7 @@ public class StatementService extends SearchServiceAbstract<Statement> {
         return after;
       }
     } finally {
+      StatementRegistry.invalidate();
       changeDefaultStatement(before, after);
       messageService.add(new StatementMessage(MessageType.STATEMENT_CHANGED, after, before.getIndex()));
     }
@@ -200,7 +210,11 @@ public class StatementService extends SearchServiceAbstract<Statement> {
     if (isUsed(s)) {
       throw new NotAllowedError("Statement " + s.getIndex() + " is used by at least one item and therefore can't be deleted");
     }
-    controller.delete(s, user);
+    try {
+      controller.delete(s, user);
+    } finally {
+      StatementRegistry.invalidate();
+    }
   }
 
   /**
@@ -249,6 +263,14 @@ public class StatementService extends SearchServiceAbstract<Statement> {
     return retrieveBatch(ids, Imeji.adminUser);
   }
 
+  /**
+   * Return copies of all statements of the {@link StatementRegistry}
+   */
+  @Override
+  public List<Statement> retrieveAll() throws ImejiException {
+    return StatementRegistry.get().getStatements().stream().map(Statement::clone).collect(toList());
+  }
+
   @Override
   public List<String> searchAll() {
     return ImejiSPARQL.exec(JenaCustomQueries.selectStatementAll(), Imeji.statementModel);
@@ -1,10 +1,13 @@
 package de.mpg.imeji.logic.db.indexretry.model;
 
 import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
 import de.mpg.imeji.logic.model.aspects.ResourceLastModified;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.Calendar;
@@ -48,6 +51,28 @@ public abstract class RetryBaseRequest implements Serializable {
     setFailTime(object);
   }
 
+  /**
+   * Constructor for a request read by the {@link BinaryCodec}
+   *
+   * @param objectUri
+   * @param failTime
+   */
+  protected RetryBaseRequest(URI objectUri, Calendar failTime) {
+    this.objectUri = objectUri;
+    this.failTime = failTime;
+  }
+
+  /**
+   * Write the uri and the fail time for the {@link BinaryCodec}. Subclasses write their own fields
+   * after these
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void write(DataOutput out) throws IOException {
+    BinaryCodec.writeString(out, objectUri != null ? objectUri.toString() : null);
+    BinaryCodec.writeCalendar(out, failTime);
+  }
 
   public URI getUri() {
     return this.objectUri;
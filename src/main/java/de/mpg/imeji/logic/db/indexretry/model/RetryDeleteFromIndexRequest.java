@@ -1,12 +1,17 @@
 package de.mpg.imeji.logic.db.indexretry.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
 import de.mpg.imeji.logic.db.writer.WriterFacade;
 
 /**
@@ -44,6 +49,32 @@ public class RetryDeleteFromIndexRequest extends RetryBaseRequest {
   }
 
 
+  private RetryDeleteFromIndexRequest(URI objectUri, Calendar failTime, Object objectToDelete) {
+    super(objectUri, failTime);
+    this.objectToDelete = objectToDelete;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    BinaryCodec.writeObject(out, objectToDelete);
+  }
+
+  /**
+   * Read a request written by {@link #write(DataOutput)}
+   *
+   * @param in
+   * @param version
+   * @return
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  public static RetryDeleteFromIndexRequest read(DataInput in, int version) throws IOException, ClassNotFoundException {
+    final String uri = BinaryCodec.readString(in);
+    final Calendar failTime = BinaryCodec.readCalendar(in);
+    return new RetryDeleteFromIndexRequest(uri != null ? URI.create(uri) : null, failTime, BinaryCodec.readObject(in));
+  }
+
   public Object getObjectToDelete() {
     return this.objectToDelete;
   }
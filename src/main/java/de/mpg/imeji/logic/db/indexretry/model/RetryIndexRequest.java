@@ -1,12 +1,17 @@
 package de.mpg.imeji.logic.db.indexretry.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
 import de.mpg.imeji.logic.db.writer.WriterFacade;
 
 
@@ -49,6 +54,33 @@ public class RetryIndexRequest extends RetryBaseRequest {
   }
 
 
+  private RetryIndexRequest(URI objectUri, Calendar failTime, Class objectClass) {
+    super(objectUri, failTime);
+    this.objectClass = objectClass;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    BinaryCodec.writeString(out, objectClass != null ? objectClass.getName() : null);
+  }
+
+  /**
+   * Read a request written by {@link #write(DataOutput)}
+   *
+   * @param in
+   * @param version
+   * @return
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  public static RetryIndexRequest read(DataInput in, int version) throws IOException, ClassNotFoundException {
+    final String uri = BinaryCodec.readString(in);
+    final Calendar failTime = BinaryCodec.readCalendar(in);
+    final String objectClass = BinaryCodec.readString(in);
+    return new RetryIndexRequest(uri != null ? URI.create(uri) : null, failTime, objectClass != null ? Class.forName(objectClass) : null);
+  }
+
   public Class getObjectClass() {
     return this.objectClass;
   }
@@ -0,0 +1,247 @@
+package de.mpg.imeji.logic.db.keyValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import de.mpg.imeji.logic.db.indexretry.model.RetryDeleteFromIndexRequest;
+import de.mpg.imeji.logic.db.indexretry.model.RetryIndexRequest;
+import de.mpg.imeji.logic.security.sharing.invitation.Invitation;
+import de.mpg.imeji.logic.storage.internal.DerivativeTask;
+
+/**
+ * Compact binary {@link KeyValueCodec}. A value is written as:
+ * <ul>
+ * <li>a marker, which can't be the first byte of a java serialization</li>
+ * <li>the tag of the class of the value</li>
+ * <li>the version of the format of this class</li>
+ * <li>the fields of the value, written by the {@link Writer} of the class</li>
+ * </ul>
+ * The {@link Reader} of a class gets the version of the value, so that values written by a previous
+ * version of the class can still be read. Classes without {@link Writer} are java serialized after
+ * the header. Values written with the {@link JavaSerializationCodec} are read as well.
+ *
+ * @author saquet
+ *
+ */
+public class BinaryCodec implements KeyValueCodec {
+  private static final byte MARKER = (byte) 0xB1;
+  private static final byte JAVA = 0;
+  private static final byte STRING = 1;
+  private static final byte INVITATION = 2;
+  private static final byte DERIVATIVE_TASK = 3;
+  private static final byte RETRY_INDEX = 4;
+  private static final byte RETRY_DELETE = 5;
+  private static final int HEADER_LENGTH = 3;
+  private static final Map<Byte, Type<?>> BY_TAG = new HashMap<>();
+  private static final Map<Class<?>, Type<?>> BY_CLASS = new HashMap<>();
+  private static final JavaSerializationCodec JAVA_CODEC = new JavaSerializationCodec();
+
+  static {
+    register(STRING, String.class, 1, (s, out) -> writeString(out, s), (in, version) -> readString(in));
+    register(INVITATION, Invitation.class, 1, Invitation::write, Invitation::read);
+    register(DERIVATIVE_TASK, DerivativeTask.class, 1, DerivativeTask::write, DerivativeTask::read);
+    register(RETRY_INDEX, RetryIndexRequest.class, 1, RetryIndexRequest::write, RetryIndexRequest::read);
+    register(RETRY_DELETE, RetryDeleteFromIndexRequest.class, 1, RetryDeleteFromIndexRequest::write,
+        RetryDeleteFromIndexRequest::read);
+  }
+
+  /**
+   * Write the fields of a value
+   *
+   * @param <T>
+   */
+  @FunctionalInterface
+  public interface Writer<T> {
+    public void write(T value, DataOutput out) throws IOException;
+  }
+
+  /**
+   * Read a value written by a {@link Writer}
+   *
+   * @param <T>
+   */
+  @FunctionalInterface
+  public interface Reader<T> {
+    /**
+     * @param in
+     * @param version the version of the format of the value
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public T read(DataInput in, int version) throws IOException, ClassNotFoundException;
+  }
+
+  private static class Type<T> {
+    private final byte tag;
+    private final int version;
+    private final Writer<T> writer;
+    private final Reader<T> reader;
+
+    private Type(byte tag, int version, Writer<T> writer, Reader<T> reader) {
+      this.tag = tag;
+      this.version = version;
+      this.writer = writer;
+      this.reader = reader;
+    }
+  }
+
+  private static <T> void register(byte tag, Class<T> clazz, int version, Writer<T> writer, Reader<T> reader) {
+    final Type<T> type = new Type<>(tag, version, writer, reader);
+    BY_TAG.put(tag, type);
+    BY_CLASS.put(clazz, type);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public byte[] encode(Object obj) throws IOException {
+    final Type<Object> type = obj != null ? (Type<Object>) BY_CLASS.get(obj.getClass()) : null;
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(MARKER);
+    if (type == null) {
+      out.writeByte(JAVA);
+      out.writeByte(1);
+      out.write(JAVA_CODEC.encode(obj));
+    } else {
+      out.writeByte(type.tag);
+      out.writeByte(type.version);
+      type.writer.write(obj, out);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+    if (isLegacy(bytes)) {
+      return JAVA_CODEC.decode(bytes);
+    }
+    if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != MARKER) {
+      throw new IOException("Unknown format of value");
+    }
+    final byte tag = bytes[1];
+    final int version = bytes[2];
+    if (tag == JAVA) {
+      return JAVA_CODEC.decode(bytes, HEADER_LENGTH);
+    }
+    final Type<?> type = BY_TAG.get(tag);
+    if (type == null) {
+      throw new IOException("Unknown value class " + tag);
+    }
+    if (version > type.version) {
+      throw new IOException("Unsupported version " + version + " of value class " + tag);
+    }
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH));
+    return type.reader.read(in, version);
+  }
+
+  @Override
+  public boolean isLegacy(byte[] bytes) {
+    return JavaSerializationCodec.isJavaSerialized(bytes);
+  }
+
+  /**
+   * Write a String which can be null, without length limit
+   *
+   * @param out
+   * @param s
+   * @throws IOException
+   */
+  public static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  /**
+   * Read a String written by {@link #writeString(DataOutput, String)}
+   *
+   * @param in
+   * @return
+   * @throws IOException
+   */
+  public static String readString(DataInput in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] b = new byte[length];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a Calendar which can be null, as time and time zone
+   *
+   * @param out
+   * @param c
+   * @throws IOException
+   */
+  public static void writeCalendar(DataOutput out, Calendar c) throws IOException {
+    out.writeBoolean(c != null);
+    if (c != null) {
+      out.writeLong(c.getTimeInMillis());
+      out.writeUTF(c.getTimeZone().getID());
+    }
+  }
+
+  /**
+   * Read a Calendar written by {@link #writeCalendar(DataOutput, Calendar)}
+   *
+   * @param in
+   * @return
+   * @throws IOException
+   */
+  public static Calendar readCalendar(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    final long time = in.readLong();
+    final Calendar c = Calendar.getInstance(TimeZone.getTimeZone(in.readUTF()));
+    c.setTimeInMillis(time);
+    return c;
+  }
+
+  /**
+   * Write an object without {@link Writer} (for instance a model object) with the java
+   * serialization
+   *
+   * @param out
+   * @param obj
+   * @throws IOException
+   */
+  public static void writeObject(DataOutput out, Object obj) throws IOException {
+    final byte[] b = JAVA_CODEC.encode(obj);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  /**
+   * Read an object written by {@link #writeObject(DataOutput, Object)}
+   *
+   * @param in
+   * @return
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  public static Object readObject(DataInput in) throws IOException, ClassNotFoundException {
+    final byte[] b = new byte[in.readInt()];
+    in.readFully(b);
+    return JAVA_CODEC.decode(b);
+  }
+}
@@ -0,0 +1,56 @@
+package de.mpg.imeji.logic.db.keyValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * {@link KeyValueCodec} with the java serialization. This was the format of all stores before the
+ * {@link BinaryCodec}
+ *
+ * @author saquet
+ *
+ */
+public class JavaSerializationCodec implements KeyValueCodec {
+
+  /**
+   * True if the bytes start with the header of the java serialization
+   *
+   * @param bytes
+   * @return
+   */
+  public static boolean isJavaSerialized(byte[] bytes) {
+    return bytes != null && bytes.length > 1 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED;
+  }
+
+  @Override
+  public byte[] encode(Object obj) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream os = new ObjectOutputStream(out)) {
+      os.writeObject(obj);
+    }
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+    return decode(bytes, 0);
+  }
+
+  /**
+   * Read an object serialized after offset bytes
+   *
+   * @param bytes
+   * @param offset
+   * @return
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  public Object decode(byte[] bytes, int offset) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset))) {
+      return is.readObject();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package de.mpg.imeji.logic.db.keyValue;
+
+import java.io.IOException;
+
+/**
+ * Format of the values written by the {@link KeyValueStoreService} in a {@link KeyValueStore}
+ *
+ * @author saquet
+ *
+ */
+public interface KeyValueCodec {
+
+  /**
+   * Write the object to bytes
+   *
+   * @param obj
+   * @return
+   * @throws IOException
+   */
+  public byte[] encode(Object obj) throws IOException;
+
+  /**
+   * Read an object written by {@link #encode(Object)}
+   *
+   * @param bytes
+   * @return
+   * @throws IOException
+   * @throws ClassNotFoundException
+   */
+  public Object decode(byte[] bytes) throws IOException, ClassNotFoundException;
+
+  /**
+   * True if the bytes have been written in a previous format, and should be migrated
+   *
+   * @param bytes
+   * @return
+   */
+  public default boolean isLegacy(byte[] bytes) {
+    return false;
+  }
+}
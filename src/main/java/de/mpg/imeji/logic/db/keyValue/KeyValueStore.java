@@ -1,7 +1,10 @@
 package de.mpg.imeji.logic.db.keyValue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for Key/Value Store
@@ -42,6 +45,44 @@ public interface KeyValueStore {
    */
   public void delete(String key);
 
+  /**
+   * Put many key/values to the store, committed together
+   *
+   * @param values
+   */
+  public default void putAll(Map<String, byte[]> values) {
+    for (final Map.Entry<String, byte[]> value : values.entrySet()) {
+      put(value.getKey(), value.getValue());
+    }
+  }
+
+  /**
+   * Delete many entries from the store, committed together
+   *
+   * @param keys
+   */
+  public default void deleteAll(Collection<String> keys) {
+    for (final String key : keys) {
+      delete(key);
+    }
+  }
+
+  /**
+   * Return all keys of the store. Stores which can't list their keys return an empty list
+   *
+   * @return
+   */
+  public default List<String> getKeys() {
+    return new ArrayList<>();
+  }
+
+  /**
+   * Commit the pending writes
+   */
+  public default void commit() {
+    // Stores without transaction write directly
+  }
+
   /**
    * Return a list of value which the key matches the pattern
    *
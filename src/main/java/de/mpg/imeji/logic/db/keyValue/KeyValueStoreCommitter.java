@@ -0,0 +1,141 @@
+package de.mpg.imeji.logic.db.keyValue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.logic.config.util.PropertyReader;
+
+/**
+ * Decide when the writes of a {@link KeyValueStore} are committed, and count them.<br/>
+ * By default, every write is committed at once. With the property
+ * imeji.keyvalue.commit.interval_ms, the writes are committed in groups: every interval, or as
+ * soon as imeji.keyvalue.commit.max_writes writes are pending. The stores write in a log before
+ * the commit, so that a crash can only lose the writes of the last interval.
+ *
+ * @author saquet
+ *
+ */
+public class KeyValueStoreCommitter {
+  private static final Logger LOGGER = LogManager.getLogger(KeyValueStoreCommitter.class);
+  private static final List<KeyValueStoreCommitter> COMMITTERS = new CopyOnWriteArrayList<>();
+  private static long intervalMs = -1;
+  private static long maxWrites = 1000;
+  private static ScheduledExecutorService scheduler;
+  private final KeyValueStore store;
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+  private final AtomicLong totalCommitNanos = new AtomicLong();
+  private final long started = System.currentTimeMillis();
+
+  /**
+   * Create the committer of a store, which commits with {@link KeyValueStore#commit()}
+   *
+   * @param store
+   */
+  public KeyValueStoreCommitter(KeyValueStore store) {
+    this.store = store;
+    COMMITTERS.add(this);
+    init();
+  }
+
+  /**
+   * Read the configuration and start the scheduler of the group commits, once for all stores
+   */
+  private static synchronized void init() {
+    if (intervalMs >= 0) {
+      return;
+    }
+    intervalMs = PropertyReader.getLongProperty("imeji.keyvalue.commit.interval_ms", 0);
+    maxWrites = PropertyReader.getLongProperty("imeji.keyvalue.commit.max_writes", maxWrites);
+    if (intervalMs > 0) {
+      LOGGER.info("Key/value stores committed every " + intervalMs + " ms or " + maxWrites + " writes");
+      scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "keyvalue-commit");
+        t.setDaemon(true);
+        return t;
+      });
+      scheduler.scheduleWithFixedDelay(KeyValueStoreCommitter::commitAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Commit the pending writes of all stores
+   */
+  private static void commitAll() {
+    for (final KeyValueStoreCommitter committer : COMMITTERS) {
+      try {
+        if (committer.pending.get() > 0 && committer.store.isStarted()) {
+          committer.store.commit();
+        }
+      } catch (final Exception e) {
+        LOGGER.error("Error committing store " + committer.store.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * The committers of all stores
+   *
+   * @return
+   */
+  public static List<KeyValueStoreCommitter> getCommitters() {
+    return COMMITTERS;
+  }
+
+  /**
+   * Must be called by the store after some writes: commit them if needed
+   *
+   * @param count the number of writes
+   */
+  public void written(int count) {
+    writes.addAndGet(count);
+    if (pending.addAndGet(count) >= maxWrites || intervalMs <= 0) {
+      store.commit();
+    }
+  }
+
+  /**
+   * Must be called by the store after each commit
+   *
+   * @param nanos the duration of the commit
+   */
+  public void committed(long nanos) {
+    pending.set(0);
+    commits.incrementAndGet();
+    totalCommitNanos.addAndGet(nanos);
+  }
+
+  public String getName() {
+    return store.getName();
+  }
+
+  public long getWrites() {
+    return writes.get();
+  }
+
+  public long getCommits() {
+    return commits.get();
+  }
+
+  public long getPending() {
+    return pending.get();
+  }
+
+  public long getAverageCommitMs() {
+    final long c = commits.get();
+    return c > 0 ? TimeUnit.NANOSECONDS.toMillis(totalCommitNanos.get() / c) : 0;
+  }
+
+  public long getWritesPerSecond() {
+    final long seconds = (System.currentTimeMillis() - started) / 1000;
+    return seconds > 0 ? writes.get() / seconds : writes.get();
+  }
+}
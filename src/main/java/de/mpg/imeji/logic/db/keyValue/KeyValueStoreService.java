@@ -1,14 +1,12 @@
 package de.mpg.imeji.logic.db.keyValue;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -18,7 +16,8 @@ import de.mpg.imeji.exceptions.NotFoundException;
 
 /**
  * Business Controller to persisted messages. This can be used to store Notifications, Invitations,
- * etc. Messages are stored in a Key/Value store
+ * etc. Messages are stored in a Key/Value store, written with a {@link KeyValueCodec} (by default
+ * the {@link BinaryCodec})
  *
  * @author bastiens
  *
@@ -26,14 +25,47 @@ import de.mpg.imeji.exceptions.NotFoundException;
 public class KeyValueStoreService {
   private static final Logger LOGGER = LogManager.getLogger(KeyValueStoreService.class);
   private final KeyValueStore store;
-  private static final Map<String, KeyValueStore> stores = new HashMap<>();
+  private final KeyValueCodec codec;
+  private static final Map<String, KeyValueStore> stores = new ConcurrentHashMap<>();
 
   public KeyValueStoreService(KeyValueStore store) {
+    this(store, new BinaryCodec());
+  }
+
+  public KeyValueStoreService(KeyValueStore store, KeyValueCodec codec) {
     this.store = store;
+    this.codec = codec;
     if (!store.isStarted()) {
       store.start();
     }
-    stores.put(store.getName(), store);
+    // The values are migrated once, when the store is registered
+    if (stores.put(store.getName(), store) == null) {
+      migrate();
+    }
+  }
+
+  /**
+   * Write again with the codec the values written in a previous format. Once done, the store
+   * contains only values of the current format. Values not migrated yet can still be read
+   */
+  private void migrate() {
+    final Map<String, byte[]> migrated = new LinkedHashMap<>();
+    int failed = 0;
+    for (final String key : store.getKeys()) {
+      final byte[] bytes = store.get(key);
+      if (codec.isLegacy(bytes)) {
+        try {
+          migrated.put(key, codec.encode(codec.decode(bytes)));
+        } catch (IOException | ClassNotFoundException e) {
+          failed++;
+          LOGGER.error("Error migrating value " + key + " of store " + store.getName() + ", the value is kept", e);
+        }
+      }
+    }
+    if (!migrated.isEmpty()) {
+      store.putAll(migrated);
+      LOGGER.info(migrated.size() + " values of store " + store.getName() + " migrated to the current format, " + failed + " failed");
+    }
   }
 
   /**
@@ -89,7 +121,7 @@ public class KeyValueStoreService {
    */
   public Object get(String key) throws NotFoundException {
     try {
-      return deserialize(store.get(key));
+      return codec.decode(store.get(key));
     } catch (final Exception e) {
       throw new NotFoundException("Key " + key + " not found in  " + store.getName() + ": " + e.getMessage());
     }
@@ -109,7 +141,7 @@ public class KeyValueStoreService {
     final List<T> list = new ArrayList<>();
     for (final byte[] b : store.getList(keyPattern)) {
       try {
-        list.add(clazz.cast(deserialize(b)));
+        list.add(clazz.cast(codec.decode(b)));
       } catch (ClassNotFoundException e) {
         LOGGER.error("Error deserializing value " + new String(b) + " from store " + store.getName(), e);
       } catch (IOException e) {
@@ -119,6 +151,15 @@ public class KeyValueStoreService {
     return list;
   }
 
+  /**
+   * Return all keys of the store, without reading the values
+   *
+   * @return
+   */
+  public List<String> getKeys() {
+    return store.getKeys();
+  }
+
   /**
    * Put an object to the Key/Value Store
    *
@@ -128,52 +169,61 @@ public class KeyValueStoreService {
    */
   public void put(String key, Object value) throws ImejiException {
     try {
-      store.put(key, serialize(value));
+      store.put(key, codec.encode(value));
     } catch (final Exception e) {
       throw new ImejiException("Error writing Data in Key/Value Store", e);
     }
   }
 
   /**
-   * Delete the key/value by its key
+   * Put many objects to the Key/Value Store, committed together
    *
-   * @param key
+   * @param values
    * @throws ImejiException
    */
-  public void delete(String key) throws ImejiException {
+  public void putAll(Map<String, Object> values) throws ImejiException {
+    if (values.isEmpty()) {
+      return;
+    }
     try {
-      store.delete(key);
+      final Map<String, byte[]> bytes = new LinkedHashMap<>(values.size());
+      for (final Map.Entry<String, Object> entry : values.entrySet()) {
+        bytes.put(entry.getKey(), codec.encode(entry.getValue()));
+      }
+      store.putAll(bytes);
     } catch (final Exception e) {
-      throw new ImejiException("Error deleting Data " + store.getName(), e);
+      throw new ImejiException("Error writing Data in Key/Value Store", e);
     }
   }
 
   /**
-   * Create the Object from its serialized byte representation
+   * Delete many key/values by their keys, committed together
    *
-   * @param bytes
-   * @return
-   * @throws IOException
-   * @throws ClassNotFoundException
+   * @param keys
+   * @throws ImejiException
    */
-  private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
-    final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-    final ObjectInputStream is = new ObjectInputStream(in);
-    return is.readObject();
+  public void deleteAll(Collection<String> keys) throws ImejiException {
+    if (keys.isEmpty()) {
+      return;
+    }
+    try {
+      store.deleteAll(keys);
+    } catch (final Exception e) {
+      throw new ImejiException("Error deleting Data " + store.getName(), e);
+    }
   }
 
   /**
-   * Serialize an Object to a byte array
+   * Delete the key/value by its key
    *
-   * @param obj
-   * @return
-   * @throws IOException
+   * @param key
+   * @throws ImejiException
    */
-  private byte[] serialize(Object obj) throws IOException {
-    final ByteArrayOutputStream out = new ByteArrayOutputStream();
-    final ObjectOutputStream os = new ObjectOutputStream(out);
-    os.writeObject(obj);
-    return out.toByteArray();
+  public void delete(String key) throws ImejiException {
+    try {
+      store.delete(key);
+    } catch (final Exception e) {
+      throw new ImejiException("Error deleting Data " + store.getName(), e);
+    }
   }
-
 }
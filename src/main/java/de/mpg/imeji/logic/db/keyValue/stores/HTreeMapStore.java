@@ -2,7 +2,9 @@ package de.mpg.imeji.logic.db.keyValue.stores;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.mapdb.DB;
@@ -12,19 +14,22 @@ import org.mapdb.Serializer;
 
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.db.keyValue.KeyValueStore;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreCommitter;
 import de.mpg.imeji.logic.util.StringHelper;
 
 /**
- * A Key Value store based on the MapsDB HTreeMapStore
+ * A Key Value store based on the MapsDB HTreeMapStore. Each store has its own file. The writes are
+ * committed by the {@link KeyValueStoreCommitter}
  *
  * @author bastiens
  *
  */
 public class HTreeMapStore implements KeyValueStore {
   public static final String STORE_FILENAME_PREFIX = "imeji_HTreeMap_";
-  protected static DB STORE;
+  protected DB store;
   protected HTreeMap<Object, Object> map;
   protected String name;
+  private final KeyValueStoreCommitter committer = new KeyValueStoreCommitter(this);
 
   /**
    * Basic HTreeMapStore without expiration date
@@ -46,15 +51,42 @@ public class HTreeMapStore implements KeyValueStore {
   }
 
   @Override
-  public void put(String key, byte[] value) {
+  public synchronized void put(String key, byte[] value) {
     map.put(key, value);
-    STORE.commit();
+    committer.written(1);
   }
 
   @Override
-  public void delete(String key) {
+  public synchronized void delete(String key) {
     map.remove(key);
-    STORE.commit();
+    committer.written(1);
+  }
+
+  @Override
+  public synchronized void putAll(Map<String, byte[]> values) {
+    if (!values.isEmpty()) {
+      map.putAll(values);
+      committer.written(values.size());
+    }
+  }
+
+  @Override
+  public synchronized void deleteAll(Collection<String> keys) {
+    if (!keys.isEmpty()) {
+      for (final String key : keys) {
+        map.remove(key);
+      }
+      committer.written(keys.size());
+    }
+  }
+
+  @Override
+  public synchronized void commit() {
+    if (isStarted()) {
+      final long start = System.nanoTime();
+      store.commit();
+      committer.committed(System.nanoTime() - start);
+    }
   }
 
   @Override
@@ -68,25 +100,34 @@ public class HTreeMapStore implements KeyValueStore {
     return list;
   }
 
+  @Override
+  public List<String> getKeys() {
+    final List<String> keys = new ArrayList<>(map.size());
+    for (final Object key : map.keySet()) {
+      keys.add((String) key);
+    }
+    return keys;
+  }
+
   @Override
   public void start() {
     final File f = new File(StringHelper.normalizePath(Imeji.tdbPath) + STORE_FILENAME_PREFIX + name);
-    STORE = DBMaker.newFileDB(f).make();
-    map = STORE.createHashMap(name).keySerializer(Serializer.STRING).makeOrGet();
+    store = DBMaker.newFileDB(f).make();
+    map = store.createHashMap(name).keySerializer(Serializer.STRING).makeOrGet();
 
   }
 
   @Override
   public synchronized void stop() {
-    if (!STORE.isClosed()) {
-      STORE.commit();
-      STORE.close();
+    if (store != null && !store.isClosed()) {
+      commit();
+      store.close();
     }
   }
 
   @Override
   public boolean isStarted() {
-    return STORE != null && map != null && !STORE.isClosed();
+    return store != null && map != null && !store.isClosed();
   }
 
   @Override
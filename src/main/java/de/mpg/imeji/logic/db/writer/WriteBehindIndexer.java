@@ -0,0 +1,522 @@
+package de.mpg.imeji.logic.db.writer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.NotFoundException;
+import de.mpg.imeji.logic.config.util.PropertyReader;
+import de.mpg.imeji.logic.db.indexretry.model.RetryBaseRequest;
+import de.mpg.imeji.logic.db.indexretry.model.RetryDeleteFromIndexRequest;
+import de.mpg.imeji.logic.db.indexretry.model.RetryIndexRequest;
+import de.mpg.imeji.logic.db.indexretry.queue.RetryQueue;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
+import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.search.Search.SearchObjectTypes;
+import de.mpg.imeji.logic.search.SearchIndexer;
+import de.mpg.imeji.logic.search.factory.SearchFactory;
+import de.mpg.imeji.logic.search.factory.SearchFactory.SEARCH_IMPLEMENTATIONS;
+
+/**
+ * Write-behind indexing for the {@link WriterFacade}: objects written in the database are indexed
+ * in the search index by a background thread, so that the write returns without waiting for the
+ * search index.<br/>
+ * Each change is first recorded in a durable outbox (a key/value store), and kept in memory until it
+ * is indexed. The outbox is written by the writing thread before the change is queued, without
+ * holding the queue, and a change is removed from the outbox by its sequence once it is indexed.
+ * Changes of the same object are coalesced, and the background thread indexes them in large bulk
+ * requests. Changes which can't be indexed are passed to the {@link RetryQueue}, like
+ * changes found in the outbox at startup.<br/>
+ * A user searching after a write waits until its own changes are indexed (see
+ * {@link #awaitIndexed(User)}).<br/>
+ * Enabled with the property imeji.index.writebehind
+ *
+ * @author saquet
+ *
+ */
+public class WriteBehindIndexer {
+  private static final Logger LOGGER = LogManager.getLogger(WriteBehindIndexer.class);
+  /**
+   * Maximum number of objects indexed in one bulk request
+   */
+  private static final int BATCH_SIZE = 1000;
+  /**
+   * Time to wait for more changes before indexing a batch which is not full
+   */
+  private static final long LINGER_MS = 100;
+  /**
+   * Maximum time a search waits for the changes of its user to be indexed
+   */
+  private static final long AWAIT_TIMEOUT_MS = 30000;
+  /**
+   * Separator of the uri and of the sequence of a change in the keys of the outbox
+   */
+  private static final String SEPARATOR = "|";
+  private static Boolean enabled;
+  private static WriteBehindIndexer instance;
+  private final KeyValueStoreService outbox;
+  private final BulkIndexer indexer;
+  private final Consumer<List<RetryBaseRequest>> retryQueue;
+  private final boolean active;
+  // Changes not indexed yet, by object uri. Guarded by this
+  private final Map<URI, Change> pending = new LinkedHashMap<>();
+  // Sequences of the changes not indexed yet. Guarded by this
+  private final TreeSet<Long> inFlight = new TreeSet<>();
+  // Sequence of the last change of each user
+  private final Map<URI, Long> lastChangeOfUser = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private Thread thread;
+  private volatile boolean running = false;
+  private final AtomicLong indexed = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong batchTime = new AtomicLong();
+
+  /**
+   * A change of an object to be indexed
+   *
+   * @author saquet
+   *
+   */
+  private static class Change {
+    private final Object object;
+    private final boolean delete;
+    private final List<Long> sequences = new ArrayList<>(1);
+
+    private Change(Object object, boolean delete, long sequence) {
+      this.object = object;
+      this.delete = delete;
+      this.sequences.add(sequence);
+    }
+
+    private RetryBaseRequest toRequest() {
+      return delete ? RetryDeleteFromIndexRequest.getRetryDeleteFromIndexRequest(object) : RetryIndexRequest.getRetryIndexRequest(object);
+    }
+  }
+
+  /**
+   * Send a bulk request to the search index
+   */
+  @FunctionalInterface
+  public interface BulkIndexer {
+    void run(SearchObjectTypes type, List<Object> objects, boolean delete) throws Exception;
+  }
+
+  private WriteBehindIndexer() {
+    this(new KeyValueStoreService(new HTreeMapStore("indexOutbox")), WriteBehindIndexer::bulk,
+        requests -> RetryQueue.getInstance().addRetryIndexRequests(requests), isEnabled());
+  }
+
+  /**
+   * Enabled indexer with its own outbox, bulk indexer and retry queue
+   *
+   * @param outbox
+   * @param indexer
+   * @param retryQueue receives the changes which couldn't be indexed
+   */
+  public WriteBehindIndexer(KeyValueStoreService outbox, BulkIndexer indexer, Consumer<List<RetryBaseRequest>> retryQueue) {
+    this(outbox, indexer, retryQueue, true);
+  }
+
+  private WriteBehindIndexer(KeyValueStoreService outbox, BulkIndexer indexer, Consumer<List<RetryBaseRequest>> retryQueue,
+      boolean active) {
+    this.outbox = outbox;
+    this.indexer = indexer;
+    this.retryQueue = retryQueue;
+    this.active = active;
+  }
+
+  /**
+   * Return the {@link WriteBehindIndexer}
+   *
+   * @return
+   */
+  public static synchronized WriteBehindIndexer getInstance() {
+    if (instance == null) {
+      instance = new WriteBehindIndexer();
+    }
+    return instance;
+  }
+
+  /**
+   * True if the write-behind indexing is enabled with the property imeji.index.writebehind
+   *
+   * @return
+   */
+  public static boolean isEnabled() {
+    if (enabled == null) {
+      enabled = PropertyReader.getBooleanProperty("imeji.index.writebehind", false);
+    }
+    return enabled;
+  }
+
+  /**
+   * Pass the changes left in the outbox by the last run of imeji to the {@link RetryQueue} and start
+   * the background thread if the write-behind indexing is enabled
+   */
+  public synchronized void start() {
+    recover();
+    if (active && !running) {
+      running = true;
+      thread = new Thread(this::work, "imeji-write-behind-indexer");
+      thread.setDaemon(true);
+      thread.start();
+      LOGGER.info("Write-behind indexing started");
+    }
+  }
+
+  /**
+   * Index all pending changes and stop the background thread
+   */
+  public void shutdown() {
+    final Thread t;
+    synchronized (this) {
+      running = false;
+      notifyAll();
+      t = thread;
+      thread = null;
+    }
+    if (t != null) {
+      try {
+        t.join(AWAIT_TIMEOUT_MS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Record objects written in the database to be indexed
+   *
+   * @param objects
+   * @param user
+   */
+  public void index(List<Object> objects, User user) {
+    add(objects, false, user);
+  }
+
+  /**
+   * Record objects deleted from the database to be deleted from the index
+   *
+   * @param objects
+   * @param user
+   */
+  public void delete(List<Object> objects, User user) {
+    add(objects, true, user);
+  }
+
+  private void add(List<Object> objects, boolean delete, User user) {
+    if (!active) {
+      return;
+    }
+    final Map<URI, Change> changes = new LinkedHashMap<>();
+    final Map<String, Object> requests = new LinkedHashMap<>();
+    long last = 0;
+    for (final Object o : objects) {
+      final URI uri = WriterFacade.extractID(o);
+      if (uri == null) {
+        LOGGER.error("Could not extract id from object " + o + ", object not indexed");
+        continue;
+      }
+      last = sequence.incrementAndGet();
+      final Change change = new Change(o, delete, last);
+      final Change previous = changes.put(uri, change);
+      if (previous != null) {
+        change.sequences.addAll(previous.sequences);
+      }
+      requests.put(key(uri, last), change.toRequest());
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+    // Written before the changes are queued: a change leaves the outbox once it is indexed
+    try {
+      outbox.putAll(requests);
+    } catch (final ImejiException e) {
+      LOGGER.error("Error writing " + requests.size() + " changes in the index outbox", e);
+    }
+    synchronized (this) {
+      for (final Map.Entry<URI, Change> entry : changes.entrySet()) {
+        final Change change = entry.getValue();
+        inFlight.addAll(change.sequences);
+        final Change previous = pending.put(entry.getKey(), change);
+        if (previous != null) {
+          change.sequences.addAll(previous.sequences);
+          coalesced.incrementAndGet();
+        }
+      }
+      if (user != null && user.getId() != null) {
+        lastChangeOfUser.merge(user.getId(), last, Math::max);
+      }
+      notifyAll();
+    }
+  }
+
+  /**
+   * Wait until all changes done by this user are indexed, so that the user finds its own changes
+   * when searching
+   *
+   * @param user
+   */
+  public void awaitIndexed(User user) {
+    if (!active || user == null || user.getId() == null) {
+      return;
+    }
+    final Long last = lastChangeOfUser.get(user.getId());
+    if (last == null) {
+      return;
+    }
+    final long timeout = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+    synchronized (this) {
+      while (!inFlight.isEmpty() && inFlight.first() <= last) {
+        final long remaining = timeout - System.currentTimeMillis();
+        if (remaining <= 0) {
+          LOGGER.warn("Changes of " + user.getEmail() + " not indexed after " + AWAIT_TIMEOUT_MS + " ms");
+          return;
+        }
+        try {
+          wait(remaining);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+    lastChangeOfUser.remove(user.getId(), last);
+  }
+
+  /**
+   * Loop of the background thread
+   */
+  private void work() {
+    while (true) {
+      final List<Change> batch;
+      synchronized (this) {
+        try {
+          while (pending.isEmpty() && running) {
+            wait();
+          }
+          if (pending.isEmpty()) {
+            return;
+          }
+          if (pending.size() < BATCH_SIZE && running) {
+            // Wait for more changes to coalesce them
+            wait(LINGER_MS);
+          }
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        batch = take();
+      }
+      indexBatch(batch);
+    }
+  }
+
+  /**
+   * Remove the next batch from the pending changes
+   *
+   * @return
+   */
+  private List<Change> take() {
+    final List<Change> batch = new ArrayList<>(Math.min(BATCH_SIZE, pending.size()));
+    final Iterator<Change> it = pending.values().iterator();
+    while (it.hasNext() && batch.size() < BATCH_SIZE) {
+      batch.add(it.next());
+      it.remove();
+    }
+    return batch;
+  }
+
+  /**
+   * Index a batch of changes, with one bulk request per object type and operation
+   *
+   * @param batch
+   */
+  private void indexBatch(List<Change> batch) {
+    final long start = System.currentTimeMillis();
+    final Map<SearchObjectTypes, List<Object>> toIndex = new LinkedHashMap<>();
+    final Map<SearchObjectTypes, List<Object>> toDelete = new LinkedHashMap<>();
+    for (final Change change : batch) {
+      final SearchObjectTypes type = SearchObjectTypes.getFromDataType(change.object.getClass());
+      if (type != null) {
+        (change.delete ? toDelete : toIndex).computeIfAbsent(type, t -> new ArrayList<>()).add(change.object);
+      }
+    }
+    toDelete.forEach((type, objects) -> run(type, objects, true));
+    toIndex.forEach((type, objects) -> run(type, objects, false));
+    batches.incrementAndGet();
+    indexed.addAndGet(batch.size());
+    batchTime.addAndGet(System.currentTimeMillis() - start);
+    final List<String> done = new ArrayList<>(batch.size());
+    for (final Change change : batch) {
+      final URI uri = WriterFacade.extractID(change.object);
+      change.sequences.forEach(s -> done.add(key(uri, s)));
+    }
+    removeFromOutbox(done);
+    synchronized (this) {
+      batch.forEach(change -> inFlight.removeAll(change.sequences));
+      notifyAll();
+    }
+  }
+
+  /**
+   * Send a bulk request to the search index. If it fails, pass the objects to the retry queue
+   *
+   * @param type
+   * @param objects
+   * @param delete
+   */
+  private void run(SearchObjectTypes type, List<Object> objects, boolean delete) {
+    try {
+      indexer.run(type, objects, delete);
+    } catch (final Exception e) {
+      LOGGER.error("Error indexing " + objects.size() + " objects of type " + type + ", passing them to the retry queue", e);
+      failed.addAndGet(objects.size());
+      retryQueue.accept(delete ? RetryDeleteFromIndexRequest.getRetryDeleteFromIndexRequests(objects)
+          : RetryIndexRequest.getRetryIndexRequests(objects));
+    }
+  }
+
+  /**
+   * Send a bulk request to the search index of the type
+   *
+   * @param type
+   * @param objects
+   * @param delete
+   * @throws Exception
+   */
+  private static void bulk(SearchObjectTypes type, List<Object> objects, boolean delete) throws Exception {
+    final SearchIndexer indexer = SearchFactory.create(type, SEARCH_IMPLEMENTATIONS.ELASTIC).getIndexer();
+    if (delete) {
+      indexer.deleteBatch(objects);
+    } else {
+      indexer.indexBatch(objects);
+    }
+  }
+
+  /**
+   * Pass the last change of each object found in the outbox to the retry queue, and empty the
+   * outbox
+   */
+  private synchronized void recover() {
+    final Map<String, Long> lastSequences = new LinkedHashMap<>();
+    final Map<String, String> lastKeys = new LinkedHashMap<>();
+    final List<String> keys = new ArrayList<>();
+    for (final String key : outbox.getKeys()) {
+      final int separator = key.lastIndexOf(SEPARATOR);
+      final String uri = separator > 0 ? key.substring(0, separator) : key;
+      long s = -1;
+      try {
+        s = separator > 0 ? Long.parseLong(key.substring(separator + 1)) : -1;
+      } catch (final NumberFormatException e) {
+        // Not written by this indexer: passed to the retry queue too
+      }
+      if (inFlight.contains(s)) {
+        continue;
+      }
+      keys.add(key);
+      sequence.accumulateAndGet(s, Math::max);
+      if (lastSequences.getOrDefault(uri, Long.MIN_VALUE) < s) {
+        lastSequences.put(uri, s);
+        lastKeys.put(uri, key);
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+    final List<RetryBaseRequest> requests = new ArrayList<>(lastKeys.size());
+    for (final String key : lastKeys.values()) {
+      try {
+        requests.add((RetryBaseRequest) outbox.get(key));
+      } catch (final NotFoundException e) {
+        // Removed in the meantime
+      }
+    }
+    LOGGER.info("Passing " + requests.size() + " changes from the index outbox to the retry queue");
+    retryQueue.accept(requests);
+    removeFromOutbox(keys);
+  }
+
+  /**
+   * The key of a change in the outbox
+   *
+   * @param uri
+   * @param sequence
+   * @return
+   */
+  private static String key(URI uri, long sequence) {
+    return uri + SEPARATOR + sequence;
+  }
+
+  private void removeFromOutbox(List<String> keys) {
+    try {
+      outbox.deleteAll(keys);
+    } catch (final ImejiException e) {
+      LOGGER.error("Error removing " + keys.size() + " changes from the index outbox", e);
+    }
+  }
+
+  /**
+   * Number of changes waiting to be indexed
+   *
+   * @return
+   */
+  public synchronized int getPending() {
+    return pending.size();
+  }
+
+  /**
+   * Number of objects indexed or deleted from the index
+   *
+   * @return
+   */
+  public long getIndexed() {
+    return indexed.get();
+  }
+
+  /**
+   * Number of changes merged with a previous change of the same object
+   *
+   * @return
+   */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  public long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * Number of objects passed to the {@link RetryQueue}
+   *
+   * @return
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Average time to index a batch
+   *
+   * @return
+   */
+  public long getAverageBatchMs() {
+    final long count = batches.get();
+    return count > 0 ? batchTime.get() / count : 0;
+  }
+}
@@ -11,8 +11,6 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -23,6 +21,7 @@ import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.NotAllowedError;
 import de.mpg.imeji.exceptions.SearchIndexBulkFailureException;
 import de.mpg.imeji.exceptions.UnprocessableError;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.db.indexretry.RetryIndex;
 import de.mpg.imeji.logic.db.indexretry.model.RetryBaseRequest;
@@ -38,10 +37,15 @@ import de.mpg.imeji.logic.model.UserGroup;
 import de.mpg.imeji.logic.model.aspects.ChangeMember;
 import de.mpg.imeji.logic.search.Search.SearchObjectTypes;
 import de.mpg.imeji.logic.search.SearchIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.factory.SecurityQueryFactory;
 import de.mpg.imeji.logic.search.factory.SearchFactory;
 import de.mpg.imeji.logic.search.factory.SearchFactory.SEARCH_IMPLEMENTATIONS;
 import de.mpg.imeji.logic.security.authorization.Authorization;
+import de.mpg.imeji.logic.security.authorization.CompiledGrants;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex;
 import de.mpg.imeji.logic.security.authorization.util.SecurityUtil;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters;
 import de.mpg.imeji.logic.util.ObjectsHelper;
 import de.mpg.imeji.logic.validation.ValidatorFactory;
 import de.mpg.imeji.logic.validation.impl.Validator;
@@ -58,7 +62,6 @@ public class WriterFacade {
   private static final Logger LOGGER = LogManager.getLogger(WriterFacade.class);
   private final Writer writer;
   private final SearchIndexer indexer;
-  private final ExecutorService executor = Executors.newCachedThreadPool();
 
   /**
    * Constructor without explicit model. Use when you want to write objects of multiple types within
@@ -111,7 +114,7 @@ public class WriterFacade {
     }
     checkSecurity(objects, user, true);
     validate(objects, Validator.Method.CREATE);
-    List<Object> createdObjects = writeAndIndex(new CreateTask(objects, user), new IndexTask());
+    List<Object> createdObjects = writeAndIndex(new CreateTask(objects, user), new IndexTask(), user);
     return createdObjects;
 
   }
@@ -128,7 +131,7 @@ public class WriterFacade {
     }
     checkSecurity(objects, user, false);
     validate(objects, Validator.Method.DELETE);
-    writeAndIndex(new DeleteTask(objects, user), new DeleteIndexTask());
+    writeAndIndex(new DeleteTask(objects, user), new DeleteIndexTask(), user);
 
   }
 
@@ -146,7 +149,7 @@ public class WriterFacade {
       checkSecurity(objects, user, false);
     }
     validate(objects, Validator.Method.UPDATE);
-    List<Object> updatedObjects = writeAndIndex(new UpdateTask(objects, user), new IndexTask());
+    List<Object> updatedObjects = writeAndIndex(new UpdateTask(objects, user), new IndexTask(), user);
     return updatedObjects;
   }
 
@@ -163,7 +166,7 @@ public class WriterFacade {
     }
     throwAuthorizationException(user != null, SecurityUtil.authorization().administrate(user, Imeji.PROPERTIES.getBaseURI()),
         "Only admin can use update wihout validation");
-    List<Object> updatedObjects = writeAndIndex(new UpdateTask(imejiDataObjects, user), new IndexTask());
+    List<Object> updatedObjects = writeAndIndex(new UpdateTask(imejiDataObjects, user), new IndexTask(), user);
     return updatedObjects;
   }
 
@@ -188,7 +191,7 @@ public class WriterFacade {
     Object valueToSet = changeMember.getValue();
     validate(valueToSet, Validator.Method.UPDATE);
 
-    List<Object> updatedObjects = writeAndIndex(new EditElementsTask(changeMember, user), new IndexTask());
+    List<Object> updatedObjects = writeAndIndex(new EditElementsTask(changeMember, user), new IndexTask(), user);
     return updatedObjects.get(0);
 
   }
@@ -215,6 +218,10 @@ public class WriterFacade {
 
     List<Object> dataObjectsChangedInStore = writeToDatabase(new EditElementsTask(changeElements, user));
 
+    if (WriteBehindIndexer.isEnabled()) {
+      WriteBehindIndexer.getInstance().index(dataObjectsChangedInStore, user);
+      return dataObjectsChangedInStore;
+    }
     // copy latest object version of object in Jena to ElasticSearch:
     Map<Class<?>, List<Object>> typedObjectMap = ObjectsHelper.createTypedObjectMap(dataObjectsChangedInStore);
     Set<Class<?>> dataTypes = typedObjectMap.keySet();
@@ -270,17 +277,28 @@ public class WriterFacade {
    * @param databaseTask a create/delete/update task for objects in database
    * @param indexTask an index or delete task for indexing objects or deleting objects from search
    *        index
+   * @param user the user writing, whose next searches will wait for the objects to be indexed if
+   *        the {@link WriteBehindIndexer} is enabled
    * @return list of written/deleted objects
    * @throws ImejiException
    */
-  private List<Object> writeAndIndex(Callable<List<Object>> databaseTask, SearchIndexTask indexTask) throws ImejiException {
+  private List<Object> writeAndIndex(Callable<List<Object>> databaseTask, SearchIndexTask indexTask, User user)
+      throws ImejiException {
 
     // 1. Write to database
     List<Object> objectsChangedInDatabase = writeToDatabase(databaseTask);
 
     // 2. If writing to database was successful and we got a result from database
     // (latest version of the written objects), index the objects (copy them) in search index 	  
-    indexInSearchIndexWithRetry(objectsChangedInDatabase, indexTask);
+    if (WriteBehindIndexer.isEnabled() && indexTask.taskIndexer instanceof ElasticIndexer) {
+      if (indexTask instanceof DeleteIndexTask) {
+        WriteBehindIndexer.getInstance().delete(objectsChangedInDatabase, user);
+      } else {
+        WriteBehindIndexer.getInstance().index(objectsChangedInDatabase, user);
+      }
+    } else {
+      indexInSearchIndexWithRetry(objectsChangedInDatabase, indexTask);
+    }
 
     // finally return written objects
     return objectsChangedInDatabase;
@@ -299,7 +317,11 @@ public class WriterFacade {
 
     // 1. Write to database
     try {
-      objectsInDatabase = executor.submit(databaseTask).get();
+      final Map<String, StorageUsageCounters.Usage> previousUsage = StorageUsageCounters.usagesOf(getUpdatedObjects(databaseTask));
+      objectsInDatabase = ExecutorRegistry.get(ExecutorRegistry.WRITER).submit(databaseTask).get();
+      updateFileAuthorizationIndex(databaseTask, objectsInDatabase);
+      updateStorageUsageCounters(databaseTask, previousUsage, objectsInDatabase);
+      updateSecurityQueryCache(objectsInDatabase);
     } catch (ExecutionException | InterruptedException | CancellationException execExept) {
       if (execExept.getCause() instanceof ImejiException) {
         throw (ImejiException) execExept.getCause();
@@ -311,6 +333,66 @@ public class WriterFacade {
   }
 
 
+  /**
+   * Keep the {@link FileAuthorizationIndex} in sync with the objects written in the database
+   *
+   * @param databaseTask
+   * @param objectsInDatabase
+   */
+  private void updateFileAuthorizationIndex(Callable<List<Object>> databaseTask, List<Object> objectsInDatabase) {
+    if (databaseTask instanceof DeleteTask) {
+      FileAuthorizationIndex.remove(objectsInDatabase);
+    } else {
+      FileAuthorizationIndex.index(objectsInDatabase);
+    }
+  }
+
+  /**
+   * The objects which are updated by the task, empty if the task creates or deletes objects
+   *
+   * @param databaseTask
+   * @return
+   */
+  private List<Object> getUpdatedObjects(Callable<List<Object>> databaseTask) {
+    if (databaseTask instanceof UpdateTask) {
+      return ((UpdateTask) databaseTask).objects;
+    } else if (databaseTask instanceof EditElementsTask) {
+      return ChangeMember.getChangeObjects(((EditElementsTask) databaseTask).changeElements);
+    }
+    return new ArrayList<>(0);
+  }
+
+  /**
+   * Keep the {@link StorageUsageCounters} in sync with the objects written in the database
+   *
+   * @param databaseTask
+   * @param previousUsage the usage of the updated objects before the write
+   * @param objectsInDatabase
+   */
+  private void updateStorageUsageCounters(Callable<List<Object>> databaseTask, Map<String, StorageUsageCounters.Usage> previousUsage,
+      List<Object> objectsInDatabase) {
+    if (databaseTask instanceof DeleteTask) {
+      StorageUsageCounters.remove(objectsInDatabase);
+    } else if (databaseTask instanceof CreateTask) {
+      StorageUsageCounters.index(objectsInDatabase);
+    } else {
+      StorageUsageCounters.update(previousUsage, objectsInDatabase);
+    }
+  }
+
+  /**
+   * Clear the cached security queries and the compiled grants if grants of users or user groups
+   * might have been changed
+   *
+   * @param objectsInDatabase
+   */
+  private void updateSecurityQueryCache(List<Object> objectsInDatabase) {
+    if (objectsInDatabase.stream().anyMatch(o -> o instanceof User || o instanceof UserGroup)) {
+      SecurityQueryFactory.clearCache();
+      CompiledGrants.invalidateAll();
+    }
+  }
+
   /**
    * Access search index and index or delete documents. In case of failure, save documents in a
    * retry queue in order to retry indexing/deleting later on.
@@ -326,7 +408,7 @@ public class WriterFacade {
       indexTask.setObjects(objectsToIndex);
 
       try {
-        executor.submit(indexTask).get();
+        ExecutorRegistry.get(ExecutorRegistry.WRITER).submit(indexTask).get();
       } catch (ExecutionException executionException) {
         Throwable taskException = executionException.getCause();
         if (taskException instanceof IOException) {
@@ -364,7 +446,7 @@ public class WriterFacade {
   private void indexInSearchIndex(List<Object> objectsToIndex, SearchIndexTask indexTask) throws ExecutionException, InterruptedException {
     if (!objectsToIndex.isEmpty()) {
       indexTask.setObjects(objectsToIndex);
-      executor.submit(indexTask).get();
+      ExecutorRegistry.get(ExecutorRegistry.WRITER).submit(indexTask).get();
     }
 
   }
@@ -1,16 +1,13 @@
 package de.mpg.imeji.logic.events;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
-import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
-import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
 import de.mpg.imeji.logic.events.listener.ListenerService;
 import de.mpg.imeji.logic.events.messages.Message;
 import de.mpg.imeji.logic.events.messages.Message.MessageType;
@@ -22,10 +19,15 @@ import de.mpg.imeji.logic.events.messages.Message.MessageType;
  *
  */
 public class MessageService {
-  private static final KeyValueStoreService QUEUE = new KeyValueStoreService(new HTreeMapStore("messageQueue"));
+  private static final MessageStore QUEUE = new MessageStore();
   private static Logger LOGGER = LogManager.getLogger(MessageService.class);
   private final ListenerService subscriptionService = new ListenerService();
 
+  static {
+    // Registered to be started and stopped with the other key/value stores
+    new KeyValueStoreService(QUEUE);
+  }
+
   /**
    * Register a new {@link Message}
    * 
@@ -33,9 +35,9 @@ public class MessageService {
    */
   public void add(Message message) {
     try {
-      QUEUE.put(message.getMessageId(), message);
+      QUEUE.add(message);
       subscriptionService.notifySubscribers(message);
-    } catch (ImejiException e) {
+    } catch (IOException e) {
       LOGGER.error("Error adding a new message", e);
     }
   }
@@ -47,12 +49,7 @@ public class MessageService {
    * @return
    */
   public List<Message> readForObject(String objectId) {
-    try {
-      return QUEUE.getList(objectId + ":*", Message.class);
-    } catch (ImejiException e) {
-      LOGGER.error("Error reading message queue for object " + objectId, e);
-    }
-    return new ArrayList<>();
+    return QUEUE.readForObject(objectId);
   }
 
   /**
@@ -61,12 +58,7 @@ public class MessageService {
    * @return
    */
   public List<Message> readAll() {
-    try {
-      return QUEUE.getList(".*", Message.class);
-    } catch (ImejiException e) {
-      LOGGER.error("Error reading message queue ", e);
-    }
-    return new ArrayList<>();
+    return QUEUE.readAll();
   }
 
   /**
@@ -76,13 +68,7 @@ public class MessageService {
    * @return
    */
   public List<Message> readForObject(String objectId, long from, long to) {
-    try {
-      return QUEUE.getList(objectId + ":.*", Message.class).stream().filter(m -> m.getTime() > from && m.getTime() < to)
-          .collect(Collectors.toList());
-    } catch (ImejiException e) {
-      LOGGER.error("Error reading message queue for object " + objectId, e);
-    }
-    return new ArrayList<>();
+    return QUEUE.readForObject(objectId, from, to);
   }
 
   /**
@@ -94,8 +80,7 @@ public class MessageService {
    * @return
    */
   public List<Message> retrieveByType(long from, long to, MessageType... types) {
-    return readAll().stream().filter(m -> Arrays.asList(types).contains(m.getType()) && m.getTime() > from && m.getTime() < to)
-        .collect(Collectors.toList());
+    return QUEUE.readByType(from, to, types);
   }
 
   /**
@@ -104,14 +89,7 @@ public class MessageService {
    * @param time
    */
   public void deleteOldMessages(long timestamp) {
-    try {
-      List<Message> allMessages = QUEUE.getList(".*", Message.class);
-      for (Message message : allMessages.stream().filter(m -> m.getTime() < timestamp).collect(Collectors.toList())) {
-        QUEUE.delete(message.getMessageId());
-      }
-    } catch (ImejiException e) {
-      LOGGER.error("Error deleting message before " + timestamp, e);
-    }
+    QUEUE.deleteBefore(timestamp);
   }
 
   /**
@@ -120,12 +98,6 @@ public class MessageService {
    * @param messages
    */
   public void deleteMessages(List<Message> messages) {
-    for (Message m : messages) {
-      try {
-        QUEUE.delete(m.getMessageId());
-      } catch (ImejiException e) {
-        LOGGER.error("Error deleting message from queue", e);
-      }
-    }
+    QUEUE.deleteAll(messages.stream().map(Message::getMessageId).collect(Collectors.toList()));
   }
 }
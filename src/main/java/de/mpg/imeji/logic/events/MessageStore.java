@@ -0,0 +1,355 @@
+package de.mpg.imeji.logic.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStore;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreCommitter;
+import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
+import de.mpg.imeji.logic.events.messages.Message;
+import de.mpg.imeji.logic.events.messages.Message.MessageType;
+import de.mpg.imeji.logic.events.messages.MessageCodec;
+import de.mpg.imeji.logic.util.StringHelper;
+
+/**
+ * Store of the {@link Message}, based on MapDB BTreeMaps.<br/>
+ * The messages are stored with the {@link MessageCodec} by message id, and indexed by object, by
+ * type and by time. The keys of the indexes are ordered by time, so that the messages of an object
+ * or of a type in a time range are read without reading the other messages.<br/>
+ * The messages of the previous {@link HTreeMapStore} "messageQueue" are migrated at the first start
+ *
+ * @author saquet
+ *
+ */
+public class MessageStore implements KeyValueStore {
+  private static final Logger LOGGER = LogManager.getLogger(MessageStore.class);
+  private static final String STORE_FILENAME = "imeji_BTreeMap_messages";
+  private static final String PREVIOUS_STORE_NAME = "messageQueue";
+  private static final String SEPARATOR = "\u0000";
+  /**
+   * Greater than all characters of the keys after the separator
+   */
+  private static final String SEPARATOR_END = "\u0001";
+  private static final String NAME = "messages";
+  private final KeyValueStoreCommitter committer = new KeyValueStoreCommitter(this);
+  private DB db;
+  private BTreeMap<String, byte[]> messages;
+  /**
+   * key: objectId SEPARATOR time SEPARATOR messageId
+   */
+  private NavigableSet<String> byObject;
+  /**
+   * key: type SEPARATOR time SEPARATOR messageId
+   */
+  private NavigableSet<String> byType;
+  /**
+   * key: time SEPARATOR messageId
+   */
+  private NavigableSet<String> byTime;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Add a message
+   *
+   * @param message
+   * @throws IOException
+   */
+  public synchronized void add(Message message) throws IOException {
+    index(message, MessageCodec.encode(message));
+    committer.written(1);
+  }
+
+  /**
+   * All messages of the object, ordered by time
+   *
+   * @param objectId
+   * @return
+   */
+  public List<Message> readForObject(String objectId) {
+    return read(byObject.subSet(objectId + SEPARATOR, true, objectId + SEPARATOR_END, false));
+  }
+
+  /**
+   * The messages of the object created after from and before to, ordered by time
+   *
+   * @param objectId
+   * @param from
+   * @param to
+   * @return
+   */
+  public List<Message> readForObject(String objectId, long from, long to) {
+    return read(subSet(byObject, objectId + SEPARATOR, from, to));
+  }
+
+  /**
+   * The messages with one of the types created after from and before to, ordered by time
+   *
+   * @param from
+   * @param to
+   * @param types
+   * @return
+   */
+  public List<Message> readByType(long from, long to, MessageType... types) {
+    final List<Message> l = new ArrayList<>();
+    for (final MessageType type : types) {
+      l.addAll(read(subSet(byType, type.name() + SEPARATOR, from, to)));
+    }
+    if (types.length > 1) {
+      l.sort(Comparator.comparingLong(Message::getTime));
+    }
+    return l;
+  }
+
+  /**
+   * All messages, ordered by time
+   *
+   * @return
+   */
+  public List<Message> readAll() {
+    return read(byTime);
+  }
+
+  /**
+   * Delete the messages created before the timestamp
+   *
+   * @param timestamp
+   */
+  public synchronized void deleteBefore(long timestamp) {
+    final List<String> ids = new ArrayList<>();
+    for (final String key : byTime.headSet(timeKey(timestamp), false)) {
+      ids.add(getMessageId(key));
+    }
+    deleteAll(ids);
+  }
+
+  /**
+   * Delete the messages with these ids
+   *
+   * @param messageIds
+   */
+  public synchronized void deleteAll(Collection<String> messageIds) {
+    for (final String id : messageIds) {
+      unindex(id);
+    }
+    if (!messageIds.isEmpty()) {
+      committer.written(messageIds.size());
+    }
+  }
+
+  /**
+   * Read the messages of the keys of an index
+   *
+   * @param keys
+   * @return
+   */
+  private List<Message> read(Collection<String> keys) {
+    final List<Message> l = new ArrayList<>(keys.size());
+    for (final String key : keys) {
+      final byte[] bytes = messages.get(getMessageId(key));
+      if (bytes != null) {
+        try {
+          l.add(MessageCodec.decode(bytes));
+        } catch (final IOException e) {
+          LOGGER.error("Error reading message " + getMessageId(key), e);
+        }
+      }
+    }
+    return l;
+  }
+
+  /**
+   * The keys of the index with the prefix and a time after from and before to
+   *
+   * @param index
+   * @param prefix
+   * @param from
+   * @param to
+   * @return
+   */
+  private NavigableSet<String> subSet(NavigableSet<String> index, String prefix, long from, long to) {
+    if (to <= from + 1) {
+      return new TreeSet<>();
+    }
+    return index.subSet(prefix + timeKey(from + 1), true, prefix + timeKey(to), false);
+  }
+
+  private void index(Message message, byte[] bytes) {
+    final String id = message.getMessageId();
+    final String time = timeKey(message.getTime()) + SEPARATOR + id;
+    messages.put(id, bytes);
+    byObject.add(message.getObjectId() + SEPARATOR + time);
+    byType.add(message.getType().name() + SEPARATOR + time);
+    byTime.add(time);
+  }
+
+  private void unindex(String messageId) {
+    final byte[] bytes = messages.remove(messageId);
+    if (bytes == null) {
+      return;
+    }
+    try {
+      final Message message = MessageCodec.decode(bytes);
+      final String time = timeKey(message.getTime()) + SEPARATOR + messageId;
+      byObject.remove(message.getObjectId() + SEPARATOR + time);
+      byType.remove(message.getType().name() + SEPARATOR + time);
+      byTime.remove(time);
+    } catch (final IOException e) {
+      LOGGER.error("Error reading message " + messageId + ", its index entries are not removed", e);
+    }
+  }
+
+  /**
+   * The time as a String with a fixed length, so that the keys are ordered by time
+   *
+   * @param time
+   * @return
+   */
+  private static String timeKey(long time) {
+    return String.format("%019d", Math.max(time, 0));
+  }
+
+  private static String getMessageId(String indexKey) {
+    return indexKey.substring(indexKey.lastIndexOf(SEPARATOR) + 1);
+  }
+
+  @Override
+  public byte[] get(String key) {
+    return messages.get(key);
+  }
+
+  @Override
+  public synchronized void put(String key, byte[] value) {
+    try {
+      index(MessageCodec.decode(value), value);
+      committer.written(1);
+    } catch (final IOException e) {
+      throw new RuntimeException("Error reading message " + key, e);
+    }
+  }
+
+  @Override
+  public synchronized void delete(String key) {
+    unindex(key);
+    committer.written(1);
+  }
+
+  @Override
+  public synchronized void commit() {
+    if (isStarted()) {
+      final long start = System.nanoTime();
+      db.commit();
+      committer.committed(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public List<byte[]> getList(String keyPattern) {
+    final List<byte[]> list = new ArrayList<>();
+    for (final String key : messages.keySet()) {
+      if (key.matches(keyPattern)) {
+        list.add(messages.get(key));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public synchronized void start() {
+    db = DBMaker.newFileDB(getFile(STORE_FILENAME)).make();
+    messages =
+        db.createTreeMap(NAME).keySerializer(BTreeKeySerializer.STRING).valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+    byObject = db.createTreeSet(NAME + "_byObject").serializer(BTreeKeySerializer.STRING).makeOrGet();
+    byType = db.createTreeSet(NAME + "_byType").serializer(BTreeKeySerializer.STRING).makeOrGet();
+    byTime = db.createTreeSet(NAME + "_byTime").serializer(BTreeKeySerializer.STRING).makeOrGet();
+    migratePreviousStore();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (db != null && !db.isClosed()) {
+      commit();
+      db.close();
+    }
+  }
+
+  @Override
+  public boolean isStarted() {
+    return db != null && !db.isClosed();
+  }
+
+  @Override
+  public synchronized void reset() {
+    if (isStarted()) {
+      stop();
+      deleteFiles(STORE_FILENAME);
+      start();
+    }
+  }
+
+  /**
+   * Move the messages of the previous {@link HTreeMapStore}, which were java serialized, to this
+   * store and delete the previous store
+   */
+  private void migratePreviousStore() {
+    final String previousFilename = HTreeMapStore.STORE_FILENAME_PREFIX + PREVIOUS_STORE_NAME;
+    if (!getFile(previousFilename).exists()) {
+      return;
+    }
+    LOGGER.info("Migrating messages from " + previousFilename);
+    final DB previous = DBMaker.newFileDB(getFile(previousFilename)).make();
+    int count = 0;
+    try {
+      for (final Object value : previous.getHashMap(PREVIOUS_STORE_NAME).values()) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream((byte[]) value))) {
+          final Message message = (Message) in.readObject();
+          index(message, MessageCodec.encode(message));
+          count++;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+          LOGGER.error("Error migrating a message, the message is ignored", e);
+        }
+      }
+      commit();
+    } finally {
+      previous.close();
+    }
+    deleteFiles(previousFilename);
+    LOGGER.info(count + " messages migrated");
+  }
+
+  private static File getFile(String filename) {
+    return new File(StringHelper.normalizePath(Imeji.tdbPath) + filename);
+  }
+
+  /**
+   * Delete the file of a MapDB store with its index and log files
+   *
+   * @param filename
+   */
+  private static void deleteFiles(String filename) {
+    for (final String suffix : new String[] {"", ".p", ".t"}) {
+      FileUtils.deleteQuietly(getFile(filename + suffix));
+    }
+  }
+}
@@ -1,5 +1,9 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.util.ObjectHelper;
 
@@ -20,6 +24,25 @@ public class CollectionMessage extends Message {
     this.name = collection.getName();
   }
 
+  /**
+   * Read a CollectionMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected CollectionMessage(DataInput in) throws IOException {
+    super(in);
+    this.parent = readString(in);
+    this.name = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, parent);
+    writeString(out, name);
+  }
+
   public String getParent() {
     return parent;
   }
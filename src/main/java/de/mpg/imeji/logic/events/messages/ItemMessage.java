@@ -1,5 +1,9 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import de.mpg.imeji.logic.model.Item;
 
 /**
@@ -19,6 +23,25 @@ public class ItemMessage extends Message {
     this.itemId = item.getIdString();
   }
 
+  /**
+   * Read an ItemMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected ItemMessage(DataInput in) throws IOException {
+    super(in);
+    this.filename = readString(in);
+    this.itemId = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, filename);
+    writeString(out, itemId);
+  }
+
   /**
    * @return the filename
    */
@@ -1,5 +1,8 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.net.URI;
 
@@ -30,7 +33,7 @@ public abstract class Message implements Serializable {
   private final MessageType type;
   private final long time;
   private final String objectId;
-  private final String id = IdentifierUtil.newRandomId();
+  private final String id;
 
   /**
    * Create a Message for a collection
@@ -42,6 +45,59 @@ public abstract class Message implements Serializable {
     this.type = type;
     this.objectId = ObjectHelper.getId(objectUri);
     this.time = System.currentTimeMillis();
+    this.id = IdentifierUtil.newRandomId();
+  }
+
+  /**
+   * Read a Message written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected Message(DataInput in) throws IOException {
+    this.type = MessageType.valueOf(in.readUTF());
+    this.time = in.readLong();
+    this.objectId = readString(in);
+    this.id = in.readUTF();
+  }
+
+  /**
+   * Write the fields of the Message, read by the {@link #Message(DataInput)} constructor. Subclasses
+   * write their own fields after the fields of their superclass
+   * 
+   * @param out
+   * @throws IOException
+   */
+  protected void write(DataOutput out) throws IOException {
+    out.writeUTF(type.name());
+    out.writeLong(time);
+    writeString(out, objectId);
+    out.writeUTF(id);
+  }
+
+  /**
+   * Write a String which can be null
+   * 
+   * @param out
+   * @param s
+   * @throws IOException
+   */
+  protected static void writeString(DataOutput out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  /**
+   * Read a String written by {@link #writeString(DataOutput, String)}
+   * 
+   * @param in
+   * @return
+   * @throws IOException
+   */
+  protected static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
   }
 
   public String getMessageId() {
@@ -0,0 +1,95 @@
+package de.mpg.imeji.logic.events.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact binary format of the {@link Message}: a version, the class of the message and the fields
+ * of the message, written by {@link Message#write(java.io.DataOutput)}
+ *
+ * @author saquet
+ *
+ */
+public class MessageCodec {
+  private static final byte VERSION = 1;
+  private static final byte COLLECTION = 1;
+  private static final byte MOVE_COLLECTION = 2;
+  private static final byte ITEM = 3;
+  private static final byte MOVE_ITEM = 4;
+  private static final byte SHARE = 5;
+  private static final byte STATEMENT = 6;
+
+  private MessageCodec() {
+    // private constructor
+  }
+
+  /**
+   * Write the message to bytes
+   *
+   * @param message
+   * @return
+   * @throws IOException
+   */
+  public static byte[] encode(Message message) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(VERSION);
+    out.writeByte(getClassTag(message));
+    message.write(out);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Read a message written by {@link #encode(Message)}
+   *
+   * @param bytes
+   * @return
+   * @throws IOException
+   */
+  public static Message decode(byte[] bytes) throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    final byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported message version " + version);
+    }
+    final byte tag = in.readByte();
+    switch (tag) {
+      case COLLECTION:
+        return new CollectionMessage(in);
+      case MOVE_COLLECTION:
+        return new MoveCollectionMessage(in);
+      case ITEM:
+        return new ItemMessage(in);
+      case MOVE_ITEM:
+        return new MoveItemMessage(in);
+      case SHARE:
+        return new ShareMessage(in);
+      case STATEMENT:
+        return new StatementMessage(in);
+      default:
+        throw new IOException("Unknown message class " + tag);
+    }
+  }
+
+  private static byte getClassTag(Message message) throws IOException {
+    final Class<?> c = message.getClass();
+    if (c == CollectionMessage.class) {
+      return COLLECTION;
+    } else if (c == MoveCollectionMessage.class) {
+      return MOVE_COLLECTION;
+    } else if (c == ItemMessage.class) {
+      return ITEM;
+    } else if (c == MoveItemMessage.class) {
+      return MOVE_ITEM;
+    } else if (c == ShareMessage.class) {
+      return SHARE;
+    } else if (c == StatementMessage.class) {
+      return STATEMENT;
+    }
+    throw new IOException("No binary format for " + c.getName());
+  }
+}
@@ -1,5 +1,9 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.util.ObjectHelper;
 
@@ -23,6 +27,23 @@ public class MoveCollectionMessage extends CollectionMessage {
     return collection;
   }
 
+  /**
+   * Read a MoveCollectionMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected MoveCollectionMessage(DataInput in) throws IOException {
+    super(in);
+    this.previousParent = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, previousParent);
+  }
+
   public String getPreviousParent() {
     return previousParent;
   }
@@ -1,5 +1,9 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.util.ObjectHelper;
@@ -24,6 +28,23 @@ public class MoveItemMessage extends ItemMessage {
     return item;
   }
 
+  /**
+   * Read a MoveItemMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected MoveItemMessage(DataInput in) throws IOException {
+    super(in);
+    this.previousParent = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, previousParent);
+  }
+
   public String getPreviousParent() {
     return previousParent;
   }
@@ -1,5 +1,8 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
 
 import de.mpg.imeji.logic.model.User;
@@ -42,6 +45,25 @@ public class ShareMessage extends Message {
     this.groupId = group.getId().toString();
   }
 
+  /**
+   * Read a ShareMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected ShareMessage(DataInput in) throws IOException {
+    super(in);
+    this.email = readString(in);
+    this.groupId = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, email);
+    writeString(out, groupId);
+  }
+
   public String getEmail() {
     return email;
   }
@@ -1,5 +1,9 @@
 package de.mpg.imeji.logic.events.messages;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import de.mpg.imeji.logic.model.Statement;
 
 /**
@@ -25,6 +29,25 @@ public class StatementMessage extends Message {
     this.previousIndex = previousIndex;
   }
 
+  /**
+   * Read a StatementMessage written by {@link #write(DataOutput)}
+   * 
+   * @param in
+   * @throws IOException
+   */
+  protected StatementMessage(DataInput in) throws IOException {
+    super(in);
+    this.previousIndex = readString(in);
+    this.index = readString(in);
+  }
+
+  @Override
+  protected void write(DataOutput out) throws IOException {
+    super.write(out);
+    writeString(out, previousIndex);
+    writeString(out, index);
+  }
+
   /**
    * @return the previousIndex
    */
@@ -1,25 +1,38 @@
 package de.mpg.imeji.logic.export;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.export.util.ExportUtil;
-import de.mpg.imeji.logic.export.util.ZipUtil;
+import de.mpg.imeji.logic.export.util.ZipStreamWriter;
 import de.mpg.imeji.logic.model.ContentVO;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.storage.StorageController;
 
 /**
- * {@link ExportAbstract} images in zip
+ * {@link ExportAbstract} images in zip. <br/>
+ * The items are retrieved page by page. While the zip is written, the next small files are read in
+ * parallel from the storage, so that the memory used by an export is bounded by the number and the
+ * size of the prefetched files. Bigger files are streamed directly into the zip.
  *
  * @author kleinfercher (initial creation)
  * @author $Author$ (last modification)
@@ -27,6 +40,15 @@ import de.mpg.imeji.logic.model.User;
  */
 public class ZIPExport extends ExportAbstract {
   private static final Logger LOGGER = LogManager.getLogger(ZIPExport.class);
+  private static final int PAGE_SIZE = PropertyReader.getIntProperty("imeji.export.zip.page_size", 500);
+  private static final int PREFETCH = PropertyReader.getIntProperty("imeji.export.zip.prefetch", 8);
+  private static final long PREFETCH_MAX_FILE_SIZE = PropertyReader.getLongProperty("imeji.export.zip.prefetch_max_file_size_mb", 10) * 1024L * 1024L;
+  private static final boolean STORE_COMPRESSED = PropertyReader.getBooleanProperty("imeji.export.zip.store_compressed", true);
+  private static final AtomicLong TOTAL_EXPORTS = new AtomicLong();
+  private static final AtomicLong TOTAL_FILES = new AtomicLong();
+  private static final AtomicLong TOTAL_STORED_FILES = new AtomicLong();
+  private static final AtomicLong TOTAL_BYTES = new AtomicLong();
+  private static final AtomicLong TOTAL_TIME_MS = new AtomicLong();
   private final List<String> itemIds;
 
   public ZIPExport(List<String> itemIds, User user) {
@@ -54,20 +76,161 @@ public class ZIPExport extends ExportAbstract {
    * @throws URISyntaxException
    */
   private void exportAllImages(List<String> ids, OutputStream out, User user) throws ImejiException {
-    final ZipOutputStream zip = new ZipOutputStream(out);
-    final Map<String, Item> itemMap = ExportUtil.retrieveItems(ids, user);
-    final List<ContentVO> contents = ExportUtil.retrieveContents(itemMap.values());
-    createItemsPerCollection(itemMap.values());
-    // Create the ZIP file
-    for (ContentVO content : contents) {
-      try {
-        ZipUtil.addFile(zip, itemMap.get(content.getItemId()).getFilename(), content.getOriginal(), 0);
-      } catch (SocketTimeoutException e) {
-        LOGGER.error("Socket timeout while exporting zip");
-      } catch (Exception e) {
-        LOGGER.error("Error zip export", e);
+    final ZipStreamWriter zip = new ZipStreamWriter(out, STORE_COMPRESSED);
+    final long start = System.currentTimeMillis();
+    try {
+      for (int i = 0; i < ids.size(); i += PAGE_SIZE) {
+        final List<String> page = ids.subList(i, Math.min(ids.size(), i + PAGE_SIZE));
+        final Map<String, Item> itemMap = ExportUtil.retrieveItems(page, user);
+        final List<Item> items = new ArrayList<>(itemMap.size());
+        for (final String id : page) {
+          if (itemMap.containsKey(id)) {
+            items.add(itemMap.get(id));
+          }
+        }
+        createItemsPerCollection(items);
+        writeFiles(zip, items, ExportUtil.retrieveContents(items));
       }
+    } finally {
+      zip.close();
+      final long time = System.currentTimeMillis() - start;
+      TOTAL_EXPORTS.incrementAndGet();
+      TOTAL_FILES.addAndGet(zip.getEntries());
+      TOTAL_STORED_FILES.addAndGet(zip.getStoredEntries());
+      TOTAL_BYTES.addAndGet(zip.getBytes());
+      TOTAL_TIME_MS.addAndGet(time);
+      LOGGER.info("ZIP export: " + zip.getEntries() + " files (" + zip.getStoredEntries() + " not compressed), "
+          + zip.getBytes() / (1024 * 1024) + " MB in " + time + " ms");
     }
-    ZipUtil.closeZip(zip);
+  }
+
+  /**
+   * Write the files of the items into the zip, in the order of the items. The next
+   * {@link #PREFETCH} files are read in parallel while a file is written
+   *
+   * @param zip
+   * @param items
+   * @param contents the contents of the items, in the same order
+   */
+  private void writeFiles(ZipStreamWriter zip, List<Item> items, List<ContentVO> contents) {
+    final Deque<PrefetchedFile> window = new ArrayDeque<>(PREFETCH);
+    final Iterator<ContentVO> iterator = contents.iterator();
+    try {
+      for (final Item item : items) {
+        window.add(prefetch(item, iterator.next()));
+        if (window.size() >= PREFETCH) {
+          write(zip, window.poll());
+        }
+      }
+      while (!window.isEmpty()) {
+        write(zip, window.poll());
+      }
+    } finally {
+      for (final PrefetchedFile file : window) {
+        if (file.data != null) {
+          file.data.cancel(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Start reading the file of the item if it is small enough to be read in memory
+   *
+   * @param item
+   * @param content
+   * @return
+   */
+  private PrefetchedFile prefetch(Item item, ContentVO content) {
+    Future<byte[]> data = null;
+    if (content != null && item.getFileSize() > 0 && item.getFileSize() <= PREFETCH_MAX_FILE_SIZE) {
+      final String url = content.getOriginal();
+      final int size = (int) item.getFileSize();
+      data = ExecutorRegistry.get(ExecutorRegistry.EXPORT).submit(() -> {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(size);
+        new StorageController().read(url, bos, true);
+        return bos.toByteArray();
+      });
+    }
+    return new PrefetchedFile(item, content, data);
+  }
+
+  /**
+   * Write a file into the zip, from memory if it has been prefetched, otherwise from the storage
+   *
+   * @param zip
+   * @param file
+   */
+  private void write(ZipStreamWriter zip, PrefetchedFile file) {
+    if (file.content == null) {
+      LOGGER.error("Error zip export: no content found for item " + file.item.getId());
+      return;
+    }
+    final long time = file.item.getModified() != null ? file.item.getModified().getTimeInMillis() : -1;
+    try {
+      if (file.data != null) {
+        zip.addFile(file.item.getFilename(), file.item.getFiletype(), time, file.data.get());
+      } else {
+        zip.addFile(file.item.getFilename(), file.item.getFiletype(), time, file.content.getOriginal(), file.item.getFileSize());
+      }
+    } catch (SocketTimeoutException e) {
+      LOGGER.error("Socket timeout while exporting zip");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Zip export interrupted", e);
+    } catch (ExecutionException e) {
+      LOGGER.error("Error reading file for zip export", e.getCause());
+    } catch (Exception e) {
+      LOGGER.error("Error zip export", e);
+    }
+  }
+
+  /**
+   * A file of the zip, maybe being read in memory
+   *
+   * @author saquet
+   *
+   */
+  private static class PrefetchedFile {
+    private final Item item;
+    private final ContentVO content;
+    private final Future<byte[]> data;
+
+    private PrefetchedFile(Item item, ContentVO content, Future<byte[]> data) {
+      this.item = item;
+      this.content = content;
+      this.data = data;
+    }
+  }
+
+  public static long getTotalExports() {
+    return TOTAL_EXPORTS.get();
+  }
+
+  public static long getTotalFiles() {
+    return TOTAL_FILES.get();
+  }
+
+  /**
+   * Number of files written without compression, because they were already compressed
+   *
+   * @return
+   */
+  public static long getTotalStoredFiles() {
+    return TOTAL_STORED_FILES.get();
+  }
+
+  public static long getTotalBytes() {
+    return TOTAL_BYTES.get();
+  }
+
+  /**
+   * The throughput of all zip exports
+   *
+   * @return
+   */
+  public static long getBytesPerSecond() {
+    final long time = TOTAL_TIME_MS.get();
+    return time > 0 ? TOTAL_BYTES.get() * 1000 / time : 0;
   }
 }
@@ -0,0 +1,186 @@
+package de.mpg.imeji.logic.export.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.storage.StorageController;
+
+/**
+ * Write files sequentially to a {@link ZipOutputStream}. <br/>
+ * Files which are already compressed (jpeg, mp4, zip, etc.) can be written without compression:
+ * files read in memory are written as {@link ZipEntry#STORED}, files streamed from the storage
+ * (whose crc is not known before writing them) are deflated with {@link Deflater#NO_COMPRESSION}.
+ * <br/>
+ * Duplicated file names get a suffix (file_1.jpg, file_2.jpg...). Zip64 extensions are written by
+ * the {@link ZipOutputStream} when needed (files or zip bigger than 4GB, more than 65535 files)
+ *
+ * @author saquet
+ *
+ */
+public class ZipStreamWriter {
+  private static final Logger LOGGER = LogManager.getLogger(ZipStreamWriter.class);
+  private static final List<String> COMPRESSED_TYPE_PREFIXES = Arrays.asList("video/", "audio/mpeg", "audio/mp4", "audio/ogg",
+      "audio/aac", "audio/flac", "image/jpeg", "image/png", "image/gif", "image/webp", "image/tiff", "image/jp2",
+      "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed", "application/x-rar-compressed",
+      "application/x-bzip2", "application/x-xz", "application/pdf", "application/vnd.openxmlformats-officedocument",
+      "application/vnd.oasis.opendocument", "application/epub+zip");
+  private final ZipOutputStream zip;
+  private final boolean storeCompressed;
+  private final Set<String> names = new HashSet<>();
+  private long entries = 0;
+  private long storedEntries = 0;
+  private long bytes = 0;
+
+  /**
+   * @param out
+   * @param storeCompressed if true, the files which are already compressed are not compressed again
+   */
+  public ZipStreamWriter(OutputStream out, boolean storeCompressed) {
+    this.zip = new ZipOutputStream(out);
+    this.storeCompressed = storeCompressed;
+  }
+
+  /**
+   * Add a file read in memory
+   *
+   * @param filename
+   * @param mimetype
+   * @param time the last modification time of the file, or -1
+   * @param content
+   * @throws IOException
+   */
+  public void addFile(String filename, String mimetype, long time, byte[] content) throws IOException {
+    final ZipEntry entry = newEntry(filename, time);
+    if (storeCompressed && isCompressed(mimetype)) {
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.length);
+      entry.setCompressedSize(content.length);
+      entry.setCrc(crc.getValue());
+      storedEntries++;
+    } else {
+      entry.setMethod(ZipEntry.DEFLATED);
+      zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+    }
+    zip.putNextEntry(entry);
+    zip.write(content);
+    zip.closeEntry();
+    entries++;
+    bytes += content.length;
+  }
+
+  /**
+   * Add a file streamed from the storage
+   *
+   * @param filename
+   * @param mimetype
+   * @param time the last modification time of the file, or -1
+   * @param fileUrl
+   * @param fileSize
+   * @throws IOException
+   * @throws ImejiException
+   */
+  public void addFile(String filename, String mimetype, long time, String fileUrl, long fileSize) throws IOException, ImejiException {
+    final ZipEntry entry = newEntry(filename, time);
+    entry.setMethod(ZipEntry.DEFLATED);
+    final boolean store = storeCompressed && isCompressed(mimetype);
+    zip.setLevel(store ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+    zip.putNextEntry(entry);
+    new StorageController().read(fileUrl, zip, false);
+    zip.closeEntry();
+    entries++;
+    bytes += fileSize;
+    if (store) {
+      storedEntries++;
+    }
+  }
+
+  /**
+   * Close the zip
+   */
+  public void close() {
+    try {
+      zip.close();
+    } catch (final IOException e) {
+      LOGGER.info("Could not close the ZIP File!", e);
+    }
+  }
+
+  /**
+   * Create a new {@link ZipEntry} with a name not used yet in this zip
+   *
+   * @param filename
+   * @param time
+   * @return
+   */
+  private ZipEntry newEntry(String filename, long time) {
+    final ZipEntry entry = new ZipEntry(uniqueName(filename));
+    if (time > 0) {
+      entry.setTime(time);
+    }
+    return entry;
+  }
+
+  /**
+   * Return the filename, with a suffix if the filename is already used in the zip
+   *
+   * @param filename
+   * @return
+   */
+  private String uniqueName(String filename) {
+    String name = filename;
+    for (int position = 1; !names.add(name); position++) {
+      final String extension = FilenameUtils.getExtension(filename);
+      name = FilenameUtils.removeExtension(filename) + "_" + position + (extension.isEmpty() ? "" : "." + extension);
+    }
+    return name;
+  }
+
+  /**
+   * True if files of this mimetype are already compressed
+   *
+   * @param mimetype
+   * @return
+   */
+  public static boolean isCompressed(String mimetype) {
+    if (mimetype == null) {
+      return false;
+    }
+    final String type = mimetype.toLowerCase();
+    for (final String prefix : COMPRESSED_TYPE_PREFIXES) {
+      if (type.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public long getEntries() {
+    return entries;
+  }
+
+  public long getStoredEntries() {
+    return storedEntries;
+  }
+
+  /**
+   * @return the size of the files written in the zip (uncompressed)
+   */
+  public long getBytes() {
+    return bytes;
+  }
+}
@@ -1,32 +1,55 @@
 package de.mpg.imeji.logic.hierarchy;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.search.jenasearch.ImejiSPARQL;
 import de.mpg.imeji.logic.search.jenasearch.JenaCustomQueries;
 
 /**
- * The complete Hierarchy of imeji
- * 
+ * The complete Hierarchy of imeji. A Hierarchy is immutable: a change of the hierarchy creates a
+ * new Hierarchy, which replaces the previous one for all readers at once.<br/>
+ * The collections of each tree are numbered in depth-first order: the descendants of a collection
+ * follow it in this order, so that they are found without walking the tree, and a collection is a
+ * descendant of another if its number is in the interval of the other
+ *
  * @author saquet
  *
  */
 public class Hierarchy {
-  private Map<String, List<String>> tree = new HashMap<>();
-  private Map<String, Node> nodes = new HashMap<>();
+  private final Map<String, List<String>> tree;
+  private final Map<String, Node> nodes;
+  /**
+   * The index of each collection of the hierarchy in the arrays below
+   */
+  private final Map<String, Integer> index;
+  /**
+   * The collections in depth-first order
+   */
+  private final String[] order;
+  /**
+   * The number of collections of the subtree of each collection, itself included
+   */
+  private final int[] size;
+  private final int[] depth;
+  private final String[] root;
 
   /**
    * A node of the Hierarchy
-   * 
+   *
    * @author saquet
    *
    */
-  class Node {
+  static class Node {
     private final String parent;
     private final String child;
 
@@ -37,7 +60,7 @@ public class Hierarchy {
 
     /**
      * The uri of the parent
-     * 
+     *
      * @return
      */
     public String getParent() {
@@ -46,7 +69,7 @@ public class Hierarchy {
 
     /**
      * The uri of the Child
-     * 
+     *
      * @return
      */
     public String getChild() {
@@ -54,21 +77,320 @@ public class Hierarchy {
     }
   }
 
+  /**
+   * An empty Hierarchy
+   */
+  public Hierarchy() {
+    this(new LinkedHashMap<>());
+  }
+
+  /**
+   * Create the Hierarchy of these relations
+   *
+   * @param parents key: the uri of a child, value: the uri of its parent
+   */
+  private Hierarchy(Map<String, String> parents) {
+    final Map<String, Node> nodeMap = new LinkedHashMap<>();
+    final Map<String, List<String>> treeMap = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> relation : parents.entrySet()) {
+      nodeMap.put(relation.getKey(), new Node(relation.getKey(), relation.getValue()));
+      treeMap.computeIfAbsent(relation.getValue(), k -> new ArrayList<>()).add(relation.getKey());
+    }
+    treeMap.replaceAll((k, v) -> Collections.unmodifiableList(v));
+    this.nodes = Collections.unmodifiableMap(nodeMap);
+    this.tree = Collections.unmodifiableMap(treeMap);
+    this.index = new HashMap<>();
+    final List<String> orderList = new ArrayList<>();
+    final List<Integer> depthList = new ArrayList<>();
+    final List<String> rootList = new ArrayList<>();
+    for (final String r : treeMap.keySet()) {
+      if (!nodeMap.containsKey(r)) {
+        number(r, orderList, depthList, rootList);
+      }
+    }
+    this.order = orderList.toArray(new String[0]);
+    this.depth = depthList.stream().mapToInt(Integer::intValue).toArray();
+    this.root = rootList.toArray(new String[0]);
+    this.size = new int[order.length];
+    for (int i = order.length - 1; i >= 0; i--) {
+      size[i] += 1;
+      final Node node = nodeMap.get(order[i]);
+      if (node != null) {
+        size[index.get(node.getParent())] += size[i];
+      }
+    }
+  }
+
+  /**
+   * Create the Hierarchy after the subtree of the collection has been moved from its old parent to
+   * the new one, or removed if the collection isn't in the relations anymore. The arrays of the
+   * previous Hierarchy are copied, only the collections between the old and the new place of the
+   * subtree are renumbered, and only the sizes of the old and new ancestors are changed
+   *
+   * @param previous
+   * @param nodeMap the relations of the new Hierarchy
+   * @param treeMap the relations of the new Hierarchy
+   * @param collectionUri
+   * @param oldParent
+   * @param parentUri
+   */
+  private Hierarchy(Hierarchy previous, Map<String, Node> nodeMap, Map<String, List<String>> treeMap, String collectionUri,
+      String oldParent, String parentUri) {
+    this.nodes = Collections.unmodifiableMap(nodeMap);
+    this.tree = Collections.unmodifiableMap(treeMap);
+    final int n = previous.order.length;
+    // The subtree of the collection, with its old parent if it has no relation anymore
+    final Integer s = previous.index.get(collectionUri);
+    final int length = s != null ? previous.size[s] : 1;
+    final int end = s != null ? s + length : n;
+    final boolean oldParentRemoved = oldParent != null && !nodeMap.containsKey(oldParent) && !treeMap.containsKey(oldParent);
+    final int start = oldParentRemoved ? previous.index.get(oldParent) : s != null ? s : n;
+    // The subtree is inserted after the subtree of its new parent, or as a new tree
+    final Integer p = parentUri != null ? previous.index.get(parentUri) : null;
+    final boolean parentAdded = parentUri != null && p == null;
+    final boolean inHierarchy = nodeMap.containsKey(collectionUri) || treeMap.containsKey(collectionUri);
+    final int at = p != null ? p + previous.size[p] : n;
+    final int inserted = inHierarchy ? length + (parentAdded ? 1 : 0) : 0;
+    this.order = new String[n - (end - start) + inserted];
+    this.size = new int[order.length];
+    this.depth = new int[order.length];
+    this.root = new String[order.length];
+    copyWithout(previous.order, order, n, start, end, at, inserted);
+    copyWithout(previous.size, size, n, start, end, at, inserted);
+    copyWithout(previous.depth, depth, n, start, end, at, inserted);
+    copyWithout(previous.root, root, n, start, end, at, inserted);
+    int i = at <= start ? at : at - (end - start);
+    if (parentAdded) {
+      order[i] = parentUri;
+      size[i] = 1 + length;
+      depth[i] = 0;
+      root[i] = parentUri;
+      i++;
+    }
+    if (inHierarchy) {
+      final int d = parentUri == null ? 0 : p != null ? previous.depth[p] + 1 : 1;
+      final String r = parentUri == null ? collectionUri : p != null ? previous.root[p] : parentUri;
+      if (s != null) {
+        System.arraycopy(previous.order, s, order, i, length);
+        System.arraycopy(previous.size, s, size, i, length);
+      } else {
+        order[i] = collectionUri;
+        size[i] = 1;
+      }
+      for (int j = 0; j < length; j++) {
+        depth[i + j] = (s != null ? previous.depth[s + j] - previous.depth[s] : 0) + d;
+        root[i + j] = r;
+      }
+    }
+    this.index = new HashMap<>(previous.index);
+    if (!inHierarchy) {
+      for (int j = s != null ? s : end; j < end; j++) {
+        index.remove(previous.order[j]);
+      }
+    }
+    if (oldParentRemoved) {
+      index.remove(oldParent);
+    }
+    // The collections before both places, and after both if the number of collections is unchanged,
+    // keep their number
+    final int to = inserted == end - start ? Math.max(end, at) : order.length;
+    for (int j = Math.min(start, at); j < to; j++) {
+      index.put(order[j], j);
+    }
+    for (String a = oldParentRemoved ? null : oldParent; a != null; a = getParent(nodeMap, a)) {
+      size[index.get(a)] -= length;
+    }
+    for (String a = p != null ? parentUri : null; a != null; a = getParent(nodeMap, a)) {
+      size[index.get(a)] += length;
+    }
+  }
+
+  /**
+   * Copy the array without the range between start and end, leaving free places for the inserted
+   * collections at the position "at" of the array
+   *
+   * @param from
+   * @param to
+   * @param length the length of from
+   * @param start
+   * @param end
+   * @param at
+   * @param inserted
+   */
+  private static void copyWithout(Object from, Object to, int length, int start, int end, int at, int inserted) {
+    if (at <= start) {
+      System.arraycopy(from, 0, to, 0, at);
+      System.arraycopy(from, at, to, at + inserted, start - at);
+      System.arraycopy(from, end, to, start + inserted, length - end);
+    } else {
+      System.arraycopy(from, 0, to, 0, start);
+      System.arraycopy(from, end, to, start, at - end);
+      System.arraycopy(from, at, to, at - (end - start) + inserted, length - at);
+    }
+  }
+
+  private static String getParent(Map<String, Node> nodeMap, String uri) {
+    final Node node = nodeMap.get(uri);
+    return node != null ? node.getParent() : null;
+  }
+
+  /**
+   * Number the collections of the tree of the root in depth-first order
+   *
+   * @param r
+   * @param orderList
+   * @param depthList
+   * @param rootList
+   */
+  private void number(String r, List<String> orderList, List<Integer> depthList, List<String> rootList) {
+    final Deque<String> stack = new ArrayDeque<>();
+    stack.push(r);
+    while (!stack.isEmpty()) {
+      final String uri = stack.pop();
+      final Node node = nodes.get(uri);
+      index.put(uri, orderList.size());
+      orderList.add(uri);
+      depthList.add(node != null ? depthList.get(index.get(node.getParent())) + 1 : 0);
+      rootList.add(r);
+      final List<String> children = tree.get(uri);
+      if (children != null) {
+        for (int i = children.size() - 1; i >= 0; i--) {
+          stack.push(children.get(i));
+        }
+      }
+    }
+  }
+
   /**
    * Load the complete Hierarchy
+   *
+   * @return
    */
-  public void init() {
+  public static Hierarchy load() {
     final List<String> l = ImejiSPARQL.exec(JenaCustomQueries.selectAllSubcollections(), Imeji.collectionModel);
-    final List<Node> nodeList = l.stream().map(s -> new Node(s.split("\\|")[0], s.split("\\|")[1])).collect(Collectors.toList());
-    nodes = nodeList.stream().collect(Collectors.toMap(Node::getChild, Function.identity()));
-    tree = nodeList.stream().collect(Collectors.groupingBy(Node::getParent, Collectors.mapping(Node::getChild, Collectors.toList())));
+    final Map<String, String> parents = new LinkedHashMap<>();
+    for (final String s : l) {
+      final String[] relation = s.split("\\|");
+      parents.put(relation[0], relation[1]);
+    }
+    return new Hierarchy(parents);
+  }
+
+  /**
+   * Return a new Hierarchy where the collection has a new parent
+   *
+   * @param collectionUri
+   * @param parentUri the new parent, or null if the collection has no parent anymore
+   * @return
+   */
+  public Hierarchy withParent(String collectionUri, String parentUri) {
+    final String oldParent = getParent(nodes, collectionUri);
+    if (Objects.equals(oldParent, parentUri)) {
+      return this;
+    }
+    final Map<String, Node> nodeMap = new LinkedHashMap<>(nodes);
+    final Map<String, List<String>> treeMap = new LinkedHashMap<>(tree);
+    nodeMap.remove(collectionUri);
+    removeChild(treeMap, oldParent, collectionUri);
+    if (parentUri != null) {
+      nodeMap.put(collectionUri, new Node(collectionUri, parentUri));
+      final List<String> children = new ArrayList<>(treeMap.getOrDefault(parentUri, Collections.emptyList()));
+      children.add(collectionUri);
+      treeMap.put(parentUri, Collections.unmodifiableList(children));
+    }
+    return new Hierarchy(this, nodeMap, treeMap, collectionUri, oldParent, parentUri);
+  }
+
+  /**
+   * Return a new Hierarchy without the collection and its subcollections
+   *
+   * @param collectionUri
+   * @return
+   */
+  public Hierarchy without(String collectionUri) {
+    if (!index.containsKey(collectionUri)) {
+      return this;
+    }
+    final String oldParent = getParent(nodes, collectionUri);
+    final Map<String, Node> nodeMap = new LinkedHashMap<>(nodes);
+    final Map<String, List<String>> treeMap = new LinkedHashMap<>(tree);
+    nodeMap.remove(collectionUri);
+    treeMap.remove(collectionUri);
+    for (final String uri : getDescendants(collectionUri)) {
+      nodeMap.remove(uri);
+      treeMap.remove(uri);
+    }
+    removeChild(treeMap, oldParent, collectionUri);
+    return new Hierarchy(this, nodeMap, treeMap, collectionUri, oldParent, null);
+  }
+
+  private static void removeChild(Map<String, List<String>> treeMap, String parentUri, String childUri) {
+    if (parentUri == null) {
+      return;
+    }
+    final List<String> children = new ArrayList<>(treeMap.get(parentUri));
+    children.remove(childUri);
+    if (children.isEmpty()) {
+      treeMap.remove(parentUri);
+    } else {
+      treeMap.put(parentUri, Collections.unmodifiableList(children));
+    }
+  }
+
+  /**
+   * All subcollections of the collection, in depth-first order
+   *
+   * @param collectionUri
+   * @return
+   */
+  public List<String> getDescendants(String collectionUri) {
+    final Integer i = index.get(collectionUri);
+    if (i == null) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Arrays.asList(order).subList(i + 1, i + size[i]));
+  }
+
+  /**
+   * True if the collection is a subcollection (at any level) of the parent
+   *
+   * @param collectionUri
+   * @param parentUri
+   * @return
+   */
+  public boolean isDescendant(String collectionUri, String parentUri) {
+    final Integer c = index.get(collectionUri);
+    final Integer p = index.get(parentUri);
+    return c != null && p != null && c > p && c < p + size[p];
+  }
+
+  /**
+   * The top collection of the collection, or the collection itself if it has no parent
+   *
+   * @param collectionUri
+   * @return
+   */
+  public String getRoot(String collectionUri) {
+    final Integer i = index.get(collectionUri);
+    return i != null ? root[i] : collectionUri;
+  }
+
+  /**
+   * The number of parents of the collection
+   *
+   * @param collectionUri
+   * @return
+   */
+  public int getDepth(String collectionUri) {
+    final Integer i = index.get(collectionUri);
+    return i != null ? depth[i] : 0;
   }
 
   /**
    * Return the Tree of the hierarchy:
    * <li>key: the uri of a collection which has child(s)</li>
    * <li>value: The list of all childs of the collection
-   * 
+   *
    * @return
    */
   public Map<String, List<String>> getTree() {
@@ -79,7 +401,7 @@ public class Hierarchy {
    * Map of all nodes (i.e. parent <-> child relation):
    * <li>key: the uri of the child</li>
    * <li>value: the Node</li>
-   * 
+   *
    * @return
    */
   public Map<String, Node> getNodes() {
@@ -2,11 +2,11 @@ package de.mpg.imeji.logic.hierarchy;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.hierarchy.Hierarchy.Node;
@@ -25,21 +25,36 @@ import de.mpg.imeji.logic.util.StringHelper;
 public class HierarchyService implements Serializable {
   private static final long serialVersionUID = -3479895793901732353L;
 
-  private static Hierarchy hierarchy = new Hierarchy();
+  /**
+   * The current snapshot of the hierarchy, replaced at each change
+   */
+  private static volatile Hierarchy hierarchy = new Hierarchy();
   private Map<String, String> collectionsNameMap = new HashMap<>();
 
-  public HierarchyService() {
-    if (hierarchy == null) {
-      hierarchy = new Hierarchy();
-      hierarchy.init();
-    }
+  /**
+   * Reload the hierarchy from the database
+   */
+  public static synchronized void reloadHierarchy() {
+    hierarchy = Hierarchy.load();
+  }
+
+  /**
+   * Update the hierarchy after a collection has been created or moved
+   *
+   * @param collectionUri
+   * @param parentUri the parent of the collection, or null if it has no parent
+   */
+  public static synchronized void setParent(String collectionUri, String parentUri) {
+    hierarchy = hierarchy.withParent(collectionUri, parentUri);
   }
 
   /**
-   * Reload the hierarchy
+   * Update the hierarchy after a collection and its subcollections have been deleted
+   *
+   * @param collectionUri
    */
-  public static void reloadHierarchy() {
-    hierarchy.init();
+  public static synchronized void removeCollection(String collectionUri) {
+    hierarchy = hierarchy.without(collectionUri);
   }
 
   /**
@@ -58,10 +73,7 @@ public class HierarchyService implements Serializable {
    * @return
    */
   public List<String> findAllSubcollections(String collectionUri) {
-    return hierarchy.getTree().get(collectionUri) != null
-        ? hierarchy.getTree().get(collectionUri).stream().flatMap(s -> Stream.concat(Stream.of(s), findAllSubcollections(s).stream()))
-            .collect(Collectors.toList())
-        : new ArrayList<>();
+    return hierarchy.getDescendants(collectionUri);
   }
 
   /**
@@ -84,7 +96,7 @@ public class HierarchyService implements Serializable {
    * @return
    */
   public boolean isChildOf(String collectionId, String parentId) {
-    return findAllSubcollections(parentId).contains(collectionId);
+    return hierarchy.isDescendant(collectionId, parentId);
   }
 
   /**
@@ -111,12 +123,25 @@ public class HierarchyService implements Serializable {
    * @return
    */
   public List<String> findAllParents(String uri) {
-    List<String> l = new ArrayList<>();
-    String parent = getParent(uri);
-    if (parent != null) {
-      l.addAll(findAllParents(parent));
-      l.add(parent);
+    final Hierarchy h = hierarchy;
+    final List<String> l = new ArrayList<>(h.getDepth(uri));
+    for (Node n = h.getNodes().get(uri); n != null && l.size() <= h.getNodes().size(); n = h.getNodes().get(n.getParent())) {
+      l.add(n.getParent());
     }
+    Collections.reverse(l);
+    return l;
+  }
+
+  /**
+   * Return the list of all parents of the collection, from the root, followed by the collection
+   * itself
+   * 
+   * @param collectionUri
+   * @return
+   */
+  public List<String> getAncestorPath(String collectionUri) {
+    List<String> l = findAllParents(collectionUri);
+    l.add(collectionUri);
     return l;
   }
 
@@ -167,11 +192,7 @@ public class HierarchyService implements Serializable {
    * @return
    */
   public String getLastParent(String firstParent) {
-    Node parentNode = hierarchy.getNodes().get(firstParent);
-    if (parentNode != null) {
-      return getLastParent(parentNode.getParent());
-    }
-    return firstParent;
+    return hierarchy.getRoot(firstParent);
   }
 
   /**
@@ -2,9 +2,12 @@ package de.mpg.imeji.logic.hierarchy;
 
 import de.mpg.imeji.logic.events.listener.Listener;
 import de.mpg.imeji.logic.events.messages.Message.MessageType;
+import de.mpg.imeji.logic.model.CollectionImeji;
+import de.mpg.imeji.logic.util.ObjectHelper;
 
 /**
- * {@link Listener} for move collection events. Reload then the hierarchy
+ * {@link Listener} for delete collection events. Remove then the collection and its subcollections
+ * from the hierarchy
  * 
  * @author saquet
  *
@@ -17,7 +20,7 @@ public class UpdateHierarchyListener extends Listener {
 
   @Override
   public Integer call() throws Exception {
-    HierarchyService.reloadHierarchy();
+    HierarchyService.removeCollection(ObjectHelper.getURI(CollectionImeji.class, getMessage().getObjectId()).toString());
     return 1;
   }
 
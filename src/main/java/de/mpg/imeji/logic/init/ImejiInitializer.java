@@ -28,6 +28,7 @@ import de.mpg.imeji.exceptions.AlreadyExistsException;
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.j2j.annotations.j2jModel;
 import de.mpg.imeji.logic.batch.executors.NightlyExecutor;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.config.ImejiConfiguration;
 import de.mpg.imeji.logic.config.emailcontent.ImejiEmailContentConfiguration;
@@ -35,6 +36,7 @@ import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.core.statement.StatementService;
 import de.mpg.imeji.logic.db.indexretry.queue.RetryQueue;
 import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.writer.WriteBehindIndexer;
 import de.mpg.imeji.logic.events.listener.ListenerService;
 import de.mpg.imeji.logic.hierarchy.HierarchyService;
 import de.mpg.imeji.logic.model.CollectionImeji;
@@ -52,8 +54,11 @@ import de.mpg.imeji.logic.search.facet.model.Facet;
 import de.mpg.imeji.logic.security.authentication.ImejiRsaKeys;
 import de.mpg.imeji.logic.security.authentication.impl.APIKeyAuthentication;
 import de.mpg.imeji.logic.security.authorization.AuthorizationPredefinedRoles;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex;
 import de.mpg.imeji.logic.security.user.UserService;
 import de.mpg.imeji.logic.security.user.UserService.USER_TYPE;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
 import de.mpg.imeji.logic.util.StringHelper;
 
 
@@ -100,6 +105,7 @@ public class ImejiInitializer {
    * @throws IOException
    */
   public static void init(String path) throws IOException, URISyntaxException, ImejiException {
+    ExecutorRegistry.start();
     if (path != null) {
       final File f = new File(path);
       if (!f.exists()) {
@@ -132,7 +138,39 @@ public class ImejiInitializer {
     initDefaultStatements();
     new ListenerService().init();
     HierarchyService.reloadHierarchy();
+    initFileAuthorizationIndex();
+    initStorageUsageCounters();
     initRetryQueue();
+    initWriteBehindIndexer();
+    initDerivativeScheduler();
+  }
+
+  /**
+   * Build the {@link FileAuthorizationIndex} in background: until it is done, files are authorized
+   * with database requests
+   */
+  private static void initFileAuthorizationIndex() {
+    Imeji.getEXECUTOR().submit(() -> {
+      try {
+        FileAuthorizationIndex.init();
+      } catch (final Exception e) {
+        LOGGER.error("Error initializing file authorization index", e);
+      }
+    });
+  }
+
+  /**
+   * Build the {@link StorageUsageCounters} in background: until it is done, the storage usage is
+   * read from the database
+   */
+  private static void initStorageUsageCounters() {
+    Imeji.getEXECUTOR().submit(() -> {
+      try {
+        StorageUsageCounters.build();
+      } catch (final Exception e) {
+        LOGGER.error("Error building storage usage counters", e);
+      }
+    });
   }
 
   /**
@@ -284,19 +322,34 @@ public class ImejiInitializer {
   }
 
 
+  /**
+   * Pass the changes left in the index outbox to the retry queue, and start the write-behind
+   * indexing if enabled
+   */
+  public static void initWriteBehindIndexer() {
+    WriteBehindIndexer.getInstance().start();
+  }
+
+  /**
+   * Start the generation of the derivatives of the files, resuming the pending ones
+   */
+  public static void initDerivativeScheduler() {
+    DerivativeScheduler.getInstance().start();
+  }
+
   /**
    * Shutdown imeji
    */
   public static void shutdown() {
     LOGGER.info("Shutting down thread executors...");
-    Imeji.getEXECUTOR().shutdown();
-    Imeji.getCONTENT_EXTRACTION_EXECUTOR().shutdown();
-    Imeji.getINTERNAL_STORAGE_EXECUTOR().shutdown();
+    ExecutorRegistry.shutdown();
+    DerivativeScheduler.getInstance().shutdown();
     NIGHTLY_EXECUTOR.stop();
-    LOGGER.info("imeji executor shutdown? " + Imeji.getEXECUTOR().isShutdown());
-    LOGGER.info("content extraction executor shutdown? " + Imeji.getCONTENT_EXTRACTION_EXECUTOR().isShutdown());
-    LOGGER.info("internal executor shutdown shutdown? " + Imeji.getINTERNAL_STORAGE_EXECUTOR().isShutdown());
+    ExecutorRegistry.getExecutors().forEach(e -> LOGGER.info(e.getName() + " executor shutdown? " + e.isShutdown()));
+    LOGGER.info("derivative scheduler shutdown? " + !DerivativeScheduler.getInstance().isRunning());
     LOGGER.info("nightly executor shutdown shutdown? " + NIGHTLY_EXECUTOR.isShutdown());
+    LOGGER.info("Indexing pending changes...");
+    WriteBehindIndexer.getInstance().shutdown();
     ElasticInitializer.shutdown();
     KeyValueStoreService.stopAllStores();
     LOGGER.info("Ending LockSurveyor...");
@@ -19,8 +19,10 @@ import org.apache.logging.log4j.Logger;
 
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.logic.batch.ElasticReIndexJob;
+import de.mpg.imeji.logic.batch.ItemBatchJob;
 import de.mpg.imeji.logic.batch.ReadMaxPlanckIPMappingJob;
 import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
 import de.mpg.imeji.logic.search.jenasearch.ImejiSPARQL;
 import de.mpg.imeji.logic.util.IdentifierUtil;
 import de.mpg.imeji.logic.util.StringHelper;
@@ -42,6 +44,7 @@ public class InitializerServlet extends HttpServlet {
       Imeji.locksSurveyor.start();
       initModel();
       reindex();
+      ItemBatchJob.resumeInterrupted();
       Imeji.getEXECUTOR().submit(new ReadMaxPlanckIPMappingJob());
     } catch (final Exception e) {
       LOGGER.error("imeji didn't initialize correctly", e);
@@ -67,6 +70,12 @@ public class InitializerServlet extends HttpServlet {
     if (Imeji.STARTUP.doReIndex()) {
       LOGGER.info("Doing reindex...");
       Imeji.getEXECUTOR().submit(new ElasticReIndexJob());
+    } else if (ElasticReIndexJob.isInterrupted()) {
+      LOGGER.info("Resuming interrupted reindex...");
+      Imeji.getEXECUTOR().submit(new ElasticReIndexJob());
+    } else if (!ElasticService.isAncestorsIndexed()) {
+      LOGGER.info("Reindexing to index the ancestors of items and folders...");
+      Imeji.getEXECUTOR().submit(new ElasticReIndexJob());
     }
   }
 
@@ -24,6 +24,7 @@ import de.mpg.imeji.logic.model.aspects.AccessMember;
 import de.mpg.imeji.logic.model.aspects.ChangeMember;
 import de.mpg.imeji.logic.model.aspects.CloneURI;
 import de.mpg.imeji.logic.model.aspects.ResourceLastModified;
+import de.mpg.imeji.logic.security.authorization.CompiledGrants;
 import de.mpg.imeji.logic.util.IdentifierUtil;
 import de.mpg.imeji.logic.util.URIListHelper;
 
@@ -53,6 +54,7 @@ public class User implements Serializable, ResourceLastModified, CloneURI, Acces
   private String apiKey;
   private URI id = IdentifierUtil.newURI(User.class);
   private List<UserGroup> groups = new ArrayList<>();
+  private transient CompiledGrants compiledGrants;
 
   // User properties for registration
   @j2jLiteral(ImejiNamespaces.DATE_CREATED)
@@ -89,6 +91,7 @@ public class User implements Serializable, ResourceLastModified, CloneURI, Acces
         String grantString = ((Grant) changeMember.getValue()).toGrantString();
         int indexOfExistingGrant = Grant.getGrantPositionInGrantsList(this.grants, grantString);
         URIListHelper.addEditRemoveElementOfURIList(this.grants, changeMember.getAction(), grantString, indexOfExistingGrant);
+        this.compiledGrants = null;
       } else {
         LOGGER.info("Could not set member in User");
       }
@@ -116,6 +119,7 @@ public class User implements Serializable, ResourceLastModified, CloneURI, Acces
 
   public void setGrants(Collection<String> grants) {
     this.grants = (List<String>) grants;
+    this.compiledGrants = null;
   }
 
   public Collection<String> getGrants() {
@@ -142,6 +146,21 @@ public class User implements Serializable, ResourceLastModified, CloneURI, Acces
    */
   public void setGroups(List<UserGroup> groups) {
     this.groups = groups;
+    this.compiledGrants = null;
+  }
+
+  /**
+   * @return the grants of the user and its groups, as compiled by the last authorization check
+   */
+  public CompiledGrants getCompiledGrants() {
+    return compiledGrants;
+  }
+
+  /**
+   * @param compiledGrants the compiled grants to cache on this user
+   */
+  public void setCompiledGrants(CompiledGrants compiledGrants) {
+    this.compiledGrants = compiledGrants;
   }
 
   /**
@@ -2,6 +2,7 @@ package de.mpg.imeji.logic.search;
 
 import java.util.List;
 
+import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.ContentVO;
 import de.mpg.imeji.logic.model.Item;
@@ -130,6 +131,26 @@ public interface Search {
   public SearchResult searchWithFacetsAndMultiLevelSorting(SearchQuery query, List<SortCriterion> sortCriteria, User user, String folderUri,
       int from, int size, boolean includeSubcollections);
 
+  /**
+   * Search page by page with a cursor: each page is read in O(size), whatever its position in the
+   * result. The {@link SearchResult} contains the cursor of the next page, or null if it is the last
+   * page
+   *
+   * @param query
+   * @param sortCriteria
+   * @param user
+   * @param folderUri
+   * @param from start index of the first page, used only if cursor is null
+   * @param cursor the cursor returned with the previous page, null for the first page
+   * @param size
+   * @param addFacets
+   * @return
+   * @throws UnprocessableError if the cursor is invalid, if the first page ends after the result
+   *         window, or if the search failed
+   */
+  public SearchResult searchWithCursor(SearchQuery query, List<SortCriterion> sortCriteria, User user, String folderUri, int from,
+      String cursor, int size, boolean addFacets) throws UnprocessableError;
+
   /**
    * Get the {@link SearchIndexer} for this {@link Search} implementation
    *
@@ -0,0 +1,290 @@
+package de.mpg.imeji.logic.search.elasticsearch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import de.mpg.imeji.exceptions.SearchIndexBulkFailureException;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.config.util.PropertyReader;
+
+/**
+ * Send operations to Elasticsearch in bulk requests bounded by a number of documents and a size in
+ * bytes. Operations on the same document are coalesced while they wait for their bulk request.
+ * Operations waiting for longer than the flush interval are sent with the next added operation, so
+ * that a slow producer doesn't keep them waiting until {@link #flush()}.<br/>
+ * Up to a maximum number of bulk requests run concurrently: when it is reached, adding an operation
+ * blocks until a request is done. Documents which failed because Elasticsearch was overloaded (429,
+ * 502, 503, 504) are sent again, with a backoff. Other failures are returned by {@link #flush()}
+ * as a {@link SearchIndexBulkFailureException}.<br/>
+ * Not thread safe: a processor is used by one thread, and flushed after use.
+ *
+ * @author saquet
+ *
+ */
+public class ElasticBulkProcessor {
+  private static final Logger LOGGER = LogManager.getLogger(ElasticBulkProcessor.class);
+  /**
+   * Bytes of a bulk request used by the action line of an operation
+   */
+  private static final int ACTION_BYTES = 100;
+  private static final int MAX_RETRIES = 3;
+  private static final long RETRY_BACKOFF_MS = 200;
+  private static final int MAX_ACTIONS;
+  private static final long MAX_BYTES;
+  private static final int CONCURRENT_REQUESTS;
+  private static final long FLUSH_INTERVAL_MS;
+  private static final AtomicLong TOTAL_DOCUMENTS = new AtomicLong();
+  private static final AtomicLong TOTAL_REQUESTS = new AtomicLong();
+  private static final AtomicLong TOTAL_RETRIES = new AtomicLong();
+  private static final AtomicLong TOTAL_TIME_MS = new AtomicLong();
+
+  static {
+    MAX_ACTIONS = PropertyReader.getIntProperty("imeji.elastic.bulk.actions", 1000);
+    MAX_BYTES = PropertyReader.getLongProperty("imeji.elastic.bulk.size_mb", 5) * 1024L * 1024L;
+    CONCURRENT_REQUESTS = PropertyReader.getIntProperty("imeji.elastic.bulk.concurrent_requests", 2);
+    FLUSH_INTERVAL_MS = PropertyReader.getLongProperty("imeji.elastic.bulk.flush_interval_ms", 1000);
+  }
+
+  /**
+   * Send a bulk request to Elasticsearch
+   */
+  @FunctionalInterface
+  public interface BulkSender {
+    BulkResponse send(List<BulkOperation> operations) throws IOException;
+  }
+
+  private final BulkSender sender;
+  private final int maxActions;
+  private final long maxBytes;
+  private final int concurrentRequests;
+  private final long flushIntervalMs;
+  private final Semaphore inFlight;
+  private final Map<String, BulkOperation> operations = new LinkedHashMap<>();
+  private final Map<String, Integer> sizes = new LinkedHashMap<>();
+  private final SearchIndexBulkFailureException failures = new SearchIndexBulkFailureException();
+  private final AtomicLong documents = new AtomicLong();
+  private long bytes = 0;
+  private long start = 0;
+  /**
+   * Time when the oldest waiting operation was added
+   */
+  private long firstWaiting = 0;
+  private volatile IOException ioException;
+
+  /**
+   * Processor configured by the imeji properties, sending to the Elasticsearch client
+   */
+  public ElasticBulkProcessor() {
+    this(operations -> ElasticService.getClient().bulk(BulkRequest.of(b -> b.operations(operations))), MAX_ACTIONS, MAX_BYTES,
+        CONCURRENT_REQUESTS, FLUSH_INTERVAL_MS);
+  }
+
+  /**
+   * @param sender
+   * @param maxActions maximum number of documents of a bulk request
+   * @param maxBytes maximum size in bytes of a bulk request
+   * @param concurrentRequests maximum number of bulk requests running concurrently
+   * @param flushIntervalMs maximum time in ms an operation waits for its bulk request, 0 for no
+   *        limit
+   */
+  public ElasticBulkProcessor(BulkSender sender, int maxActions, long maxBytes, int concurrentRequests, long flushIntervalMs) {
+    this.sender = sender;
+    this.maxActions = maxActions;
+    this.maxBytes = maxBytes;
+    this.concurrentRequests = concurrentRequests;
+    this.flushIntervalMs = flushIntervalMs;
+    this.inFlight = new Semaphore(concurrentRequests);
+  }
+
+  /**
+   * Add an operation on a document
+   *
+   * @param id the id of the document
+   * @param operation
+   * @param size the size of the document in bytes, 0 for a delete
+   * @throws IOException if a previous bulk request failed
+   */
+  public void add(String id, BulkOperation operation, int size) throws IOException {
+    final long now = System.currentTimeMillis();
+    if (start == 0) {
+      start = now;
+    }
+    if (firstWaiting == 0) {
+      firstWaiting = now;
+    }
+    final Integer previous = sizes.put(id, size + ACTION_BYTES);
+    if (previous != null) {
+      bytes -= previous;
+      // Remove first, so that the coalesced operation keeps the order of the last change
+      operations.remove(id);
+    }
+    operations.put(id, operation);
+    bytes += size + ACTION_BYTES;
+    if (operations.size() >= maxActions || bytes >= maxBytes || (flushIntervalMs > 0 && now - firstWaiting >= flushIntervalMs)) {
+      send();
+    }
+  }
+
+  /**
+   * Send the operations waiting for a bulk request, and wait until all bulk requests are done
+   *
+   * @throws IOException if a bulk request couldn't be sent
+   * @throws SearchIndexBulkFailureException if some documents failed
+   */
+  public void flush() throws IOException, SearchIndexBulkFailureException {
+    send();
+    try {
+      inFlight.acquire(concurrentRequests);
+      inFlight.release(concurrentRequests);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for bulk requests", e);
+    }
+    if (start > 0) {
+      final long time = Math.max(1, System.currentTimeMillis() - start);
+      TOTAL_TIME_MS.addAndGet(time);
+      LOGGER.debug("Indexed " + documents.get() + " documents in " + time + " ms (" + documents.get() * 1000 / time + " docs/s)");
+      start = 0;
+    }
+    if (ioException != null) {
+      throw ioException;
+    }
+    if (failures.hasFailures()) {
+      throw failures;
+    }
+  }
+
+  /**
+   * Send the waiting operations in a bulk request, in background. Blocks while the maximum number of
+   * concurrent bulk requests is reached
+   *
+   * @throws IOException
+   */
+  private void send() throws IOException {
+    if (operations.isEmpty()) {
+      return;
+    }
+    final List<BulkOperation> bulk = new ArrayList<>(operations.values());
+    operations.clear();
+    sizes.clear();
+    bytes = 0;
+    firstWaiting = 0;
+    try {
+      inFlight.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for bulk requests", e);
+    }
+    try {
+      ExecutorRegistry.get(ExecutorRegistry.BULK).execute(() -> {
+        try {
+          execute(bulk);
+        } finally {
+          inFlight.release();
+        }
+      });
+    } catch (final RuntimeException e) {
+      inFlight.release();
+      throw new IOException("Bulk request couldn't be sent", e);
+    }
+  }
+
+  /**
+   * Execute a bulk request, and retry the documents which failed because Elasticsearch was
+   * overloaded
+   *
+   * @param bulk
+   */
+  private void execute(List<BulkOperation> bulk) {
+    List<BulkOperation> toSend = bulk;
+    for (int attempt = 0; !toSend.isEmpty(); attempt++) {
+      if (attempt > 0) {
+        TOTAL_RETRIES.addAndGet(toSend.size());
+        sleep(RETRY_BACKOFF_MS << (attempt - 1));
+      }
+      final BulkResponse response;
+      try {
+        response = sender.send(toSend);
+        TOTAL_REQUESTS.incrementAndGet();
+      } catch (final IOException | RuntimeException e) {
+        LOGGER.error("Error sending bulk request of " + toSend.size() + " operations", e);
+        ioException = e instanceof IOException ? (IOException) e : new IOException(e);
+        return;
+      }
+      final List<BulkOperation> retry = new ArrayList<>();
+      final List<BulkResponseItem> items = response.items();
+      for (int i = 0; i < items.size(); i++) {
+        final BulkResponseItem item = items.get(i);
+        if (item.error() == null) {
+          documents.incrementAndGet();
+          TOTAL_DOCUMENTS.incrementAndGet();
+        } else if (isRetryable(item.status()) && attempt < MAX_RETRIES) {
+          retry.add(toSend.get(i));
+        } else if (ElasticIndexer.isFailure(item)) {
+          synchronized (failures) {
+            failures.addFailure(item.id(), item.operationType(), item.status(), item.error());
+          }
+        }
+      }
+      toSend = retry;
+    }
+  }
+
+  private static boolean isRetryable(int status) {
+    return status == 429 || status == HttpStatus.SC_BAD_GATEWAY || status == HttpStatus.SC_SERVICE_UNAVAILABLE
+        || status == HttpStatus.SC_GATEWAY_TIMEOUT;
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Number of documents indexed or deleted by all processors
+   *
+   * @return
+   */
+  public static long getTotalDocuments() {
+    return TOTAL_DOCUMENTS.get();
+  }
+
+  public static long getTotalRequests() {
+    return TOTAL_REQUESTS.get();
+  }
+
+  /**
+   * Number of documents sent again after Elasticsearch was overloaded
+   *
+   * @return
+   */
+  public static long getTotalRetries() {
+    return TOTAL_RETRIES.get();
+  }
+
+  /**
+   * Average number of documents per second of all processors
+   *
+   * @return
+   */
+  public static long getDocumentsPerSecond() {
+    final long time = TOTAL_TIME_MS.get();
+    return time > 0 ? TOTAL_DOCUMENTS.get() * 1000 / time : 0;
+  }
+}
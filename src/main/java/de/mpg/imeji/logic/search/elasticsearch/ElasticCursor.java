@@ -0,0 +1,97 @@
+package de.mpg.imeji.logic.search.elasticsearch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import de.mpg.imeji.exceptions.UnprocessableError;
+
+/**
+ * Position in a search result paginated with a point in time and search_after: the id of the point
+ * in time and the sort values of the last hit of the previous page.<br/>
+ * Passed to clients as an opaque String (see {@link #encode()})
+ *
+ * @author saquet
+ *
+ */
+public class ElasticCursor {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private final String pitId;
+  private final List<FieldValue> searchAfter;
+
+  public ElasticCursor(String pitId, List<FieldValue> searchAfter) {
+    this.pitId = pitId;
+    this.searchAfter = searchAfter;
+  }
+
+  /**
+   * Encode the cursor to an url safe String
+   *
+   * @return
+   */
+  public String encode() {
+    final ObjectNode json = MAPPER.createObjectNode();
+    json.put("pit", pitId);
+    final ArrayNode after = json.putArray("after");
+    for (final FieldValue value : searchAfter) {
+      if (value.isLong()) {
+        after.add(value.longValue());
+      } else if (value.isDouble()) {
+        after.add(value.doubleValue());
+      } else if (value.isBoolean()) {
+        after.add(value.booleanValue());
+      } else if (value.isString()) {
+        after.add(value.stringValue());
+      } else {
+        after.addNull();
+      }
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor encoded with {@link #encode()}
+   *
+   * @param cursor
+   * @return
+   * @throws UnprocessableError if the cursor is not valid
+   */
+  public static ElasticCursor decode(String cursor) throws UnprocessableError {
+    try {
+      final JsonNode json = MAPPER.readTree(Base64.getUrlDecoder().decode(cursor));
+      final List<FieldValue> searchAfter = new ArrayList<>();
+      for (final JsonNode value : json.get("after")) {
+        if (value.isIntegralNumber()) {
+          searchAfter.add(FieldValue.of(value.longValue()));
+        } else if (value.isNumber()) {
+          searchAfter.add(FieldValue.of(value.doubleValue()));
+        } else if (value.isBoolean()) {
+          searchAfter.add(FieldValue.of(value.booleanValue()));
+        } else if (value.isTextual()) {
+          searchAfter.add(FieldValue.of(value.textValue()));
+        } else {
+          searchAfter.add(FieldValue.NULL);
+        }
+      }
+      return new ElasticCursor(json.get("pit").textValue(), searchAfter);
+    } catch (final IOException | IllegalArgumentException | NullPointerException e) {
+      throw new UnprocessableError("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  public String getPitId() {
+    return pitId;
+  }
+
+  public List<FieldValue> getSearchAfter() {
+    return searchAfter;
+  }
+}
@@ -3,6 +3,7 @@ package de.mpg.imeji.logic.search.elasticsearch;
 import co.elastic.clients.elasticsearch._types.ErrorCause;
 import co.elastic.clients.elasticsearch._types.VersionType;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.bulk.DeleteOperation;
 import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
@@ -15,14 +16,17 @@ import co.elastic.clients.util.ContentType;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.SearchIndexBulkFailureException;
 import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.logic.model.*;
 import de.mpg.imeji.logic.model.aspects.ResourceLastModified;
 import de.mpg.imeji.logic.search.SearchIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
 import de.mpg.imeji.logic.search.elasticsearch.model.*;
 import de.mpg.imeji.logic.search.elasticsearch.script.CollectionPostIndexScript;
-import de.mpg.imeji.logic.search.elasticsearch.script.ItemPostIndexScript;
+import de.mpg.imeji.logic.search.elasticsearch.script.ItemPreIndexScript;
 import de.mpg.imeji.logic.util.StringHelper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
@@ -33,7 +37,9 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -46,6 +52,10 @@ public class ElasticIndexer implements SearchIndexer {
 
   private static final Logger LOGGER = LogManager.getLogger(ElasticIndexer.class);
   private static final ObjectMapper mapper = new ObjectMapper();
+  /**
+   * Type of the error of a write rejected because the document has a newer version
+   */
+  private static final String VERSION_CONFLICT = "version_conflict_engine_exception";
   private final String indexName;
   private final String dataType = "_doc";
   // private final ElasticAnalysers analyser;
@@ -68,6 +78,18 @@ public class ElasticIndexer implements SearchIndexer {
     this.mappingFile = mappingFile.replace("_TYPE_", StringUtils.capitalize(this.indexName));
   }
 
+  /**
+   * Create an instance for writing data to an index which doesn't have the name of its alias (for
+   * instance a new index filled by a reindex)
+   *
+   * @param indexName
+   * @param alias the alias of the index, which defines the mapping
+   */
+  public ElasticIndexer(String indexName, ElasticIndices alias) {
+    this.indexName = indexName;
+    this.mappingFile = mappingFile.replace("_TYPE_", StringUtils.capitalize(alias.name()));
+  }
+
   /**
    * Add object to the index of this ElasticIndexer instance index is an ElasticSearch concept, a
    * name or number under which data can be stored For each index in ElasticSearch an original
@@ -94,35 +116,32 @@ public class ElasticIndexer implements SearchIndexer {
       return;
     }
 
-    final BulkRequest.Builder bulkRequestBuilder = new BulkRequest.Builder();
-
+    final String reindexTarget = ElasticService.getReindexTarget(indexName);
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor();
+    // Items are indexed with the fields of their collection
+    final Map<String, ObjectNode> collectionFields = ItemPreIndexScript.getCollectionFields(objectList);
     for (final Object obj : objectList) {
-
       try {
-        LOGGER.info("+++ index request " + indexName + "  " + getId(obj));
-        final IndexOperation indexOperation;
-        if (obj instanceof ResourceLastModified && ((ResourceLastModified) obj).getModified() != null) {
-          long timestamp = ((ResourceLastModified) obj).getModified().getTimeInMillis();
-          indexOperation = getIndexOperation(getId(obj), toJson(obj, dataType, indexName), getParent(obj), dataType, timestamp);
-        } else {
-          indexOperation = getIndexOperation(getId(obj), toJson(obj, dataType, indexName), getParent(obj), dataType, null);
+        final String id = getId(obj);
+        LOGGER.debug("index request " + indexName + " " + id);
+        final byte[] json = toJson(obj, dataType, indexName, getCollectionFields(obj, collectionFields));
+        final Long timestamp = obj instanceof ResourceLastModified && ((ResourceLastModified) obj).getModified() != null
+            ? ((ResourceLastModified) obj).getModified().getTimeInMillis()
+            : null;
+        final IndexOperation indexOperation = getIndexOperation(indexName, id, json, getParent(obj), timestamp);
+        processor.add(id, BulkOperation.of(op -> op.index(indexOperation)), json.length);
+        if (reindexTarget != null) {
+          // A reindex is running: the new index must get the change too
+          final IndexOperation reindexOperation = getIndexOperation(reindexTarget, id, json, getParent(obj), timestamp);
+          processor.add(reindexTarget + "/" + id, BulkOperation.of(op -> op.index(reindexOperation)), json.length);
         }
-        bulkRequestBuilder.operations(op -> op.index(indexOperation));
-      } catch (Exception e) {
+      } catch (UnprocessableError | RuntimeException e) {
         LOGGER.error("Error adding object to bulk index list", e);
       }
     }
+    processor.flush();
 
-    BulkRequest bulkRequest = bulkRequestBuilder.build();
-    if (bulkRequest.operations().size() > 0) {
-      //ElasticService.getClient().bulk(bulkRequest);
-      BulkResponse bulkResponse = ElasticService.getClient().bulk(bulkRequest);
-      if (bulkResponse.errors()) {
-        throw getSearchIndexBulkFailureException(bulkResponse);
-      }
-    }
-
-    if (!(objectList.get(0) instanceof ContentVO)) {
+    if (!(objectList.get(0) instanceof ContentVO) && !ElasticService.isReindexTarget(indexName)) {
       commit();
     }
     updateIndexBatchPostProcessing(objectList);
@@ -142,10 +161,19 @@ public class ElasticIndexer implements SearchIndexer {
     if (objectList.isEmpty()) {
       return;
     }
-    ItemPostIndexScript.run(objectList, indexName);
+    if (ElasticService.isReindexTarget(indexName)) {
+      // The items indexed by the reindex get the fields of their collection by the ItemPreIndexScript
+      return;
+    }
+    final String itemsReindexTarget = ElasticService.getReindexTarget(ElasticIndices.items.name());
     for (Object o : objectList) {
       if (o instanceof CollectionImeji) {
-        CollectionPostIndexScript.run((CollectionImeji) o, "items");
+        ItemPreIndexScript.invalidate(((CollectionImeji) o).getId().toString());
+        CollectionPostIndexScript.run((CollectionImeji) o, ElasticIndices.items.name());
+        if (itemsReindexTarget != null) {
+          // The items already reindexed must get the change too
+          CollectionPostIndexScript.run((CollectionImeji) o, itemsReindexTarget, true);
+        }
       }
     }
   }
@@ -157,25 +185,51 @@ public class ElasticIndexer implements SearchIndexer {
     if (l.isEmpty()) {
       return;
     }
-    final BulkRequest.Builder bulkRequestBuilder = new BulkRequest.Builder();
+    final String reindexTarget = ElasticService.getReindexTarget(indexName);
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor();
+    final Map<String, String> deleted = new LinkedHashMap<>();
     for (final Object obj : l) {
       final String id = getId(obj);
+      if (obj instanceof CollectionImeji && id != null) {
+        ItemPreIndexScript.invalidate(id);
+      }
       if (id != null) {
-        bulkRequestBuilder.operations(op -> op.delete(getDeleteOperation(id, getParent(obj))));
+        processor.add(id, BulkOperation.of(op -> op.delete(getDeleteOperation(indexName, id, getParent(obj)))), 0);
+        if (reindexTarget != null) {
+          processor.add(reindexTarget + "/" + id, BulkOperation.of(op -> op.delete(getDeleteOperation(reindexTarget, id, getParent(obj)))), 0);
+        }
+        deleted.put(id, getParent(obj));
       }
     }
-    BulkRequest bulkRequest = bulkRequestBuilder.build();
-    if (bulkRequest.operations().size() > 0) {
-      BulkResponse bulkResponse = ElasticService.getClient().bulk(bulkRequest);
-      if (bulkResponse.errors()) {
-        throw getSearchIndexBulkFailureException(bulkResponse);
+    processor.flush();
+    if (reindexTarget != null) {
+      // The reindex might have read these objects before they were deleted
+      try {
+        ElasticService.addReindexDeletes(indexName, deleted);
+      } catch (final ImejiException e) {
+        throw new IOException("Deleted objects couldn't be recorded for the running reindex", e);
       }
     }
-    if (!(l.get(0) instanceof ContentVO)) {
+    if (!(l.get(0) instanceof ContentVO) && !ElasticService.isReindexTarget(indexName)) {
       commit();
     }
   }
 
+  /**
+   * Delete documents by id
+   *
+   * @param documents key: the id of the document, value: its parent, or null
+   * @throws IOException
+   * @throws SearchIndexBulkFailureException
+   */
+  public void deleteById(Map<String, String> documents) throws IOException, SearchIndexBulkFailureException {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor();
+    for (final Map.Entry<String, String> document : documents.entrySet()) {
+      processor.add(document.getKey(), BulkOperation.of(op -> op.delete(getDeleteOperation(indexName, document.getKey(), document.getValue()))), 0);
+    }
+    processor.flush();
+  }
+
   /**
    * Return the index Request
    *
@@ -216,10 +270,10 @@ public class ElasticIndexer implements SearchIndexer {
     return indexRequest;
   }
 
-  private IndexOperation getIndexOperation(String id, byte[] json, String parent, String type, Long timestamp) {
+  private IndexOperation getIndexOperation(String index, String id, byte[] json, String parent, Long timestamp) {
 
     final IndexOperation.Builder indexOperationBuilder = new IndexOperation.Builder();
-    indexOperationBuilder.document(BinaryData.of(json, ContentType.APPLICATION_JSON)).index(indexName).id(id);
+    indexOperationBuilder.document(BinaryData.of(json, ContentType.APPLICATION_JSON)).index(index).id(id);
 
     // Add version information (See ticket #1122)
     // We can choose here:
@@ -238,9 +292,7 @@ public class ElasticIndexer implements SearchIndexer {
       // indexRequest.parent(parent);
       indexOperationBuilder.routing(parent);
     }
-    IndexOperation indexOperation = indexOperationBuilder.build();
-    LOGGER.info("+++ the request object: " + indexOperation.index() /*+ "   " + indexRequest.type() */ + "   " + indexOperation.id());
-    return indexOperation;
+    return indexOperationBuilder.build();
   }
 
 
@@ -285,9 +337,9 @@ public class ElasticIndexer implements SearchIndexer {
     return deleteRequestBuilder.build();
   }
 
-  private DeleteOperation getDeleteOperation(String id, String parent) {
+  private DeleteOperation getDeleteOperation(String index, String id, String parent) {
     final DeleteOperation.Builder deleteRequestBuilder = new DeleteOperation.Builder();
-    deleteRequestBuilder.index(indexName).id(id);
+    deleteRequestBuilder.index(index).id(id);
     if (parent != null) {
       deleteRequestBuilder.routing(parent);
     }
@@ -302,6 +354,47 @@ public class ElasticIndexer implements SearchIndexer {
    * @throws UnprocessableError
    */
   public static byte[] toJson(Object obj, String dataType, String index) throws UnprocessableError {
+    return toJson(obj, dataType, index, null);
+  }
+
+  /**
+   * Transform an object to a json, with additional fields
+   *
+   * @param obj
+   * @param dataType
+   * @param index
+   * @param fields the fields added to the json of the object, or null
+   * @return
+   * @throws UnprocessableError
+   */
+  private static byte[] toJson(Object obj, String dataType, String index, ObjectNode fields) throws UnprocessableError {
+    if (fields == null) {
+      return toJsonWithoutFields(obj, dataType, index);
+    }
+    try {
+      final ObjectNode json = mapper.setSerializationInclusion(Include.NON_NULL).valueToTree(toESEntity(obj, dataType, index));
+      json.setAll(fields);
+      return mapper.writeValueAsBytes(json);
+    } catch (final JsonProcessingException | IllegalArgumentException e) {
+      throw new UnprocessableError("Error serializing object to json", e);
+    }
+  }
+
+  /**
+   * The fields of the collection of the object, if the object is an {@link Item}
+   *
+   * @param obj
+   * @param collectionFields
+   * @return
+   */
+  private static ObjectNode getCollectionFields(Object obj, Map<String, ObjectNode> collectionFields) {
+    if (obj instanceof Item && ((Item) obj).getCollection() != null) {
+      return collectionFields.get(((Item) obj).getCollection().toString());
+    }
+    return null;
+  }
+
+  private static byte[] toJsonWithoutFields(Object obj, String dataType, String index) throws UnprocessableError {
     try {
       // mapper.configure(DeserializationFeature..UNWRAP_ROOT_VALUE, true);
       /*
@@ -348,21 +441,9 @@ public class ElasticIndexer implements SearchIndexer {
     SearchIndexBulkFailureException failureException = new SearchIndexBulkFailureException();
     for (BulkResponseItem bulkItemResponse : bulkResponse.items()) {
 
-      if (bulkItemResponse.error() != null) {
-
-
-        ErrorCause errorCause = bulkItemResponse.error();
-        String idOfDocument = bulkItemResponse.id();
-        int status = bulkItemResponse.status();
-        ErrorCause rootProblem = bulkItemResponse.error();
-
-        // Elastic Search has already indicated that it sees the operation as failed
-        // additionally we do our own check (i.e. a delete operation that could not find the document is not a problem)
-        if ((bulkItemResponse.operationType() == OperationType.Delete && status != HttpStatus.SC_NOT_FOUND)
-            || bulkItemResponse.operationType() == OperationType.Index || bulkItemResponse.operationType() == OperationType.Create
-            || bulkItemResponse.operationType() == OperationType.Update)
-
-          failureException.addFailure(idOfDocument, bulkItemResponse.operationType(), bulkItemResponse.status(), bulkItemResponse.error());
+      if (isFailure(bulkItemResponse)) {
+        failureException.addFailure(bulkItemResponse.id(), bulkItemResponse.operationType(), bulkItemResponse.status(),
+            bulkItemResponse.error());
       }
     }
     return failureException;
@@ -370,6 +451,27 @@ public class ElasticIndexer implements SearchIndexer {
 
 
 
+  /**
+   * True if the operation of this item of a bulk response failed. Elastic Search has already
+   * indicated that it sees the operation as failed, additionally we do our own check (i.e. a delete
+   * operation that could not find the document is not a problem, nor a version conflict in the new
+   * index of a reindex: the document has been written there with a newer version by a change done
+   * during the reindex)
+   *
+   * @param bulkItemResponse
+   * @return
+   */
+  public static boolean isFailure(BulkResponseItem bulkItemResponse) {
+    if (bulkItemResponse.error() != null && bulkItemResponse.status() == HttpStatus.SC_CONFLICT
+        && VERSION_CONFLICT.equals(bulkItemResponse.error().type()) && ElasticService.isReindexTarget(bulkItemResponse.index())) {
+      return false;
+    }
+    return bulkItemResponse.error() != null
+        && ((bulkItemResponse.operationType() == OperationType.Delete && bulkItemResponse.status() != HttpStatus.SC_NOT_FOUND)
+            || bulkItemResponse.operationType() == OperationType.Index || bulkItemResponse.operationType() == OperationType.Create
+            || bulkItemResponse.operationType() == OperationType.Update);
+  }
+
   /**
    * Remove all indexed data
    */
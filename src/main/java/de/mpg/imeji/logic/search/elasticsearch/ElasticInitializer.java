@@ -1,11 +1,18 @@
 package de.mpg.imeji.logic.search.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.ExistsQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.json.jsonb.JsonbJsonpMapper;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
@@ -16,6 +23,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.RestClient;
 
 import java.io.IOException;
@@ -23,6 +31,8 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Start/Stop elasticsearch
@@ -32,6 +42,7 @@ import java.nio.file.Paths;
  */
 public class ElasticInitializer {
   private static final Logger LOGGER = LogManager.getLogger(ElasticInitializer.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
 
   private ElasticInitializer() {
     // avoid constructor
@@ -59,9 +70,36 @@ public class ElasticInitializer {
       initializeIndex(index);
       new ElasticIndexer(index.name()).addMapping();
     }
+    ElasticService.setAncestorsIndexed(isAncestorsIndexed());
     LOGGER.info("...done!");
   }
 
+  /**
+   * True if all items and folders have been indexed with their ancestors
+   *
+   * @return
+   */
+  private static boolean isAncestorsIndexed() {
+    final Query withoutAncestors =
+        BoolQuery.of(b -> b.mustNot(ExistsQuery.of(e -> e.field(ElasticFields.ANCESTORS.field()))._toQuery()))._toQuery();
+    final Query itemsWithoutAncestors = BoolQuery
+        .of(b -> b.must(ExistsQuery.of(e -> e.field(ElasticFields.FOLDER.field()))._toQuery()).filter(withoutAncestors))._toQuery();
+    try {
+      final long folders =
+          ElasticService.getClient().count(c -> c.index(ElasticIndices.folders.name()).query(withoutAncestors)).count();
+      final long items =
+          ElasticService.getClient().count(c -> c.index(ElasticIndices.items.name()).query(itemsWithoutAncestors)).count();
+      if (folders + items > 0) {
+        LOGGER.warn(folders + " folders and " + items + " items are indexed without their ancestors: a reindex is needed");
+        return false;
+      }
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Error counting the documents indexed without ancestors", e);
+      return false;
+    }
+  }
+
 
   public static void shutdown() {
     LOGGER.info("SHUTTING DOWN ELASTICSEARCH...");
@@ -191,6 +229,99 @@ public class ElasticInitializer {
     return null;
   }
 
+  /**
+   * True if an index or an alias with this name exists
+   *
+   * @param name
+   * @return
+   * @throws IOException
+   */
+  public static boolean exists(String name) throws IOException {
+    final Response resp = ElasticService.getRestClient().performRequest(new Request("HEAD", "/" + name));
+    return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
+  }
+
+  /**
+   * Set how often the changes of an index become visible to search. "-1" disables it, which makes
+   * indexing faster
+   *
+   * @param index
+   * @param interval
+   * @throws IOException
+   */
+  public static void setRefreshInterval(String index, String interval) throws IOException {
+    final Request req = new Request("PUT", "/" + index + "/_settings");
+    req.setJsonEntity("{\"index\":{\"refresh_interval\":\"" + interval + "\"}}");
+    ElasticService.getRestClient().performRequest(req);
+  }
+
+  /**
+   * Atomically move the alias to the new index, and delete the indexes which had the alias before.
+   * An index with the name of the alias is removed in the same request, so that the name always
+   * points to an index
+   *
+   * @param alias
+   * @param newIndex
+   * @throws IOException
+   */
+  public synchronized static void switchAlias(ElasticIndices alias, String newIndex) throws IOException {
+    final List<String> oldIndexes = getIndexes(alias.name());
+    final ObjectNode body = MAPPER.createObjectNode();
+    final ArrayNode actions = body.putArray("actions");
+    if (oldIndexes.isEmpty() && exists(alias.name())) {
+      // An index has the name of the alias: it is replaced by the alias
+      LOGGER.warn("Replacing index " + alias.name() + " with an alias");
+      actions.addObject().putObject("remove_index").put("index", alias.name());
+    }
+    for (final String oldIndex : oldIndexes) {
+      actions.addObject().putObject("remove").put("index", oldIndex).put("alias", alias.name());
+    }
+    actions.addObject().putObject("add").put("index", newIndex).put("alias", alias.name());
+    final Request req = new Request("POST", "/_aliases");
+    req.setJsonEntity(MAPPER.writeValueAsString(body));
+    ElasticService.getRestClient().performRequest(req);
+    LOGGER.info("Alias " + alias.name() + " moved from " + oldIndexes + " to " + newIndex);
+    for (final String oldIndex : oldIndexes) {
+      if (!oldIndex.equals(newIndex)) {
+        deleteIndex(oldIndex);
+      }
+    }
+  }
+
+  /**
+   * Return the indexes which have this alias
+   *
+   * @param alias
+   * @return
+   * @throws IOException
+   */
+  private static List<String> getIndexes(String alias) throws IOException {
+    final Request req = new Request("GET", "/_alias/" + alias);
+    req.addParameter("ignore_unavailable", "true");
+    try {
+      final Response resp = ElasticService.getRestClient().performRequest(req);
+      final List<String> indexes = new ArrayList<>();
+      MAPPER.readTree(resp.getEntity().getContent()).fieldNames().forEachRemaining(indexes::add);
+      return indexes;
+    } catch (final ResponseException e) {
+      if (e.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+        return new ArrayList<>();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Delete an index
+   *
+   * @param index
+   * @throws IOException
+   */
+  public static void deleteIndex(String index) throws IOException {
+    LOGGER.info("Deleting index " + index);
+    ElasticService.getRestClient().performRequest(new Request("DELETE", "/" + index));
+  }
+
   /**
    * DANGER: delete all data from elasticsearch. A new reindex will be necessary
    */
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.stream.Stream;
 
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.SortOptions;
 import co.elastic.clients.elasticsearch._types.Time;
@@ -15,12 +16,16 @@ import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
 import co.elastic.clients.elasticsearch.core.search.ResponseBody;
 import co.elastic.clients.elasticsearch.core.search.TrackHits;
 import co.elastic.clients.json.JsonpUtils;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.logging.log4j.LogManager;
 
 import org.elasticsearch.client.RequestOptions;
 
 import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.UnprocessableError;
+import de.mpg.imeji.logic.db.writer.WriteBehindIndexer;
 import de.mpg.imeji.logic.model.User;
 import de.mpg.imeji.logic.search.Search;
 import de.mpg.imeji.logic.search.SearchIndexer;
@@ -30,6 +35,7 @@ import de.mpg.imeji.logic.search.elasticsearch.factory.ElasticQueryFactory;
 import de.mpg.imeji.logic.search.elasticsearch.factory.ElasticSortFactory;
 import de.mpg.imeji.logic.search.elasticsearch.factory.util.AggregationsParser;
 import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticItemProjection;
 import de.mpg.imeji.logic.search.facet.model.Facet;
 import de.mpg.imeji.logic.search.facet.model.FacetResult;
 import de.mpg.imeji.logic.search.model.SearchQuery;
@@ -48,11 +54,18 @@ public class ElasticSearch implements Search {
   private ElasticIndices[] indices = null;
   private String[] indicesNames = null;
   private ElasticIndexer indexer = null;
+  private boolean projections = false;
   private static final int SEARCH_INTERVALL_MAX_SIZE = 500;
   public static final int SEARCH_SCROLL_INTERVALL = SEARCH_INTERVALL_MAX_SIZE;
-  private static final int SEARCH_TO_INDEX_LIMIT = 10000;
+  public static final int SEARCH_TO_INDEX_LIMIT = 10000;
+  /**
+   * How long a point in time of a search with cursor is kept after each page
+   */
+  private static final String POINT_IN_TIME_KEEP_ALIVE = "2m";
   public static final int SCROLL_TIMEOUT_MSEC = 60000;
   private final static org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger(ElasticSearch.class);
+  private static final ObjectMapper PROJECTION_MAPPER =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
   /**
    * Construct an Elastic Search Query for one or more data types. If type is null, search for all
@@ -68,6 +81,17 @@ public class ElasticSearch implements Search {
     this.indexer = new ElasticIndexer(indices[0].name());
   }
 
+  /**
+   * Read the items from the search hits: {@link SearchResult#getProjection(String)} returns the
+   * items which could be read from their indexed projection
+   *
+   * @return this
+   */
+  public ElasticSearch withProjections() {
+    this.projections = true;
+    return this;
+  }
+
   @Override
   public SearchIndexer getIndexer() {
     return indexer;
@@ -101,8 +125,86 @@ public class ElasticSearch implements Search {
     return searchElasticSearch(query, sortCriteria, user, folderUri, from, size, true, true);
   }
 
+  @Override
+  public SearchResult searchWithCursor(SearchQuery query, List<SortCriterion> sortCriteria, User user, String folderUri, int from,
+      String cursor, int size, boolean addFacets) throws UnprocessableError {
+    WriteBehindIndexer.getInstance().awaitIndexed(user);
+    final ElasticCursor previous = cursor != null ? ElasticCursor.decode(cursor) : null;
+    final int pageSize = size > 0 && size <= SEARCH_INTERVALL_MAX_SIZE ? size : SEARCH_INTERVALL_MAX_SIZE;
+    if (previous == null && Math.max(0, from) + pageSize > SEARCH_TO_INDEX_LIMIT) {
+      throw new UnprocessableError(
+          "The first page of a search with cursor must end before the result " + SEARCH_TO_INDEX_LIMIT + ", use the cursor to read further");
+    }
+    final ElasticQueryFactory factory = new ElasticQueryFactory(query, this.indices).folderUri(folderUri).user(user);
+    factory.setIncludeSubcollections(true);
+    final Query q = factory.build();
+    final Query f = factory.buildBaseQuery();
+    SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder();
+    searchRequestBuilder.trackTotalHits(th -> th.enabled(true)).size(pageSize);
+    if (f != null) {
+      searchRequestBuilder.query(f).postFilter(q);
+    } else {
+      searchRequestBuilder.query(q);
+    }
+    if (addFacets) {
+      searchRequestBuilder = addAggregations(searchRequestBuilder, folderUri);
+    }
+    for (SortOptions sb : ElasticSortFactory.build(sortCriteria)) {
+      if (sb != null) {
+        searchRequestBuilder.sort(sb);
+      }
+    }
+    String pitId = previous != null ? previous.getPitId() : null;
+    boolean keepPit = false;
+    try {
+      if (previous != null) {
+        searchRequestBuilder.searchAfter(previous.getSearchAfter());
+      } else {
+        pitId = ElasticService.getClient()
+            .openPointInTime(p -> p.index(Arrays.asList(this.indicesNames)).keepAlive(t -> t.time(POINT_IN_TIME_KEEP_ALIVE))).id();
+        searchRequestBuilder.from(Math.max(0, from));
+      }
+      // With a point in time, the hits are sorted with a tiebreaker, so that no hit is skipped
+      final String requestPitId = pitId;
+      searchRequestBuilder.pit(p -> p.id(requestPitId).keepAlive(t -> t.time(POINT_IN_TIME_KEEP_ALIVE)));
+      final SearchResponse<ObjectNode> resp = ElasticService.getClient().search(searchRequestBuilder.build(), ObjectNode.class);
+      final SearchResult result = getSearchResultFromElasticSearchResponse(resp, query);
+      final List<Hit<ObjectNode>> hits = resp.hits().hits();
+      pitId = resp.pitId() != null ? resp.pitId() : pitId;
+      if (hits.size() == pageSize) {
+        result.setCursor(new ElasticCursor(pitId, hits.get(hits.size() - 1).sort()).encode());
+        keepPit = true;
+      }
+      return result;
+    } catch (IOException | ElasticsearchException e) {
+      LOGGER.error("Error during search with cursor", e);
+      if (previous != null) {
+        throw new UnprocessableError("Cursor expired or invalid, search again without cursor", e);
+      }
+      throw new UnprocessableError("Error during search with cursor", e);
+    } finally {
+      if (!keepPit && pitId != null) {
+        closePointInTime(pitId);
+      }
+    }
+  }
+
+  /**
+   * Close a point in time. A point in time which has already expired is ignored
+   *
+   * @param pitId
+   */
+  private void closePointInTime(String pitId) {
+    try {
+      ElasticService.getClient().closePointInTime(c -> c.id(pitId));
+    } catch (IOException | ElasticsearchException e) {
+      LOGGER.debug("Point in time already closed: " + e.getMessage());
+    }
+  }
+
   private SearchResult searchElasticSearch(SearchQuery query, List<SortCriterion> sortCriteria, User user, String folderUri, int from,
       int size, boolean addFacets, boolean includeSubcollections) {
+    WriteBehindIndexer.getInstance().awaitIndexed(user);
 
     // magic number "-1" for unlimited size is spread all over the code:
     if (size != GET_ALL_RESULTS && size < 0) {
@@ -135,7 +237,8 @@ public class ElasticSearch implements Search {
     }
 
     // single page or scroll search
-    if (size != GET_ALL_RESULTS && size < SEARCH_INTERVALL_MAX_SIZE && from + size < SEARCH_TO_INDEX_LIMIT) {
+    if (size != GET_ALL_RESULTS && (size < SEARCH_INTERVALL_MAX_SIZE || projections && size == SEARCH_INTERVALL_MAX_SIZE)
+        && from + size < SEARCH_TO_INDEX_LIMIT) {
       searchRequestBuilder.from(from).size(size);
       for (SortOptions sb : ElasticSortFactory.build(sortCriteria)) {
         if (sb != null) {
@@ -393,6 +496,7 @@ public class ElasticSearch implements Search {
 
   @Override
   public SearchResult searchString(String query, SortCriterion sort, User user, int from, int size) {
+    WriteBehindIndexer.getInstance().awaitIndexed(user);
     final Query q = QueryStringQuery.of(qs -> qs.query(query))._toQuery();
     SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder();
     searchRequestBuilder.trackTotalHits(th -> th.enabled(true));
@@ -550,9 +654,36 @@ public class ElasticSearch implements Search {
     SearchResult searchResult = new SearchResult(ids, getTotalNumberOfRecords(searchResponse, facets),
         getNumberOfItems(searchResponse, facets), getNumberOfItemsOfCollection(searchResponse, facets),
         getNumberOfRootItemsOfCollection(searchResponse, facets), getNumberOfSubcollections(searchResponse, facets), facets);
+    if (projections) {
+      addProjections(searchResponse, searchResult);
+    }
     return searchResult;
   }
 
+  /**
+   * Add to the result the items of the hits which have a projection written with the indexed
+   * document. Items indexed before projections existed have none, and are read from the database
+   *
+   * @param searchResponse
+   * @param searchResult
+   */
+  private void addProjections(ResponseBody<ObjectNode> searchResponse, SearchResult searchResult) {
+    for (final Hit<ObjectNode> hit : searchResponse.hits().hits()) {
+      final ObjectNode source = hit.source();
+      if (source == null || !source.hasNonNull("projection") || !source.hasNonNull("modified")) {
+        continue;
+      }
+      try {
+        final ElasticItemProjection projection = PROJECTION_MAPPER.treeToValue(source.get("projection"), ElasticItemProjection.class);
+        if (projection.isValid(source.get("modified").asLong())) {
+          searchResult.addProjection(hit.id(), projection.toItem());
+        }
+      } catch (final IOException | RuntimeException e) {
+        LOGGER.warn("Projection of " + hit.id() + " couldn't be read", e);
+      }
+    }
+  }
+
   private long getTotalNumberOfRecords(ResponseBody resp, List<FacetResult> facets) {
     return facets.stream().filter(f -> f.getName().equals("all")).findAny().map(f -> f.getValues().get(0).getCount())
         .orElse(resp.hits().total().value());
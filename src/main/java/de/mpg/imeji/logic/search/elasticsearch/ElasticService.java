@@ -2,12 +2,17 @@ package de.mpg.imeji.logic.search.elasticsearch;
 
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
 import de.mpg.imeji.logic.search.Search.SearchObjectTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.client.RestClient;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * elasticsearch service for spot!
@@ -18,6 +23,26 @@ import java.net.URI;
 public class ElasticService {
   private static ElasticsearchClient client;
   private static RestClient restClient;
+  /**
+   * The new indexes being filled by a reindex, by alias: while a reindex runs, all changes are
+   * written in the new index too
+   */
+  private static final Map<ElasticIndices, String> REINDEX_TARGETS = new ConcurrentHashMap<>();
+  /**
+   * The checkpoint store of the running reindex, where the objects deleted during the reindex are
+   * recorded
+   */
+  private static volatile KeyValueStoreService reindexCheckpoint;
+  /**
+   * Prefix of the keys of the deleted objects in the checkpoint store, followed by alias:id. The
+   * value is the parent of the document, or an empty string
+   */
+  public static final String REINDEX_DELETE_KEY = "delete:";
+  /**
+   * False if some indexed items or folders don't have their ancestors yet (indexed with an older
+   * version): the ancestors can then not be used by the security query until a reindex
+   */
+  private static volatile boolean ancestorsIndexed = true;
 
   static final String SETTINGS_DEFAULT = "elasticsearch/Settings.json";
   private static final Logger LOGGER = LogManager.getLogger(ElasticService.class);
@@ -128,6 +153,102 @@ public class ElasticService {
   public static void setRestClient(RestClient restClient) {
     ElasticService.restClient = restClient;
   }
+
+  /**
+   * Set the checkpoint store of the reindex, where the objects deleted while it runs are recorded
+   *
+   * @param checkpoint
+   */
+  public static void setReindexCheckpoint(KeyValueStoreService checkpoint) {
+    reindexCheckpoint = checkpoint;
+  }
+
+  /**
+   * Set the new index filled by a reindex for this alias
+   *
+   * @param alias
+   * @param index
+   */
+  public static void setReindexTarget(ElasticIndices alias, String index) {
+    REINDEX_TARGETS.put(alias, index);
+  }
+
+  /**
+   * Remove the new index filled by a reindex for this alias
+   *
+   * @param alias
+   */
+  public static void removeReindexTarget(ElasticIndices alias) {
+    REINDEX_TARGETS.remove(alias);
+  }
+
+  /**
+   * Remove the new indexes filled by a reindex
+   */
+  public static void clearReindexTargets() {
+    REINDEX_TARGETS.clear();
+    reindexCheckpoint = null;
+  }
+
+  /**
+   * Record documents deleted while a reindex is running: the reindex might have read them before
+   * they were deleted, so that they must be deleted again from the new index once it is filled. They
+   * are written in the checkpoint store, so that a resumed reindex deletes them too
+   *
+   * @param alias
+   * @param documents key: the id of the document, value: its parent, or null
+   * @throws ImejiException
+   */
+  public static void addReindexDeletes(String alias, Map<String, String> documents) throws ImejiException {
+    final KeyValueStoreService checkpoint = reindexCheckpoint;
+    if (checkpoint == null || getReindexTarget(alias) == null) {
+      return;
+    }
+    final Map<String, Object> deletes = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> document : documents.entrySet()) {
+      deletes.put(REINDEX_DELETE_KEY + alias + ":" + document.getKey(), document.getValue() != null ? document.getValue() : "");
+    }
+    checkpoint.putAll(deletes);
+  }
+
+  /**
+   * Return the new index filled by a reindex for this alias, or null if no reindex is running
+   *
+   * @param alias
+   * @return
+   */
+  public static String getReindexTarget(String alias) {
+    for (final Map.Entry<ElasticIndices, String> target : REINDEX_TARGETS.entrySet()) {
+      if (target.getKey().name().equals(alias)) {
+        return target.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * True if this index is a new index filled by a reindex
+   *
+   * @param index
+   * @return
+   */
+  public static boolean isReindexTarget(String index) {
+    return REINDEX_TARGETS.containsValue(index);
+  }
+
+  /**
+   * True if all items and folders are indexed with their ancestors
+   *
+   * @return
+   */
+  public static boolean isAncestorsIndexed() {
+    return ancestorsIndexed;
+  }
+
+  public static void setAncestorsIndexed(boolean ancestorsIndexed) {
+    ElasticService.ancestorsIndexed = ancestorsIndexed;
+  }
+
   /*
    * static Node getNODE() { return NODE; }
    * 
@@ -3,7 +3,9 @@ package de.mpg.imeji.logic.search.elasticsearch.factory;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import co.elastic.clients.elasticsearch._types.FieldValue;
@@ -13,6 +15,7 @@ import de.mpg.imeji.logic.model.Grant;
 import de.mpg.imeji.logic.model.Grant.GrantType;
 import de.mpg.imeji.logic.model.Properties.Status;
 import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
 import de.mpg.imeji.logic.search.elasticsearch.factory.util.ElasticSearchFactoryUtil;
 import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
 import de.mpg.imeji.logic.security.authorization.util.SecurityUtil;
@@ -23,6 +26,9 @@ import org.reflections.util.QueryBuilder;
 /**
  * Build a Boolean query with a list of all allowed collection and subcollections for one user.
  * <br/>
+ * Items and folders are indexed with the uris of all their ancestors: the query is then a terms
+ * query on the ancestors with the allowed collections, which doesn't need to list the
+ * subcollections. The queries of logged in users are cached until the grants are changed. <br/>
  * This query can be used to filter a search query for items or for collection. <br/>
  * <br/>
  * There are some options to make the query more specific:
@@ -37,6 +43,19 @@ import org.reflections.util.QueryBuilder;
  *
  */
 public class SecurityQueryFactory {
+  private static final int CACHE_SIZE = 1000;
+  /**
+   * The security queries of the logged in users. key: the user, the role, the searched type and the
+   * grants of the user
+   */
+  private static final Map<String, Query> CACHE = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
   private boolean searchForCollections = true;
   private GrantType role = null;
   private User user;
@@ -62,9 +81,44 @@ public class SecurityQueryFactory {
    * @return
    */
   private Query buildLoggedInUserSecurityQuery() {
-    List<String> collectionUris = getCollectionUris();
-    collectionUris = addChildren(collectionUris);
-    BoolQuery.Builder qb = toQuery(collectionUris);
+    if (!ElasticService.isAncestorsIndexed()) {
+      // The ancestors can't be used until the reindex is done
+      return buildLoggedInUserSecurityQuery(addChildren(getCollectionUris()), false);
+    }
+    final String key = user.getId() + "|" + role + "|" + searchForCollections + "|" + user.getGrants().hashCode();
+    synchronized (CACHE) {
+      final Query cached = CACHE.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    final Query query = buildLoggedInUserSecurityQuery(getCollectionUris(), true);
+    synchronized (CACHE) {
+      CACHE.put(key, query);
+    }
+    return query;
+  }
+
+  /**
+   * Remove all cached security queries. Must be called when the grants of a user or of a user group
+   * have been changed
+   */
+  public static void clearCache() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  /**
+   * The security query for a logged in user with the uris of the allowed collections
+   * 
+   * @param collectionUris
+   * @param useAncestors if true, the subcollections are found via the ancestors of the objects,
+   *        else collectionUris must contain the subcollections too
+   * @return
+   */
+  private Query buildLoggedInUserSecurityQuery(List<String> collectionUris, boolean useAncestors) {
+    BoolQuery.Builder qb = toQuery(collectionUris, useAncestors);
     if (role == null) {
       qb.should(getStatusQuery());
     } else if (role != null && collectionUris.isEmpty()) {
@@ -87,15 +141,16 @@ public class SecurityQueryFactory {
    * Return a list of collection uris as a BoolQueryBuilder
    * 
    * @param collectionUris
+   * @param useAncestors
    * @return
    */
-  private BoolQuery.Builder toQuery(List<String> collectionUris) {
+  private BoolQuery.Builder toQuery(List<String> collectionUris, boolean useAncestors) {
     final BoolQuery.Builder q = new BoolQuery.Builder();
     //List<FieldValue> fvList = new ArrayList<>();
-    List<FieldValue> fvList = collectionUris.stream().map(i -> FieldValue.of(i)).collect(Collectors.toList());
-    q.should(TermsQuery
-        .of(i -> i.field(searchForCollections ? ElasticFields.ID.field() : ElasticFields.FOLDER.field()).terms(te -> te.value(fvList)))
-        ._toQuery());
+    List<FieldValue> fvList = collectionUris.stream().distinct().map(i -> FieldValue.of(i)).collect(Collectors.toList());
+    final String field = useAncestors ? ElasticFields.ANCESTORS.field()
+        : searchForCollections ? ElasticFields.ID.field() : ElasticFields.FOLDER.field();
+    q.should(TermsQuery.of(i -> i.field(field).terms(te -> te.value(fvList)))._toQuery());
 
     //collectionUris.stream().forEach(
     //    uri -> q.should(QueryBuilders.termQuery(searchForCollections ? ElasticFields.ID.field() : ElasticFields.FOLDER.field(), uri)));
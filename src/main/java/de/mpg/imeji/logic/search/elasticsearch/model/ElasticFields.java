@@ -32,6 +32,7 @@ public enum ElasticFields {
   FILEEXTENSION,
   SIZE,
   FOLDER,
+  ANCESTORS,
   PROFILE,
   ALBUM,
   CHECKSUM("content.checksum"),
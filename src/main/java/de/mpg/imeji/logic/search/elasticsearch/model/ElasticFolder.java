@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import de.mpg.imeji.logic.hierarchy.HierarchyService;
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.ContainerAdditionalInfo;
 import de.mpg.imeji.logic.model.Person;
@@ -18,6 +19,7 @@ import de.mpg.imeji.logic.model.Person;
 public final class ElasticFolder extends ElasticProperties {
   private final String name;
   private final String folder;
+  private final List<String> ancestors;
   private final String description;
   private final String creators;
   private final List<String> pid;
@@ -34,6 +36,9 @@ public final class ElasticFolder extends ElasticProperties {
     this.description = c.getDescription();
     this.pid = c.getDoi() != null ? Arrays.asList(c.getDoi()) : new ArrayList<String>();
     this.folder = c.getCollection() != null ? c.getCollection().toString() : null;
+    // The parent is read from the collection, since the hierarchy is reloaded after a move
+    this.ancestors = folder != null ? new HierarchyService().getAncestorPath(folder) : new ArrayList<>();
+    this.ancestors.add(c.getId().toString());
     this.creators = c.getPersons().stream().map(p -> p.getCompleteName()).collect(Collectors.joining(";"));
     for (final Person p : c.getPersons()) {
       author.add(new ElasticPerson(p));
@@ -85,6 +90,13 @@ public final class ElasticFolder extends ElasticProperties {
     return folder;
   }
 
+  /**
+   * @return the uris of all parents of the folder, from the root, and of the folder itself
+   */
+  public List<String> getAncestors() {
+    return ancestors;
+  }
+
   /**
    * @return the joinField
    */
@@ -3,6 +3,7 @@ package de.mpg.imeji.logic.search.elasticsearch.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.mpg.imeji.logic.hierarchy.HierarchyService;
 import de.mpg.imeji.logic.model.ImejiLicenses;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.model.License;
@@ -21,6 +22,7 @@ import de.mpg.imeji.logic.util.StringHelper;
  */
 public final class ElasticItem extends ElasticProperties {
   private final String folder;
+  private final List<String> ancestors;
   private final String name;
   private final String license;
   private final String filetype;
@@ -28,6 +30,7 @@ public final class ElasticItem extends ElasticProperties {
   private final long size;
   private final List<ElasticMetadata> metadata = new ArrayList<>();
   private final ElasticJoinField joinField = new ElasticJoinField();
+  private final ElasticItemProjection projection;
 
   /**
    * Constructor with an {@link Item}
@@ -37,6 +40,7 @@ public final class ElasticItem extends ElasticProperties {
   public ElasticItem(Item item) {
     super(item);
     this.folder = item.getCollection() != null ? item.getCollection().toString() : null;
+    this.ancestors = folder != null ? new HierarchyService().getAncestorPath(folder) : new ArrayList<>();
     this.name = item.getFilename();
     this.license = getLicenseName(item);
     this.size = item.getFileSize();
@@ -48,6 +52,7 @@ public final class ElasticItem extends ElasticProperties {
       }
     }
     this.joinField.setName("item");
+    this.projection = new ElasticItemProjection(item);
   }
 
   private String getLicenseName(Item item) {
@@ -87,6 +92,13 @@ public final class ElasticItem extends ElasticProperties {
     return folder;
   }
 
+  /**
+   * @return the uris of the collection of the item and of all its parents, from the root
+   */
+  public List<String> getAncestors() {
+    return ancestors;
+  }
+
   public long getSize() {
     return size;
   }
@@ -105,4 +117,11 @@ public final class ElasticItem extends ElasticProperties {
   public ElasticJoinField getJoinField() {
     return joinField;
   }
+
+  /**
+   * @return the projection
+   */
+  public ElasticItemProjection getProjection() {
+    return projection;
+  }
 }
@@ -0,0 +1,262 @@
+package de.mpg.imeji.logic.search.elasticsearch.model;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.License;
+import de.mpg.imeji.logic.model.Metadata;
+import de.mpg.imeji.logic.model.Organization;
+import de.mpg.imeji.logic.model.Person;
+import de.mpg.imeji.logic.model.Properties.Status;
+
+/**
+ * The part of an {@link Item} which is stored, but not indexed, with the {@link ElasticItem}, so
+ * that the {@link Item} can be read from a search hit without reading the database.<br/>
+ * The projection is written in the same index request as the fields of the document, so a
+ * projection read from a hit is exactly as fresh as the hit: it is the state of the {@link Item} as
+ * last indexed, and it might be behind the database only as long as the index is (for instance
+ * until the WriteBehindIndexer has flushed, see WriteBehindIndexer#awaitIndexed for
+ * read-your-writes). No check against the database is done. A projection whose modification date
+ * is not the one of the document has not been written with it and is not used (see
+ * {@link #isValid(long)})<br/>
+ * !!! IMPORTANT !!!<br/>
+ * The field "projection" is not indexed in resources/elasticsearch/ElasticItemsMapping.json
+ *
+ * @author saquet
+ *
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE)
+public final class ElasticItemProjection {
+  private String id;
+  private long created;
+  private long modified;
+  private String createdBy;
+  private String modifiedBy;
+  private String status;
+  private String discardComment;
+  private String collection;
+  private String filename;
+  private String filetype;
+  private long filesize;
+  private final List<ProjectedLicense> licenses = new ArrayList<>();
+  private final List<ProjectedMetadata> metadata = new ArrayList<>();
+
+  /**
+   * A {@link License} of the {@link Item}
+   */
+  @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE)
+  private static final class ProjectedLicense {
+    private String id;
+    private String name;
+    private String label;
+    private String url;
+    private long start;
+    private long end;
+  }
+
+  /**
+   * A {@link Metadata} of the {@link Item}
+   */
+  @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE)
+  private static final class ProjectedMetadata {
+    private String index;
+    private String text;
+    private String name;
+    private String title;
+    private String date;
+    private String url;
+    private Double number;
+    private Double latitude;
+    private Double longitude;
+    private ProjectedPerson person;
+  }
+
+  /**
+   * The {@link Person} of a {@link Metadata}
+   */
+  @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE)
+  private static final class ProjectedPerson {
+    private String id;
+    private String familyName;
+    private String givenName;
+    private String identifier;
+    private final List<String[]> organizations = new ArrayList<>();
+  }
+
+  /**
+   * Constructor for json deserialization
+   */
+  private ElasticItemProjection() {
+    // used by jackson
+  }
+
+  /**
+   * Constructor with an {@link Item}
+   *
+   * @param item
+   */
+  public ElasticItemProjection(Item item) {
+    this.id = item.getId().toString();
+    this.created = item.getCreated().getTimeInMillis();
+    this.modified = item.getModified().getTimeInMillis();
+    this.createdBy = toString(item.getCreatedBy());
+    this.modifiedBy = toString(item.getModifiedBy());
+    this.status = item.getStatus() != null ? item.getStatus().name() : null;
+    this.discardComment = item.getDiscardComment();
+    this.collection = toString(item.getCollection());
+    this.filename = item.getFilename();
+    this.filetype = item.getFiletype();
+    this.filesize = item.getFileSize();
+    if (item.getLicenses() != null) {
+      for (final License license : item.getLicenses()) {
+        final ProjectedLicense l = new ProjectedLicense();
+        l.id = toString(license.getId());
+        l.name = license.getName();
+        l.label = license.getLabel();
+        l.url = license.getUrl();
+        l.start = license.getStart();
+        l.end = license.getEnd();
+        licenses.add(l);
+      }
+    }
+    if (item.getMetadata() != null) {
+      for (final Metadata md : item.getMetadata()) {
+        final ProjectedMetadata m = new ProjectedMetadata();
+        m.index = md.getIndex();
+        m.text = md.getText();
+        m.name = md.getName();
+        m.title = md.getTitle();
+        m.date = md.getDate();
+        m.url = md.getUrl();
+        m.number = toDouble(md.getNumber());
+        m.latitude = toDouble(md.getLatitude());
+        m.longitude = toDouble(md.getLongitude());
+        m.person = toProjectedPerson(md.getPerson());
+        metadata.add(m);
+      }
+    }
+  }
+
+  /**
+   * True if the projection has been written with the document which has this modification date
+   *
+   * @param documentModified the modification date of the indexed document
+   * @return
+   */
+  public boolean isValid(long documentModified) {
+    return modified == documentModified;
+  }
+
+  /**
+   * Create the {@link Item} of the projection
+   *
+   * @return
+   */
+  public Item toItem() {
+    final Item item = new Item();
+    item.setId(URI.create(id));
+    item.setCreated(toCalendar(created));
+    item.setModified(toCalendar(modified));
+    item.setCreatedBy(toURI(createdBy));
+    item.setModifiedBy(toURI(modifiedBy));
+    item.setStatus(status != null ? Status.valueOf(status) : null);
+    item.setDiscardComment(discardComment);
+    item.setCollection(toURI(collection));
+    item.setFilename(filename);
+    item.setFiletype(filetype);
+    item.setFileSize(filesize);
+    final List<License> itemLicenses = new ArrayList<>(licenses.size());
+    for (final ProjectedLicense l : licenses) {
+      final License license = new License();
+      license.setId(toURI(l.id));
+      license.setName(l.name);
+      license.setLabel(l.label);
+      license.setUrl(l.url);
+      license.setStart(l.start);
+      license.setEnd(l.end);
+      itemLicenses.add(license);
+    }
+    item.setLicenses(itemLicenses);
+    final List<Metadata> itemMetadata = new ArrayList<>(metadata.size());
+    for (final ProjectedMetadata m : metadata) {
+      final Metadata md = new Metadata();
+      md.setIndex(m.index);
+      md.setText(m.text);
+      md.setName(m.name);
+      md.setTitle(m.title);
+      md.setDate(m.date);
+      md.setUrl(m.url);
+      md.setNumber(m.number != null ? m.number : Double.NaN);
+      md.setLatitude(m.latitude != null ? m.latitude : Double.NaN);
+      md.setLongitude(m.longitude != null ? m.longitude : Double.NaN);
+      md.setPerson(toPerson(m.person));
+      itemMetadata.add(md);
+    }
+    item.setMetadata(itemMetadata);
+    return item;
+  }
+
+  private static ProjectedPerson toProjectedPerson(Person p) {
+    if (p == null) {
+      return null;
+    }
+    final ProjectedPerson person = new ProjectedPerson();
+    person.id = toString(p.getId());
+    person.familyName = p.getFamilyName();
+    person.givenName = p.getGivenName();
+    person.identifier = p.getIdentifier();
+    if (p.getOrganizations() != null) {
+      for (final Organization o : p.getOrganizations()) {
+        person.organizations.add(new String[] {toString(o.getId()), o.getName()});
+      }
+    }
+    return person;
+  }
+
+  private static Person toPerson(ProjectedPerson p) {
+    if (p == null) {
+      return null;
+    }
+    final Person person = new Person();
+    person.setId(toURI(p.id));
+    person.setFamilyName(p.familyName);
+    person.setGivenName(p.givenName);
+    person.setIdentifier(p.identifier);
+    final List<Organization> organizations = new ArrayList<>(p.organizations.size());
+    for (final String[] o : p.organizations) {
+      final Organization organization = new Organization(o[1]);
+      organization.setId(toURI(o[0]));
+      organizations.add(organization);
+    }
+    person.setOrganizations(organizations);
+    return person;
+  }
+
+  private static String toString(URI uri) {
+    return uri != null ? uri.toString() : null;
+  }
+
+  private static URI toURI(String s) {
+    return s != null ? URI.create(s) : null;
+  }
+
+  private static Double toDouble(double d) {
+    return Double.isNaN(d) ? null : d;
+  }
+
+  private static Calendar toCalendar(long time) {
+    final Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    return calendar;
+  }
+
+  public long getModified() {
+    return modified;
+  }
+}
@@ -0,0 +1,101 @@
+package de.mpg.imeji.logic.search.elasticsearch.script;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
+import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
+import co.elastic.clients.json.JsonData;
+import de.mpg.imeji.logic.batch.ElasticReIndexJob;
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
+
+/**
+ * Script runned after a collection has been moved: the ancestors of all its subcollections and
+ * items are replaced by the new ancestors of the collection. If the script fails, the ancestors in
+ * the index are not used by the security queries anymore, and a reindex is started to index them
+ * again
+ *
+ * @author saquet
+ *
+ */
+public class CollectionMoveScript {
+  private static final Logger LOGGER = LogManager.getLogger(CollectionMoveScript.class);
+  private static final String SCRIPT = "int i = ctx._source.ancestors.indexOf(params.collection);" //
+      + "if (i < 0) { ctx.op = 'noop'; } else {" //
+      + "List a = new ArrayList(params.path);" //
+      + "a.addAll(ctx._source.ancestors.subList(i + 1, ctx._source.ancestors.size()));" //
+      + "ctx._source.ancestors = a; }";
+
+  private CollectionMoveScript() {
+    // private constructor
+  }
+
+  /**
+   * Run the script. If it fails, stop using the indexed ancestors and start a reindex
+   *
+   * @param collectionUri the moved collection
+   * @param ancestorPath the uris of the new parents of the collection, from the root, followed by
+   *        the collection itself
+   */
+  public static void runOrReindex(String collectionUri, List<String> ancestorPath) {
+    try {
+      run(collectionUri, ancestorPath);
+    } catch (final IOException e) {
+      LOGGER.error("Could not update the ancestors of the moved collection in the search index, starting a reindex", e);
+      // Indexed ancestors are wrong until the reindex is done
+      ElasticService.setAncestorsIndexed(false);
+      try {
+        Imeji.getEXECUTOR().submit(new ElasticReIndexJob());
+      } catch (final RejectedExecutionException re) {
+        LOGGER.error("Reindex could not be started, it must be started by an administrator", re);
+      }
+    }
+  }
+
+  /**
+   * Run the script
+   *
+   * @param collectionUri the moved collection
+   * @param ancestorPath the uris of the new parents of the collection, from the root, followed by
+   *        the collection itself
+   * @throws IOException if the ancestors of some objects couldn't be updated
+   */
+  public static void run(String collectionUri, List<String> ancestorPath) throws IOException {
+    final List<String> indexes = new ArrayList<>();
+    for (final ElasticIndices index : new ElasticIndices[] {ElasticIndices.folders, ElasticIndices.items}) {
+      indexes.add(index.name());
+      if (ElasticService.getReindexTarget(index.name()) != null) {
+        indexes.add(ElasticService.getReindexTarget(index.name()));
+      }
+    }
+    final Map<String, JsonData> params = new HashMap<>();
+    params.put("collection", JsonData.of(collectionUri));
+    params.put("path", JsonData.of(ancestorPath));
+    final UpdateByQueryResponse resp;
+    try {
+      resp = ElasticService.getClient()
+          .updateByQuery(u -> u.index(indexes)
+              .query(TermQuery.of(t -> t.field(ElasticFields.ANCESTORS.field()).value(FieldValue.of(collectionUri)))._toQuery())
+              .script(s -> s.inline(i -> i.lang("painless").source(SCRIPT).params(params))).conflicts(Conflicts.Proceed).refresh(true));
+    } catch (final ElasticsearchException e) {
+      throw new IOException("Ancestors of the objects of the moved collection " + collectionUri + " not updated", e);
+    }
+    if (!resp.failures().isEmpty()) {
+      throw new IOException("Ancestors of " + resp.failures().size() + " objects of the moved collection " + collectionUri + " not updated: "
+          + resp.failures().get(0).cause().reason());
+    }
+  }
+}
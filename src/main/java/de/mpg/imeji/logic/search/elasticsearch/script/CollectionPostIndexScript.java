@@ -9,6 +9,7 @@ import co.elastic.clients.elasticsearch._types.Time;
 import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
 
 import co.elastic.clients.elasticsearch.core.search.Hit;
@@ -16,6 +17,7 @@ import co.elastic.clients.elasticsearch.core.search.ResponseBody;
 import co.elastic.clients.elasticsearch.core.search.TrackHits;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.mpg.imeji.logic.search.elasticsearch.script.misc.CollectionFields;
+import org.apache.http.HttpStatus;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -49,7 +51,24 @@ public class CollectionPostIndexScript {
    */
   public static void run(CollectionImeji collection, String indexName)
       throws IOException, InterruptedException, ExecutionException, SearchIndexBulkFailureException {
-    updateCollectionItemsWithAuthorAndOrganization(collection, indexName);
+    run(collection, indexName, false);
+  }
+
+  /**
+   * Run the script
+   * 
+   * @param collection
+   * @param indexName
+   * @param ignoreMissing if true, the items which are not in the index (i.e. not reindexed yet) are
+   *        ignored
+   * @throws IOException
+   * @throws InterruptedException
+   * @throws ExecutionException
+   * @throws SearchIndexBulkFailureException
+   */
+  public static void run(CollectionImeji collection, String indexName, boolean ignoreMissing)
+      throws IOException, InterruptedException, ExecutionException, SearchIndexBulkFailureException {
+    updateCollectionItemsWithAuthorAndOrganization(collection, indexName, ignoreMissing);
   }
 
   /**
@@ -61,7 +80,7 @@ public class CollectionPostIndexScript {
    * @throws InterruptedException
    * @throws SearchIndexBulkFailureException
    */
-  private static void updateCollectionItemsWithAuthorAndOrganization(CollectionImeji c, String index)
+  private static void updateCollectionItemsWithAuthorAndOrganization(CollectionImeji c, String index, boolean ignoreMissing)
       throws IOException, InterruptedException, ExecutionException, SearchIndexBulkFailureException {
 
     List<String> ids = getCollectionItemIds(c);
@@ -83,12 +102,27 @@ public class CollectionPostIndexScript {
     if (bulkRequest.operations().size() > 0) {
       BulkResponse bulkResponse = ElasticService.getClient().bulk(bulkRequest);
 
-      if (bulkResponse.errors()) {
+      if (bulkResponse.errors() && !(ignoreMissing && isOnlyMissing(bulkResponse))) {
         throw ElasticIndexer.getSearchIndexBulkFailureException(bulkResponse);
       }
     }
   }
 
+  /**
+   * True if the only errors of the response are items not found
+   * 
+   * @param bulkResponse
+   * @return
+   */
+  private static boolean isOnlyMissing(BulkResponse bulkResponse) {
+    for (final BulkResponseItem item : bulkResponse.items()) {
+      if (item.error() != null && item.status() != HttpStatus.SC_NOT_FOUND) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Return all items of the collection
    * 
@@ -0,0 +1,125 @@
+package de.mpg.imeji.logic.search.elasticsearch.script;
+
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
+import de.mpg.imeji.logic.search.elasticsearch.script.misc.CollectionFields;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Script running before items are indexed: read the fields of their collection, which are then
+ * indexed with the items.<br/>
+ * The fields of each collection are read once per batch, with one multi get for all collections
+ * not already cached. The cache is invalidated when a collection is indexed or deleted
+ *
+ * @author saquet
+ *
+ */
+public class ItemPreIndexScript {
+
+  private static final Logger LOGGER = LogManager.getLogger(ItemPreIndexScript.class);
+  private static final int CACHE_SIZE = 1000;
+  private static final List<String> INCLUDES = Arrays.asList(ElasticFields.AUTHOR_COMPLETENAME.field(),
+      ElasticFields.AUTHOR_ORGANIZATION.field(), ElasticFields.ID.field(), ElasticFields.NAME.field());
+  /**
+   * key: the uri of a collection, value: its fields. Access ordered, the least recently used
+   * collection is removed first
+   */
+  private static final Map<String, ObjectNode> CACHE = new LinkedHashMap<String, ObjectNode>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ObjectNode> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+  /**
+   * Incremented by each invalidation: fields read while a collection was invalidated are not cached
+   */
+  private static long invalidations = 0;
+
+  private ItemPreIndexScript() {
+    // private constructor
+  }
+
+  /**
+   * Return the fields of the collections of the items of the list
+   *
+   * @param list
+   * @return key: the uri of a collection, value: the fields to index with its items
+   */
+  public static Map<String, ObjectNode> getCollectionFields(List<?> list) {
+    final Map<String, ObjectNode> fields = new HashMap<>();
+    final List<String> missing = new ArrayList<>();
+    final long invalidationsBefore;
+    synchronized (CACHE) {
+      invalidationsBefore = invalidations;
+      for (final Object o : list) {
+        if (o instanceof Item && ((Item) o).getCollection() != null) {
+          final String collection = ((Item) o).getCollection().toString();
+          if (!fields.containsKey(collection) && !missing.contains(collection)) {
+            final ObjectNode cached = CACHE.get(collection);
+            if (cached != null) {
+              fields.put(collection, cached);
+            } else {
+              missing.add(collection);
+            }
+          }
+        }
+      }
+    }
+    if (missing.isEmpty()) {
+      return fields;
+    }
+    final Map<String, ObjectNode> retrieved = retrieveCollectionFields(missing);
+    fields.putAll(retrieved);
+    synchronized (CACHE) {
+      if (invalidations == invalidationsBefore) {
+        CACHE.putAll(retrieved);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Remove the fields of a collection from the cache, when the collection has been changed
+   *
+   * @param collectionUri
+   */
+  public static void invalidate(String collectionUri) {
+    synchronized (CACHE) {
+      invalidations++;
+      CACHE.remove(collectionUri);
+    }
+  }
+
+  private static Map<String, ObjectNode> retrieveCollectionFields(List<String> collections) {
+    final Map<String, ObjectNode> fields = new HashMap<>();
+    try {
+      final MgetResponse<ObjectNode> resp = ElasticService.getClient()
+          .mget(m -> m.index(ElasticIndices.folders.name()).ids(collections).sourceIncludes(INCLUDES), ObjectNode.class);
+      for (final MultiGetResponseItem<ObjectNode> doc : resp.docs()) {
+        if (doc.isResult() && doc.result().found()) {
+          fields.put(doc.result().id(), new CollectionFields(doc.result().source()).toJsonNode());
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Could not retrieve collection fields", e);
+    }
+    return fields;
+  }
+
+}
@@ -0,0 +1,135 @@
+package de.mpg.imeji.logic.search.facet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.search.facet.model.Facet;
+
+/**
+ * Immutable snapshot of all {@link Facet}, shared by the presentation and the search aggregations.
+ * The snapshot is read once from the database, and read again after the next change of a facet
+ * (see {@link #invalidate()}).<br/>
+ * The facets of the snapshot are shared: they must not be changed, use {@link Facet#clone()} to
+ * edit a facet
+ *
+ * @author saquet
+ *
+ */
+public class FacetRegistry {
+  private static final AtomicLong VERSION = new AtomicLong();
+  /**
+   * Guards the change of the version together with the publication of the snapshot
+   */
+  private static final Object PUBLISH_LOCK = new Object();
+  /**
+   * The current snapshot, null if it must be read again
+   */
+  private static volatile FacetRegistry registry = null;
+  private final long version;
+  private final List<Facet> facets;
+  private final Map<String, Facet> facetsByIndex;
+  private final Map<String, Facet> facetsByName;
+
+  /**
+   * Create a snapshot with these facets
+   *
+   * @param version
+   * @param facets
+   */
+  public FacetRegistry(long version, List<Facet> facets) {
+    final List<Facet> l = new ArrayList<>(facets);
+    l.sort((f1, f2) -> Integer.compare(f1.getPosition(), f2.getPosition()));
+    this.version = version;
+    this.facets = Collections.unmodifiableList(l);
+    this.facetsByIndex =
+        Collections.unmodifiableMap(l.stream().collect(Collectors.toMap(Facet::getIndex, Function.identity(), (f1, f2) -> f1)));
+    this.facetsByName =
+        Collections.unmodifiableMap(l.stream().collect(Collectors.toMap(Facet::getName, Function.identity(), (f1, f2) -> f1)));
+  }
+
+  /**
+   * Return the current snapshot, read from the database if a facet has changed since the last read
+   *
+   * @return
+   * @throws ImejiException
+   */
+  public static FacetRegistry get() throws ImejiException {
+    final FacetRegistry current = registry;
+    return current != null ? current : load();
+  }
+
+  /**
+   * Read the facets from the database, if no other thread has done it in the meantime
+   *
+   * @return
+   * @throws ImejiException
+   */
+  private static synchronized FacetRegistry load() throws ImejiException {
+    if (registry == null) {
+      final long version = VERSION.incrementAndGet();
+      final FacetRegistry loaded = new FacetRegistry(version, new FacetService().retrieveAll());
+      // A change during the read invalidates the snapshot again
+      synchronized (PUBLISH_LOCK) {
+        if (VERSION.get() == version) {
+          registry = loaded;
+        }
+      }
+      return loaded;
+    }
+    return registry;
+  }
+
+  /**
+   * Discard the current snapshot. Called after each change of a facet
+   */
+  public static void invalidate() {
+    synchronized (PUBLISH_LOCK) {
+      VERSION.incrementAndGet();
+      registry = null;
+    }
+  }
+
+  /**
+   * The version of the snapshot. A new snapshot has a greater version
+   *
+   * @return
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * All facets, sorted by position
+   *
+   * @return
+   */
+  public List<Facet> getFacets() {
+    return facets;
+  }
+
+  /**
+   * Return the facet with this index, or null
+   *
+   * @param index
+   * @return
+   */
+  public Facet getByIndex(String index) {
+    return facetsByIndex.get(index);
+  }
+
+  /**
+   * Return the facet with this name, or null
+   *
+   * @param name
+   * @return
+   */
+  public Facet getByName(String name) {
+    return facetsByName.get(name);
+  }
+}
@@ -1,10 +1,7 @@
 package de.mpg.imeji.logic.search.facet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
@@ -34,9 +31,6 @@ import de.mpg.imeji.logic.util.ObjectHelper;
  */
 public class FacetService extends SearchServiceAbstract<Facet> {
 
-  private static List<Facet> cachedFacets = null;
-  private static Map<String, Facet> cachedFacetsMapByIndex = new HashMap<>();
-  private static Map<String, Facet> cachedFacetsMapByName = new HashMap<>();
   private static final Logger LOGGER = LogManager.getLogger(FacetService.class);
 
   public FacetService() {
@@ -48,14 +42,14 @@ public class FacetService extends SearchServiceAbstract<Facet> {
   public Facet create(Facet facet, User user) throws ImejiException {
     checkUniqueIndex(facet);
     facet = controller.create(facet, user);
-    retrieveAll();// renew Cache
+    FacetRegistry.invalidate();
     return facet;
   }
 
   public Facet update(Facet facet, User user) throws ImejiException {
     checkUniqueIndex(facet);
     facet = controller.update(facet, user);
-    retrieveAll();// renew Cache
+    FacetRegistry.invalidate();
     return facet;
   }
 
@@ -64,12 +58,13 @@ public class FacetService extends SearchServiceAbstract<Facet> {
       checkUniqueIndex(f);
     }
     controller.updateBatch(facets, user);
-    retrieveAll();
+    FacetRegistry.invalidate();
     return facets;
   }
 
-  private void checkUniqueIndex(Facet facet) throws AlreadyExistsException {
-    if (exists(facet.getIndex()) && !cachedFacetsMapByIndex.get(facet.getIndex()).getUri().toString().equals(facet.getUri().toString())) {
+  private void checkUniqueIndex(Facet facet) throws ImejiException {
+    final Facet existing = FacetRegistry.get().getByIndex(facet.getIndex());
+    if (existing != null && !existing.getUri().toString().equals(facet.getUri().toString())) {
       throw new AlreadyExistsException(
           "Index " + facet.getIndex() + " is already used by another facet, please choose another facet/metadata");
     }
@@ -82,7 +77,7 @@ public class FacetService extends SearchServiceAbstract<Facet> {
    * @return
    */
   public boolean exists(String index) {
-    return cachedFacetsMapByIndex.containsKey(index);
+    return retrieveByIndexFromCache(index) != null;
   }
 
   public Facet read(String id) throws ImejiException {
@@ -94,7 +89,7 @@ public class FacetService extends SearchServiceAbstract<Facet> {
 
   public void delete(Facet facet, User user) throws ImejiException {
     controller.delete(facet, user);
-    retrieveAll();// renew Cache
+    FacetRegistry.invalidate();
   }
 
   @Override
@@ -109,11 +104,14 @@ public class FacetService extends SearchServiceAbstract<Facet> {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Read all Facets from the database. To read the Facets without changing them, use
+   * {@link #retrieveAllFromCache()}
+   */
   @Override
   public List<Facet> retrieveAll() throws ImejiException {
     final List<String> uris = ImejiSPARQL.exec(JenaCustomQueries.selectFacetAll(), Imeji.facetModel);
-    resetCache(retrieve(uris, Imeji.adminUser));
-    return retrieveAllFromCache();
+    return retrieve(uris, Imeji.adminUser);
   }
 
   @Override
@@ -121,27 +119,18 @@ public class FacetService extends SearchServiceAbstract<Facet> {
     return ImejiSPARQL.exec(JenaCustomQueries.selectFacetAll(), Imeji.facetModel);
   }
 
-  private void resetCache(List<Facet> facets) {
-    cachedFacets = facets;
-    cachedFacetsMapByIndex = cachedFacets.stream().collect(Collectors.toMap(Facet::getIndex, Function.identity(), (i1, i2) -> i1));
-    cachedFacetsMapByName = cachedFacets.stream().collect(Collectors.toMap(Facet::getName, Function.identity(), (i1, i2) -> i1));
-  }
-
   /**
-   * Return the Facets as currently cache
+   * Return the Facets of the {@link FacetRegistry}. The Facets must not be changed
    * 
    * @return
    */
   public List<Facet> retrieveAllFromCache() {
-    if (cachedFacets == null) {
-      try {
-        retrieveAll();
-      } catch (ImejiException e) {
-        LOGGER.error("Error retrieving facets", e);
-        return new ArrayList<>();
-      }
+    try {
+      return FacetRegistry.get().getFacets();
+    } catch (ImejiException e) {
+      LOGGER.error("Error retrieving facets", e);
+      return new ArrayList<>();
     }
-    return cachedFacets;
   }
 
   /**
@@ -151,7 +140,12 @@ public class FacetService extends SearchServiceAbstract<Facet> {
    * @return
    */
   public Facet retrieveByIndexFromCache(String index) {
-    return cachedFacetsMapByIndex.get(index);
+    try {
+      return FacetRegistry.get().getByIndex(index);
+    } catch (ImejiException e) {
+      LOGGER.error("Error retrieving facets", e);
+      return null;
+    }
   }
 
   /**
@@ -161,6 +155,11 @@ public class FacetService extends SearchServiceAbstract<Facet> {
    * @return
    */
   public Facet retrieveByNameFromCache(String name) {
-    return cachedFacetsMapByName.get(name);
+    try {
+      return FacetRegistry.get().getByName(name);
+    } catch (ImejiException e) {
+      LOGGER.error("Error retrieving facets", e);
+      return null;
+    }
   }
 }
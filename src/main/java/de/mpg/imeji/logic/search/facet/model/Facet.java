@@ -12,7 +12,7 @@ import de.mpg.imeji.logic.util.IdentifierUtil;
 @j2jModel("facet")
 @j2jId(getMethod = "getUri", setMethod = "setUri")
 @j2jResource("http://imeji.org/terms/facet")
-public class Facet implements Serializable {
+public class Facet implements Serializable, Cloneable {
   private static final long serialVersionUID = 574256459220027826L;
   @j2jLiteral("http://imeji.org/terms/name")
   private String name;
@@ -132,4 +132,16 @@ public class Facet implements Serializable {
     this.objectType = objectType;
   }
 
+  @Override
+  public Facet clone() {
+    final Facet clone = new Facet();
+    clone.name = name;
+    clone.type = type;
+    clone.index = index;
+    clone.objectType = objectType;
+    clone.uri = uri;
+    clone.position = position;
+    return clone;
+  }
+
 }
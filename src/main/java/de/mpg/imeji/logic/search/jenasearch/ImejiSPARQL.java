@@ -2,6 +2,7 @@ package de.mpg.imeji.logic.search.jenasearch;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 
@@ -44,6 +45,21 @@ public class ImejiSPARQL {
     return results;
   }
 
+  /**
+   * Execute a sparql query and pass each result to the consumer, without keeping the results in
+   * memory
+   *
+   * @param query
+   * @param modelName
+   * @param consumer
+   * @throws ImejiException
+   */
+  public static void exec(String query, String modelName, Consumer<String> consumer) throws ImejiException {
+    final SearchTransaction transaction = new SearchTransaction(modelName, query, consumer);
+    transaction.start(Imeji.dataset);
+    transaction.rethrowException();
+  }
+
   /**
    * Example: SELECT ?s count(DISTINCT ?s) WHERE { ?s a <http://imeji.org/terms/item>}
    *
@@ -2,6 +2,8 @@ package de.mpg.imeji.logic.search.jenasearch;
 
 import java.net.URI;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
 import de.mpg.imeji.logic.ImejiNamespaces;
 import de.mpg.imeji.logic.config.Imeji;
@@ -501,6 +503,28 @@ public class JenaCustomQueries {
     return "SELECT ?s WHERE { ?s a <http://imeji.org/terms/content>}";
   }
 
+  /**
+   * Select all file urls (original, full, preview, thumbnail) of all contents, together with the
+   * item of the content. Result format: fileUrl|itemUri
+   *
+   * @return
+   */
+  public static final String selectAllFileUrlsWithItem() {
+    return "SELECT (str(?url) AS ?s) (str(?item) AS ?o) WHERE {?content <http://imeji.org/terms/itemId> ?item . ?content ?p ?url . "
+        + "FILTER(?p IN (<http://imeji.org/terms/original>, <http://imeji.org/terms/full>, <http://imeji.org/terms/preview>, <http://imeji.org/terms/thumbnail>))}";
+  }
+
+  /**
+   * Select all items with their collection and their status. Result format:
+   * itemUri|collectionUri|statusUri
+   *
+   * @return
+   */
+  public static final String selectAllItemsWithCollectionAndStatus() {
+    return "SELECT (str(?item) AS ?s) (concat(str(?c), '|', str(?status)) AS ?o) WHERE {?item a <http://imeji.org/terms/item> . ?item <http://imeji.org/terms/collection> ?c . ?item <"
+        + ImejiNamespaces.STATUS + "> ?status}";
+  }
+
   /**
    * Select all {@link Item} available imeji
    *
@@ -616,6 +640,53 @@ public class JenaCustomQueries {
         + "> . ?item <http://imeji.org/terms/fileSize> ?size . not exists {?item <http://imeji.org/terms/status>  <http://imeji.org/terms/status#WITHDRAWN>}}";
   }
 
+  /**
+   * Sum the file size of all not withdrawn {@link Item} by creator and collection. Result format:
+   * creatorUri|collectionUri|fileSize
+   *
+   * @return
+   */
+  public static final String selectFileSizeByCreatorAndCollection() {
+    return "SELECT (str(?creator) AS ?s) (concat(str(?c), '|', str(SUM(?size))) AS ?o) WHERE {?item a <http://imeji.org/terms/item> . ?item <"
+        + ImejiNamespaces.CREATOR
+        + "> ?creator . ?item <http://imeji.org/terms/fileSize> ?size . ?item <http://imeji.org/terms/collection> ?c . not exists {?item <http://imeji.org/terms/status>  <http://imeji.org/terms/status#WITHDRAWN>}} GROUP BY ?creator ?c";
+  }
+
+  /**
+   * The creator, the collection and the file size of these {@link Item}, if they are not withdrawn.
+   * Result format: itemUri|creatorUri|collectionUri|fileSize
+   *
+   * @param itemUris
+   * @return
+   */
+  public static final String selectFileSizeOfItems(Collection<String> itemUris) {
+    return "SELECT (str(?item) AS ?s) (concat(str(?creator), '|', str(?c), '|', str(?size)) AS ?o) WHERE {VALUES ?item {"
+        + itemUris.stream().map(uri -> "<" + uri + ">").collect(Collectors.joining(" ")) + "} ?item <" + ImejiNamespaces.CREATOR
+        + "> ?creator . ?item <http://imeji.org/terms/fileSize> ?size . ?item <http://imeji.org/terms/collection> ?c . not exists {?item <http://imeji.org/terms/status>  <http://imeji.org/terms/status#WITHDRAWN>}}";
+  }
+
+  /**
+   * Select the email of the creator of a {@link CollectionImeji}
+   *
+   * @param collectionUri
+   * @return
+   */
+  public static final String selectCollectionCreatorEmail(String collectionUri) {
+    return "SELECT (str(?email) AS ?s) WHERE {<" + collectionUri + "> <" + ImejiNamespaces.CREATOR
+        + "> ?user . ?user <http://xmlns.com/foaf/0.1/email> ?email}";
+  }
+
+  /**
+   * Select all {@link CollectionImeji} with the email of their creator. Result format:
+   * collectionUri|email
+   *
+   * @return
+   */
+  public static final String selectAllCollectionsWithCreatorEmail() {
+    return "SELECT (str(?c) AS ?s) (str(?email) AS ?o) WHERE {?c a <http://imeji.org/terms/collection> . ?c <" + ImejiNamespaces.CREATOR
+        + "> ?user . ?user <http://xmlns.com/foaf/0.1/email> ?email}";
+  }
+
   /**
    * Chararters ( and ) can not be accepted in the sparql query and must therefore removed
    *
@@ -7,6 +7,7 @@ import java.util.List;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.vocabulary.RDF;
 
+import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.j2j.helper.J2JHelper;
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.model.CollectionImeji;
@@ -107,6 +108,12 @@ public class JenaSearch implements Search {
     return null;
   }
 
+  @Override
+  public SearchResult searchWithCursor(SearchQuery query, List<SortCriterion> sortCriteria, User user, String folderUri, int from,
+      String cursor, int size, boolean addFacets) throws UnprocessableError {
+    throw new UnprocessableError("Search with cursor is not supported by the Jena search");
+  }
+
   /**
    * Search for with query following sparql syntax
    *
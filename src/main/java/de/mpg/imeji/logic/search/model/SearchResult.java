@@ -1,9 +1,12 @@
 package de.mpg.imeji.logic.search.model;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.jena.Jena;
 
+import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.search.facet.model.FacetResult;
 import de.mpg.imeji.logic.search.jenasearch.JenaSearch;
 import de.mpg.imeji.logic.search.util.SortHelper;
@@ -29,6 +32,14 @@ public class SearchResult {
   private String query = null;
   private SortCriterion sort;
   private List<FacetResult> facets;
+  /**
+   * Cursor to the next page of a search with cursor
+   */
+  private String cursor;
+  /**
+   * Items read from the search hits, by id, for a search with projections
+   */
+  private final Map<String, Item> projections = new HashMap<>();
 
   /**
    * Create a new {@link SearchResult} from a {@link List} of String, and sort it if a
@@ -128,4 +139,27 @@ public class SearchResult {
   public int getNumberOfRootItemsOfCollection() {
     return numberOfRootItemsOfCollection;
   }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
+  /**
+   * The {@link Item} read from the search hit, if the search has been done with projections and the
+   * hit had a valid projection
+   *
+   * @param id
+   * @return the {@link Item} or null
+   */
+  public Item getProjection(String id) {
+    return projections.get(id);
+  }
+
+  public void addProjection(String id, Item item) {
+    projections.put(id, item);
+  }
 }
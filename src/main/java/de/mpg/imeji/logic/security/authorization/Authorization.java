@@ -46,8 +46,7 @@ public class Authorization implements Serializable {
    * @return
    */
   public boolean hasCreateCollectionGrant(User user) {
-    return isSysAdmin(user)
-        || (user != null && hasGrant(user.getGrants(), new Grant(GrantType.EDIT, AuthorizationPredefinedRoles.IMEJI_GLOBAL_URI)));
+    return isSysAdmin(user) || (user != null && CompiledGrants.of(user).hasOwnGlobalGrant(GrantType.EDIT));
   }
 
   /**
@@ -57,7 +56,7 @@ public class Authorization implements Serializable {
    * @return
    */
   public boolean isSysAdmin(User user) {
-    return user != null && hasGrant(user.getGrants(), new Grant(GrantType.ADMIN, AuthorizationPredefinedRoles.IMEJI_GLOBAL_URI));
+    return user != null && CompiledGrants.of(user).hasOwnGlobalGrant(GrantType.ADMIN);
   }
 
   /**
@@ -90,7 +89,7 @@ public class Authorization implements Serializable {
    * @throws NotAllowedError
    */
   public boolean read(User user, Object obj) {
-    return isPublic(obj, user) || isSysAdmin(user) || hasReadGrant(getAllGrants(user), getId(obj));
+    return isPublic(obj, user) || isSysAdmin(user) || CompiledGrants.of(user).hasAnyGrant(getId(obj));
   }
 
   /**
@@ -102,7 +101,7 @@ public class Authorization implements Serializable {
    * @throws NotAllowedError
    */
   public boolean update(User user, Object obj) {
-    return isSysAdmin(user) || hasEditGrant(getAllGrants(user), getId(obj));
+    return isSysAdmin(user) || CompiledGrants.of(user).hasEditGrant(getId(obj));
   }
 
   /**
@@ -129,7 +128,7 @@ public class Authorization implements Serializable {
    * @throws NotAllowedError
    */
   public boolean administrate(User user, Object obj) {
-    return isSysAdmin(user) || hasAdminGrant(getAllGrants(user), getId(obj));
+    return isSysAdmin(user) || CompiledGrants.of(user).hasAdminGrant(getId(obj));
   }
 
   /**
@@ -151,53 +150,7 @@ public class Authorization implements Serializable {
    * @return
    */
   public boolean isShared(User user, Object obj) {
-    return hasReadGrant(getAllGrants(user), getId(obj)) || hasEditGrant(getAllGrants(user), getId(obj))
-        || hasAdminGrant(getAllGrants(user), getId(obj));
-  }
-
-  /**
-   * True if the {@link Grant} is found in the collection
-   *
-   * @param grants
-   * @param grant
-   * @return
-   */
-  private boolean hasGrant(Collection<String> grants, Grant grant) {
-    return grants != null && grants.contains(grant.toGrantString());
-  }
-
-  /**
-   * True if the User has either Read, Edit of Admin Grant for this uri
-   *
-   * @param grants
-   * @param uri
-   * @return
-   */
-  private boolean hasReadGrant(Collection<String> grants, String uri) {
-    return toGrantList(grants).stream().anyMatch(g -> g.getGrantFor().equals(uri));
-  }
-
-  /**
-   * True if the User has either Edit of Admin Grant for this uri
-   *
-   * @param grants
-   * @param uri
-   * @return
-   */
-  private boolean hasEditGrant(Collection<String> grants, String uri) {
-    return toGrantList(grants).stream().anyMatch(g -> g.getGrantFor().equals(uri)
-        && (g.getGrantType().equals(GrantType.EDIT.toString()) || g.getGrantType().equals(GrantType.ADMIN.toString())));
-  }
-
-  /**
-   * True if the User has Admin Grant for this uri
-   *
-   * @param grants
-   * @param uri
-   * @return
-   */
-  private boolean hasAdminGrant(Collection<String> grants, String uri) {
-    return hasGrant(grants, new Grant(GrantType.ADMIN, uri));
+    return CompiledGrants.of(user).hasAnyGrant(getId(obj));
   }
 
   /**
@@ -0,0 +1,195 @@
+package de.mpg.imeji.logic.security.authorization;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mpg.imeji.logic.model.Grant;
+import de.mpg.imeji.logic.model.Grant.GrantType;
+import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.model.UserGroup;
+
+/**
+ * Immutable set of all {@link Grant} of a {@link User}, including the grants of its
+ * {@link UserGroup}, indexed by the uri of the object the grant is for. Compiled once per
+ * {@link User} and cached on it, so that the {@link Authorization} checks don't need to parse the
+ * grant strings again. Compiled again when the grants or the groups of the user are set, and after
+ * {@link #invalidateAll()}, which is called each time a {@link User} or a {@link UserGroup} is
+ * written. Grants changed in place are therefore seen once they have been written.
+ *
+ * @author saquet
+ *
+ */
+public final class CompiledGrants {
+  private static final CompiledGrants EMPTY = new CompiledGrants();
+  /**
+   * Incremented each time grants might have been changed: all grants compiled before are outdated
+   */
+  private static final AtomicLong VERSION = new AtomicLong();
+  /**
+   * key: the uri the grants are for, value: the types of all grants for this uri
+   */
+  private final Map<String, Set<GrantType>> grants;
+  /**
+   * The grants of the user (without the groups) for the whole imeji instance
+   */
+  private final Set<GrantType> ownGlobalGrants;
+  /**
+   * The version, grants and groups this has been compiled from
+   */
+  private final long version;
+  private final Collection<String> sourceGrants;
+  private final List<UserGroup> sourceGroups;
+
+  private CompiledGrants() {
+    this.grants = Collections.emptyMap();
+    this.ownGlobalGrants = Collections.emptySet();
+    this.version = 0;
+    this.sourceGrants = null;
+    this.sourceGroups = null;
+  }
+
+  private CompiledGrants(User user) {
+    // Read before the grants: if they are changed while compiled, this is already outdated
+    this.version = VERSION.get();
+    this.sourceGrants = user.getGrants();
+    this.sourceGroups = user.getGroups();
+    final Map<String, Set<GrantType>> map = new HashMap<>();
+    final Set<GrantType> own = EnumSet.noneOf(GrantType.class);
+    if (user.getGrants() != null) {
+      for (final String grantString : user.getGrants()) {
+        final Grant grant = add(map, grantString);
+        if (grant != null && AuthorizationPredefinedRoles.IMEJI_GLOBAL_URI.equals(grant.getGrantFor())
+            && toGrantType(grant) != null) {
+          own.add(toGrantType(grant));
+        }
+      }
+    }
+    if (user.getGroups() != null) {
+      for (final UserGroup group : user.getGroups()) {
+        if (group.getGrants() != null) {
+          group.getGrants().forEach(grantString -> add(map, grantString));
+        }
+      }
+    }
+    map.replaceAll((uri, types) -> Collections.unmodifiableSet(types));
+    this.grants = Collections.unmodifiableMap(map);
+    this.ownGlobalGrants = Collections.unmodifiableSet(own);
+  }
+
+  /**
+   * Return the {@link CompiledGrants} of the {@link User}. Use the one cached on the user if it is
+   * still up to date, otherwise compile it and cache it
+   *
+   * @param user
+   * @return
+   */
+  public static CompiledGrants of(User user) {
+    if (user == null) {
+      return EMPTY;
+    }
+    CompiledGrants compiled = user.getCompiledGrants();
+    if (compiled == null || !compiled.isCompiledFrom(user)) {
+      compiled = new CompiledGrants(user);
+      user.setCompiledGrants(compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * Outdate all compiled grants. To be called when grants of a {@link User} or of a
+   * {@link UserGroup} might have been changed
+   */
+  public static void invalidateAll() {
+    VERSION.incrementAndGet();
+  }
+
+  /**
+   * True if the user has any grant for this uri
+   *
+   * @param uri
+   * @return
+   */
+  public boolean hasAnyGrant(String uri) {
+    return grants.containsKey(uri);
+  }
+
+  /**
+   * True if the user has either an EDIT or an ADMIN grant for this uri
+   *
+   * @param uri
+   * @return
+   */
+  public boolean hasEditGrant(String uri) {
+    final Set<GrantType> types = grants.get(uri);
+    return types != null && (types.contains(GrantType.EDIT) || types.contains(GrantType.ADMIN));
+  }
+
+  /**
+   * True if the user has an ADMIN grant for this uri
+   *
+   * @param uri
+   * @return
+   */
+  public boolean hasAdminGrant(String uri) {
+    final Set<GrantType> types = grants.get(uri);
+    return types != null && types.contains(GrantType.ADMIN);
+  }
+
+  /**
+   * True if the user itself (i.e. not via one of its groups) has this grant for the whole imeji
+   * instance
+   *
+   * @param type
+   * @return
+   */
+  public boolean hasOwnGlobalGrant(GrantType type) {
+    return ownGlobalGrants.contains(type);
+  }
+
+  /**
+   * All uris for which the user has a grant
+   *
+   * @return
+   */
+  public Set<String> getGrantedUris() {
+    return grants.keySet();
+  }
+
+  /**
+   * True if this has been compiled from the current grants and groups of the user, and has not been
+   * invalidated since
+   *
+   * @param user
+   * @return
+   */
+  private boolean isCompiledFrom(User user) {
+    return version == VERSION.get() && sourceGrants == user.getGrants() && sourceGroups == user.getGroups();
+  }
+
+  private static Grant add(Map<String, Set<GrantType>> map, String grantString) {
+    final Grant grant = new Grant(grantString);
+    if (grant.getGrantFor() == null) {
+      return null;
+    }
+    final Set<GrantType> types = map.computeIfAbsent(grant.getGrantFor(), uri -> EnumSet.noneOf(GrantType.class));
+    final GrantType type = toGrantType(grant);
+    if (type != null) {
+      types.add(type);
+    }
+    return grant;
+  }
+
+  private static GrantType toGrantType(Grant grant) {
+    try {
+      return grant.asGrantType();
+    } catch (final IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
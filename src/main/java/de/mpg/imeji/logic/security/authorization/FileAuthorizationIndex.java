@@ -0,0 +1,352 @@
+package de.mpg.imeji.logic.security.authorization;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.model.ContentVO;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.search.jenasearch.ImejiSPARQL;
+import de.mpg.imeji.logic.search.jenasearch.JenaCustomQueries;
+import de.mpg.imeji.logic.util.StringHelper;
+
+/**
+ * In memory index of the files stored in imeji: for each file url (original, full, preview,
+ * thumbnail), the {@link Item} owning the file, with its collection and its status. Used to check
+ * the {@link Authorization} to read a file without any database request.<br/>
+ * The index is built at startup and updated by every write operation on {@link Item} and
+ * {@link ContentVO}. Deleting an {@link Item} removes its files too.
+ *
+ * @author saquet
+ *
+ */
+public class FileAuthorizationIndex {
+  private static final Logger LOGGER = LogManager.getLogger(FileAuthorizationIndex.class);
+  /**
+   * key: the url of a file, value: the uri of the item of the file
+   */
+  private static final Map<String, String> FILES = new ConcurrentHashMap<>();
+  /**
+   * key: the uri of an item, value: the urls of the files of the item
+   */
+  private static final Map<String, Set<String>> ITEM_FILES = new ConcurrentHashMap<>();
+  /**
+   * key: the uri of an item, value: the owner of the files of the item
+   */
+  private static final Map<String, FileOwner> OWNERS = new ConcurrentHashMap<>();
+  /**
+   * Items and files removed while the index is loaded, null if no load is running
+   */
+  private static volatile Set<String> itemsRemovedDuringInit = null;
+  private static volatile Set<String> filesRemovedDuringInit = null;
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+
+  private FileAuthorizationIndex() {
+    // private constructor
+  }
+
+  /**
+   * Read the rows of the load
+   */
+  @FunctionalInterface
+  public interface Rows {
+    void read(Consumer<String> consumer);
+  }
+
+  /**
+   * The owner of a file: the item of the file, its collection and its status
+   *
+   * @author saquet
+   *
+   */
+  public static class FileOwner {
+    private final URI item;
+    private final URI collection;
+    private final Status status;
+
+    public FileOwner(URI item, URI collection, Status status) {
+      this.item = item;
+      this.collection = collection;
+      this.status = status;
+    }
+
+    /**
+     * Return a lazy {@link Item} with only the fields needed by the {@link Authorization}
+     *
+     * @return
+     */
+    public Item toItem() {
+      final Item i = new Item();
+      i.setId(item);
+      i.setCollection(collection);
+      i.setStatus(status);
+      return i;
+    }
+
+    public URI getItem() {
+      return item;
+    }
+
+    public URI getCollection() {
+      return collection;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+  }
+
+  /**
+   * Load the complete index from the database. Entries written in the meantime by write operations
+   * are newer and therefore not overwritten, and entries removed in the meantime are removed again
+   * once the index is loaded
+   */
+  public static void init() {
+    init(consumer -> ImejiSPARQL.exec(JenaCustomQueries.selectAllItemsWithCollectionAndStatus(), Imeji.imageModel).forEach(consumer),
+        consumer -> ImejiSPARQL.exec(JenaCustomQueries.selectAllFileUrlsWithItem(), Imeji.contentModel).forEach(consumer));
+  }
+
+  /**
+   * Load the complete index from rows formatted as the results of
+   * {@link JenaCustomQueries#selectAllItemsWithCollectionAndStatus()} and
+   * {@link JenaCustomQueries#selectAllFileUrlsWithItem()}
+   *
+   * @param items
+   * @param files
+   */
+  public static synchronized void init(Rows items, Rows files) {
+    final long start = System.currentTimeMillis();
+    itemsRemovedDuringInit = ConcurrentHashMap.newKeySet();
+    filesRemovedDuringInit = ConcurrentHashMap.newKeySet();
+    try {
+      load(items, files);
+      itemsRemovedDuringInit.forEach(OWNERS::remove);
+      // The files of these items might have been loaded after the items were removed
+      itemsRemovedDuringInit.forEach(FileAuthorizationIndex::removeFilesOf);
+      filesRemovedDuringInit.forEach(FileAuthorizationIndex::removeFromFiles);
+    } finally {
+      itemsRemovedDuringInit = null;
+      filesRemovedDuringInit = null;
+    }
+    LOGGER.info("File authorization index initialized with " + FILES.size() + " files of " + OWNERS.size() + " items in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  private static void load(Rows items, Rows files) {
+    FILES.clear();
+    ITEM_FILES.clear();
+    OWNERS.clear();
+    items.read(s -> {
+      final String[] parts = s.split("\\|");
+      if (parts.length == 3) {
+        OWNERS.putIfAbsent(parts[0], new FileOwner(URI.create(parts[0]), URI.create(parts[1]), toStatus(parts[2])));
+      }
+    });
+    files.read(s -> {
+      final int separator = s.lastIndexOf('|');
+      if (separator > 0) {
+        final String fileUrl = s.substring(0, separator);
+        final String itemUri = s.substring(separator + 1);
+        if (FILES.putIfAbsent(fileUrl, itemUri) == null) {
+          addToItemFiles(itemUri, fileUrl);
+        }
+      }
+    });
+  }
+
+  /**
+   * Return the {@link FileOwner} of the file, or null if the file is not indexed
+   *
+   * @param fileUrl
+   * @return
+   */
+  public static FileOwner getOwner(String fileUrl) {
+    final String itemUri = fileUrl != null ? FILES.get(fileUrl) : null;
+    final FileOwner owner = itemUri != null ? OWNERS.get(itemUri) : null;
+    if (owner != null) {
+      HITS.incrementAndGet();
+    } else {
+      MISSES.incrementAndGet();
+    }
+    return owner;
+  }
+
+  /**
+   * Add a file to the index for an {@link Item} found in the database
+   *
+   * @param fileUrl
+   * @param item
+   */
+  public static void add(String fileUrl, Item item) {
+    if (fileUrl != null && item != null && item.getId() != null && item.getCollection() != null) {
+      addFile(fileUrl, item.getId().toString());
+      indexItem(item);
+    }
+  }
+
+  /**
+   * Update the index with objects which have been written in the database. Only {@link Item} and
+   * {@link ContentVO} are relevant, other objects are ignored
+   *
+   * @param objects
+   */
+  public static void index(List<Object> objects) {
+    for (final Object o : objects) {
+      if (o instanceof Item) {
+        indexItem((Item) o);
+      } else if (o instanceof ContentVO) {
+        indexContent((ContentVO) o);
+      }
+    }
+  }
+
+  /**
+   * Remove from the index objects which have been deleted from the database
+   *
+   * @param objects
+   */
+  public static void remove(List<Object> objects) {
+    for (final Object o : objects) {
+      if (o instanceof Item && ((Item) o).getId() != null) {
+        removeItem(((Item) o).getId().toString());
+      } else if (o instanceof ContentVO) {
+        final ContentVO content = (ContentVO) o;
+        removeFile(content.getOriginal());
+        removeFile(content.getFull());
+        removeFile(content.getPreview());
+        removeFile(content.getThumbnail());
+      }
+    }
+  }
+
+  private static void indexItem(Item item) {
+    if (item.getId() != null && item.getCollection() != null) {
+      final String itemUri = item.getId().toString();
+      OWNERS.put(itemUri, new FileOwner(item.getId(), item.getCollection(), item.getStatus()));
+      final Set<String> removed = itemsRemovedDuringInit;
+      if (removed != null) {
+        removed.remove(itemUri);
+      }
+    }
+  }
+
+  private static void removeItem(String itemUri) {
+    final Set<String> removed = itemsRemovedDuringInit;
+    if (removed != null) {
+      removed.add(itemUri);
+    }
+    OWNERS.remove(itemUri);
+    removeFilesOf(itemUri);
+  }
+
+  /**
+   * Remove all files of the item
+   *
+   * @param itemUri
+   */
+  private static void removeFilesOf(String itemUri) {
+    final Set<String> files = ITEM_FILES.remove(itemUri);
+    if (files != null) {
+      for (final String fileUrl : files) {
+        // Not removed if the file has been moved to another item in the meantime
+        FILES.remove(fileUrl, itemUri);
+      }
+    }
+  }
+
+  private static void indexContent(ContentVO content) {
+    if (!StringHelper.isNullOrEmptyTrim(content.getItemId())) {
+      addFile(content.getOriginal(), content.getItemId());
+      addFile(content.getFull(), content.getItemId());
+      addFile(content.getPreview(), content.getItemId());
+      addFile(content.getThumbnail(), content.getItemId());
+    }
+  }
+
+  private static void addFile(String fileUrl, String itemUri) {
+    if (!StringHelper.isNullOrEmptyTrim(fileUrl)) {
+      final String previous = FILES.put(fileUrl, itemUri);
+      if (previous != null && !previous.equals(itemUri)) {
+        removeFromItemFiles(previous, fileUrl);
+      }
+      addToItemFiles(itemUri, fileUrl);
+      final Set<String> removed = filesRemovedDuringInit;
+      if (removed != null) {
+        removed.remove(fileUrl);
+      }
+    }
+  }
+
+  private static void removeFile(String fileUrl) {
+    if (fileUrl != null) {
+      final Set<String> removed = filesRemovedDuringInit;
+      if (removed != null) {
+        removed.add(fileUrl);
+      }
+      removeFromFiles(fileUrl);
+    }
+  }
+
+  private static void removeFromFiles(String fileUrl) {
+    final String itemUri = FILES.remove(fileUrl);
+    if (itemUri != null) {
+      removeFromItemFiles(itemUri, fileUrl);
+    }
+  }
+
+  private static void addToItemFiles(String itemUri, String fileUrl) {
+    ITEM_FILES.compute(itemUri, (k, files) -> {
+      final Set<String> s = files != null ? files : ConcurrentHashMap.<String>newKeySet();
+      s.add(fileUrl);
+      return s;
+    });
+  }
+
+  private static void removeFromItemFiles(String itemUri, String fileUrl) {
+    ITEM_FILES.computeIfPresent(itemUri, (k, files) -> {
+      files.remove(fileUrl);
+      return files.isEmpty() ? null : files;
+    });
+  }
+
+  private static Status toStatus(String statusUri) {
+    return Status.valueOf(URI.create(statusUri).getFragment());
+  }
+
+  /**
+   * Number of files which have been found in the index
+   *
+   * @return
+   */
+  public static long getHits() {
+    return HITS.get();
+  }
+
+  /**
+   * Number of files which were not found in the index
+   *
+   * @return
+   */
+  public static long getMisses() {
+    return MISSES.get();
+  }
+
+  /**
+   * Number of files in the index
+   *
+   * @return
+   */
+  public static int size() {
+    return FILES.size();
+  }
+}
@@ -10,6 +10,7 @@ import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.Grant;
 import de.mpg.imeji.logic.model.User;
 import de.mpg.imeji.logic.security.authorization.Authorization;
+import de.mpg.imeji.logic.security.authorization.CompiledGrants;
 
 /**
  * Utility class for the package auth
@@ -38,8 +39,7 @@ public class SecurityUtil {
    * @return
    */
   public static List<String> getListOfAllowedCollections(User user) {
-    return authorization().toGrantList(authorization().getAllGrants(user)).stream().filter(g -> g.getGrantFor().contains("/collection/"))
-        .map(Grant::getGrantFor).collect(Collectors.toList());
+    return CompiledGrants.of(user).getGrantedUris().stream().filter(uri -> uri.contains("/collection/")).collect(Collectors.toList());
   }
 
   /**
@@ -1,7 +1,12 @@
 package de.mpg.imeji.logic.security.sharing.invitation;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
+
 /**
  * An invitation sent by a user to another user for a Object with some roles. Invitation ids follow
  * the pattern: invitation:{inviteeEmail}:{objectUri}
@@ -31,6 +36,30 @@ public final class Invitation implements Serializable {
     this.id = inviteeEmail + ":" + objectUri;
   }
 
+  /**
+   * Write the invitation for the {@link BinaryCodec}
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void write(DataOutput out) throws IOException {
+    BinaryCodec.writeString(out, inviteeEmail);
+    BinaryCodec.writeString(out, objectUri);
+    BinaryCodec.writeString(out, role);
+  }
+
+  /**
+   * Read an invitation written by {@link #write(DataOutput)}
+   *
+   * @param in
+   * @param version
+   * @return
+   * @throws IOException
+   */
+  public static Invitation read(DataInput in, int version) throws IOException {
+    return new Invitation(BinaryCodec.readString(in), BinaryCodec.readString(in), BinaryCodec.readString(in));
+  }
+
   /**
    * @return the invitee
    */
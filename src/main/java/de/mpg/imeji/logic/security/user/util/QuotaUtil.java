@@ -20,6 +20,7 @@ import de.mpg.imeji.logic.search.Search;
 import de.mpg.imeji.logic.search.factory.SearchFactory;
 import de.mpg.imeji.logic.search.jenasearch.JenaCustomQueries;
 import de.mpg.imeji.logic.security.user.UserService;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters;
 
 /**
  * Utility Class for imeji Quota
@@ -124,6 +125,10 @@ public class QuotaUtil {
    * @return
    */
   public static long getUsedQuota(User user) {
+    final Long used = StorageUsageCounters.getUsedByUser(user.getId());
+    if (used != null) {
+      return used;
+    }
     final Search search = SearchFactory.create(); // default: Jena
     final List<String> results = search.searchString(JenaCustomQueries.selectUserFileSize(user.getId().toString()), null, null,
         Search.SEARCH_FROM_START_INDEX, Search.GET_ALL_RESULTS).getResults();
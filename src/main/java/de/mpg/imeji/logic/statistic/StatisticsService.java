@@ -40,10 +40,13 @@ public class StatisticsService {
    * @return
    */
   public long getUsedStorageSizeForInstitute(String instituteName) {
+    final Long used = StorageUsageCounters.getUsedByInstitute(instituteName);
+    if (used != null) {
+      return used;
+    }
     final Search s = new JenaSearch(SearchObjectTypes.ALL, null);
     final List<String> result = s.searchString(JenaCustomQueries.selectInstituteFileSize(instituteName), null, null,
         Search.SEARCH_FROM_START_INDEX, Search.GET_ALL_RESULTS).getResults();
-    LOGGER.info(result);
     if (result.size() == 1 && result.get(0) != null) {
       final String size = result.get(0).replace("^^xsd:integer", "").replace("\"","");
       return Long.parseLong(size);
@@ -52,6 +55,10 @@ public class StatisticsService {
   }
 
   public long getAllFileSize() {
+    final Long used = StorageUsageCounters.getUsedByAll();
+    if (used != null) {
+      return used;
+    }
     final Search s = new JenaSearch(SearchObjectTypes.ALL, null);
     final List<String> result =
         s.searchString(JenaCustomQueries.selectFileSizeForAll(), null, null, Search.SEARCH_FROM_START_INDEX, Search.GET_ALL_RESULTS)
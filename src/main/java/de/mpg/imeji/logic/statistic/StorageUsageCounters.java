@@ -0,0 +1,376 @@
+package de.mpg.imeji.logic.statistic;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.model.CollectionImeji;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.search.jenasearch.ImejiSPARQL;
+import de.mpg.imeji.logic.search.jenasearch.JenaCustomQueries;
+
+/**
+ * Counters of the storage used by each user (size of the files of the {@link Item} created by the
+ * user), by each institute (size of the files in the {@link CollectionImeji} created by users of
+ * the institute) and by all files. Withdrawn {@link Item} are not counted.<br/>
+ * The counters are kept per user and per collection only, built from the database at startup and
+ * rebuilt every night by the StorageUsageAnalyseJob. In between, every write operation on
+ * {@link Item} is applied as a delta: the size of created items is added, the size of deleted items
+ * is subtracted, and an update subtracts the usage the items had before the write and adds the one
+ * they have after it (a moved item is moved to its new collection, a withdrawn item is subtracted).
+ * Until the first build is done, the counters are not available and the usage must be read from
+ * the database. A write running exactly when a build starts might be counted twice or not at all,
+ * until the next build.
+ *
+ * @author saquet
+ *
+ */
+public class StorageUsageCounters {
+  private static final Logger LOGGER = LogManager.getLogger(StorageUsageCounters.class);
+  /**
+   * key: the uri of a collection, value: the institute of its creator
+   */
+  private static final Map<String, String> COLLECTION_INSTITUTES = new ConcurrentHashMap<>();
+  private static Map<String, Long> users = new HashMap<>();
+  private static Map<String, Long> collections = new HashMap<>();
+  private static long total = 0;
+  private static boolean built = false;
+  /**
+   * The deltas applied while the counters are built, null if no build is running
+   */
+  private static List<Delta> deltasDuringBuild = null;
+  private static final Object BUILD_LOCK = new Object();
+
+  /**
+   * The storage used by one {@link Item}
+   *
+   * @author saquet
+   *
+   */
+  public static final class Usage {
+    private final String user;
+    private final String collection;
+    private final long size;
+
+    public Usage(String user, String collection, long size) {
+      this.user = user;
+      this.collection = collection;
+      this.size = size;
+    }
+  }
+
+  /**
+   * A {@link Usage} added (sign 1) or subtracted (sign -1)
+   */
+  private static final class Delta {
+    private final Usage usage;
+    private final long sign;
+
+    private Delta(Usage usage, long sign) {
+      this.usage = usage;
+      this.sign = sign;
+    }
+  }
+
+  /**
+   * Read the rows of the build
+   */
+  @FunctionalInterface
+  public interface UsageRows {
+    /**
+     * Pass each row, formatted creatorUri|collectionUri|fileSize, to the consumer
+     *
+     * @param consumer
+     * @throws ImejiException
+     */
+    void read(Consumer<String> consumer) throws ImejiException;
+  }
+
+  private StorageUsageCounters() {
+    // private constructor
+  }
+
+  /**
+   * Build the counters from the database. Writes done in the meantime are applied on top of the
+   * built counters
+   */
+  public static void build() {
+    synchronized (BUILD_LOCK) {
+      try {
+        COLLECTION_INSTITUTES.clear();
+        ImejiSPARQL.exec(JenaCustomQueries.selectAllCollectionsWithCreatorEmail(), null, s -> {
+          final String[] parts = s.split("\\|");
+          if (parts.length == 2) {
+            COLLECTION_INSTITUTES.put(parts[0], getInstitute(parts[1]));
+          }
+        });
+      } catch (final ImejiException e) {
+        LOGGER.error("Error reading the institutes of the collections", e);
+      }
+      build(consumer -> ImejiSPARQL.exec(JenaCustomQueries.selectFileSizeByCreatorAndCollection(), Imeji.imageModel, consumer));
+    }
+  }
+
+  /**
+   * Build the counters from rows formatted as the results of
+   * {@link JenaCustomQueries#selectFileSizeByCreatorAndCollection()}
+   *
+   * @param rows
+   */
+  public static void build(UsageRows rows) {
+    synchronized (BUILD_LOCK) {
+      final long start = System.currentTimeMillis();
+      synchronized (StorageUsageCounters.class) {
+        deltasDuringBuild = new ArrayList<>();
+      }
+      try {
+        final Map<String, Long> builtUsers = new HashMap<>();
+        final Map<String, Long> builtCollections = new HashMap<>();
+        rows.read(s -> {
+          final String[] parts = s.split("\\|");
+          if (parts.length == 3) {
+            final long size = parseSize(parts[2]);
+            builtUsers.merge(parts[0], size, Long::sum);
+            builtCollections.merge(parts[1], size, Long::sum);
+          }
+        });
+        synchronized (StorageUsageCounters.class) {
+          users = builtUsers;
+          collections = builtCollections;
+          total = builtCollections.values().stream().mapToLong(Long::longValue).sum();
+          // Writes done during the build might not have been read by the build
+          deltasDuringBuild.forEach(d -> add(d.usage, d.sign));
+          built = true;
+        }
+        LOGGER.info("Storage usage counters built for " + builtUsers.size() + " users and " + builtCollections.size()
+            + " collections in " + (System.currentTimeMillis() - start) + " ms");
+      } catch (final ImejiException e) {
+        LOGGER.error("Error building the storage usage counters", e);
+      } finally {
+        synchronized (StorageUsageCounters.class) {
+          deltasDuringBuild = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Add to the counters the {@link Item} which have been created in the database. Other objects are
+   * ignored
+   *
+   * @param objects
+   */
+  public static void index(List<Object> objects) {
+    for (final Object o : objects) {
+      apply(usageOf(o), 1);
+    }
+  }
+
+  /**
+   * Subtract from the counters the {@link Item} which have been deleted from the database
+   *
+   * @param objects
+   */
+  public static void remove(List<Object> objects) {
+    for (final Object o : objects) {
+      apply(usageOf(o), -1);
+    }
+  }
+
+  /**
+   * Replace in the counters the usage the {@link Item} had before an update with the usage of the
+   * updated {@link Item}
+   *
+   * @param previous the usage before the update, as returned by {@link #usagesOf(List)}
+   * @param objects the updated objects
+   */
+  public static void update(Map<String, Usage> previous, List<Object> objects) {
+    for (final Usage usage : previous.values()) {
+      apply(usage, -1);
+    }
+    index(objects);
+  }
+
+  /**
+   * Read from the database the usage of the {@link Item} of the list, to be passed to
+   * {@link #update(Map, List)} after they have been updated. Withdrawn items have no usage
+   *
+   * @param objects
+   * @return key: the uri of the item
+   */
+  public static Map<String, Usage> usagesOf(List<Object> objects) {
+    final List<String> uris = new ArrayList<>();
+    for (final Object o : objects) {
+      if (o instanceof Item && ((Item) o).getId() != null) {
+        uris.add(((Item) o).getId().toString());
+      }
+    }
+    if (uris.isEmpty() || !isCounting()) {
+      return Collections.emptyMap();
+    }
+    final Map<String, Usage> usages = new HashMap<>();
+    try {
+      ImejiSPARQL.exec(JenaCustomQueries.selectFileSizeOfItems(uris), Imeji.imageModel, s -> {
+        final String[] parts = s.split("\\|");
+        if (parts.length == 4) {
+          usages.put(parts[0], new Usage(parts[1], parts[2], parseSize(parts[3])));
+        }
+      });
+    } catch (final ImejiException e) {
+      LOGGER.error("Error reading the storage used by the updated items", e);
+    }
+    return usages;
+  }
+
+  /**
+   * The usage of an object, null if it is not an {@link Item} counted by the counters
+   *
+   * @param o
+   * @return
+   */
+  private static Usage usageOf(Object o) {
+    if (!(o instanceof Item)) {
+      return null;
+    }
+    final Item item = (Item) o;
+    if (item.getStatus() == Status.WITHDRAWN || item.getCreatedBy() == null || item.getCollection() == null) {
+      return null;
+    }
+    return new Usage(item.getCreatedBy().toString(), item.getCollection().toString(), item.getFileSize());
+  }
+
+  private static synchronized void apply(Usage usage, long sign) {
+    if (usage == null) {
+      return;
+    }
+    if (deltasDuringBuild != null) {
+      deltasDuringBuild.add(new Delta(usage, sign));
+    }
+    if (built) {
+      add(usage, sign);
+    }
+  }
+
+  private static void add(Usage usage, long sign) {
+    final long size = sign * usage.size;
+    users.merge(usage.user, size, StorageUsageCounters::sum);
+    collections.merge(usage.collection, size, StorageUsageCounters::sum);
+    total += size;
+  }
+
+  /**
+   * Sum two counters, or null to remove a counter which is back to 0
+   */
+  private static Long sum(Long a, Long b) {
+    final long sum = a + b;
+    return sum == 0 ? null : sum;
+  }
+
+  /**
+   * True if the counters are built or being built
+   *
+   * @return
+   */
+  private static synchronized boolean isCounting() {
+    return built || deltasDuringBuild != null;
+  }
+
+  /**
+   * The storage used by the user, or null if the counters are not built yet
+   *
+   * @param user
+   * @return
+   */
+  public static synchronized Long getUsedByUser(URI user) {
+    return built ? users.getOrDefault(user.toString(), 0L) : null;
+  }
+
+  /**
+   * The storage used by the collection (without its subcollections), or null if the counters are
+   * not built yet
+   *
+   * @param collection
+   * @return
+   */
+  public static synchronized Long getUsedByCollection(URI collection) {
+    return built ? collections.getOrDefault(collection.toString(), 0L) : null;
+  }
+
+  /**
+   * The storage used by the institute, or null if the counters are not built yet
+   *
+   * @param institute
+   * @return
+   */
+  public static Long getUsedByInstitute(String institute) {
+    final Map<String, Long> used;
+    synchronized (StorageUsageCounters.class) {
+      if (!built) {
+        return null;
+      }
+      used = new HashMap<>(collections);
+    }
+    long sum = 0;
+    for (final Map.Entry<String, Long> e : used.entrySet()) {
+      if (institute.equals(getCollectionInstitute(e.getKey()))) {
+        sum += e.getValue();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * The storage used by all files, or null if the counters are not built yet
+   *
+   * @return
+   */
+  public static synchronized Long getUsedByAll() {
+    return built ? total : null;
+  }
+
+  public static synchronized boolean isBuilt() {
+    return built;
+  }
+
+  /**
+   * The institute of the creator of the collection
+   *
+   * @param collectionUri
+   * @return
+   */
+  private static String getCollectionInstitute(String collectionUri) {
+    return COLLECTION_INSTITUTES.computeIfAbsent(collectionUri, uri -> {
+      final List<String> emails = ImejiSPARQL.exec(JenaCustomQueries.selectCollectionCreatorEmail(uri), null);
+      return emails.isEmpty() ? "" : getInstitute(emails.get(0));
+    });
+  }
+
+  /**
+   * The institute of an email, as defined by {@link JenaCustomQueries#selectAllInstitutes()}
+   *
+   * @param email
+   * @return
+   */
+  private static String getInstitute(String email) {
+    return email.replaceFirst("(.)+@", "").replace(" ", "");
+  }
+
+  private static long parseSize(String size) {
+    try {
+      return Long.parseLong(size.replace("^^xsd:integer", "").replace("\"", "").trim());
+    } catch (final NumberFormatException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,564 @@
+package de.mpg.imeji.logic.storage.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.NotFoundException;
+import de.mpg.imeji.exceptions.UnprocessableError;
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.config.util.PropertyReader;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.keyValue.stores.HTreeMapStore;
+
+/**
+ * Scheduler for the generation of the derivatives (full resolution, web resolution, thumbnail) of
+ * the files of the internal storage.<br/>
+ * Tasks are scheduled in {@link Lane}s: a worker always takes the next task of the lane with the
+ * highest priority, so that single uploads don't wait behind a batch upload or a maintenance job.
+ * Every task is persisted in a key/value store until it is done. Only a bounded number of tasks per
+ * lane is kept in memory, the others stay in the store and are loaded when the lane has been
+ * processed. Pending tasks are resumed after a restart.<br/>
+ * The backlog of each lane (tasks waiting or running) is bounded by imeji.derivatives.max_backlog.
+ * When a lane is full, new tasks are rejected with an {@link UnprocessableError}: the upload fails
+ * and must be done again later, and the maintenance jobs wait for the lane with
+ * {@link #awaitCapacity(Lane)}.
+ *
+ * @author saquet
+ *
+ */
+public class DerivativeScheduler {
+  private static final Logger LOGGER = LogManager.getLogger(DerivativeScheduler.class);
+  /**
+   * Maximum number of tasks of one lane kept in memory
+   */
+  private static final int LANE_CAPACITY = 1000;
+  private static DerivativeScheduler instance;
+  private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+  private final KeyValueStoreService store;
+  private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+  private final List<Future<?>> workers = new ArrayList<>();
+  private final int concurrency;
+  private final int maxBacklog;
+  private final Generator generator;
+  private volatile boolean running = false;
+
+  /**
+   * The lanes of the scheduler, ordered by priority
+   *
+   * @author saquet
+   *
+   */
+  public enum Lane {
+    /**
+     * Files uploaded by a user in the GUI
+     */
+    INTERACTIVE,
+    /**
+     * Files uploaded via the REST API
+     */
+    BATCH,
+    /**
+     * Administration jobs on all files
+     */
+    MAINTENANCE;
+  }
+
+  /**
+   * Generate the derivatives of a task
+   */
+  @FunctionalInterface
+  public interface Generator {
+    void generate(DerivativeTask task) throws Exception;
+  }
+
+  private DerivativeScheduler() {
+    // Leave one processor for the requests, the generation being cpu intensive
+    this(new KeyValueStoreService(new HTreeMapStore("derivativeQueue")), Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+        PropertyReader.getIntProperty("imeji.derivatives.max_backlog", 100000), DerivativeTask::run);
+  }
+
+  /**
+   * Scheduler persisting its tasks in the store, and running them with the generator. Pending
+   * tasks of the store are resumed
+   *
+   * @param store
+   * @param concurrency number of workers
+   * @param maxBacklog maximum number of tasks waiting or running per lane
+   * @param generator
+   */
+  public DerivativeScheduler(KeyValueStoreService store, int concurrency, int maxBacklog, Generator generator) {
+    this.store = store;
+    this.concurrency = concurrency;
+    this.maxBacklog = maxBacklog;
+    this.generator = generator;
+    for (final Lane lane : Lane.values()) {
+      lanes.put(lane, new LaneQueue(lane));
+    }
+    // Before any task can be scheduled
+    resume();
+  }
+
+  /**
+   * Return the scheduler
+   *
+   * @return
+   */
+  public static synchronized DerivativeScheduler getInstance() {
+    if (instance == null) {
+      instance = new DerivativeScheduler();
+    }
+    return instance;
+  }
+
+  /**
+   * Set the {@link Lane} of the tasks scheduled by the current thread with
+   * {@link #schedule(DerivativeTask)}. Must be reset with {@link #resetCurrentLane()}
+   *
+   * @param lane
+   */
+  public static void setCurrentLane(Lane lane) {
+    CURRENT_LANE.set(lane);
+  }
+
+  /**
+   * Reset the {@link Lane} of the current thread to the default one
+   */
+  public static void resetCurrentLane() {
+    CURRENT_LANE.remove();
+  }
+
+  /**
+   * Start the workers, in the {@link ExecutorRegistry#DERIVATIVE} pool
+   */
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    for (int i = 0; i < concurrency; i++) {
+      workers.add(ExecutorRegistry.get(ExecutorRegistry.DERIVATIVE).submit(this::work));
+    }
+    LOGGER.info("Derivative scheduler started with " + concurrency + " workers");
+  }
+
+  /**
+   * Stop the workers. Pending tasks remain in the store
+   */
+  public synchronized void shutdown() {
+    running = false;
+    workers.forEach(worker -> worker.cancel(true));
+    workers.clear();
+    notifyAll();
+  }
+
+  /**
+   * True if the workers are running
+   *
+   * @return
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * True if no task is waiting or running
+   *
+   * @return
+   */
+  public synchronized boolean isIdle() {
+    for (final LaneQueue queue : lanes.values()) {
+      if (!queue.tasks.isEmpty() || queue.loaded < queue.tail || queue.running.get() > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Schedule a task in the {@link Lane} of the current thread (default: {@link Lane#INTERACTIVE})
+   *
+   * @param task
+   * @throws UnprocessableError if the lane is full
+   */
+  public void schedule(DerivativeTask task) throws UnprocessableError {
+    final Lane lane = CURRENT_LANE.get();
+    schedule(task, lane != null ? lane : Lane.INTERACTIVE);
+  }
+
+  /**
+   * Schedule a task in a {@link Lane}. The task is persisted without holding the scheduler, so that
+   * the workers are not blocked by the write. The tasks of one lane are persisted one after the
+   * other, in the order of their sequence
+   *
+   * @param task
+   * @param lane
+   * @throws UnprocessableError if the lane is full
+   */
+  public void schedule(DerivativeTask task, Lane lane) throws UnprocessableError {
+    final LaneQueue queue = lanes.get(lane);
+    synchronized (queue) {
+      // Only the workers change the backlog in the meantime, and they only reduce it
+      synchronized (this) {
+        if (backlog(queue) >= maxBacklog) {
+          queue.rejected.incrementAndGet();
+          LOGGER.warn("Derivative task for " + task.getOriginalUrl() + " rejected: " + maxBacklog + " tasks are already waiting in lane "
+              + lane);
+          throw new UnprocessableError("Too many files are waiting for the generation of their thumbnails, please try again later");
+        }
+      }
+      task.setLane(lane);
+      task.setSequence(queue.next++);
+      task.setScheduled(System.currentTimeMillis());
+      boolean persisted = true;
+      try {
+        store.put(key(lane, task.getSequence()), task);
+      } catch (final ImejiException e) {
+        LOGGER.error("Error persisting derivative task for " + task.getOriginalUrl(), e);
+        persisted = false;
+      }
+      synchronized (this) {
+        if (!persisted || (queue.loaded == queue.tail && queue.tasks.size() < LANE_CAPACITY)) {
+          // Keep the task in memory, otherwise it will be loaded from the store
+          queue.tasks.add(task);
+          if (queue.loaded == queue.tail) {
+            queue.loaded++;
+          }
+        }
+        queue.tail++;
+        queue.scheduled.incrementAndGet();
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Wait until a task can be scheduled in the lane
+   *
+   * @param lane
+   * @throws InterruptedException
+   */
+  public synchronized void awaitCapacity(Lane lane) throws InterruptedException {
+    while (backlog(lanes.get(lane)) >= maxBacklog) {
+      if (!running) {
+        throw new InterruptedException("Derivative scheduler stopped");
+      }
+      wait();
+    }
+  }
+
+  /**
+   * Number of tasks of the lane waiting (in memory or in the store) or running. Guarded by the
+   * scheduler
+   *
+   * @param queue
+   * @return
+   */
+  private long backlog(LaneQueue queue) {
+    return queue.tail - queue.loaded + queue.tasks.size() + queue.running.get();
+  }
+
+  /**
+   * Loop of a worker: take the next task with the highest priority and run it
+   */
+  private void work() {
+    while (running) {
+      final DerivativeTask task;
+      try {
+        task = take();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      final LaneQueue queue = lanes.get(task.getLane());
+      final long start = System.currentTimeMillis();
+      queue.addWait(start - task.getScheduled());
+      boolean done = false;
+      try {
+        generator.generate(task);
+        queue.completed.incrementAndGet();
+        done = true;
+      } catch (final Exception e) {
+        if (running) {
+          queue.failed.incrementAndGet();
+          LOGGER.error("Error generating derivatives (" + task.getType() + ") of " + task.getOriginalUrl(), e);
+          done = true;
+        }
+        // else: interrupted by the shutdown, the task will be resumed at the next start
+      } finally {
+        queue.runTime.addAndGet(System.currentTimeMillis() - start);
+        if (done) {
+          remove(task);
+        }
+        finished(queue);
+      }
+    }
+  }
+
+  /**
+   * A task of the lane is not running anymore: the lane has room for a new task
+   *
+   * @param queue
+   */
+  private synchronized void finished(LaneQueue queue) {
+    queue.running.decrementAndGet();
+    notifyAll();
+  }
+
+  /**
+   * Wait for the next task, taking the lanes by priority
+   *
+   * @return
+   * @throws InterruptedException
+   */
+  private synchronized DerivativeTask take() throws InterruptedException {
+    while (true) {
+      for (final Lane lane : Lane.values()) {
+        final LaneQueue queue = lanes.get(lane);
+        if (queue.tasks.isEmpty()) {
+          load(queue);
+        }
+        final DerivativeTask task = queue.tasks.poll();
+        if (task != null) {
+          queue.running.incrementAndGet();
+          return task;
+        }
+      }
+      if (!running) {
+        throw new InterruptedException("Derivative scheduler stopped");
+      }
+      wait();
+    }
+  }
+
+  /**
+   * Load the next tasks of the lane from the store
+   *
+   * @param queue
+   */
+  private void load(LaneQueue queue) {
+    while (queue.tasks.size() < LANE_CAPACITY && queue.loaded < queue.tail) {
+      try {
+        queue.tasks.add((DerivativeTask) store.get(key(queue.lane, queue.loaded)));
+      } catch (final NotFoundException e) {
+        // Already done
+      }
+      queue.loaded++;
+    }
+  }
+
+  /**
+   * Remove a task from the store once it is done
+   *
+   * @param task
+   */
+  private void remove(DerivativeTask task) {
+    try {
+      store.delete(key(task.getLane(), task.getSequence()));
+    } catch (final ImejiException e) {
+      LOGGER.error("Error removing derivative task for " + task.getOriginalUrl(), e);
+    }
+  }
+
+  /**
+   * Initialize the lanes with the tasks which were pending in the store. Only the keys are read: the
+   * tasks are loaded from the store page by page by the workers (see {@link #load(LaneQueue)})
+   */
+  private void resume() {
+    int pending = 0;
+    final Set<Lane> initialized = EnumSet.noneOf(Lane.class);
+    for (final String key : store.getKeys()) {
+      final int separator = key.lastIndexOf(':');
+      final LaneQueue queue;
+      final long sequence;
+      try {
+        queue = lanes.get(Lane.valueOf(key.substring(0, separator)));
+        sequence = Long.parseLong(key.substring(separator + 1));
+      } catch (final RuntimeException e) {
+        LOGGER.error("Invalid derivative task key " + key + ", ignored");
+        continue;
+      }
+      if (initialized.add(queue.lane)) {
+        queue.loaded = sequence;
+        queue.tail = sequence + 1;
+      } else {
+        queue.loaded = Math.min(queue.loaded, sequence);
+        queue.tail = Math.max(queue.tail, sequence + 1);
+      }
+      queue.next = queue.tail;
+      queue.scheduled.incrementAndGet();
+      pending++;
+    }
+    if (pending > 0) {
+      LOGGER.info("Resuming " + pending + " pending derivative tasks");
+    }
+  }
+
+  private static String key(Lane lane, long sequence) {
+    return lane.name() + ":" + sequence;
+  }
+
+  /**
+   * The metrics of all lanes, ordered by priority
+   *
+   * @return
+   */
+  public List<LaneMetrics> getMetrics() {
+    final List<LaneMetrics> metrics = new ArrayList<>();
+    synchronized (this) {
+      for (final Lane lane : Lane.values()) {
+        final LaneQueue queue = lanes.get(lane);
+        metrics.add(new LaneMetrics(lane, queue.tail - queue.loaded + queue.tasks.size(), queue));
+      }
+    }
+    return Collections.unmodifiableList(metrics);
+  }
+
+  /**
+   * Number of workers generating derivatives
+   *
+   * @return
+   */
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  /**
+   * The tasks of one lane. Guarded by the scheduler
+   *
+   * @author saquet
+   *
+   */
+  private static class LaneQueue {
+    private final Lane lane;
+    // Tasks in memory
+    private final ArrayDeque<DerivativeTask> tasks = new ArrayDeque<>();
+    // Sequence of the next task to schedule. Guarded by the lane queue
+    private long next = 0;
+    // Sequence following the last scheduled task
+    private long tail = 0;
+    // Sequence of the next task to load from the store
+    private long loaded = 0;
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+    private final AtomicLong runTime = new AtomicLong();
+
+    private LaneQueue(Lane lane) {
+      this.lane = lane;
+    }
+
+    private void addWait(long wait) {
+      waitTime.addAndGet(wait);
+      maxWait.accumulateAndGet(wait, Math::max);
+    }
+  }
+
+  /**
+   * Snapshot of the metrics of a {@link Lane}
+   *
+   * @author saquet
+   *
+   */
+  public static class LaneMetrics {
+    private final Lane lane;
+    private final long queued;
+    private final long running;
+    private final long scheduled;
+    private final long completed;
+    private final long failed;
+    private final long rejected;
+    private final long averageWaitMs;
+    private final long maxWaitMs;
+    private final long averageRunMs;
+
+    private LaneMetrics(Lane lane, long queued, LaneQueue queue) {
+      this.lane = lane;
+      this.queued = queued;
+      this.running = queue.running.get();
+      this.scheduled = queue.scheduled.get();
+      this.completed = queue.completed.get();
+      this.failed = queue.failed.get();
+      this.rejected = queue.rejected.get();
+      final long done = completed + failed;
+      this.averageWaitMs = done + running > 0 ? queue.waitTime.get() / (done + running) : 0;
+      this.maxWaitMs = queue.maxWait.get();
+      this.averageRunMs = done > 0 ? queue.runTime.get() / done : 0;
+    }
+
+    public Lane getLane() {
+      return lane;
+    }
+
+    /**
+     * Number of tasks waiting in the lane (in memory or in the store)
+     *
+     * @return
+     */
+    public long getQueued() {
+      return queued;
+    }
+
+    public long getRunning() {
+      return running;
+    }
+
+    public long getScheduled() {
+      return scheduled;
+    }
+
+    public long getCompleted() {
+      return completed;
+    }
+
+    public long getFailed() {
+      return failed;
+    }
+
+    /**
+     * Number of tasks rejected because the lane was full
+     *
+     * @return
+     */
+    public long getRejected() {
+      return rejected;
+    }
+
+    /**
+     * Average time between the scheduling of a task and its start
+     *
+     * @return
+     */
+    public long getAverageWaitMs() {
+      return averageWaitMs;
+    }
+
+    public long getMaxWaitMs() {
+      return maxWaitMs;
+    }
+
+    /**
+     * Average time to generate the derivatives of a file
+     *
+     * @return
+     */
+    public long getAverageRunMs() {
+      return averageRunMs;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package de.mpg.imeji.logic.storage.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
+import de.mpg.imeji.logic.storage.StorageController;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.Lane;
+
+/**
+ * Generation of the derivatives (full resolution, web resolution, thumbnail) of one file, as
+ * scheduled by the {@link DerivativeScheduler}. Serializable to be persisted in the backlog of the
+ * scheduler
+ *
+ * @author saquet
+ *
+ */
+public class DerivativeTask implements Serializable {
+  private static final long serialVersionUID = -2641908437095361093L;
+
+  /**
+   * The type of the generation
+   *
+   * @author saquet
+   *
+   */
+  public enum Type {
+    /**
+     * Generate full, web and thumbnail of a new file
+     */
+    GENERATE,
+    /**
+     * Generate again web and thumbnail from the existing full resolution
+     */
+    RECALCULATE,
+    /**
+     * Delete and generate again full, web and thumbnail from the original
+     */
+    REGENERATE;
+  }
+
+  private final Type type;
+  private final String originalUrl;
+  private final String fullUrl;
+  private final String webUrl;
+  private final String thumbnailUrl;
+  private final String originalPath;
+  private Lane lane;
+  private long sequence;
+  private long scheduled;
+
+  private DerivativeTask(Type type, String originalUrl, String fullUrl, String webUrl, String thumbnailUrl, String originalPath) {
+    this.type = type;
+    this.originalUrl = originalUrl;
+    this.fullUrl = fullUrl;
+    this.webUrl = webUrl;
+    this.thumbnailUrl = thumbnailUrl;
+    this.originalPath = originalPath;
+  }
+
+  /**
+   * Task to generate all derivatives of a new file of the internal storage
+   *
+   * @param item
+   * @param original the original file, already written in the storage
+   * @return
+   */
+  public static DerivativeTask generate(InternalStorageItem item, File original) {
+    return new DerivativeTask(Type.GENERATE, item.getOriginalUrl(), item.getFullUrl(), item.getWebUrl(), item.getThumbnailUrl(),
+        original.getAbsolutePath());
+  }
+
+  /**
+   * Task to generate again the web resolution and the thumbnail of a file
+   *
+   * @param originalUrl
+   * @return
+   */
+  public static DerivativeTask recalculate(String originalUrl) {
+    return new DerivativeTask(Type.RECALCULATE, originalUrl, null, null, null, null);
+  }
+
+  /**
+   * Task to delete and generate again all derivatives of a file
+   *
+   * @param originalUrl
+   * @return
+   */
+  public static DerivativeTask regenerate(String originalUrl) {
+    return new DerivativeTask(Type.REGENERATE, originalUrl, null, null, null, null);
+  }
+
+  /**
+   * Write the task for the {@link BinaryCodec}
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeUTF(type.name());
+    BinaryCodec.writeString(out, originalUrl);
+    BinaryCodec.writeString(out, fullUrl);
+    BinaryCodec.writeString(out, webUrl);
+    BinaryCodec.writeString(out, thumbnailUrl);
+    BinaryCodec.writeString(out, originalPath);
+    BinaryCodec.writeString(out, lane != null ? lane.name() : null);
+    out.writeLong(sequence);
+    out.writeLong(scheduled);
+  }
+
+  /**
+   * Read a task written by {@link #write(DataOutput)}
+   *
+   * @param in
+   * @param version
+   * @return
+   * @throws IOException
+   */
+  public static DerivativeTask read(DataInput in, int version) throws IOException {
+    final DerivativeTask task = new DerivativeTask(Type.valueOf(in.readUTF()), BinaryCodec.readString(in), BinaryCodec.readString(in),
+        BinaryCodec.readString(in), BinaryCodec.readString(in), BinaryCodec.readString(in));
+    final String lane = BinaryCodec.readString(in);
+    task.lane = lane != null ? Lane.valueOf(lane) : null;
+    task.sequence = in.readLong();
+    task.scheduled = in.readLong();
+    return task;
+  }
+
+  /**
+   * Run the task
+   *
+   * @throws Exception
+   */
+  public void run() throws Exception {
+    switch (type) {
+      case GENERATE:
+        new InternalStorageManager().generateThumbnailPreviewAndFull(toInternalStorageItem(), new File(originalPath));
+        break;
+      case RECALCULATE:
+        new StorageController().recalculateWebAndThumbnail(originalUrl);
+        break;
+      case REGENERATE:
+        new StorageController().reGenerateFullWebThumbnailImages(originalUrl);
+        break;
+    }
+  }
+
+  private InternalStorageItem toInternalStorageItem() {
+    final InternalStorageItem item = new InternalStorageItem();
+    item.setOriginalUrl(originalUrl);
+    item.setFullUrl(fullUrl);
+    item.setWebUrl(webUrl);
+    item.setThumbnailUrl(thumbnailUrl);
+    return item;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getOriginalUrl() {
+    return originalUrl;
+  }
+
+  public Lane getLane() {
+    return lane;
+  }
+
+  void setLane(Lane lane) {
+    this.lane = lane;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  void setSequence(long sequence) {
+    this.sequence = sequence;
+  }
+
+  /**
+   * The time (in ms) when the task has been scheduled
+   *
+   * @return
+   */
+  public long getScheduled() {
+    return scheduled;
+  }
+
+  void setScheduled(long scheduled) {
+    this.scheduled = scheduled;
+  }
+}
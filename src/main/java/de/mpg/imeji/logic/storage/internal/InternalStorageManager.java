@@ -15,13 +15,14 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.util.concurrent.Callable;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
-import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.logic.config.util.PropertyReader;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.storage.Storage.FileResolution;
@@ -310,7 +311,13 @@ public class InternalStorageManager implements Serializable {
     File original = new File(transformUrlToPath(item.getOriginalUrl()));
     move(file, original.getAbsolutePath());
     // Create thumbnail,prieview and full
-    Imeji.getINTERNAL_STORAGE_EXECUTOR().submit(new GenerateThumbnailPreviewAndFullTask(item, original));
+    try {
+      DerivativeScheduler.getInstance().schedule(DerivativeTask.generate(item, original));
+    } catch (final UnprocessableError e) {
+      // The upload fails: don't keep its file
+      FileUtils.deleteQuietly(original);
+      throw new IOException(e.getMessage(), e);
+    }
     return item;
   }
 
@@ -324,49 +331,25 @@ public class InternalStorageManager implements Serializable {
     return new File(transformUrlToPath(url)).getParentFile().getParentFile();
   }
 
-  /**
-   * Inner class to transform and write the files in the storage asynchronously
-   *
-   * @author saquet
-   *
-   */
-  private class GenerateThumbnailPreviewAndFullTask implements Callable<Integer> {
-    private final InternalStorageItem item;
-    private final File file;
-
-    public GenerateThumbnailPreviewAndFullTask(InternalStorageItem item, File file) {
-      this.item = item;
-      this.file = file;
-    }
-
-    @Override
-    public Integer call() {
-      generateThumbnailPreviewAndFull(item, file);
-      return 1;
-    }
-  }
-
   /**
    * Generate all images for this file and this item
    * 
    * @param item
    * @param file
+   * @throws ImejiException if the images couldn't be generated
+   * @throws IOException if the images couldn't be written in the storage
    */
-  private void generateThumbnailPreviewAndFull(InternalStorageItem item, File file) {
-    File fullResolution = null;
-    try {
-      final ImageGeneratorManager generatorManager = new ImageGeneratorManager();
-      // write web resolution file in storage
-      final String calculatedExtension = guessExtension(file);
-      fullResolution = generatorManager.generateFullResolution(file, calculatedExtension);
-      fullResolution = new File(move(fullResolution, transformUrlToPath(item.getFullUrl())));
-      // Generate and write Web resolution
-      move(generatorManager.generateWebResolution(fullResolution, "jpg"), transformUrlToPath(item.getWebUrl()));
-      // Generate and write Thumbnail resolution
-      move(generatorManager.generateThumbnail(fullResolution, "jpg"), transformUrlToPath(item.getThumbnailUrl()));
-    } catch (final Exception e) {
-      LOGGER.error("Error transforming and writing file in internal storage ", e);
-    }
+  void generateThumbnailPreviewAndFull(InternalStorageItem item, File file) throws ImejiException, IOException {
+    final ImageGeneratorManager generatorManager = new ImageGeneratorManager();
+    // write web resolution file in storage
+    final String calculatedExtension = guessExtension(file);
+    // Generate all resolutions in one pass
+    final Map<FileResolution, File> resolutions = generatorManager.generateAllResolutions(file, calculatedExtension);
+    move(resolutions.get(FileResolution.FULL), transformUrlToPath(item.getFullUrl()));
+    // Write Web resolution
+    move(resolutions.get(FileResolution.WEB), transformUrlToPath(item.getWebUrl()));
+    // Write Thumbnail resolution
+    move(resolutions.get(FileResolution.THUMBNAIL), transformUrlToPath(item.getThumbnailUrl()));
   }
 
   /**
@@ -404,12 +387,14 @@ public class InternalStorageManager implements Serializable {
       final ImageGeneratorManager generatorManager = new ImageGeneratorManager();
       File fullResolution = new File(transformUrlToPath(item.getFullUrl()));
       if (fullResolution.exists()) {
-        // Generate and write web resolution from full resolution
+        // Generate web resolution and thumbnail from full resolution
+        final Map<FileResolution, File> resolutions = generatorManager.generateWebResolutionAndThumbnail(fullResolution);
+        // Write web resolution
         removeFile(item.getWebUrl());
-        move(generatorManager.generateWebResolution(fullResolution, "jpg"), transformUrlToPath(item.getWebUrl()));
-        // Generate and write thumbnail resolution from full resolution
+        move(resolutions.get(FileResolution.WEB), transformUrlToPath(item.getWebUrl()));
+        // Write thumbnail resolution
         removeFile(item.getThumbnailUrl());
-        move(generatorManager.generateThumbnail(fullResolution, "jpg"), transformUrlToPath(item.getThumbnailUrl()));
+        move(resolutions.get(FileResolution.THUMBNAIL), transformUrlToPath(item.getThumbnailUrl()));
       }
     } catch (final Exception e) {
       LOGGER.error("Error transforming and writing file in internal storage ", e);
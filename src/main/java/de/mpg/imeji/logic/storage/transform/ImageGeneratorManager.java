@@ -3,7 +3,9 @@ package de.mpg.imeji.logic.storage.transform;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +43,8 @@ public final class ImageGeneratorManager {
 
   private final List<ImageGenerator> fullGenerators;
 
+  private final MagickImageGenerator magickImageGenerator = new MagickImageGenerator();
+
   private static final Logger LOGGER = LogManager.getLogger(ImageGeneratorManager.class);
 
   /**
@@ -102,6 +106,51 @@ public final class ImageGeneratorManager {
     return createJpgPreview(file, extension);
   }
 
+  /**
+   * Generate the full resolution, the web resolution and the thumbnail of a file in one pass:
+   * <li>an image is decoded once by a single imagemagick process writing the three resolutions
+   * <li>a jpeg is copied as full resolution, and decoded once to write both other resolutions
+   * <li>other files (pdf, video, audio...) are converted once to a full resolution jpeg, from which
+   * both other resolutions are generated by a single imagemagick process <br/>
+   * Falls back to the generation of each resolution if this is not possible
+   *
+   * @param file
+   * @param extension
+   * @return the files generated, indexed by their {@link FileResolution}
+   * @throws ImejiException if the full resolution can not be generated
+   */
+  public Map<FileResolution, File> generateAllResolutions(File file, String extension) throws ImejiException {
+    if (magickImageGenerator.isEnabled() && !StorageUtils.compareExtension(extension, "jpg")) {
+      final Map<FileResolution, File> resolutions = ImageMagickUtils.convertToAllResolutions(file, extension);
+      if (resolutions != null) {
+        return resolutions;
+      }
+    }
+    final File full = generateFullResolution(file, extension);
+    final Map<FileResolution, File> resolutions =
+        generateWebResolutionAndThumbnail(StorageUtils.compareExtension(extension, "jpg") ? file : full);
+    resolutions.put(FileResolution.FULL, full);
+    return resolutions;
+  }
+
+  /**
+   * Generate the web resolution and the thumbnail from a full resolution jpeg, decoding it only
+   * once if possible
+   *
+   * @param fullResolution
+   * @return the files generated, indexed by their {@link FileResolution}
+   */
+  public Map<FileResolution, File> generateWebResolutionAndThumbnail(File fullResolution) {
+    final Map<FileResolution, File> resized = ImageMagickUtils.resizeJpgInOnePass(fullResolution);
+    if (resized != null) {
+      return resized;
+    }
+    final Map<FileResolution, File> resolutions = new EnumMap<>(FileResolution.class);
+    resolutions.put(FileResolution.WEB, generateWebResolution(fullResolution, "jpg"));
+    resolutions.put(FileResolution.THUMBNAIL, generateThumbnail(fullResolution, "jpg"));
+    return resolutions;
+  }
+
   /**
    * Generate an image (only jpg and gif supported here) into a smaller image according to the
    * {@link FileResolution}
@@ -50,6 +50,13 @@ public class MagickImageGenerator extends ImageGenerator {
     return null;
   }
 
+  /**
+   * @return true if imagemagick is enabled (property imeji.imagemagick.enable)
+   */
+  public boolean isEnabled() {
+    return imageMagickEnabled;
+  }
+
   @Override
   protected boolean generatorSupportsMimeType(String fileExtension) {
 
@@ -3,7 +3,10 @@ package de.mpg.imeji.logic.storage.util;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.EnumMap;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -105,6 +108,120 @@ public class ImageMagickUtils {
     return null;
   }
 
+  /**
+   * Generate the full resolution, the web resolution and the thumbnail of an image with one single
+   * imagemagick process: the image is decoded once, the full resolution jpeg is written from the
+   * decoded image, the web resolution from a clone of it, and the thumbnail is cropped from the
+   * same image. Return null if imagemagick is not enabled, if the file is not an image or if
+   * imagemagick failed, so that the caller can fall back to {@link #convertToJPEG(File, String)}
+   *
+   * @param file
+   * @param extension
+   * @return the files generated, indexed by their {@link FileResolution}
+   */
+  public static Map<FileResolution, File> convertToAllResolutions(File file, String extension) {
+    // tiff need to be converted to bmp first, see convertToJPEG
+    if (!imageMagickEnabled || !isImage(extension) || extension.equals("tif") || extension.equals("tiff")) {
+      return null;
+    }
+    File full = null;
+    File web = null;
+    File thumbnail = null;
+    try {
+      final int webSize = ImageUtils.getResolution(FileResolution.WEB);
+      final int thumbnailSize = ImageUtils.getResolution(FileResolution.THUMBNAIL);
+      full = TempFileUtil.createTempFile("uploadMagick", ".jpg");
+      web = TempFileUtil.createTempFile("magickResize", ".jpg");
+      thumbnail = TempFileUtil.createTempFile("magickCrop", ".jpg");
+      final IMOperation op = new IMOperation();
+      op.addImage(file.getAbsolutePath() + "[0]");
+      // full resolution, as written by convertToJPEG
+      op.flatten();
+      op.strip();
+      op.quality(70.0);
+      op.write(full.getAbsolutePath());
+      op.quality(80.0);
+      // web resolution: written from a clone, the decoded image is kept for the thumbnail
+      op.openOperation();
+      op.p_clone();
+      op.thumbnail(webSize, webSize, "");
+      op.write(web.getAbsolutePath());
+      op.p_delete();
+      op.closeOperation();
+      // thumbnail
+      op.thumbnail(thumbnailSize, thumbnailSize, "^");
+      op.gravity("center");
+      op.extent(thumbnailSize, thumbnailSize);
+      op.addImage(thumbnail.getAbsolutePath());
+      getConvert().run(op);
+      if (full.length() == 0 || web.length() == 0 || thumbnail.length() == 0) {
+        throw new IOException("Empty file generated by imagemagick");
+      }
+      final Map<FileResolution, File> resolutions = new EnumMap<>(FileResolution.class);
+      resolutions.put(FileResolution.FULL, full);
+      resolutions.put(FileResolution.WEB, web);
+      resolutions.put(FileResolution.THUMBNAIL, thumbnail);
+      return resolutions;
+    } catch (Exception e) {
+      LOGGER.error("Error converting to all resolutions with Imagemagick for file " + file.getAbsolutePath(), e);
+      FileUtils.deleteQuietly(full);
+      FileUtils.deleteQuietly(web);
+      FileUtils.deleteQuietly(thumbnail);
+    }
+    return null;
+  }
+
+  /**
+   * Generate the web resolution and the thumbnail of a jpg with one single imagemagick process:
+   * the jpg is decoded once, the web resolution is written from a clone of the decoded image and
+   * the thumbnail is cropped from the same image. Return null if imagemagick is not enabled or
+   * failed, so that the caller can fall back to {@link #resizeJpg(File, String, FileResolution)}
+   *
+   * @param jpg
+   * @return the files generated, indexed by their {@link FileResolution}
+   */
+  public static Map<FileResolution, File> resizeJpgInOnePass(File jpg) {
+    if (!imageMagickEnabled) {
+      return null;
+    }
+    File web = null;
+    File thumbnail = null;
+    try {
+      final int webSize = ImageUtils.getResolution(FileResolution.WEB);
+      final int thumbnailSize = ImageUtils.getResolution(FileResolution.THUMBNAIL);
+      web = TempFileUtil.createTempFile("magickResize", ".jpg");
+      thumbnail = TempFileUtil.createTempFile("magickCrop", ".jpg");
+      final IMOperation op = new IMOperation();
+      op.addImage(jpg.getAbsolutePath() + "[0]");
+      op.quality(80.0);
+      // web resolution: written from a clone, the decoded image is kept for the thumbnail
+      op.openOperation();
+      op.p_clone();
+      op.thumbnail(webSize, webSize, "");
+      op.write(web.getAbsolutePath());
+      op.p_delete();
+      op.closeOperation();
+      // thumbnail
+      op.thumbnail(thumbnailSize, thumbnailSize, "^");
+      op.gravity("center");
+      op.extent(thumbnailSize, thumbnailSize);
+      op.addImage(thumbnail.getAbsolutePath());
+      getConvert().run(op);
+      if (web.length() == 0 || thumbnail.length() == 0) {
+        throw new IOException("Empty file generated by imagemagick");
+      }
+      final Map<FileResolution, File> resized = new EnumMap<>(FileResolution.class);
+      resized.put(FileResolution.WEB, web);
+      resized.put(FileResolution.THUMBNAIL, thumbnail);
+      return resized;
+    } catch (Exception e) {
+      LOGGER.error("Error resizing jpg in one pass with Imagemagick for file " + jpg.getAbsolutePath(), e);
+      FileUtils.deleteQuietly(web);
+      FileUtils.deleteQuietly(thumbnail);
+    }
+    return null;
+  }
+
   /**
    * Resize a file as a jpeg
    * 
@@ -0,0 +1,180 @@
+package de.mpg.imeji.presentation.admin;
+
+import java.util.List;
+
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ViewScoped;
+
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.concurrency.LockMetrics;
+import de.mpg.imeji.logic.concurrency.Locks;
+import de.mpg.imeji.logic.concurrency.MonitoredThreadPoolExecutor;
+import de.mpg.imeji.logic.concurrency.TimedLock;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreCommitter;
+import de.mpg.imeji.logic.db.writer.WriteBehindIndexer;
+import de.mpg.imeji.logic.export.ZIPExport;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticBulkProcessor;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.LaneMetrics;
+
+/**
+ * Bean for the runtime statistics of imeji (caches, indexes, locks, queues, threads) displayed on
+ * the admin statistics page
+ *
+ * @author saquet
+ *
+ */
+@ManagedBean
+@ViewScoped
+public class RuntimeStatisticsBean {
+
+  /**
+   * Number of files in the {@link FileAuthorizationIndex}
+   *
+   * @return
+   */
+  public int getFileAuthorizationIndexSize() {
+    return FileAuthorizationIndex.size();
+  }
+
+  /**
+   * Number of file requests authorized with the {@link FileAuthorizationIndex}
+   *
+   * @return
+   */
+  public long getFileAuthorizationIndexHits() {
+    return FileAuthorizationIndex.getHits();
+  }
+
+  /**
+   * Number of file requests which needed a database request to be authorized
+   *
+   * @return
+   */
+  public long getFileAuthorizationIndexMisses() {
+    return FileAuthorizationIndex.getMisses();
+  }
+
+  /**
+   * The write and counter locks
+   *
+   * @return
+   */
+  public List<TimedLock> getTimedLocks() {
+    return Locks.getTimedLocks();
+  }
+
+  /**
+   * Metrics of the user and system locks on objects
+   *
+   * @return
+   */
+  public LockMetrics getObjectLockMetrics() {
+    return Locks.getObjectLockMetrics();
+  }
+
+  /**
+   * Number of objects currently locked by a user or by the system
+   *
+   * @return
+   */
+  public int getLockedObjects() {
+    return Locks.getUserLocks().size() + Locks.getSystemLocks().size();
+  }
+
+  /**
+   * Metrics of the lanes of the {@link DerivativeScheduler}
+   *
+   * @return
+   */
+  public List<LaneMetrics> getDerivativeLanes() {
+    return DerivativeScheduler.getInstance().getMetrics();
+  }
+
+  /**
+   * Number of workers of the {@link DerivativeScheduler}
+   *
+   * @return
+   */
+  public int getDerivativeWorkers() {
+    return DerivativeScheduler.getInstance().getConcurrency();
+  }
+
+  /**
+   * The {@link WriteBehindIndexer}, to display its metrics
+   *
+   * @return
+   */
+  public WriteBehindIndexer getWriteBehindIndexer() {
+    return WriteBehindIndexer.getInstance();
+  }
+
+  public boolean isWriteBehindIndexing() {
+    return WriteBehindIndexer.isEnabled();
+  }
+
+  /**
+   * Number of documents sent to Elasticsearch in bulk requests
+   *
+   * @return
+   */
+  public long getBulkDocuments() {
+    return ElasticBulkProcessor.getTotalDocuments();
+  }
+
+  public long getBulkRequests() {
+    return ElasticBulkProcessor.getTotalRequests();
+  }
+
+  public long getBulkRetries() {
+    return ElasticBulkProcessor.getTotalRetries();
+  }
+
+  public long getBulkDocumentsPerSecond() {
+    return ElasticBulkProcessor.getDocumentsPerSecond();
+  }
+
+  /**
+   * Number of files exported in zip files
+   *
+   * @return
+   */
+  public long getZipExportFiles() {
+    return ZIPExport.getTotalFiles();
+  }
+
+  public long getZipExports() {
+    return ZIPExport.getTotalExports();
+  }
+
+  public long getZipExportStoredFiles() {
+    return ZIPExport.getTotalStoredFiles();
+  }
+
+  public long getZipExportMegaBytes() {
+    return ZIPExport.getTotalBytes() / (1024 * 1024);
+  }
+
+  public long getZipExportMegaBytesPerSecond() {
+    return ZIPExport.getBytesPerSecond() / (1024 * 1024);
+  }
+
+  /**
+   * The thread pools of the {@link ExecutorRegistry}
+   *
+   * @return
+   */
+  public List<MonitoredThreadPoolExecutor> getExecutors() {
+    return ExecutorRegistry.getExecutors();
+  }
+
+  /**
+   * The writes and commits of the key/value stores
+   *
+   * @return
+   */
+  public List<KeyValueStoreCommitter> getKeyValueStores() {
+    return KeyValueStoreCommitter.getCommitters();
+  }
+}
@@ -157,6 +157,12 @@ public class CollectionItemsBean extends ItemsBean {
     return facade.searchWithFacetsAndMultiLevelSorting(searchQuery, collection, getSessionUser(), sortCriteria, limit, offset, true);
   }
 
+  @Override
+  public SearchResult searchWithCursor(SearchQuery searchQuery, List<SortCriterion> sortCriteria, int offset, String cursor, int size) {
+    // Items and subcollections are searched together, which is not possible with a cursor
+    return null;
+  }
+
   @Override
   public Collection<Item> loadItems(List<String> uris) throws ImejiException {
     final SearchAndRetrieveFacade facade = new SearchAndRetrieveFacade();
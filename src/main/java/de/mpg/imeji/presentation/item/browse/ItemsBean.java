@@ -2,6 +2,7 @@ package de.mpg.imeji.presentation.item.browse;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -22,6 +23,8 @@ import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.ImejiExceptionWithUserMessage;
 import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.exceptions.WorkflowException;
+import de.mpg.imeji.logic.batch.ItemBatchJob;
+import de.mpg.imeji.logic.batch.ItemBatchJob.Operation;
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.core.item.ItemService;
 import de.mpg.imeji.logic.hierarchy.HierarchyService;
@@ -31,6 +34,7 @@ import de.mpg.imeji.logic.model.Properties.Status;
 import de.mpg.imeji.logic.model.SearchFields;
 import de.mpg.imeji.logic.search.Search;
 import de.mpg.imeji.logic.search.SearchQueryParser;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticSearch;
 import de.mpg.imeji.logic.search.factory.SearchFactory;
 import de.mpg.imeji.logic.search.model.SearchGroup;
 import de.mpg.imeji.logic.search.model.SearchQuery;
@@ -65,6 +69,12 @@ public class ItemsBean extends SuperPaginatorBean<ThumbnailBean> {
   private SearchQuery facetQuery = new SearchQuery();
   private String discardComment;
   private SearchResult searchResult;
+  /**
+   * Cursor of the next page, if the current page has been searched with a cursor
+   */
+  private String cursor;
+  private int cursorOffset = -1;
+  private String cursorSearch;
   public static final String ITEM_SORT_ORDER_COOKIE = "CONTAINER_SORT_ORDER_COOKIE";
   public static final String ITEM_SORT_COOKIE = "ITEM_SORT_COOKIE";
   private static final int DEFAULT_ELEMENTS_PER_PAGE = 24;
@@ -140,7 +150,7 @@ public class ItemsBean extends SuperPaginatorBean<ThumbnailBean> {
       // Access ElasticSearch, read UIDs of all Items that can bee seen by logged-on
       // user
       // SearchResult: contains a list of Item UIDs
-      searchResult = search(getSearchQuery(), getSortCriteriaForItems(), offset, size);
+      searchResult = searchPage(getSearchQuery(), getSortCriteriaForItems(), offset, size);
       totalNumberOfRecords = searchResult.getNumberOfRecords();
 
       // (b) Build Item objects and read Item content from Jena
@@ -183,6 +193,52 @@ public class ItemsBean extends SuperPaginatorBean<ThumbnailBean> {
     return new ItemService().searchWithFacetsAndMultiLevelSorting(null, searchQuery, sortCriteria, getSessionUser(), size, offset);
   }
 
+  /**
+   * Search the items with a cursor. Return null if the page can't be searched with a cursor
+   *
+   * @param searchQuery
+   * @param sortCriteria
+   * @param offset
+   * @param cursor
+   * @param size
+   * @return
+   * @throws UnprocessableError
+   */
+  public SearchResult searchWithCursor(SearchQuery searchQuery, List<SortCriterion> sortCriteria, int offset, String cursor, int size)
+      throws UnprocessableError {
+    return new ItemService().searchWithCursor(null, searchQuery, sortCriteria, getSessionUser(), offset, cursor, size, true);
+  }
+
+  /**
+   * Search a page of items. Deep pages reached by going to the next page are searched with the cursor
+   * of the previous page, other pages with an offset
+   *
+   * @param searchQuery
+   * @param sortCriteria
+   * @param offset
+   * @param size
+   * @return
+   */
+  private SearchResult searchPage(SearchQuery searchQuery, List<SortCriterion> sortCriteria, int offset, int size) {
+    final String search = SearchQueryParser.transform2URL(searchQuery) + "|" + size + "|"
+        + sortCriteria.stream().map(c -> c.getField() + ":" + c.getSortOrder()).collect(Collectors.joining(","));
+    final String previousCursor = cursor != null && offset == cursorOffset && search.equals(cursorSearch) ? cursor : null;
+    final boolean deepPage = offset + 2 * size >= ElasticSearch.SEARCH_TO_INDEX_LIMIT && offset + size <= ElasticSearch.SEARCH_TO_INDEX_LIMIT;
+    cursor = null;
+    if (previousCursor != null || deepPage) {
+      try {
+        final SearchResult result = searchWithCursor(searchQuery, sortCriteria, offset, previousCursor, size);
+        cursor = result.getCursor();
+        cursorOffset = offset + size;
+        cursorSearch = search;
+        return result;
+      } catch (final UnprocessableError e) {
+        LOGGER.warn("Search with cursor failed, searching with offset", e);
+      }
+    }
+    return search(searchQuery, sortCriteria, offset, size);
+  }
+
   /**
    * Trigger the update method after a search commit, to ma
    */
@@ -350,30 +406,74 @@ public class ItemsBean extends SuperPaginatorBean<ThumbnailBean> {
   }
 
   /**
-   * Delete all {@link Item} currently browsed
+   * Delete all {@link Item} currently browsed, in the background
    *
    * @return @
    * @throws IOException
    */
   public void deleteAll() throws IOException {
-    delete(searchAllItems());
+    startBatchJob(Operation.DELETE, null);
     selectNone();
     reload();
   }
 
   /**
-   * Withdraw all {@link Item} currently browsed
+   * Withdraw all {@link Item} currently browsed, in the background
    *
    * @return @
    * @throws ImejiException
    * @throws IOException
    */
   public void withdrawAll() throws ImejiException, IOException {
-    withdraw(searchAllItems());
+    startBatchJob(Operation.WITHDRAW, discardComment);
+    discardComment = null;
     selectNone();
     reload();
   }
 
+  /**
+   * Start a {@link ItemBatchJob} for all items currently browsed
+   *
+   * @param operation
+   * @param comment
+   */
+  private void startBatchJob(Operation operation, String comment) {
+    final URI containerUri = getCollection() != null ? getCollection().getId() : null;
+    ItemBatchJob.submit(new ItemBatchJob(operation, containerUri, searchQuery, getSessionUser()).comment(comment));
+    BeanHelper.info(Imeji.RESOURCE_BUNDLE.getLabel("batch_started", getLocale()));
+  }
+
+  /**
+   * The {@link ItemBatchJob} of the current user
+   *
+   * @return
+   */
+  public List<ItemBatchJob> getBatchJobs() {
+    return ItemBatchJob.getJobs(getSessionUser());
+  }
+
+  /**
+   * Resume a failed {@link ItemBatchJob}
+   *
+   * @param id
+   * @throws IOException
+   */
+  public void resumeBatchJob(String id) throws IOException {
+    ItemBatchJob.resume(id);
+    reload();
+  }
+
+  /**
+   * Remove a {@link ItemBatchJob} from the list of jobs
+   *
+   * @param id
+   * @throws IOException
+   */
+  public void removeBatchJob(String id) throws IOException {
+    ItemBatchJob.remove(id);
+    reload();
+  }
+
   /**
    * Withdraw all selected {@link Item}
    *
@@ -32,14 +32,13 @@ import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.core.collection.CollectionService;
 import de.mpg.imeji.logic.core.content.ContentService;
 import de.mpg.imeji.logic.core.item.ItemService;
-import de.mpg.imeji.logic.core.statement.StatementService;
+import de.mpg.imeji.logic.core.statement.StatementRegistry;
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.ContentVO;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.model.Properties.Status;
 import de.mpg.imeji.logic.model.Statement;
 import de.mpg.imeji.logic.model.User;
-import de.mpg.imeji.logic.search.Search;
 import de.mpg.imeji.logic.security.authorization.util.SecurityUtil;
 import de.mpg.imeji.logic.security.user.UserService;
 import de.mpg.imeji.logic.storage.StorageController;
@@ -419,8 +418,7 @@ public class ItemBean extends SuperBean {
 
   public List<SelectItem> getStatementMenu() throws ImejiException {
     final List<SelectItem> statementMenu = new ArrayList<SelectItem>();
-    for (final Statement s : new StatementService().searchAndRetrieve(null, null, getSessionUser(), Search.GET_ALL_RESULTS,
-        Search.SEARCH_FROM_START_INDEX)) {
+    for (final Statement s : StatementRegistry.get().getStatements()) {
       statementMenu.add(new SelectItem(s.getIndex(), s.getIndex()));
     }
     return statementMenu;
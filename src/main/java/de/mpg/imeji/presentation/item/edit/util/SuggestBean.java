@@ -11,10 +11,8 @@ import javax.faces.bean.ViewScoped;
 import javax.faces.model.SelectItem;
 
 import de.mpg.imeji.exceptions.ImejiException;
-import de.mpg.imeji.logic.config.Imeji;
-import de.mpg.imeji.logic.core.statement.StatementService;
+import de.mpg.imeji.logic.core.statement.StatementRegistry;
 import de.mpg.imeji.logic.model.Statement;
-import de.mpg.imeji.logic.search.Search;
 import de.mpg.imeji.presentation.util.CommonUtils;
 
 /**
@@ -42,8 +40,7 @@ public class SuggestBean {
   public void init() {
     suggests = new HashMap<URI, Suggest>();
     try {
-      for (final Statement s : new StatementService().searchAndRetrieve(null, null, Imeji.adminUser, Search.GET_ALL_RESULTS,
-          Search.SEARCH_FROM_START_INDEX)) {
+      for (final Statement s : StatementRegistry.get().getStatements()) {
         suggests.put(s.getUri(), new Suggest(s));
       }
     } catch (final ImejiException e) {
@@ -15,6 +15,8 @@ import org.apache.logging.log4j.LogManager;
 
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.ImejiExceptionWithUserMessage;
+import de.mpg.imeji.logic.batch.ItemBatchJob;
+import de.mpg.imeji.logic.batch.ItemBatchJob.Operation;
 import de.mpg.imeji.logic.config.Imeji;
 import de.mpg.imeji.logic.core.collection.CollectionService;
 import de.mpg.imeji.logic.core.item.ItemService;
@@ -85,7 +87,15 @@ public class ItemsEditLicenseBean extends SuperBean {
    * @throws IOException
    */
   public void save() throws ImejiException, IOException {
-    List<Item> items = !StringHelper.isNullOrEmptyTrim(collectionId) ? retrieveAllCollectionsItem(collectionId) : retrieveSelectedItems();
+    if (!StringHelper.isNullOrEmptyTrim(collectionId)) {
+      // All items of the collection: edited in the background
+      ItemBatchJob.submit(new ItemBatchJob(Operation.LICENSE, ObjectHelper.getURI(CollectionImeji.class, collectionId), null,
+          getSessionUser()).license(licenseEditor.getLicense(), overwriteLicenses));
+      BeanHelper.addMessage(Imeji.RESOURCE_BUNDLE.getLabel("batch_started", getLocale()));
+      cancel();
+      return;
+    }
+    List<Item> items = retrieveSelectedItems();
     items = addLicense(items);
     try {
       save(items);
@@ -177,20 +187,6 @@ public class ItemsEditLicenseBean extends SuperBean {
     return (List<Item>) itemService.retrieveBatch(selectedItems, Search.GET_ALL_RESULTS, Search.SEARCH_FROM_START_INDEX, getSessionUser());
   }
 
-  /**
-   * Retrieve all items of a collection
-   *
-   * @param collectionId
-   * @return
-   * @throws ImejiException
-   */
-  private List<Item> retrieveAllCollectionsItem(String collectionId) throws ImejiException {
-    final ItemService itemService = new ItemService();
-    final List<String> uris = itemService.search(ObjectHelper.getURI(CollectionImeji.class, collectionId), null, null, getSessionUser(),
-        Search.GET_ALL_RESULTS, Search.SEARCH_FROM_START_INDEX).getResults();
-    return (List<Item>) itemService.retrieveBatch(uris, Search.GET_ALL_RESULTS, Search.SEARCH_FROM_START_INDEX, getSessionUser());
-  }
-
   /**
    * Return to the previous page
    *
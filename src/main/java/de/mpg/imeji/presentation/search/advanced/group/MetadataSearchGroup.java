@@ -5,16 +5,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.UnprocessableError;
-import de.mpg.imeji.logic.core.statement.StatementService;
+import de.mpg.imeji.logic.core.statement.StatementRegistry;
 import de.mpg.imeji.logic.model.Statement;
-import de.mpg.imeji.logic.model.util.StatementUtil;
 import de.mpg.imeji.logic.search.factory.SearchFactory;
 import de.mpg.imeji.logic.search.model.SearchElement;
 
@@ -36,9 +34,9 @@ public class MetadataSearchGroup extends AbstractAdvancedSearchFormGroup impleme
     this.entries = new ArrayList<>();
     this.locale = locale;
     try {
-      statementMap = StatementUtil.statementListToMap(new StatementService().retrieveAll());
-      statementList =
-          statementMap.values().stream().sorted((s1, s2) -> s1.getIndex().compareToIgnoreCase(s2.getIndex())).collect(Collectors.toList());
+      final StatementRegistry registry = StatementRegistry.get();
+      statementMap = registry.getStatementsByIndex();
+      statementList = registry.getStatements();
       addEntry(0);
     } catch (ImejiException e) {
       LOGGER.error("Error reading statements", e);
@@ -16,7 +16,7 @@ import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.ImejiExceptionWithUserMessage;
 import de.mpg.imeji.exceptions.UnprocessableError;
 import de.mpg.imeji.logic.config.Imeji;
-import de.mpg.imeji.logic.core.statement.StatementService;
+import de.mpg.imeji.logic.core.statement.StatementRegistry;
 import de.mpg.imeji.logic.model.SearchFields;
 import de.mpg.imeji.logic.model.Statement;
 import de.mpg.imeji.logic.model.StatementType;
@@ -132,7 +132,7 @@ public class CreateFacetBean extends SuperBean {
   }
 
   public List<Statement> retrieveStatements() throws ImejiException {
-    return new StatementService().retrieveAll().stream().filter(s -> s.getType() != StatementType.GEOLOCATION).collect(Collectors.toList());
+    return StatementRegistry.get().getStatements().stream().filter(s -> s.getType() != StatementType.GEOLOCATION).collect(Collectors.toList());
   }
 
   /**
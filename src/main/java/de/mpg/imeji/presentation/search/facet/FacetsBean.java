@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.faces.bean.ManagedBean;
@@ -17,6 +18,7 @@ import org.apache.logging.log4j.LogManager;
 import de.mpg.imeji.exceptions.ImejiException;
 import de.mpg.imeji.exceptions.ImejiExceptionWithUserMessage;
 import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.search.facet.FacetRegistry;
 import de.mpg.imeji.logic.search.facet.FacetService;
 import de.mpg.imeji.logic.search.facet.model.Facet;
 import de.mpg.imeji.presentation.beans.SuperBean;
@@ -38,7 +40,8 @@ public class FacetsBean extends SuperBean {
   @PostConstruct
   public void init() {
     try {
-      List<Facet> facets = facetService.retrieveAll();
+      // The positions of the facets are changed: use copies of the facets of the registry
+      List<Facet> facets = FacetRegistry.get().getFacets().stream().map(Facet::clone).collect(Collectors.toList());
 
       for (Facet f : facets) {
         if (Facet.OBJECTTYPE_ITEM.equals(f.getObjectType())) {
@@ -6,6 +6,9 @@ import de.mpg.imeji.logic.core.item.ItemService;
 import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex.FileOwner;
+import de.mpg.imeji.logic.security.authorization.util.SecurityUtil;
 import de.mpg.imeji.logic.storage.StorageController;
 import de.mpg.imeji.logic.util.ObjectHelper;
 
@@ -20,13 +23,18 @@ public class StorageUtil {
   public static final StorageController STORAGE_CONTROLLER = new StorageController();
 
   /**
-   * True if the user is allowed to view this file
+   * True if the user is allowed to view this file. The {@link FileAuthorizationIndex} is checked
+   * first, the database is only requested for files which are not indexed
    *
    * @param fileUrl
    * @param user
    * @return
    */
   public static boolean isAllowedToViewFile(String fileUrl, User user) {
+    final FileOwner owner = FileAuthorizationIndex.getOwner(fileUrl);
+    if (owner != null) {
+      return SecurityUtil.authorization().read(user, owner.toItem());
+    }
     return isAllowedToViewCollectionOfFile(fileUrl, user) || StorageUtil.isAllowedToViewItemOfFile(fileUrl, user);
   }
 
@@ -39,7 +47,8 @@ public class StorageUtil {
    */
   private static boolean isAllowedToViewItemOfFile(String fileUrl, User user) {
     try {
-      new ItemService().retrieveLazyForFile(fileUrl, user);
+      final Item item = new ItemService().retrieveLazyForFile(fileUrl, user);
+      FileAuthorizationIndex.add(fileUrl, item);
       return true;
     } catch (final ImejiException e) {
       return false;
@@ -5,7 +5,10 @@ import static de.mpg.imeji.rest.transfer.TransferTOtoVO.TRANSFER_MODE.CREATE;
 import static de.mpg.imeji.rest.transfer.TransferTOtoVO.TRANSFER_MODE.UPDATE;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FilenameUtils;
 
@@ -18,10 +21,12 @@ import de.mpg.imeji.logic.model.CollectionImeji;
 import de.mpg.imeji.logic.model.Item;
 import de.mpg.imeji.logic.model.User;
 import de.mpg.imeji.logic.search.Search;
+import de.mpg.imeji.logic.search.Search.SearchObjectTypes;
 import de.mpg.imeji.logic.search.SearchQueryParser;
-import de.mpg.imeji.logic.search.factory.SearchFactory;
-import de.mpg.imeji.logic.search.factory.SearchFactory.SEARCH_IMPLEMENTATIONS;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticSearch;
 import de.mpg.imeji.logic.search.model.SearchResult;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.Lane;
 import de.mpg.imeji.logic.util.ObjectHelper;
 import de.mpg.imeji.logic.util.StringHelper;
 import de.mpg.imeji.rest.to.SearchResultTO;
@@ -50,8 +55,13 @@ public class ItemAPIService implements APIService<DefaultItemTO> {
       // transfer TO into item
       Item item = new Item();
       TransferTOtoVO.transferDefaultItem(to, item, u, CREATE);
-      item = controller.create(item, collection, ((DefaultItemWithFileTO) to).getFile(), filename, u,
-          ((DefaultItemWithFileTO) to).getFetchUrl(), ((DefaultItemWithFileTO) to).getReferenceUrl());
+      DerivativeScheduler.setCurrentLane(Lane.BATCH);
+      try {
+        item = controller.create(item, collection, ((DefaultItemWithFileTO) to).getFile(), filename, u,
+            ((DefaultItemWithFileTO) to).getFetchUrl(), ((DefaultItemWithFileTO) to).getReferenceUrl());
+      } finally {
+        DerivativeScheduler.resetCurrentLane();
+      }
       // transfer item into ItemTO
       final DefaultItemTO createdTO = new DefaultItemTO();
       TransferVOtoTO.transferDefaultItem(item, createdTO);
@@ -80,7 +90,12 @@ public class ItemAPIService implements APIService<DefaultItemTO> {
       final DefaultItemWithFileTO tof = (DefaultItemWithFileTO) to;
       final String url = getExternalFileUrl(tof);
       if (tof.getFile() != null) {
-        item = controller.updateFile(item, collection, tof.getFile(), to.getFilename(), u);
+        DerivativeScheduler.setCurrentLane(Lane.BATCH);
+        try {
+          item = controller.updateFile(item, collection, tof.getFile(), to.getFilename(), u);
+        } finally {
+          DerivativeScheduler.resetCurrentLane();
+        }
       } else if (!StringHelper.isNullOrEmptyTrim(url)) {
         item = controller.updateWithExternalFile(item, collection, getExternalFileUrl(tof), to.getFilename(),
             !isNullOrEmpty(tof.getFetchUrl()), u);
@@ -119,17 +134,45 @@ public class ItemAPIService implements APIService<DefaultItemTO> {
 
   @Override
   public SearchResultTO<DefaultItemTO> search(String q, int offset, int size, User u) throws ImejiException {
+    return search(q, offset, size, null, u);
+  }
 
+  /**
+   * Search items with a cursor: an empty cursor starts the search at the offset, and each page
+   * returns the cursor of the next page (none for the last page)
+   *
+   * @param q
+   * @param offset
+   * @param size
+   * @param cursor the cursor of the previous page, empty for the first page, null to search without
+   *        cursor
+   * @param u
+   * @return
+   * @throws ImejiException
+   */
+  public SearchResultTO<DefaultItemTO> search(String q, int offset, int size, String cursor, User u) throws ImejiException {
     final List<DefaultItemTO> tos = new ArrayList<>();
-    final SearchResult result =
-        SearchFactory.create(SEARCH_IMPLEMENTATIONS.ELASTIC).search(SearchQueryParser.parseStringQuery(q), null, u, null, offset, size);
-    for (final Item vo : controller.retrieveBatch(result.getResults(), Search.GET_ALL_RESULTS, Search.SEARCH_FROM_START_INDEX, u)) {
-      final DefaultItemTO to = new DefaultItemTO();
-      TransferVOtoTO.transferDefaultItem(vo, to);
-      tos.add(to);
+    // Items are read from the search hits, and from the database only if they have no valid projection
+    final Search search = new ElasticSearch(SearchObjectTypes.ALL).withProjections();
+    final SearchResult result = cursor == null ? search.search(SearchQueryParser.parseStringQuery(q), null, u, null, offset, size)
+        : search.searchWithCursor(SearchQueryParser.parseStringQuery(q), null, u, null, offset, cursor.isEmpty() ? null : cursor, size, false);
+    final List<String> notProjected = result.getResults().stream().filter(id -> result.getProjection(id) == null).collect(Collectors.toList());
+    final Map<String, Item> retrieved = new HashMap<>();
+    if (!notProjected.isEmpty()) {
+      for (final Item vo : controller.retrieveBatch(notProjected, Search.GET_ALL_RESULTS, Search.SEARCH_FROM_START_INDEX, u)) {
+        retrieved.put(vo.getId().toString(), vo);
+      }
+    }
+    for (final String id : result.getResults()) {
+      final Item vo = result.getProjection(id) != null ? result.getProjection(id) : retrieved.get(id);
+      if (vo != null) {
+        final DefaultItemTO to = new DefaultItemTO();
+        TransferVOtoTO.transferDefaultItem(vo, to);
+        tos.add(to);
+      }
     }
     return new SearchResultTO.Builder<DefaultItemTO>().numberOfRecords(result.getResults().size()).offset(offset).results(tos).query(q)
-        .size(size).totalNumberOfRecords(result.getNumberOfRecords()).build();
+        .size(size).totalNumberOfRecords(result.getNumberOfRecords()).cursor(result.getCursor()).build();
   }
 
   /**
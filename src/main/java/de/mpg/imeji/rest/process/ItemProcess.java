@@ -103,11 +103,11 @@ public class ItemProcess {
    * @param q
    * @return
    */
-  public static JSONResponse readItems(HttpServletRequest req, String q, int offset, int size) {
+  public static JSONResponse readItems(HttpServletRequest req, String q, int offset, int size, String cursor) {
     final ItemAPIService service = new ItemAPIService();
     try {
       final User u = BasicAuthentication.auth(req);
-      return RestProcessUtils.buildResponse(OK.getStatusCode(), service.search(q, offset, size, u));
+      return RestProcessUtils.buildResponse(OK.getStatusCode(), service.search(q, offset, size, cursor, u));
     } catch (final Exception e) {
       return RestProcessUtils.localExceptionHandler(e, e.getLocalizedMessage());
     }
@@ -4,27 +4,30 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.http.HttpStatus;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.io.ByteStreams;
 
 import de.mpg.imeji.exceptions.AuthenticationError;
@@ -44,6 +47,27 @@ import de.mpg.imeji.rest.to.defaultItemTO.DefaultItemTO;
 public class RestProcessUtils {
 
   private static final Logger LOGGER = LogManager.getLogger(RestProcessUtils.class);
+  /**
+   * Shared by all requests: an ObjectMapper is thread-safe once configured, and its readers and
+   * writers are immutable
+   */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+  /**
+   * Writer of the streamed responses: the output stream is closed by the container
+   */
+  private static final ObjectWriter STREAMING_WRITER = PRETTY_WRITER.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  private static final Map<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+  /**
+   * The cached reader of a type
+   *
+   * @param type
+   * @return
+   */
+  private static ObjectReader getReader(Type type) {
+    return READERS.computeIfAbsent(type, t -> MAPPER.readerFor(MAPPER.constructType(t)));
+  }
 
   /**
    * Parse a json file and construct a new Object of type T
@@ -54,8 +78,7 @@ public class RestProcessUtils {
    */
   public static <T> Object buildTOFromJSON(String json, Class<T> type) throws BadRequestException {
     try {
-      final ObjectReader reader = new ObjectMapper().reader().withType(type);
-      return reader.readValue(json);
+      return getReader(type).readValue(json);
     } catch (final Exception e) {
       throw new BadRequestException("Cannot parse json: " + e.getLocalizedMessage(), e);
     }
@@ -83,7 +106,7 @@ public class RestProcessUtils {
   public static <T> T buildTOFromJSON(final String json, final TypeReference<T> type) throws BadRequestException {
     T data = null;
     try {
-      data = new ObjectMapper().readValue(json, type);
+      data = getReader(type.getType()).readValue(json);
     } catch (final Exception e) {
       throw new BadRequestException("Cannot parse json: " + e.getLocalizedMessage(), e);
     }
@@ -91,33 +114,49 @@ public class RestProcessUtils {
   }
 
   public static JsonNode buildJsonNode(Object obj) {
-    final ObjectMapper mapper = new ObjectMapper();
-    return mapper.convertValue(obj, JsonNode.class);
+    return MAPPER.convertValue(obj, JsonNode.class);
   }
 
   public static <T> Object buildTOFromJSON(HttpServletRequest req, Class<T> type) throws BadRequestException {
-    final ObjectReader reader = new ObjectMapper().reader().withType(type);
     try {
-      return reader.readValue(req.getInputStream());
+      return getReader(type).readValue(req.getInputStream());
     } catch (final Exception e) {
       throw new BadRequestException("Cannot parse json: ", e);
     }
   }
 
   public static String buildJSONFromObject(Object obj) throws BadRequestException {
-    final ObjectWriter ow = new ObjectMapper().writer().with(SerializationFeature.INDENT_OUTPUT);
     try {
-      return ow.writeValueAsString(obj);
+      return PRETTY_WRITER.writeValueAsString(obj);
     } catch (final Exception e) {
       throw new BadRequestException("Cannot parse json: ", e);
     }
   }
 
+  /**
+   * Build the HTTP response of a {@link JSONResponse}. A {@link SearchResultTO}, which can be large,
+   * is written directly to the output of the response while it is serialized. Other objects are
+   * serialized before the response is sent
+   *
+   * @param resp
+   * @return
+   */
   public static Response buildJSONResponse(JSONResponse resp) {
-    final ObjectWriter ow = new ObjectMapper().writer().withDefaultPrettyPrinter();
-    String json = "";
+    final Object obj = resp.getObject();
+    if (obj instanceof SearchResultTO) {
+      final StreamingOutput json = out -> {
+        try {
+          STREAMING_WRITER.writeValue(out, obj);
+        } catch (final IOException e) {
+          LOGGER.error("Error writing JSON Response", e);
+          throw e;
+        }
+      };
+      return Response.status(resp.getStatus()).entity(json).type(MediaType.APPLICATION_JSON).build();
+    }
+    byte[] json = new byte[0];
     try {
-      json = ow.writeValueAsString(resp.getObject());
+      json = PRETTY_WRITER.writeValueAsBytes(obj);
     } catch (final JsonProcessingException e) {
       LOGGER.error("Have a JSON Processing Exception during building JSON Response", e);
     }
@@ -235,14 +274,12 @@ public class RestProcessUtils {
   }
 
   public static Map<String, Object> jsonToPOJO(Response response) throws IOException {
-    final ObjectMapper mapper = new ObjectMapper();
-    return mapper.readValue(ByteStreams.toByteArray(response.readEntity(InputStream.class)), Map.class);
+    return MAPPER.readValue(ByteStreams.toByteArray(response.readEntity(InputStream.class)), Map.class);
   }
 
   public static Map<String, Object> jsonToPOJO(String str) throws IOException, BadRequestException {
     try {
-      final ObjectMapper mapper = new ObjectMapper();
-      return mapper.readValue(str, Map.class);
+      return MAPPER.readValue(str, Map.class);
     } catch (final Exception e) {
       throw new BadRequestException("Cannot parse json: ", e);
     }
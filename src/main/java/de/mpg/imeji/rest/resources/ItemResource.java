@@ -28,12 +28,16 @@ import static de.mpg.imeji.rest.process.RestProcessUtils.buildJSONResponse;
 public class ItemResource implements ImejiResource {
 
   @Override
+  public Response readAll(HttpServletRequest req, String q, int offset, int size) {
+    return readAll(req, q, offset, size, null);
+  }
+
   @GET
-  @Operation(summary = "Search and retrieve items")
+  @Operation(summary = "Search and retrieve items. Pass an empty cursor to page with the cursor returned with each page")
   @Produces(MediaType.APPLICATION_JSON)
   public Response readAll(@Context HttpServletRequest req, @QueryParam("q") String q, @DefaultValue("0") @QueryParam("offset") int offset,
-      @DefaultValue(DEFAULT_LIST_SIZE) @QueryParam("size") int size) {
-    return buildJSONResponse(readItems(req, q, offset, size));
+      @DefaultValue(DEFAULT_LIST_SIZE) @QueryParam("size") int size, @QueryParam("cursor") String cursor) {
+    return buildJSONResponse(readItems(req, q, offset, size, cursor));
   }
 
   @Override
@@ -7,7 +7,7 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder({"query", "totalNumberOfResults", "numberOfResults", "offset", "size", "results"})
+@JsonPropertyOrder({"query", "totalNumberOfResults", "numberOfResults", "offset", "size", "cursor", "results"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 /**
  * A TO to wrap Search results
@@ -23,6 +23,7 @@ public class SearchResultTO<T> implements Serializable {
   private int size;
   private int offset;
   private String query;
+  private String cursor;
   private List<T> results = new ArrayList<>();
 
   public SearchResultTO() {}
@@ -39,6 +40,7 @@ public class SearchResultTO<T> implements Serializable {
     private int size;
     private int offset;
     private String query;
+    private String cursor;
     private List<T> results = new ArrayList<>();
 
     public SearchResultTO<T> build() {
@@ -70,6 +72,11 @@ public class SearchResultTO<T> implements Serializable {
       return this;
     }
 
+    public Builder<T> cursor(String s) {
+      this.cursor = s;
+      return this;
+    }
+
     public Builder<T> results(List<T> l) {
       this.results = l;
       return this;
@@ -84,6 +91,7 @@ public class SearchResultTO<T> implements Serializable {
     this.results = builder.results;
     this.size = builder.size;
     this.totalNumberOfResults = builder.totalNumberOfResults;
+    this.cursor = builder.cursor;
   }
 
   /**
@@ -170,4 +178,18 @@ public class SearchResultTO<T> implements Serializable {
     this.offset = offset;
   }
 
+  /**
+   * @return the cursor of the next page, null if the search has no cursor or for the last page
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * @param cursor the cursor to set
+   */
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
 }
@@ -0,0 +1,79 @@
+package de.mpg.imeji.test.logic.auth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.model.Grant;
+import de.mpg.imeji.logic.model.Grant.GrantType;
+import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.model.UserGroup;
+import de.mpg.imeji.logic.security.authorization.CompiledGrants;
+
+/**
+ * Tests for {@link CompiledGrants}
+ *
+ * @author saquet
+ *
+ */
+public class CompiledGrantsTest {
+  private static final String COLLECTION = "http://imeji.org/collection/1";
+
+  @Test
+  public void compiledOnce() {
+    final User user = newUser(GrantType.READ);
+    final CompiledGrants compiled = CompiledGrants.of(user);
+    Assert.assertSame(compiled, CompiledGrants.of(user));
+    Assert.assertTrue(compiled.hasAnyGrant(COLLECTION));
+    Assert.assertFalse(compiled.hasEditGrant(COLLECTION));
+  }
+
+  @Test
+  public void grant() {
+    final User user = newUser(GrantType.READ);
+    Assert.assertFalse(CompiledGrants.of(user).hasAdminGrant(COLLECTION));
+    // Grant changed in place, then written
+    user.getGrants().add(new Grant(GrantType.ADMIN, COLLECTION).toGrantString());
+    CompiledGrants.invalidateAll();
+    Assert.assertTrue(CompiledGrants.of(user).hasAdminGrant(COLLECTION));
+  }
+
+  @Test
+  public void revoke() {
+    final User user = newUser(GrantType.EDIT);
+    Assert.assertTrue(CompiledGrants.of(user).hasEditGrant(COLLECTION));
+    user.getGrants().clear();
+    CompiledGrants.invalidateAll();
+    Assert.assertFalse(CompiledGrants.of(user).hasAnyGrant(COLLECTION));
+  }
+
+  @Test
+  public void setGrants() {
+    final User user = newUser(GrantType.EDIT);
+    Assert.assertTrue(CompiledGrants.of(user).hasEditGrant(COLLECTION));
+    user.setGrants(new ArrayList<>());
+    Assert.assertFalse(CompiledGrants.of(user).hasAnyGrant(COLLECTION));
+  }
+
+  @Test
+  public void revokeFromGroup() {
+    final User user = newUser(null);
+    final UserGroup group = new UserGroup();
+    group.getGrants().add(new Grant(GrantType.EDIT, COLLECTION).toGrantString());
+    user.setGroups(new ArrayList<>(Arrays.asList(group)));
+    Assert.assertTrue(CompiledGrants.of(user).hasEditGrant(COLLECTION));
+    group.getGrants().clear();
+    CompiledGrants.invalidateAll();
+    Assert.assertFalse(CompiledGrants.of(user).hasAnyGrant(COLLECTION));
+  }
+
+  private User newUser(GrantType type) {
+    final User user = new User();
+    if (type != null) {
+      user.getGrants().add(new Grant(type, COLLECTION).toGrantString());
+    }
+    return user;
+  }
+}
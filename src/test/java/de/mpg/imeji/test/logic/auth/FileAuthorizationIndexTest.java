@@ -0,0 +1,101 @@
+package de.mpg.imeji.test.logic.auth;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.model.ContentVO;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex;
+import de.mpg.imeji.logic.security.authorization.FileAuthorizationIndex.FileOwner;
+
+/**
+ * Tests for the {@link FileAuthorizationIndex}, loaded from rows in memory
+ *
+ * @author saquet
+ *
+ */
+public class FileAuthorizationIndexTest {
+  private static final String ITEM_1 = "http://imeji.org/item/1";
+  private static final String ITEM_2 = "http://imeji.org/item/2";
+  private static final String COLLECTION = "http://imeji.org/collection/1";
+
+  @Before
+  public void init() {
+    FileAuthorizationIndex.init(
+        consumer -> Arrays.asList(ITEM_1 + "|" + COLLECTION + "|" + Status.RELEASED.getUriString(),
+            ITEM_2 + "|" + COLLECTION + "|" + Status.PENDING.getUriString()).forEach(consumer),
+        consumer -> Arrays.asList(file(1, "original") + "|" + ITEM_1, file(1, "thumbnail") + "|" + ITEM_1,
+            file(2, "original") + "|" + ITEM_2).forEach(consumer));
+  }
+
+  @Test
+  public void lookup() {
+    final FileOwner owner = FileAuthorizationIndex.getOwner(file(1, "thumbnail"));
+    Assert.assertEquals(URI.create(ITEM_1), owner.getItem());
+    Assert.assertEquals(URI.create(COLLECTION), owner.getCollection());
+    Assert.assertEquals(Status.RELEASED, owner.getStatus());
+    Assert.assertEquals(Status.PENDING, FileAuthorizationIndex.getOwner(file(2, "original")).getStatus());
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(3, "original")));
+    Assert.assertEquals(3, FileAuthorizationIndex.size());
+  }
+
+  @Test
+  public void updateContent() {
+    final ContentVO content = newContent(2);
+    FileAuthorizationIndex.index(Arrays.asList(content));
+    Assert.assertEquals(URI.create(ITEM_2), FileAuthorizationIndex.getOwner(file(2, "preview")).getItem());
+    FileAuthorizationIndex.remove(Arrays.asList(content));
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(2, "preview")));
+    Assert.assertEquals(2, FileAuthorizationIndex.size());
+  }
+
+  @Test
+  public void deleteItem() {
+    FileAuthorizationIndex.remove(Arrays.asList(newItem(ITEM_1)));
+    // The files of the deleted item are removed with it
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(1, "original")));
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(1, "thumbnail")));
+    Assert.assertEquals(1, FileAuthorizationIndex.size());
+    Assert.assertNotNull(FileAuthorizationIndex.getOwner(file(2, "original")));
+  }
+
+  @Test
+  public void deleteItemDuringLoad() {
+    FileAuthorizationIndex.init(consumer -> consumer.accept(ITEM_1 + "|" + COLLECTION + "|" + Status.RELEASED.getUriString()),
+        consumer -> {
+          consumer.accept(file(1, "original") + "|" + ITEM_1);
+          // Deleted while its files are read
+          FileAuthorizationIndex.remove(Arrays.asList(newItem(ITEM_1)));
+          consumer.accept(file(1, "thumbnail") + "|" + ITEM_1);
+        });
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(1, "original")));
+    Assert.assertNull(FileAuthorizationIndex.getOwner(file(1, "thumbnail")));
+    Assert.assertEquals(0, FileAuthorizationIndex.size());
+  }
+
+  private String file(int item, String resolution) {
+    return "http://imeji.org/file/" + item + "/" + resolution + ".jpg";
+  }
+
+  private Item newItem(String uri) {
+    final Item item = new Item();
+    item.setId(URI.create(uri));
+    item.setCollection(URI.create(COLLECTION));
+    return item;
+  }
+
+  private ContentVO newContent(int item) {
+    final ContentVO content = new ContentVO();
+    content.setItemId("http://imeji.org/item/" + item);
+    content.setOriginal(file(item, "original"));
+    content.setFull(file(item, "full"));
+    content.setPreview(file(item, "preview"));
+    content.setThumbnail(file(item, "thumbnail"));
+    return content;
+  }
+}
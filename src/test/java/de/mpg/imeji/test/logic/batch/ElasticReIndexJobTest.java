@@ -0,0 +1,214 @@
+package de.mpg.imeji.test.logic.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.batch.ElasticReIndexJob;
+import de.mpg.imeji.logic.batch.ElasticReIndexJob.Indexes;
+import de.mpg.imeji.logic.batch.ElasticReIndexJob.Source;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.test.logic.db.MemoryKeyValueStore;
+
+/**
+ * Tests for the {@link ElasticReIndexJob}, with sources and indexes in memory
+ *
+ * @author saquet
+ *
+ */
+public class ElasticReIndexJobTest {
+  private static final int PARTITIONS = 4;
+  private static final int PAGE_SIZE = 10;
+  private final List<List<String>> pages = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void partitions() throws Exception {
+    final MemoryKeyValueStore checkpoint = new MemoryKeyValueStore("reindexPartitions");
+    final MemoryIndexes indexes = new MemoryIndexes();
+    final List<String> uris = uris(100);
+    newJob(indexes, checkpoint, newSource("items", uris, null)).call();
+    // Each object read once, in pages of one partition
+    final List<String> read = new ArrayList<>();
+    for (final List<String> page : pages) {
+      Assert.assertTrue(page.size() <= PAGE_SIZE);
+      final int partition = Math.floorMod(page.get(0).hashCode(), PARTITIONS);
+      Assert.assertTrue(page.stream().allMatch(uri -> Math.floorMod(uri.hashCode(), PARTITIONS) == partition));
+      read.addAll(page);
+    }
+    Assert.assertEquals(uris.size(), read.size());
+    Assert.assertEquals(new HashSet<>(uris), indexes.getAliased(ElasticIndices.items));
+    Assert.assertEquals(0, checkpoint.size());
+  }
+
+  @Test
+  public void switchAliases() throws Exception {
+    final MemoryIndexes indexes = new MemoryIndexes();
+    indexes.switchTo(ElasticIndices.users, "users_old");
+    newJob(indexes, new MemoryKeyValueStore("reindexSwitch"), newSource("items", uris(10), null), new Source("users", ElasticIndices.users, 1, PAGE_SIZE) {
+      @Override
+      public List<String> uris() {
+        return Collections.singletonList("http://imeji.org/user/1");
+      }
+
+      @Override
+      public List<?> retrieve(List<String> uris) throws ImejiException {
+        throw new ImejiException("Database not available");
+      }
+    }).call();
+    Assert.assertEquals(new HashSet<>(uris(10)), indexes.getAliased(ElasticIndices.items));
+    Assert.assertNotNull(indexes.aliases.get(ElasticIndices.folders));
+    // The type which failed keeps its current index, the new one is deleted
+    Assert.assertEquals("users_old", indexes.aliases.get(ElasticIndices.users));
+    Assert.assertTrue(indexes.documents.keySet().stream().noneMatch(i -> i.startsWith("users_") && !i.equals("users_old")));
+    Assert.assertNull(ElasticService.getReindexTarget(ElasticIndices.items.name()));
+  }
+
+  @Test
+  public void resumeAfterCrash() throws Exception {
+    final MemoryKeyValueStore checkpoint = new MemoryKeyValueStore("reindexResume");
+    final MemoryIndexes indexes = new MemoryIndexes();
+    final List<String> uris = uris(50);
+    final String deleted = uris.get(7);
+    indexes.crashOnSwitch = true;
+    newJob(indexes, checkpoint, newSource("items", uris, deleted)).call();
+    Assert.assertTrue(indexes.aliases.isEmpty());
+    final int created = indexes.created.get();
+    final String newIndex = indexes.documents.keySet().stream().filter(i -> i.startsWith("items")).findFirst().get();
+    // The new index got the deleted object, read before it was deleted
+    Assert.assertTrue(indexes.documents.get(newIndex).contains(deleted));
+
+    pages.clear();
+    indexes.crashOnSwitch = false;
+    newJob(indexes, checkpoint, newSource("items", uris, null)).call();
+    // Resumed in the same indexes, without reading the partitions again
+    Assert.assertEquals(created, indexes.created.get());
+    Assert.assertTrue(pages.isEmpty());
+    Assert.assertEquals(newIndex, indexes.aliases.get(ElasticIndices.items));
+    final Set<String> expected = new HashSet<>(uris);
+    expected.remove(deleted);
+    Assert.assertEquals(expected, indexes.getAliased(ElasticIndices.items));
+    Assert.assertEquals(0, checkpoint.size());
+  }
+
+  @Test
+  public void versionConflictInNewIndex() {
+    ElasticService.setReindexTarget(ElasticIndices.items, "items_new");
+    try {
+      // A newer version has been written in the new index during the reindex
+      Assert.assertFalse(ElasticIndexer.isFailure(newResponse("items_new", OperationType.Index, 409, "version_conflict_engine_exception")));
+      Assert.assertTrue(ElasticIndexer.isFailure(newResponse("items_old", OperationType.Index, 409, "version_conflict_engine_exception")));
+      Assert.assertTrue(ElasticIndexer.isFailure(newResponse("items_new", OperationType.Index, 400, "mapper_parsing_exception")));
+      Assert.assertFalse(ElasticIndexer.isFailure(newResponse("items_new", OperationType.Delete, 404, "not_found")));
+    } finally {
+      ElasticService.removeReindexTarget(ElasticIndices.items);
+    }
+  }
+
+  private ElasticReIndexJob newJob(Indexes indexes, MemoryKeyValueStore checkpoint, Source... sources) {
+    final List<Source> list = new ArrayList<>();
+    Collections.addAll(list, sources);
+    return new ElasticReIndexJob(list, indexes, new KeyValueStoreService(checkpoint));
+  }
+
+  /**
+   * A source of items, which deletes one item right after it has been read
+   */
+  private Source newSource(String name, List<String> uris, String deletedWhenRead) {
+    return new Source(name, ElasticIndices.items, PARTITIONS, PAGE_SIZE) {
+      @Override
+      public List<String> uris() {
+        return uris;
+      }
+
+      @Override
+      public List<?> retrieve(List<String> page) throws ImejiException {
+        pages.add(new ArrayList<>(page));
+        if (page.contains(deletedWhenRead)) {
+          ElasticService.addReindexDeletes(ElasticIndices.items.name(), Collections.singletonMap(deletedWhenRead, null));
+        }
+        return page;
+      }
+    };
+  }
+
+  private List<String> uris(int size) {
+    final List<String> uris = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      uris.add("http://imeji.org/item/" + i);
+    }
+    return uris;
+  }
+
+  private BulkResponseItem newResponse(String index, OperationType type, int status, String error) {
+    return BulkResponseItem.of(b -> b.operationType(type).index(index).id("1").status(status).error(e -> e.type(error).reason(error)));
+  }
+
+  /**
+   * Indexes in memory: the documents are the uris of the objects
+   */
+  private static class MemoryIndexes implements Indexes {
+    private final Map<String, Set<String>> documents = new ConcurrentHashMap<>();
+    private final Map<ElasticIndices, String> aliases = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile boolean crashOnSwitch = false;
+
+    @Override
+    public String create(ElasticIndices alias) {
+      final String index = alias.name() + "_" + created.incrementAndGet();
+      documents.put(index, ConcurrentHashMap.newKeySet());
+      return index;
+    }
+
+    @Override
+    public boolean exists(String index) {
+      return documents.containsKey(index);
+    }
+
+    @Override
+    public void index(String index, ElasticIndices alias, List<?> objects) {
+      objects.forEach(o -> documents.get(index).add((String) o));
+    }
+
+    @Override
+    public void delete(String index, ElasticIndices alias, Map<String, String> ids) {
+      documents.get(index).removeAll(ids.keySet());
+    }
+
+    @Override
+    public void switchAlias(ElasticIndices alias, String index) throws IOException {
+      if (crashOnSwitch) {
+        throw new IOException("Stopped");
+      }
+      switchTo(alias, index);
+    }
+
+    @Override
+    public void deleteIndex(String index) {
+      documents.remove(index);
+    }
+
+    private void switchTo(ElasticIndices alias, String index) {
+      documents.putIfAbsent(index, ConcurrentHashMap.newKeySet());
+      aliases.put(alias, index);
+    }
+
+    private Set<String> getAliased(ElasticIndices alias) {
+      return documents.get(aliases.get(alias));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package de.mpg.imeji.test.logic.batch;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.batch.ItemBatchJob;
+import de.mpg.imeji.logic.batch.ItemBatchJob.Operation;
+import de.mpg.imeji.logic.batch.ItemBatchJob.State;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.License;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.model.User;
+import de.mpg.imeji.logic.search.model.SearchQuery;
+import de.mpg.imeji.logic.search.model.SearchResult;
+
+/**
+ * Tests for {@link ItemBatchJob}
+ *
+ * @author saquet
+ *
+ */
+public class ItemBatchJobTest {
+  private static final URI COLLECTION = URI.create("http://imeji.org/collection/1");
+  private static final URI TARGET = URI.create("http://imeji.org/collection/2");
+
+  /**
+   * A job reading its items from a list, in chunks of 2 items
+   *
+   * @author saquet
+   *
+   */
+  private static class ListJob extends ItemBatchJob {
+    private static final long serialVersionUID = 1L;
+    private final List<String> uris;
+    private final int found;
+    private int failAtChunk = -1;
+    private int saved = 0;
+
+    public ListJob(List<String> uris, int found) {
+      super(Operation.RELEASE, COLLECTION, new SearchQuery(), new User());
+      this.uris = uris;
+      this.found = found;
+    }
+
+    @Override
+    protected SearchResult search(String cursor) throws ImejiException {
+      final int from = cursor != null ? Integer.parseInt(cursor) : 0;
+      final int to = Math.min(uris.size(), from + 2);
+      final SearchResult result = new SearchResult(new ArrayList<>(uris.subList(from, to)), found, found, found, found, 0, null);
+      if (to < uris.size()) {
+        result.setCursor(Integer.toString(to));
+      }
+      return result;
+    }
+
+    @Override
+    protected int processChunk(List<String> chunk) throws ImejiException {
+      if (chunk.contains("item" + failAtChunk * 2)) {
+        failAtChunk = -1;
+        throw new ImejiException("Error processing " + chunk);
+      }
+      // The first item of each chunk is skipped
+      return chunk.size() - 1;
+    }
+
+    @Override
+    protected synchronized void save() {
+      saved++;
+    }
+  }
+
+  @Test
+  public void progressAndResume() {
+    final ListJob job = new ListJob(Arrays.asList("item0", "item1", "item2", "item3", "item4", "item5"), 6);
+    job.failAtChunk = 2;
+    job.call();
+    Assert.assertEquals(State.FAILED, job.getState());
+    Assert.assertEquals(6, job.getTotal());
+    Assert.assertEquals(2, job.getProcessed());
+    Assert.assertEquals(2, job.getSkipped());
+    Assert.assertEquals(66, job.getProgress());
+    // Progress saved after each chunk, and at the end
+    Assert.assertEquals(3, job.saved);
+    // A resumed job searches again from the start
+    job.call();
+    Assert.assertEquals(State.DONE, job.getState());
+    Assert.assertEquals(2 + 3, job.getProcessed());
+    Assert.assertEquals(3, job.getSkipped());
+    Assert.assertEquals(100, job.getProgress());
+  }
+
+  @Test
+  public void failIfNothingRead() {
+    final ListJob job = new ListJob(new ArrayList<>(), 3);
+    job.call();
+    Assert.assertEquals(State.FAILED, job.getState());
+    Assert.assertNotNull(job.getError());
+    final ListJob empty = new ListJob(new ArrayList<>(), 0);
+    empty.call();
+    Assert.assertEquals(State.DONE, empty.getState());
+  }
+
+  @Test
+  public void isToProcess() {
+    final ItemBatchJob release = new ItemBatchJob(Operation.RELEASE, COLLECTION, new SearchQuery(), new User());
+    Assert.assertTrue(release.isToProcess(item(Status.PENDING)));
+    Assert.assertFalse(release.isToProcess(item(Status.RELEASED)));
+    final ItemBatchJob withdraw = new ItemBatchJob(Operation.WITHDRAW, COLLECTION, new SearchQuery(), new User());
+    Assert.assertTrue(withdraw.isToProcess(item(Status.RELEASED)));
+    Assert.assertFalse(withdraw.isToProcess(item(Status.WITHDRAWN)));
+    final ItemBatchJob move = new ItemBatchJob(Operation.MOVE, COLLECTION, new SearchQuery(), new User()).target(TARGET);
+    Assert.assertTrue(move.isToProcess(item(Status.PENDING)));
+    final Item moved = item(Status.PENDING);
+    moved.setCollection(TARGET);
+    Assert.assertFalse(move.isToProcess(moved));
+  }
+
+  @Test
+  public void isToProcessLicense() {
+    final ItemBatchJob keep =
+        new ItemBatchJob(Operation.LICENSE, COLLECTION, new SearchQuery(), new User()).license(license("CC0"), false);
+    final ItemBatchJob overwrite =
+        new ItemBatchJob(Operation.LICENSE, COLLECTION, new SearchQuery(), new User()).license(license("CC0"), true);
+    final Item pending = item(Status.PENDING);
+    Assert.assertTrue(keep.isToProcess(pending));
+    pending.setLicenses(new ArrayList<>(Arrays.asList(license("CC_BY"))));
+    // Pending item with a license: changed only if the licenses are overwritten
+    Assert.assertFalse(keep.isToProcess(pending));
+    Assert.assertTrue(overwrite.isToProcess(pending));
+    pending.setLicenses(new ArrayList<>(Arrays.asList(license("CC0"))));
+    Assert.assertFalse(overwrite.isToProcess(pending));
+    // Released item: processed if its last license is another one
+    final Item released = item(Status.RELEASED);
+    released.setLicenses(new ArrayList<>(Arrays.asList(license("CC0"), license("CC_BY"))));
+    Assert.assertTrue(keep.isToProcess(released));
+    released.getLicenses().add(license("CC0"));
+    Assert.assertFalse(keep.isToProcess(released));
+  }
+
+  @Test
+  public void addLicense() {
+    final ItemBatchJob job = new ItemBatchJob(Operation.LICENSE, COLLECTION, new SearchQuery(), new User()).license(license("CC0"), true);
+    final Item pending = item(Status.PENDING);
+    pending.setLicenses(new ArrayList<>(Arrays.asList(license("CC_BY"), license("PDDL"))));
+    job.addLicense(pending);
+    Assert.assertEquals(1, pending.getLicenses().size());
+    Assert.assertEquals("CC0", pending.getLicenses().get(0).getName());
+    final Item released = item(Status.RELEASED);
+    released.setLicenses(new ArrayList<>(Arrays.asList(license("CC_BY"))));
+    job.addLicense(released);
+    Assert.assertEquals(2, released.getLicenses().size());
+    Assert.assertEquals("CC_BY", released.getLicenses().get(0).getName());
+    Assert.assertEquals("CC0", released.getLicenses().get(1).getName());
+    final Item noLicense = item(Status.RELEASED);
+    noLicense.setLicenses(null);
+    job.addLicense(noLicense);
+    Assert.assertEquals(1, noLicense.getLicenses().size());
+  }
+
+  private Item item(Status status) {
+    final Item item = new Item();
+    item.setStatus(status);
+    item.setCollection(COLLECTION);
+    return item;
+  }
+
+  private License license(String name) {
+    final License license = new License();
+    license.setName(name);
+    license.setUrl("http://licenses.org/" + name);
+    return license;
+  }
+}
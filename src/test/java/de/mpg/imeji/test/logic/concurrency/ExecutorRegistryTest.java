@@ -0,0 +1,60 @@
+package de.mpg.imeji.test.logic.concurrency;
+
+import static org.awaitility.Awaitility.await;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.concurrency.ExecutorRegistry;
+import de.mpg.imeji.logic.concurrency.MonitoredThreadPoolExecutor;
+
+/**
+ * Tests for {@link ExecutorRegistry}
+ *
+ * @author saquet
+ *
+ */
+public class ExecutorRegistryTest {
+
+  @Test
+  public void samePoolForSameName() {
+    Assert.assertSame(ExecutorRegistry.get(ExecutorRegistry.SEARCH), ExecutorRegistry.get(ExecutorRegistry.SEARCH));
+    Assert.assertNotSame(ExecutorRegistry.get(ExecutorRegistry.SEARCH), ExecutorRegistry.get(ExecutorRegistry.WRITER));
+  }
+
+  @Test
+  public void executeAndMeasure() throws Exception {
+    final MonitoredThreadPoolExecutor executor = ExecutorRegistry.get(ExecutorRegistry.WRITER);
+    final long executed = executor.getExecutedCount();
+    final Future<Integer> future = executor.submit(() -> 1);
+    Assert.assertEquals(Integer.valueOf(1), future.get());
+    // The metrics are updated after the result of the task is available
+    await().until(() -> executor.getExecutedCount() == executed + 1);
+    Assert.assertEquals(ExecutorRegistry.WRITER, executor.getName());
+    Assert.assertTrue(executor.getMaximumPoolSize() > 0);
+  }
+
+  @Test
+  public void failAfterShutdown() throws Exception {
+    final MonitoredThreadPoolExecutor executor = ExecutorRegistry.get(ExecutorRegistry.CONTENT_EXTRACTION);
+    executor.shutdown();
+    try {
+      ExecutorRegistry.get(ExecutorRegistry.CONTENT_EXTRACTION);
+      Assert.fail("A pool which has been shut down must not be used");
+    } catch (final RejectedExecutionException e) {
+      // expected
+    }
+    ExecutorRegistry.start();
+    final MonitoredThreadPoolExecutor recreated = ExecutorRegistry.get(ExecutorRegistry.CONTENT_EXTRACTION);
+    Assert.assertNotSame(executor, recreated);
+    Assert.assertEquals(Integer.valueOf(2), recreated.submit(() -> 2).get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownPool() {
+    ExecutorRegistry.get("unknown");
+  }
+}
@@ -0,0 +1,93 @@
+package de.mpg.imeji.test.logic.concurrency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.concurrency.Lock;
+import de.mpg.imeji.logic.concurrency.Locks;
+import de.mpg.imeji.logic.concurrency.TimedLock;
+
+/**
+ * Tests for {@link Locks} and {@link TimedLock}
+ * 
+ * @author saquet
+ *
+ */
+public class LocksTest {
+
+  @Test
+  public void tryLockTimeout() {
+    final TimedLock lock = new TimedLock("Test");
+    Assert.assertTrue(lock.tryLock(100, TimeUnit.MILLISECONDS));
+    Assert.assertNotNull(lock.getHolder());
+    try {
+      lock.tryLock(100, TimeUnit.MILLISECONDS);
+      Assert.fail("Lock should not be acquired twice");
+    } catch (final RuntimeException e) {
+      // expected
+    }
+    Assert.assertEquals(1, lock.getMetrics().getAcquisitions());
+    Assert.assertEquals(1, lock.getMetrics().getTimeouts());
+    lock.unlock();
+    Assert.assertNull(lock.getHolder());
+    // Unlocking twice must not release a second permit
+    lock.unlock();
+    Assert.assertTrue(lock.tryLock(100, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(1, lock.getMetrics().getTimeouts());
+    lock.unlock();
+  }
+
+  @Test
+  public void releaseByOwnerOnly() throws InterruptedException {
+    final TimedLock lock = new TimedLock("Test");
+    lock.tryLock(100, TimeUnit.MILLISECONDS);
+    final CountDownLatch refused = new CountDownLatch(1);
+    new Thread(() -> {
+      try {
+        lock.unlock();
+      } catch (final IllegalMonitorStateException e) {
+        refused.countDown();
+      }
+    }).start();
+    Assert.assertTrue(refused.await(1, TimeUnit.SECONDS));
+    Assert.assertNotNull(lock.getHolder());
+    Assert.assertEquals(Thread.currentThread().getName(), lock.getHolder().getThread());
+    lock.unlock();
+    Assert.assertNull(lock.getHolder());
+  }
+
+  @Test
+  public void lockForWriteWaits() throws InterruptedException {
+    Locks.lockForWrite();
+    final CountDownLatch acquired = new CountDownLatch(1);
+    final Thread writer = new Thread(() -> {
+      Locks.lockForWrite();
+      acquired.countDown();
+      Locks.releaseLockForWrite();
+    });
+    writer.start();
+    Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+    Locks.releaseLockForWrite();
+    Assert.assertTrue(acquired.await(1, TimeUnit.SECONDS));
+    writer.join();
+  }
+
+  @Test
+  public void lockObject() {
+    final Lock userLock = new Lock("http://imeji.org/test/locks/1", "user@imeji.org");
+    Locks.lock(userLock);
+    Assert.assertTrue(Locks.isLocked(userLock.getUri(), "other@imeji.org"));
+    Assert.assertFalse(Locks.isLocked(userLock.getUri(), "user@imeji.org"));
+    try {
+      Locks.lock(new Lock(userLock.getUri(), "other@imeji.org"));
+      Assert.fail("Object should already be locked");
+    } catch (final RuntimeException e) {
+      // expected
+    }
+    Locks.unLock(userLock);
+    Assert.assertFalse(Locks.isLocked(userLock.getUri(), "other@imeji.org"));
+  }
+}
@@ -0,0 +1,89 @@
+package de.mpg.imeji.test.logic.db;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.db.indexretry.model.RetryDeleteFromIndexRequest;
+import de.mpg.imeji.logic.db.indexretry.model.RetryIndexRequest;
+import de.mpg.imeji.logic.db.keyValue.BinaryCodec;
+import de.mpg.imeji.logic.db.keyValue.JavaSerializationCodec;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.security.sharing.invitation.Invitation;
+import de.mpg.imeji.logic.storage.internal.DerivativeTask;
+
+/**
+ * Tests for {@link BinaryCodec}
+ *
+ * @author saquet
+ *
+ */
+public class BinaryCodecTest {
+  private final BinaryCodec codec = new BinaryCodec();
+  private final JavaSerializationCodec javaCodec = new JavaSerializationCodec();
+
+  @Test
+  public void invitation() throws Exception {
+    final Invitation invitation = new Invitation("john@example.org", "http://imeji.org/collection/c", "EDIT");
+    final byte[] bytes = codec.encode(invitation);
+    final Invitation read = (Invitation) codec.decode(bytes);
+    Assert.assertEquals(invitation.getId(), read.getId());
+    Assert.assertEquals(invitation.getInviteeEmail(), read.getInviteeEmail());
+    Assert.assertEquals(invitation.getObjectUri(), read.getObjectUri());
+    Assert.assertEquals(invitation.getRole(), read.getRole());
+    Assert.assertTrue(bytes.length < javaCodec.encode(invitation).length);
+  }
+
+  @Test
+  public void derivativeTask() throws Exception {
+    final DerivativeTask task = DerivativeTask.regenerate("http://imeji.org/file/original.jpg");
+    final DerivativeTask read = (DerivativeTask) codec.decode(codec.encode(task));
+    Assert.assertEquals(task.getType(), read.getType());
+    Assert.assertEquals(task.getOriginalUrl(), read.getOriginalUrl());
+    Assert.assertEquals(task.getLane(), read.getLane());
+    Assert.assertEquals(task.getSequence(), read.getSequence());
+  }
+
+  @Test
+  public void retryRequests() throws Exception {
+    final Item item = new Item();
+    item.setId(URI.create("http://imeji.org/item/1"));
+    final RetryIndexRequest index = (RetryIndexRequest) RetryIndexRequest.getRetryIndexRequest(item);
+    final RetryIndexRequest readIndex = (RetryIndexRequest) codec.decode(codec.encode(index));
+    Assert.assertEquals(index.getUri(), readIndex.getUri());
+    Assert.assertEquals(Item.class, readIndex.getObjectClass());
+    Assert.assertEquals(index.getFailTime().getTimeInMillis(), readIndex.getFailTime().getTimeInMillis());
+    final RetryDeleteFromIndexRequest delete = (RetryDeleteFromIndexRequest) RetryDeleteFromIndexRequest.getRetryDeleteFromIndexRequest(item);
+    final RetryDeleteFromIndexRequest readDelete = (RetryDeleteFromIndexRequest) codec.decode(codec.encode(delete));
+    Assert.assertEquals(delete.getUri(), readDelete.getUri());
+    Assert.assertEquals(item.getId(), ((Item) readDelete.getObjectToDelete()).getId());
+  }
+
+  @Test
+  public void stringAndObjectWithoutWriter() throws Exception {
+    Assert.assertEquals("elastic:items:partition", codec.decode(codec.encode("elastic:items:partition")));
+    final List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+    Assert.assertEquals(list, codec.decode(codec.encode(list)));
+  }
+
+  @Test
+  public void legacyValues() throws Exception {
+    final Invitation invitation = new Invitation("john@example.org", "http://imeji.org/collection/c", "READ");
+    final byte[] legacy = javaCodec.encode(invitation);
+    Assert.assertTrue(codec.isLegacy(legacy));
+    Assert.assertFalse(codec.isLegacy(codec.encode(invitation)));
+    Assert.assertEquals(invitation.getId(), ((Invitation) codec.decode(legacy)).getId());
+  }
+
+  @Test(expected = IOException.class)
+  public void unsupportedVersion() throws Exception {
+    final byte[] bytes = codec.encode("value");
+    bytes[2] = 99;
+    codec.decode(bytes);
+  }
+}
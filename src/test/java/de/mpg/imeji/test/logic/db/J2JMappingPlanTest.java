@@ -0,0 +1,86 @@
+package de.mpg.imeji.test.logic.db;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.j2j.helper.J2JHelper;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan;
+import de.mpg.imeji.j2j.helper.J2JMappingPlan.FieldPlan;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.License;
+
+/**
+ * Tests for {@link J2JMappingPlan}
+ *
+ * @author saquet
+ *
+ */
+public class J2JMappingPlanTest {
+
+  @Test
+  public void planIsCreatedOnce() {
+    Assert.assertSame(J2JMappingPlan.of(Item.class), J2JMappingPlan.of(new Item()));
+  }
+
+  @Test
+  public void fieldsOfClassAndSuperclasses() {
+    final List<String> names = new ArrayList<>();
+    for (final FieldPlan f : J2JMappingPlan.of(Item.class).getFields()) {
+      names.add(f.getField().getName());
+    }
+    Assert.assertEquals("collection", names.get(0));
+    Assert.assertTrue(names.contains("licenses"));
+    Assert.assertTrue(names.contains("createdBy"));
+    Assert.assertFalse(names.contains("id"));
+    Assert.assertFalse(names.contains("LOGGER"));
+    Assert.assertEquals(J2JHelper.getAllObjectFields(Item.class).size(), names.size());
+  }
+
+  @Test
+  public void readAndWriteId() {
+    final Item item = new Item();
+    final URI id = URI.create("http://imeji.org/item/1");
+    J2JMappingPlan.of(item).setId(item, id);
+    Assert.assertEquals(id, item.getId());
+    Assert.assertEquals(id, J2JHelper.getId(item));
+  }
+
+  @Test
+  public void readAndWriteFields() {
+    final Item item = new Item();
+    final FieldPlan filename = getField("filename");
+    filename.set(item, "test.jpg");
+    Assert.assertEquals("test.jpg", item.getFilename());
+    Assert.assertEquals("test.jpg", filename.get(item));
+    Assert.assertTrue(filename.isLiteral());
+    Assert.assertEquals("http://imeji.org/terms/filename", filename.getLiteralProperty().getURI());
+    final FieldPlan fileSize = getField("fileSize");
+    fileSize.set(item, 42L);
+    Assert.assertEquals(42L, fileSize.get(item));
+  }
+
+  @Test
+  public void uriResourceAndLists() {
+    final FieldPlan collection = getField("collection");
+    Assert.assertTrue(collection.isURIResource(null));
+    Assert.assertEquals("http://imeji.org/terms/collection", collection.getURIResourceProperty().getURI());
+    final FieldPlan licenses = getField("licenses");
+    Assert.assertTrue(licenses.isLazyList());
+    Assert.assertFalse(licenses.isURIResource(new License()));
+    Assert.assertTrue(licenses.newListElement() instanceof License);
+    Assert.assertEquals("http://imeji.org/terms/license", licenses.getLazyListProperty().getURI());
+  }
+
+  private FieldPlan getField(String name) {
+    for (final FieldPlan f : J2JMappingPlan.of(Item.class).getFields()) {
+      if (f.getField().getName().equals(name)) {
+        return f;
+      }
+    }
+    throw new AssertionError("No field " + name);
+  }
+}
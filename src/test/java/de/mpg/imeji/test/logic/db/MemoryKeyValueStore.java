@@ -0,0 +1,90 @@
+package de.mpg.imeji.test.logic.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.mpg.imeji.logic.db.keyValue.KeyValueStore;
+
+/**
+ * {@link KeyValueStore} in memory, for the tests of the classes persisting their state in a store.
+ * Stopping the store keeps its values, as a file store does
+ *
+ * @author saquet
+ *
+ */
+public class MemoryKeyValueStore implements KeyValueStore {
+  private final String name;
+  private final Map<String, byte[]> map = new ConcurrentHashMap<>();
+  private boolean started = false;
+
+  public MemoryKeyValueStore(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public byte[] get(String key) {
+    return map.get(key);
+  }
+
+  @Override
+  public void put(String key, byte[] value) {
+    map.put(key, value);
+  }
+
+  @Override
+  public void delete(String key) {
+    map.remove(key);
+  }
+
+  @Override
+  public List<byte[]> getList(String keyPattern) {
+    final List<byte[]> list = new ArrayList<>();
+    for (final Map.Entry<String, byte[]> e : map.entrySet()) {
+      if (e.getKey().matches(keyPattern)) {
+        list.add(e.getValue());
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public List<String> getKeys() {
+    return new ArrayList<>(map.keySet());
+  }
+
+  @Override
+  public void start() {
+    started = true;
+  }
+
+  @Override
+  public void stop() {
+    started = false;
+  }
+
+  @Override
+  public boolean isStarted() {
+    return started;
+  }
+
+  @Override
+  public void reset() {
+    map.clear();
+  }
+
+  /**
+   * Number of values in the store
+   *
+   * @return
+   */
+  public int size() {
+    return map.size();
+  }
+}
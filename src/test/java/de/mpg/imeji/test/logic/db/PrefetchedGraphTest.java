@@ -0,0 +1,73 @@
+package de.mpg.imeji.test.logic.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.j2j.persistence.PrefetchedGraph;
+
+/**
+ * Tests for {@link PrefetchedGraph}
+ *
+ * @author saquet
+ *
+ */
+public class PrefetchedGraphTest {
+  private static final String NS = "http://imeji.org/terms/";
+
+  @Test
+  public void readSubjectsAndTheirResources() {
+    final Model source = ModelFactory.createDefaultModel();
+    final Property metadata = source.createProperty(NS + "metadata");
+    final Property text = source.createProperty(NS + "text");
+    final Resource item1 = source.createResource("http://imeji.org/item/1");
+    final Resource item2 = source.createResource("http://imeji.org/item/2");
+    for (int i = 0; i < 20; i++) {
+      final Resource md = source.createResource(item1.getURI() + "/metadata@pos" + i);
+      item1.addProperty(metadata, md);
+      md.addProperty(text, "value " + i);
+    }
+    item2.addProperty(text, "other");
+    final Model prefetched = ModelFactory.createModelForGraph(
+        PrefetchedGraph.load(source.getGraph(), Arrays.asList(item1.asNode()), new HashSet<Node>()));
+    Assert.assertTrue(prefetched.contains(prefetched.getResource(item1.getURI()), null));
+    Assert.assertFalse(prefetched.contains(prefetched.getResource(item2.getURI()), null));
+    Assert.assertEquals(40, prefetched.size());
+    Assert.assertEquals(listObjects(item1, metadata), listObjects(prefetched.getResource(item1.getURI()), metadata));
+    Assert.assertEquals("value 3",
+        prefetched.getResource(item1.getURI() + "/metadata@pos3").getProperty(text).getString());
+  }
+
+  @Test
+  public void notFollowedPredicates() {
+    final Model source = ModelFactory.createDefaultModel();
+    final Property metadata = source.createProperty(NS + "metadata");
+    final Property text = source.createProperty(NS + "text");
+    final Resource item = source.createResource("http://imeji.org/item/1");
+    final Resource md = source.createResource(item.getURI() + "/metadata@pos0");
+    item.addProperty(metadata, md);
+    md.addProperty(text, "value");
+    final Model prefetched = ModelFactory.createModelForGraph(PrefetchedGraph.load(source.getGraph(),
+        Arrays.asList(item.asNode()), new HashSet<>(Arrays.asList(metadata.asNode()))));
+    Assert.assertEquals(1, prefetched.size());
+    Assert.assertFalse(prefetched.contains(prefetched.getResource(md.getURI()), null));
+  }
+
+  private List<String> listObjects(Resource subject, Property p) {
+    final List<String> l = new ArrayList<>();
+    for (final StmtIterator it = subject.listProperties(p); it.hasNext();) {
+      l.add(it.next().getObject().toString());
+    }
+    return l;
+  }
+}
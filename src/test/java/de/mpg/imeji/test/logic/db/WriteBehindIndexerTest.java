@@ -0,0 +1,141 @@
+package de.mpg.imeji.test.logic.db;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.db.indexretry.model.RetryBaseRequest;
+import de.mpg.imeji.logic.db.indexretry.model.RetryDeleteFromIndexRequest;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.db.writer.WriteBehindIndexer;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.User;
+
+/**
+ * Tests for the {@link WriteBehindIndexer}, with an outbox in memory and a bulk indexer recording
+ * the indexed objects
+ *
+ * @author saquet
+ *
+ */
+public class WriteBehindIndexerTest {
+  private final List<Object> indexed = Collections.synchronizedList(new ArrayList<>());
+  private final List<RetryBaseRequest> retried = Collections.synchronizedList(new ArrayList<>());
+  private final List<WriteBehindIndexer> indexers = new ArrayList<>();
+
+  @After
+  public void shutdown() {
+    indexers.forEach(WriteBehindIndexer::shutdown);
+  }
+
+  @Test
+  public void flush() throws Exception {
+    final MemoryKeyValueStore outbox = new MemoryKeyValueStore("indexOutboxFlush");
+    final WriteBehindIndexer indexer = newIndexer(outbox, (type, objects, delete) -> indexed.addAll(objects));
+    final Item first = newItem("1");
+    final Item changed = newItem("1");
+    indexer.index(Arrays.asList(first, newItem("2")), null);
+    indexer.index(Arrays.asList(changed), null);
+    Assert.assertEquals(3, outbox.size());
+    Assert.assertEquals(2, indexer.getPending());
+    indexer.start();
+    indexer.shutdown();
+    // The changes of item 1 are coalesced: only its last version is indexed
+    Assert.assertEquals(2, indexed.size());
+    Assert.assertTrue(indexed.contains(changed));
+    Assert.assertFalse(indexed.contains(first));
+    Assert.assertEquals(1, indexer.getCoalesced());
+    Assert.assertEquals(0, outbox.size());
+    Assert.assertTrue(retried.isEmpty());
+  }
+
+  @Test
+  public void readYourWrites() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final WriteBehindIndexer indexer = newIndexer(new MemoryKeyValueStore("indexOutboxAwait"), (type, objects, delete) -> {
+      release.await(10, TimeUnit.SECONDS);
+      indexed.addAll(objects);
+    });
+    indexer.start();
+    final User user = newUser("1");
+    final Item item = newItem("1");
+    indexer.index(Arrays.asList(item), user);
+    final CountDownLatch found = new CountDownLatch(1);
+    new Thread(() -> {
+      indexer.awaitIndexed(user);
+      if (indexed.contains(item)) {
+        found.countDown();
+      }
+    }).start();
+    // Not returned as long as the change isn't indexed
+    Assert.assertFalse(found.await(300, TimeUnit.MILLISECONDS));
+    release.countDown();
+    Assert.assertTrue(found.await(10, TimeUnit.SECONDS));
+    // Other users don't wait
+    indexer.awaitIndexed(newUser("2"));
+  }
+
+  @Test
+  public void failure() throws Exception {
+    final MemoryKeyValueStore outbox = new MemoryKeyValueStore("indexOutboxFailure");
+    final WriteBehindIndexer indexer = newIndexer(outbox, (type, objects, delete) -> {
+      throw new Exception("Index not available");
+    });
+    indexer.start();
+    indexer.delete(Arrays.asList(newItem("1")), null);
+    indexer.shutdown();
+    Assert.assertEquals(1, retried.size());
+    Assert.assertTrue(retried.get(0) instanceof RetryDeleteFromIndexRequest);
+    Assert.assertEquals(1, indexer.getFailed());
+    Assert.assertEquals(0, outbox.size());
+  }
+
+  @Test
+  public void replayAfterCrash() throws Exception {
+    final MemoryKeyValueStore outbox = new MemoryKeyValueStore("indexOutboxReplay");
+    // Never started: the changes are only in the outbox when imeji stops
+    final WriteBehindIndexer crashed = new WriteBehindIndexer(new KeyValueStoreService(outbox), (type, objects, delete) -> {
+      Assert.fail("Not started");
+    }, retried::addAll);
+    crashed.index(Arrays.asList(newItem("1"), newItem("2")), null);
+    crashed.delete(Arrays.asList(newItem("1")), null);
+    Assert.assertEquals(3, outbox.size());
+
+    final WriteBehindIndexer restarted = newIndexer(outbox, (type, objects, delete) -> indexed.addAll(objects));
+    restarted.start();
+    // Only the last change of each object is replayed
+    Assert.assertEquals(2, retried.size());
+    final List<URI> uris = retried.stream().map(RetryBaseRequest::getUri).collect(Collectors.toList());
+    Assert.assertTrue(uris.containsAll(Arrays.asList(newItem("1").getId(), newItem("2").getId())));
+    Assert.assertTrue(retried.stream().anyMatch(r -> r instanceof RetryDeleteFromIndexRequest && r.getUri().equals(newItem("1").getId())));
+    Assert.assertEquals(0, outbox.size());
+    Assert.assertTrue(indexed.isEmpty());
+  }
+
+  private WriteBehindIndexer newIndexer(MemoryKeyValueStore outbox, WriteBehindIndexer.BulkIndexer bulkIndexer) {
+    final WriteBehindIndexer indexer = new WriteBehindIndexer(new KeyValueStoreService(outbox), bulkIndexer, retried::addAll);
+    indexers.add(indexer);
+    return indexer;
+  }
+
+  private Item newItem(String id) {
+    final Item item = new Item();
+    item.setId(URI.create("http://imeji.org/item/" + id));
+    return item;
+  }
+
+  private User newUser(String id) {
+    final User user = new User();
+    user.setId(URI.create("http://imeji.org/user/" + id));
+    return user;
+  }
+}
@@ -0,0 +1,71 @@
+package de.mpg.imeji.test.logic.events;
+
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.events.messages.Message;
+import de.mpg.imeji.logic.events.messages.Message.MessageType;
+import de.mpg.imeji.logic.events.messages.MessageCodec;
+import de.mpg.imeji.logic.events.messages.MoveCollectionMessage;
+import de.mpg.imeji.logic.events.messages.MoveItemMessage;
+import de.mpg.imeji.logic.events.messages.ShareMessage;
+import de.mpg.imeji.logic.model.CollectionImeji;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.User;
+
+/**
+ * Tests for {@link MessageCodec}
+ *
+ * @author saquet
+ *
+ */
+public class MessageCodecTest {
+
+  @Test
+  public void moveItemMessage() throws Exception {
+    final Item item = new Item();
+    item.setId(URI.create("http://imeji.org/item/1"));
+    item.setCollection(URI.create("http://imeji.org/collection/a"));
+    item.setFilename("test.jpg");
+    final MoveItemMessage message = new MoveItemMessage(MessageType.MOVE_ITEM, item, "b", "a");
+    final MoveItemMessage read = (MoveItemMessage) MessageCodec.decode(MessageCodec.encode(message));
+    assertSameMessage(message, read);
+    Assert.assertEquals("test.jpg", read.getFilename());
+    Assert.assertEquals(message.getItemId(), read.getItemId());
+    Assert.assertEquals("a", read.getPreviousParent());
+  }
+
+  @Test
+  public void moveCollectionMessage() throws Exception {
+    final CollectionImeji collection = new CollectionImeji();
+    collection.setId(URI.create("http://imeji.org/collection/c"));
+    collection.setTitle("A collection");
+    final MoveCollectionMessage message = new MoveCollectionMessage(MessageType.MOVE_COLLECTION, collection, "b", null);
+    final MoveCollectionMessage read = (MoveCollectionMessage) MessageCodec.decode(MessageCodec.encode(message));
+    assertSameMessage(message, read);
+    Assert.assertEquals("b", read.getParent());
+    Assert.assertEquals(message.getName(), read.getName());
+    Assert.assertNull(read.getPreviousParent());
+  }
+
+  @Test
+  public void shareMessage() throws Exception {
+    final User user = new User();
+    user.setEmail("john@example.org");
+    final ShareMessage message = new ShareMessage(MessageType.UNSHARE, "http://imeji.org/collection/c", user);
+    final ShareMessage read = (ShareMessage) MessageCodec.decode(MessageCodec.encode(message));
+    assertSameMessage(message, read);
+    Assert.assertEquals("john@example.org", read.getEmail());
+    Assert.assertNull(read.getGroupId());
+  }
+
+  private void assertSameMessage(Message expected, Message actual) {
+    Assert.assertEquals(expected.getClass(), actual.getClass());
+    Assert.assertEquals(expected.getMessageId(), actual.getMessageId());
+    Assert.assertEquals(expected.getType(), actual.getType());
+    Assert.assertEquals(expected.getTime(), actual.getTime());
+    Assert.assertEquals(expected.getObjectId(), actual.getObjectId());
+  }
+}
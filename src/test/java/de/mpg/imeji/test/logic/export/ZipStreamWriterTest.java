@@ -0,0 +1,95 @@
+package de.mpg.imeji.test.logic.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.export.util.ZipStreamWriter;
+
+/**
+ * Tests for {@link ZipStreamWriter}
+ *
+ * @author saquet
+ *
+ */
+public class ZipStreamWriterTest {
+  private static final byte[] CONTENT = "imeji zip export imeji zip export imeji zip export".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void compressedFilesAreStored() throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ZipStreamWriter writer = new ZipStreamWriter(out, true);
+    writer.addFile("photo.jpg", "image/jpeg", -1, CONTENT);
+    writer.addFile("notes.txt", "text/plain", -1, CONTENT);
+    writer.close();
+    Assert.assertEquals(2, writer.getEntries());
+    Assert.assertEquals(1, writer.getStoredEntries());
+    Assert.assertEquals(2L * CONTENT.length, writer.getBytes());
+    final List<ZipEntry> entries = read(out.toByteArray());
+    Assert.assertEquals(ZipEntry.STORED, entries.get(0).getMethod());
+    Assert.assertEquals(ZipEntry.DEFLATED, entries.get(1).getMethod());
+  }
+
+  @Test
+  public void allFilesAreCompressedIfNotStoring() throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ZipStreamWriter writer = new ZipStreamWriter(out, false);
+    writer.addFile("photo.jpg", "image/jpeg", -1, CONTENT);
+    writer.close();
+    Assert.assertEquals(0, writer.getStoredEntries());
+    Assert.assertEquals(ZipEntry.DEFLATED, read(out.toByteArray()).get(0).getMethod());
+  }
+
+  @Test
+  public void duplicatedNames() throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ZipStreamWriter writer = new ZipStreamWriter(out, true);
+    writer.addFile("photo.jpg", "image/jpeg", -1, CONTENT);
+    writer.addFile("photo.jpg", "image/jpeg", -1, CONTENT);
+    writer.addFile("photo.jpg", "image/jpeg", -1, CONTENT);
+    writer.addFile("readme", "text/plain", -1, CONTENT);
+    writer.addFile("readme", "text/plain", -1, CONTENT);
+    writer.close();
+    final List<String> names = new ArrayList<>();
+    for (final ZipEntry entry : read(out.toByteArray())) {
+      names.add(entry.getName());
+    }
+    Assert.assertEquals(List.of("photo.jpg", "photo_1.jpg", "photo_2.jpg", "readme", "readme_1"), names);
+  }
+
+  @Test
+  public void isCompressed() {
+    Assert.assertTrue(ZipStreamWriter.isCompressed("image/jpeg"));
+    Assert.assertTrue(ZipStreamWriter.isCompressed("video/mp4"));
+    Assert.assertTrue(ZipStreamWriter.isCompressed("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+    Assert.assertFalse(ZipStreamWriter.isCompressed("text/plain"));
+    Assert.assertFalse(ZipStreamWriter.isCompressed("audio/wav"));
+    Assert.assertFalse(ZipStreamWriter.isCompressed(null));
+  }
+
+  /**
+   * Read the entries of a zip and check their content
+   *
+   * @param zip
+   * @return
+   * @throws Exception
+   */
+  private List<ZipEntry> read(byte[] zip) throws Exception {
+    final List<ZipEntry> entries = new ArrayList<>();
+    try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+      for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+        Assert.assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,162 @@
+package de.mpg.imeji.test.logic.hierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.hierarchy.Hierarchy;
+
+/**
+ * Tests for {@link Hierarchy}
+ *
+ * @author saquet
+ *
+ */
+public class HierarchyTest {
+
+  /**
+   * a -> b -> c, a -> d, e -> f
+   *
+   * @return
+   */
+  private Hierarchy createHierarchy() {
+    return new Hierarchy().withParent("b", "a").withParent("c", "b").withParent("d", "a").withParent("f", "e");
+  }
+
+  @Test
+  public void descendants() {
+    final Hierarchy h = createHierarchy();
+    Assert.assertEquals(Arrays.asList("b", "c", "d"), h.getDescendants("a"));
+    Assert.assertEquals(Arrays.asList("c"), h.getDescendants("b"));
+    Assert.assertTrue(h.getDescendants("c").isEmpty());
+    Assert.assertTrue(h.getDescendants("unknown").isEmpty());
+    Assert.assertTrue(h.isDescendant("c", "a"));
+    Assert.assertTrue(h.isDescendant("d", "a"));
+    Assert.assertFalse(h.isDescendant("a", "c"));
+    Assert.assertFalse(h.isDescendant("d", "b"));
+    Assert.assertFalse(h.isDescendant("f", "a"));
+    Assert.assertFalse(h.isDescendant("a", "a"));
+  }
+
+  @Test
+  public void rootAndDepth() {
+    final Hierarchy h = createHierarchy();
+    Assert.assertEquals("a", h.getRoot("c"));
+    Assert.assertEquals("a", h.getRoot("a"));
+    Assert.assertEquals("e", h.getRoot("f"));
+    Assert.assertEquals("unknown", h.getRoot("unknown"));
+    Assert.assertEquals(2, h.getDepth("c"));
+    Assert.assertEquals(0, h.getDepth("a"));
+  }
+
+  @Test
+  public void move() {
+    final Hierarchy h = createHierarchy();
+    final Hierarchy moved = h.withParent("b", "f");
+    Assert.assertEquals(Arrays.asList("d"), moved.getDescendants("a"));
+    Assert.assertEquals(Arrays.asList("f", "b", "c"), moved.getDescendants("e"));
+    Assert.assertEquals("e", moved.getRoot("c"));
+    Assert.assertEquals(3, moved.getDepth("c"));
+    // The previous snapshot is unchanged
+    Assert.assertEquals("a", h.getRoot("c"));
+    Assert.assertSame(moved, moved.withParent("b", "f"));
+  }
+
+  @Test
+  public void delete() {
+    final Hierarchy h = createHierarchy().without("b");
+    Assert.assertEquals(Arrays.asList("d"), h.getDescendants("a"));
+    Assert.assertNull(h.getNodes().get("c"));
+    Assert.assertFalse(h.getTree().containsKey("b"));
+  }
+
+  @Test
+  public void moveToNewParent() {
+    final Hierarchy h = createHierarchy();
+    // g has no relation yet: it becomes a root, and a has no child left
+    final Hierarchy moved = h.withParent("b", "g").withParent("d", "c");
+    Assert.assertEquals(Arrays.asList("b", "c", "d"), moved.getDescendants("g"));
+    Assert.assertEquals("g", moved.getRoot("d"));
+    Assert.assertEquals(3, moved.getDepth("d"));
+    Assert.assertTrue(moved.getDescendants("a").isEmpty());
+    Assert.assertFalse(moved.getTree().containsKey("a"));
+    Assert.assertEquals("a", moved.getRoot("a"));
+    Assert.assertEquals(0, moved.getDepth("a"));
+  }
+
+  /**
+   * Random moves and deletes, compared after each change with the hierarchy computed from the
+   * relations
+   */
+  @Test
+  public void incrementalUpdates() {
+    final Random random = new Random(42);
+    final Map<String, String> parents = new LinkedHashMap<>();
+    Hierarchy h = new Hierarchy();
+    for (int i = 0; i < 2000; i++) {
+      final String collection = "c" + random.nextInt(40);
+      if (random.nextInt(10) == 0) {
+        h = h.without(collection);
+        for (final String uri : getSubtree(parents, collection)) {
+          parents.remove(uri);
+        }
+      } else {
+        final String parent = random.nextInt(5) == 0 ? null : "c" + random.nextInt(40);
+        if (Objects.equals(parents.get(collection), parent) || parent != null && getSubtree(parents, collection).contains(parent)) {
+          continue;
+        }
+        h = h.withParent(collection, parent);
+        parents.remove(collection);
+        if (parent != null) {
+          parents.put(collection, parent);
+        }
+      }
+      for (int c = 0; c < 40; c++) {
+        final String uri = "c" + c;
+        final List<String> subtree = getSubtree(parents, uri);
+        Assert.assertEquals(subtree.subList(1, subtree.size()), h.getDescendants(uri));
+        for (final String descendant : subtree.subList(1, subtree.size())) {
+          Assert.assertTrue(h.isDescendant(descendant, uri));
+        }
+        String root = uri;
+        int depth = 0;
+        while (parents.containsKey(root)) {
+          root = parents.get(root);
+          depth++;
+        }
+        Assert.assertEquals(root, h.getRoot(uri));
+        Assert.assertEquals(depth, h.getDepth(uri));
+        Assert.assertEquals(getChildren(parents, uri).isEmpty() ? null : getChildren(parents, uri), h.getTree().get(uri));
+      }
+    }
+  }
+
+  /**
+   * The collection and its descendants in depth-first order
+   */
+  private List<String> getSubtree(Map<String, String> parents, String uri) {
+    final List<String> subtree = new ArrayList<>();
+    subtree.add(uri);
+    for (final String child : getChildren(parents, uri)) {
+      subtree.addAll(getSubtree(parents, child));
+    }
+    return subtree;
+  }
+
+  private List<String> getChildren(Map<String, String> parents, String uri) {
+    final List<String> children = new ArrayList<>();
+    parents.forEach((child, parent) -> {
+      if (parent.equals(uri)) {
+        children.add(child);
+      }
+    });
+    return children;
+  }
+}
@@ -0,0 +1,152 @@
+package de.mpg.imeji.test.logic.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import de.mpg.imeji.exceptions.SearchIndexBulkFailureException;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticBulkProcessor;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticBulkProcessor.BulkSender;
+
+/**
+ * Tests for the {@link ElasticBulkProcessor}, with a sender recording the bulk requests
+ *
+ * @author saquet
+ *
+ */
+public class ElasticBulkProcessorTest {
+  private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void flushOnSize() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(succeed(), 3, Long.MAX_VALUE, 1, 0);
+    for (int i = 0; i < 7; i++) {
+      processor.add("" + i, delete("" + i), 0);
+    }
+    processor.flush();
+    Assert.assertEquals(Arrays.asList(Arrays.asList("0", "1", "2"), Arrays.asList("3", "4", "5"), Arrays.asList("6")), requests);
+  }
+
+  @Test
+  public void flushOnBytes() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(succeed(), 100, 1000, 1, 0);
+    processor.add("1", delete("1"), 400);
+    processor.add("2", delete("2"), 400);
+    processor.add("3", delete("3"), 400);
+    processor.flush();
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3")), requests);
+  }
+
+  @Test
+  public void coalesce() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(succeed(), 100, Long.MAX_VALUE, 1, 0);
+    processor.add("1", delete("1"), 0);
+    processor.add("2", delete("2"), 0);
+    processor.add("1", delete("1"), 0);
+    processor.flush();
+    Assert.assertEquals(Arrays.asList(Arrays.asList("2", "1")), requests);
+  }
+
+  @Test
+  public void flushOnInterval() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(succeed(), 100, Long.MAX_VALUE, 1, 50);
+    processor.add("1", delete("1"), 0);
+    Thread.sleep(100);
+    // The first operation has waited for longer than the interval
+    processor.add("2", delete("2"), 0);
+    final long end = System.currentTimeMillis() + 10000;
+    while (requests.isEmpty() && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "2")), requests);
+    processor.add("3", delete("3"), 0);
+    processor.flush();
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3")), requests);
+  }
+
+  @Test
+  public void retryOverloaded() throws Exception {
+    final long retries = ElasticBulkProcessor.getTotalRetries();
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(respond(id -> requests.isEmpty() && id.equals("2") ? 503 : 200), 100,
+        Long.MAX_VALUE, 1, 0);
+    processor.add("1", delete("1"), 0);
+    processor.add("2", delete("2"), 0);
+    processor.flush();
+    // Only the document which failed is sent again
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("2")), requests);
+    Assert.assertEquals(retries + 1, ElasticBulkProcessor.getTotalRetries());
+  }
+
+  @Test
+  public void failure() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(respond(id -> id.equals("2") ? 400 : 200), 100, Long.MAX_VALUE, 1, 0);
+    processor.add("1", delete("1"), 0);
+    processor.add("2", delete("2"), 0);
+    try {
+      processor.flush();
+      Assert.fail("The failed document should have been reported");
+    } catch (final SearchIndexBulkFailureException e) {
+      // expected
+    }
+    // Not sent again
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void requestFailure() throws Exception {
+    final ElasticBulkProcessor processor = new ElasticBulkProcessor(operations -> {
+      throw new IOException("Elasticsearch not available");
+    }, 100, Long.MAX_VALUE, 1, 0);
+    processor.add("1", delete("1"), 0);
+    try {
+      processor.flush();
+      Assert.fail("The failed request should have been reported");
+    } catch (final IOException e) {
+      // expected
+    }
+  }
+
+  private BulkOperation delete(String id) {
+    return BulkOperation.of(op -> op.delete(d -> d.index("items").id(id)));
+  }
+
+  private BulkSender succeed() {
+    return respond(id -> 200);
+  }
+
+  /**
+   * Sender recording the ids of each request, and answering with the status of each id
+   */
+  private BulkSender respond(ToIntFunction<String> status) {
+    return operations -> {
+      final List<String> ids = operations.stream().map(op -> op.delete().id()).collect(Collectors.toList());
+      final List<BulkResponseItem> items = new ArrayList<>();
+      for (final String id : ids) {
+        items.add(newItem(id, status.applyAsInt(id)));
+      }
+      requests.add(ids);
+      return BulkResponse.of(b -> b.errors(items.stream().anyMatch(i -> i.error() != null)).took(1).items(items));
+    };
+  }
+
+  private BulkResponseItem newItem(String id, int status) {
+    return BulkResponseItem.of(b -> {
+      b.operationType(OperationType.Delete).index("items").id(id).status(status);
+      if (status >= 400) {
+        b.error(e -> e.type(status == 503 ? "unavailable" : "mapper_parsing_exception").reason("status " + status));
+      }
+      return b;
+    });
+  }
+}
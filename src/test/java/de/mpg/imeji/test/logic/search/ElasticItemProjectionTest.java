@@ -0,0 +1,95 @@
+package de.mpg.imeji.test.logic.search;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Calendar;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.License;
+import de.mpg.imeji.logic.model.Metadata;
+import de.mpg.imeji.logic.model.Organization;
+import de.mpg.imeji.logic.model.Person;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticItemProjection;
+
+/**
+ * Tests for {@link ElasticItemProjection}
+ *
+ * @author saquet
+ *
+ */
+public class ElasticItemProjectionTest {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void readItemFromJson() throws Exception {
+    final Item item = createItem();
+    final String json = MAPPER.writeValueAsString(new ElasticItemProjection(item));
+    final ElasticItemProjection projection = MAPPER.readValue(json, ElasticItemProjection.class);
+    final Item read = projection.toItem();
+
+    Assert.assertEquals(item.getId(), read.getId());
+    Assert.assertEquals(item.getModified().getTimeInMillis(), read.getModified().getTimeInMillis());
+    Assert.assertEquals(item.getCreatedBy(), read.getCreatedBy());
+    Assert.assertEquals(Status.RELEASED, read.getStatus());
+    Assert.assertEquals(item.getCollection(), read.getCollection());
+    Assert.assertEquals("test.jpg", read.getFilename());
+    Assert.assertEquals(1234L, read.getFileSize());
+    Assert.assertEquals("CC0", read.getLicenses().get(0).getName());
+
+    final Metadata text = read.getMetadata().get(0);
+    Assert.assertEquals("title", text.getIndex());
+    Assert.assertEquals("a text", text.getText());
+    Assert.assertTrue(Double.isNaN(text.getNumber()));
+    final Metadata person = read.getMetadata().get(1);
+    Assert.assertEquals(42.0, person.getNumber(), 0);
+    Assert.assertEquals("Doe", person.getPerson().getFamilyName());
+    Assert.assertEquals("MPDL", person.getPerson().getOrganizations().iterator().next().getName());
+  }
+
+  @Test
+  public void validOnlyForItsDocument() throws Exception {
+    final Item item = createItem();
+    final long modified = item.getModified().getTimeInMillis();
+    final ElasticItemProjection read =
+        MAPPER.readValue(MAPPER.writeValueAsString(new ElasticItemProjection(item)), ElasticItemProjection.class);
+    Assert.assertTrue(read.isValid(modified));
+    Assert.assertFalse(read.isValid(modified + 1));
+  }
+
+  private Item createItem() {
+    final Item item = new Item();
+    item.setId(URI.create("http://imeji.org/item/1"));
+    item.setCreated(Calendar.getInstance());
+    item.setModified(Calendar.getInstance());
+    item.setCreatedBy(URI.create("http://imeji.org/user/1"));
+    item.setModifiedBy(URI.create("http://imeji.org/user/1"));
+    item.setStatus(Status.RELEASED);
+    item.setCollection(URI.create("http://imeji.org/collection/1"));
+    item.setFilename("test.jpg");
+    item.setFiletype("image/jpeg");
+    item.setFileSize(1234L);
+    final License license = new License();
+    license.setName("CC0");
+    license.setUrl("https://creativecommons.org/publicdomain/zero/1.0/");
+    item.setLicenses(Arrays.asList(license));
+    final Metadata text = new Metadata();
+    text.setIndex("title");
+    text.setText("a text");
+    final Metadata person = new Metadata();
+    person.setIndex("author");
+    person.setNumber(42);
+    final Person p = new Person();
+    p.setFamilyName("Doe");
+    p.setGivenName("John");
+    p.setOrganizations(Arrays.asList(new Organization("MPDL")));
+    person.setPerson(p);
+    item.setMetadata(Arrays.asList(text, person));
+    return item;
+  }
+}
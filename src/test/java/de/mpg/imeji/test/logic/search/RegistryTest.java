@@ -0,0 +1,68 @@
+package de.mpg.imeji.test.logic.search;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.core.statement.StatementRegistry;
+import de.mpg.imeji.logic.model.Statement;
+import de.mpg.imeji.logic.model.factory.StatementFactory;
+import de.mpg.imeji.logic.search.facet.FacetRegistry;
+import de.mpg.imeji.logic.search.facet.model.Facet;
+
+/**
+ * Tests for the snapshots of {@link StatementRegistry} and {@link FacetRegistry}
+ *
+ * @author saquet
+ *
+ */
+public class RegistryTest {
+
+  @Test
+  public void statements() {
+    final Statement title = new StatementFactory().setIndex("Title").build();
+    final Statement author = new StatementFactory().setIndex("author").build();
+    final StatementRegistry registry = new StatementRegistry(3, Arrays.asList(title, author));
+    Assert.assertEquals(3, registry.getVersion());
+    Assert.assertEquals(Arrays.asList(author, title), registry.getStatements());
+    Assert.assertSame(title, registry.getByIndex("Title"));
+    Assert.assertSame(author, registry.getByUri(author.getUri().toString()));
+    Assert.assertNull(registry.getByIndex("date"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void statementsAreImmutable() {
+    final StatementRegistry registry = new StatementRegistry(1, Arrays.asList(new StatementFactory().setIndex("title").build()));
+    registry.getStatements().clear();
+  }
+
+  @Test
+  public void facets() {
+    final Facet second = newFacet("Author", "author", 1);
+    final Facet first = newFacet("Title", "title", 0);
+    final FacetRegistry registry = new FacetRegistry(1, Arrays.asList(second, first));
+    Assert.assertEquals(Arrays.asList(first, second), registry.getFacets());
+    Assert.assertSame(second, registry.getByIndex("author"));
+    Assert.assertSame(first, registry.getByName("Title"));
+    Assert.assertNull(registry.getByName("Date"));
+  }
+
+  @Test
+  public void facetClone() {
+    final Facet facet = newFacet("Title", "title", 2);
+    final Facet clone = facet.clone();
+    clone.setPosition(0);
+    Assert.assertEquals(2, facet.getPosition());
+    Assert.assertEquals(facet.getUri(), clone.getUri());
+    Assert.assertEquals(facet.getIndex(), clone.getIndex());
+  }
+
+  private Facet newFacet(String name, String index, int position) {
+    final Facet facet = new Facet();
+    facet.setName(name);
+    facet.setIndex(index);
+    facet.setPosition(position);
+    return facet;
+  }
+}
@@ -0,0 +1,108 @@
+package de.mpg.imeji.test.logic.statistic;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.Properties.Status;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters;
+import de.mpg.imeji.logic.statistic.StorageUsageCounters.Usage;
+
+/**
+ * Tests for {@link StorageUsageCounters}. No database is available here: the writes must change the
+ * counters without running any query
+ *
+ * @author saquet
+ *
+ */
+public class StorageUsageCountersTest {
+  private static final URI USER_1 = URI.create("http://imeji.org/user/1");
+  private static final URI USER_2 = URI.create("http://imeji.org/user/2");
+  private static final URI COLLECTION_1 = URI.create("http://imeji.org/collection/1");
+  private static final URI COLLECTION_2 = URI.create("http://imeji.org/collection/2");
+
+  @Before
+  public void build() {
+    StorageUsageCounters.build(consumer -> Arrays.asList(USER_1 + "|" + COLLECTION_1 + "|100", USER_1 + "|" + COLLECTION_2 + "|50",
+        USER_2 + "|" + COLLECTION_1 + "|\"30\"^^xsd:integer").forEach(consumer));
+  }
+
+  @Test
+  public void built() {
+    Assert.assertTrue(StorageUsageCounters.isBuilt());
+    Assert.assertEquals(150L, (long) StorageUsageCounters.getUsedByUser(USER_1));
+    Assert.assertEquals(30L, (long) StorageUsageCounters.getUsedByUser(USER_2));
+    Assert.assertEquals(130L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_1));
+    Assert.assertEquals(180L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  @Test
+  public void createAndDelete() {
+    final Item item = newItem("1", USER_2, COLLECTION_2, 20);
+    StorageUsageCounters.index(Arrays.asList(item));
+    Assert.assertEquals(50L, (long) StorageUsageCounters.getUsedByUser(USER_2));
+    Assert.assertEquals(70L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_2));
+    Assert.assertEquals(200L, (long) StorageUsageCounters.getUsedByAll());
+    StorageUsageCounters.remove(Arrays.asList(item));
+    Assert.assertEquals(30L, (long) StorageUsageCounters.getUsedByUser(USER_2));
+    Assert.assertEquals(50L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_2));
+    Assert.assertEquals(180L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  @Test
+  public void move() {
+    final Item moved = newItem("1", USER_1, COLLECTION_2, 40);
+    StorageUsageCounters.update(Collections.singletonMap(moved.getId().toString(), new Usage(USER_1.toString(), COLLECTION_1.toString(), 40)),
+        Arrays.asList(moved));
+    Assert.assertEquals(150L, (long) StorageUsageCounters.getUsedByUser(USER_1));
+    Assert.assertEquals(90L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_1));
+    Assert.assertEquals(90L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_2));
+    Assert.assertEquals(180L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  @Test
+  public void updateFile() {
+    final Item item = newItem("1", USER_1, COLLECTION_1, 70);
+    StorageUsageCounters.update(Collections.singletonMap(item.getId().toString(), new Usage(USER_1.toString(), COLLECTION_1.toString(), 100)),
+        Arrays.asList(item));
+    Assert.assertEquals(120L, (long) StorageUsageCounters.getUsedByUser(USER_1));
+    Assert.assertEquals(150L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  @Test
+  public void withdraw() {
+    final Item item = newItem("1", USER_2, COLLECTION_1, 30);
+    item.setStatus(Status.WITHDRAWN);
+    StorageUsageCounters.update(Collections.singletonMap(item.getId().toString(), new Usage(USER_2.toString(), COLLECTION_1.toString(), 30)),
+        Arrays.asList(item));
+    Assert.assertEquals(0L, (long) StorageUsageCounters.getUsedByUser(USER_2));
+    Assert.assertEquals(100L, (long) StorageUsageCounters.getUsedByCollection(COLLECTION_1));
+    Assert.assertEquals(150L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  @Test
+  public void writeDuringBuild() {
+    StorageUsageCounters.build(consumer -> {
+      consumer.accept(USER_1 + "|" + COLLECTION_1 + "|100");
+      // Written after the build has read its rows
+      StorageUsageCounters.index(Arrays.asList(newItem("1", USER_1, COLLECTION_1, 10)));
+    });
+    Assert.assertEquals(110L, (long) StorageUsageCounters.getUsedByUser(USER_1));
+    Assert.assertEquals(0L, (long) StorageUsageCounters.getUsedByUser(USER_2));
+    Assert.assertEquals(110L, (long) StorageUsageCounters.getUsedByAll());
+  }
+
+  private Item newItem(String id, URI user, URI collection, long size) {
+    final Item item = new Item();
+    item.setId(URI.create("http://imeji.org/item/" + id));
+    item.setCreatedBy(user);
+    item.setCollection(collection);
+    item.setFileSize(size);
+    return item;
+  }
+}
@@ -0,0 +1,110 @@
+package de.mpg.imeji.test.logic.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.mpg.imeji.exceptions.UnprocessableError;
+import de.mpg.imeji.logic.db.keyValue.KeyValueStoreService;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.Lane;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler.LaneMetrics;
+import de.mpg.imeji.logic.storage.internal.DerivativeTask;
+import de.mpg.imeji.test.logic.db.MemoryKeyValueStore;
+
+/**
+ * Tests for the {@link DerivativeScheduler}, with a store in memory and a generator recording the
+ * generated files
+ *
+ * @author saquet
+ *
+ */
+public class DerivativeSchedulerTest {
+  private final List<String> generated = Collections.synchronizedList(new ArrayList<>());
+  private final List<DerivativeScheduler> schedulers = new ArrayList<>();
+
+  @After
+  public void shutdown() {
+    schedulers.forEach(DerivativeScheduler::shutdown);
+  }
+
+  @Test
+  public void priorities() throws Exception {
+    final DerivativeScheduler scheduler = newScheduler(new MemoryKeyValueStore("derivativesPriorities"), 10);
+    scheduler.schedule(DerivativeTask.recalculate("maintenance"), Lane.MAINTENANCE);
+    scheduler.schedule(DerivativeTask.recalculate("batch1"), Lane.BATCH);
+    scheduler.schedule(DerivativeTask.recalculate("interactive"), Lane.INTERACTIVE);
+    scheduler.schedule(DerivativeTask.recalculate("batch2"), Lane.BATCH);
+    scheduler.start();
+    awaitIdle(scheduler);
+    Assert.assertEquals(Arrays.asList("interactive", "batch1", "batch2", "maintenance"), generated);
+  }
+
+  @Test
+  public void persistAndRestore() throws Exception {
+    final MemoryKeyValueStore store = new MemoryKeyValueStore("derivativesRestore");
+    final DerivativeScheduler scheduler = newScheduler(store, 10);
+    scheduler.schedule(DerivativeTask.regenerate("batch1"), Lane.BATCH);
+    scheduler.schedule(DerivativeTask.regenerate("batch2"), Lane.BATCH);
+    scheduler.schedule(DerivativeTask.regenerate("maintenance"), Lane.MAINTENANCE);
+    Assert.assertEquals(3, store.size());
+
+    // Restart before the tasks have been run
+    final DerivativeScheduler restarted = newScheduler(store, 10);
+    Assert.assertEquals(2, getMetrics(restarted, Lane.BATCH).getQueued());
+    Assert.assertEquals(1, getMetrics(restarted, Lane.MAINTENANCE).getQueued());
+    restarted.start();
+    awaitIdle(restarted);
+    Assert.assertEquals(Arrays.asList("batch1", "batch2", "maintenance"), generated);
+    Assert.assertEquals(0, store.size());
+  }
+
+  @Test
+  public void overflow() throws Exception {
+    final MemoryKeyValueStore store = new MemoryKeyValueStore("derivativesOverflow");
+    final DerivativeScheduler scheduler = newScheduler(store, 2);
+    scheduler.schedule(DerivativeTask.recalculate("batch1"), Lane.BATCH);
+    scheduler.schedule(DerivativeTask.recalculate("batch2"), Lane.BATCH);
+    try {
+      scheduler.schedule(DerivativeTask.recalculate("batch3"), Lane.BATCH);
+      Assert.fail("The task should have been rejected");
+    } catch (final UnprocessableError e) {
+      // expected
+    }
+    Assert.assertEquals(1, getMetrics(scheduler, Lane.BATCH).getRejected());
+    Assert.assertEquals(2, store.size());
+    // The other lanes are not full
+    scheduler.schedule(DerivativeTask.recalculate("interactive"), Lane.INTERACTIVE);
+    scheduler.start();
+    awaitIdle(scheduler);
+    // Once processed, the lane accepts tasks again
+    scheduler.awaitCapacity(Lane.BATCH);
+    scheduler.schedule(DerivativeTask.recalculate("batch3"), Lane.BATCH);
+    awaitIdle(scheduler);
+    Assert.assertEquals(Arrays.asList("interactive", "batch1", "batch2", "batch3"), generated);
+  }
+
+  private DerivativeScheduler newScheduler(MemoryKeyValueStore store, int maxBacklog) {
+    final DerivativeScheduler scheduler =
+        new DerivativeScheduler(new KeyValueStoreService(store), 1, maxBacklog, task -> generated.add(task.getOriginalUrl()));
+    schedulers.add(scheduler);
+    return scheduler;
+  }
+
+  private LaneMetrics getMetrics(DerivativeScheduler scheduler, Lane lane) {
+    return scheduler.getMetrics().stream().filter(m -> m.getLane() == lane).findFirst().get();
+  }
+
+  private void awaitIdle(DerivativeScheduler scheduler) throws InterruptedException {
+    final long end = System.currentTimeMillis() + 10000;
+    while (!scheduler.isIdle() && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(scheduler.isIdle());
+  }
+}
@@ -0,0 +1,80 @@
+package de.mpg.imeji.testimpl.logic.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.logic.core.collection.CollectionService;
+import de.mpg.imeji.logic.core.facade.MoveFacade;
+import de.mpg.imeji.logic.core.item.ItemService;
+import de.mpg.imeji.logic.model.CollectionImeji;
+import de.mpg.imeji.logic.model.Item;
+import de.mpg.imeji.logic.model.factory.ImejiFactory;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.elasticsearch.model.ElasticFields;
+import de.mpg.imeji.logic.search.elasticsearch.script.CollectionMoveScript;
+import de.mpg.imeji.test.logic.service.SuperServiceTest;
+import de.mpg.imeji.util.JenaUtil;
+
+/**
+ * Tests the {@link CollectionMoveScript} run when a collection is moved with the {@link MoveFacade}
+ *
+ * @author saquet
+ *
+ */
+public class CollectionMoveTest extends SuperServiceTest {
+  private static CollectionImeji parent;
+  private static CollectionImeji subcollection;
+  private static CollectionImeji target;
+  private static Item subcollectionItem;
+
+  @BeforeClass
+  public static void specificSetup() throws ImejiException {
+    parent = createCollection();
+    subcollection = new CollectionService().getSubCollectionForPath(parent, "moved", JenaUtil.testUser);
+    target = createCollection();
+    subcollectionItem = new ItemService().create(ImejiFactory.newItem(subcollection), subcollection, JenaUtil.testUser);
+    new ElasticIndexer(ElasticIndices.items.name()).commit();
+  }
+
+  @Test
+  public void moveCollection() throws Exception {
+    final String subcollectionUri = subcollection.getId().toString();
+    Assert.assertEquals(Arrays.asList(parent.getId().toString(), subcollectionUri),
+        getIndexedAncestors(ElasticIndices.items, subcollectionItem.getId().toString()));
+    new MoveFacade().moveCollection(subcollection, target, JenaUtil.testUser, null);
+    // The moved collection and its items are indexed with their new ancestors
+    final List<String> expected = Arrays.asList(target.getId().toString(), subcollectionUri);
+    Assert.assertEquals(expected, getIndexedAncestors(ElasticIndices.items, subcollectionItem.getId().toString()));
+    Assert.assertEquals(expected, getIndexedAncestors(ElasticIndices.folders, subcollectionUri));
+    Assert.assertTrue(ElasticService.isAncestorsIndexed());
+  }
+
+  @Test(expected = IOException.class)
+  public void failedScript() throws IOException {
+    ElasticService.setReindexTarget(ElasticIndices.items, "missing_index");
+    try {
+      CollectionMoveScript.run(subcollection.getId().toString(), Arrays.asList(target.getId().toString(), subcollection.getId().toString()));
+    } finally {
+      ElasticService.removeReindexTarget(ElasticIndices.items);
+    }
+  }
+
+  private List<String> getIndexedAncestors(ElasticIndices index, String id) throws IOException {
+    final GetResponse<ObjectNode> response = ElasticService.getClient().get(g -> g.index(index.name()).id(id), ObjectNode.class);
+    final List<String> ancestors = new ArrayList<>();
+    response.source().get(ElasticFields.ANCESTORS.field()).forEach(node -> ancestors.add(node.asText()));
+    return ancestors;
+  }
+}
@@ -65,7 +65,8 @@ public class ContentServiceTest extends SuperServiceTest {
       content = new ContentService().create(item, ImejiTestResources.getTest1Jpg(), defaultUser);
 
       //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+      ConcurrencyUtil.waitForDerivativesToComplete();
     } catch (ImejiException e) {
       LOGGER.error("Exception in setup of ContentServiceTest", e);
     }
@@ -153,7 +154,8 @@ public class ContentServiceTest extends SuperServiceTest {
       content = (new ContentService()).create(item, ImejiTestResources.getTest1Jpg(), defaultUser);
 
       //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+      ConcurrencyUtil.waitForDerivativesToComplete();
 
       content = service.retrieve(content.getId().toString());
     } catch (ImejiException e) {
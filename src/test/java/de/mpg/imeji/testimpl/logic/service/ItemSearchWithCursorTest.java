@@ -0,0 +1,65 @@
+package de.mpg.imeji.testimpl.logic.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.mpg.imeji.exceptions.ImejiException;
+import de.mpg.imeji.exceptions.UnprocessableError;
+import de.mpg.imeji.logic.core.item.ItemService;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticIndexer;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticSearch;
+import de.mpg.imeji.logic.search.elasticsearch.ElasticService.ElasticIndices;
+import de.mpg.imeji.logic.search.model.SearchQuery;
+import de.mpg.imeji.logic.search.model.SearchResult;
+import de.mpg.imeji.test.logic.service.SuperServiceTest;
+import de.mpg.imeji.util.JenaUtil;
+
+/**
+ * Tests {@link ItemService#searchWithCursor}
+ *
+ * @author saquet
+ *
+ */
+public class ItemSearchWithCursorTest extends SuperServiceTest {
+  private static final int NUMBER_OF_ITEMS = 5;
+  private static final Set<String> itemIds = new HashSet<>();
+
+  @BeforeClass
+  public static void specificSetup() throws ImejiException {
+    createCollection();
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      itemIds.add(createItem().getId().toString());
+    }
+    new ElasticIndexer(ElasticIndices.items.name()).commit();
+  }
+
+  @Test
+  public void readAllItemsOfCollection() throws ImejiException {
+    final ItemService service = new ItemService();
+    final List<String> read = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      final SearchResult result =
+          service.searchWithCursor(collectionBasic.getId(), new SearchQuery(), new ArrayList<>(), JenaUtil.testUser, 0, cursor, 2, false);
+      Assert.assertEquals(NUMBER_OF_ITEMS, result.getNumberOfRecords());
+      read.addAll(result.getResults());
+      cursor = result.getCursor();
+      pages++;
+    } while (cursor != null && pages <= NUMBER_OF_ITEMS);
+    Assert.assertEquals(NUMBER_OF_ITEMS, read.size());
+    Assert.assertEquals(itemIds, new HashSet<>(read));
+  }
+
+  @Test(expected = UnprocessableError.class)
+  public void firstPageAfterResultWindow() throws ImejiException {
+    new ItemService().searchWithCursor(collectionBasic.getId(), new SearchQuery(), new ArrayList<>(), JenaUtil.testUser,
+        ElasticSearch.SEARCH_TO_INDEX_LIMIT, null, 10, false);
+  }
+}
@@ -128,7 +128,8 @@ public class ItemServiceTest extends SuperServiceTest {
     collectionWithdrawn = collectionService.retrieve(collectionWithdrawn.getId(), userAdmin);
 
     //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-    ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+    ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+    ConcurrencyUtil.waitForDerivativesToComplete();
   }
 
   /**
@@ -567,7 +568,8 @@ public class ItemServiceTest extends SuperServiceTest {
       (new ItemService()).createWithFile(item, ImejiTestResources.getTest2Jpg(), "Test2.jpg", collectionPrivate, userAdmin);
 
       //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+      ConcurrencyUtil.waitForDerivativesToComplete();
 
       delete_Test("private collection, no grant user", item, userNoGrant, NotAllowedError.class);
       delete_Test("released collection, admin user", itemReleased, userAdmin, WorkflowException.class);
@@ -677,7 +679,8 @@ public class ItemServiceTest extends SuperServiceTest {
       service.createWithFile(withdrawReleased, ImejiTestResources.getTest2Jpg(), "Test2.jpg", collectionPrivate, userAdmin);
 
       //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+      ConcurrencyUtil.waitForDerivativesToComplete();
 
       service.releaseWithDefaultLicense(Arrays.asList(withdrawReleased), userAdmin);
       withdrawReleased = service.retrieve(withdrawReleased.getId(), userAdmin);
@@ -687,7 +690,8 @@ public class ItemServiceTest extends SuperServiceTest {
       service.createWithFile(withdrawReleased, ImejiTestResources.getTest7Jpg(), "Test7.jpg", collectionPrivate, userAdmin);
 
       //Wait for content being completely created -> ContentService().delete() leads to errors otherwise
-      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR(), Imeji.getINTERNAL_STORAGE_EXECUTOR());
+      ConcurrencyUtil.waitForThreadsToComplete(Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+      ConcurrencyUtil.waitForDerivativesToComplete();
 
       service.releaseWithDefaultLicense(Arrays.asList(withdrawReleased), userAdmin);
       withdrawReleased = service.retrieve(withdrawReleased.getId(), userAdmin);
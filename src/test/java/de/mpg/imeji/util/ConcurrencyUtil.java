@@ -10,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.mpg.imeji.logic.config.Imeji;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
 
 /**
  * Utility/Helper class for concurrency utilities.
@@ -59,13 +60,22 @@ public final class ConcurrencyUtil {
     LOGGER.info("Threads compeleted.");
   }
 
+  /**
+   * Wait for all tasks of the {@code DerivativeScheduler} to complete.
+   */
+  public static void waitForDerivativesToComplete() {
+    LOGGER.info("Waiting for derivatives to be generated...");
+    await().until(() -> DerivativeScheduler.getInstance().isIdle());
+    LOGGER.info("Derivatives generated.");
+  }
+
   /**
    * Wait for the imeji threads of the accessible threadpools to complete.
    */
   public static void waitForImejiThreadsToComplete() {
     //TODO: Wait for further ThreadPools not added yet => Make ThreadPools (like WriterFacade.executor) accessible (public static), if functional possible!
-    ConcurrencyUtil.waitForThreadsToComplete((ThreadPoolExecutor) Imeji.getEXECUTOR(), Imeji.getCONTENT_EXTRACTION_EXECUTOR(),
-        Imeji.getINTERNAL_STORAGE_EXECUTOR());
+    ConcurrencyUtil.waitForThreadsToComplete((ThreadPoolExecutor) Imeji.getEXECUTOR(), Imeji.getCONTENT_EXTRACTION_EXECUTOR());
+    ConcurrencyUtil.waitForDerivativesToComplete();
   }
 
 }
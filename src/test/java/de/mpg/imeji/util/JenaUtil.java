@@ -30,6 +30,7 @@ import de.mpg.imeji.logic.search.elasticsearch.ElasticService;
 import de.mpg.imeji.logic.security.authorization.AuthorizationPredefinedRoles;
 import de.mpg.imeji.logic.security.user.UserService;
 import de.mpg.imeji.logic.security.user.UserService.USER_TYPE;
+import de.mpg.imeji.logic.storage.internal.DerivativeScheduler;
 import de.mpg.imeji.logic.util.StringHelper;
 import de.mpg.imeji.logic.util.TempFileUtil;
 
@@ -78,10 +79,10 @@ public class JenaUtil {
   }
 
   public static void closeJena() throws InterruptedException, IOException {
+    DerivativeScheduler.getInstance().shutdown();
     KeyValueStoreService.resetAndStopAllStores();
     Imeji.getEXECUTOR().shutdown();
     Imeji.getCONTENT_EXTRACTION_EXECUTOR().shutdown();
-    Imeji.getINTERNAL_STORAGE_EXECUTOR().shutdown();
     ImejiInitializer.getNIGHTLY_EXECUTOR().stop();
 
     LOGGER.info("Closing Jena:");